@@ -175,6 +175,17 @@ public class Archive implements AutoCloseable
          */
         public static final String ARCHIVE_DIR_DEFAULT = "aeron-archive";
 
+        /**
+         * Directory of a secondary storage tier, typically on slower disk, to which detached segments are moved
+         * until they are attached again or deleted. If not set then detached segments stay in the archive directory.
+         */
+        public static final String TIER_DIR_PROP_NAME = "aeron.archive.tier.dir";
+
+        /**
+         * Should segments be compressed as they are moved to the storage tier.
+         */
+        public static final String TIER_COMPRESS_PROP_NAME = "aeron.archive.tier.compress";
+
         /**
          * Recordings will be segmented on disk in files limited to the segment length which must be a multiple of
          * the term length for each stream. For lots of small recording this value may be reduced.
@@ -272,6 +283,45 @@ public class Archive implements AutoCloseable
          */
         public static final int MAX_CONCURRENT_REPLAYS_DEFAULT = 20;
 
+        /**
+         * Number of replayer agents, each on its own thread, over which replays are spread when running in
+         * {@link ArchiveThreadingMode#DEDICATED} mode. Other threading modes always have a single replayer.
+         */
+        public static final String REPLAYER_COUNT_PROP_NAME = "aeron.archive.replayer.count";
+
+        /**
+         * Default number of replayer agents.
+         * @see #REPLAYER_COUNT_PROP_NAME
+         */
+        public static final int REPLAYER_COUNT_DEFAULT = 1;
+
+        /**
+         * Quantum in bytes which a replay of weight 1 may send per duty cycle of its replayer so replays sharing a
+         * replayer progress in proportion to their weight. Replays with a higher weight are given a multiple of the
+         * quantum up to the maximum block read from disk in a single operation. Must be at least the minimum term
+         * length so any frame can be sent within a quantum.
+         */
+        public static final String REPLAY_QUANTUM_LENGTH_PROP_NAME = "aeron.archive.replay.quantum.length";
+
+        /**
+         * Default quantum in bytes for a replay of weight 1.
+         * @see #REPLAY_QUANTUM_LENGTH_PROP_NAME
+         */
+        public static final int REPLAY_QUANTUM_LENGTH_DEFAULT = 256 * 1024;
+
+        /**
+         * Number of threads which read segment blocks ahead of replays to load them into the page cache so replayers
+         * do not stall on cold reads. Zero disables read-ahead.
+         */
+        public static final String REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME =
+            "aeron.archive.replay.read.ahead.thread.count";
+
+        /**
+         * Default number of replay read-ahead threads which is disabled.
+         * @see #REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME
+         */
+        public static final int REPLAY_READ_AHEAD_THREAD_COUNT_DEFAULT = 0;
+
         /**
          * Maximum number of entries for the archive {@link Catalog}. Increasing this limit will require use of the
          * {@link CatalogTool}. The number of entries can be reduced by extending existing recordings rather than
@@ -347,6 +397,11 @@ public class Archive implements AutoCloseable
          */
         public static final int ARCHIVE_ERROR_COUNT_TYPE_ID = 101;
 
+        /**
+         * The type id of the {@link Counter} used for tracking the rate in bytes per second of an active replay.
+         */
+        public static final int ARCHIVE_REPLAY_RATE_TYPE_ID = 102;
+
         /**
          * Get the directory name to be used for storing the archive.
          *
@@ -357,6 +412,28 @@ public class Archive implements AutoCloseable
             return System.getProperty(ARCHIVE_DIR_PROP_NAME, ARCHIVE_DIR_DEFAULT);
         }
 
+        /**
+         * The directory name of the secondary storage tier for detached segments.
+         *
+         * @return the directory name of the secondary storage tier or null if not set.
+         * @see #TIER_DIR_PROP_NAME
+         */
+        public static String tierDirName()
+        {
+            return System.getProperty(TIER_DIR_PROP_NAME);
+        }
+
+        /**
+         * Should segments be compressed as they are moved to the storage tier.
+         *
+         * @return true if segments should be compressed as they are moved to the storage tier.
+         * @see #TIER_COMPRESS_PROP_NAME
+         */
+        public static boolean tierCompress()
+        {
+            return "true".equalsIgnoreCase(getProperty(TIER_COMPRESS_PROP_NAME, "false"));
+        }
+
         /**
          * The length of file to be used for storing recording segments that must be a power of 2.
          * <p>
@@ -482,7 +559,40 @@ public class Archive implements AutoCloseable
         }
 
         /**
-         * Maximum number of catalog entries to allocate for the catalog file.
+         * The number of replayer agents to spread replays over when in {@link ArchiveThreadingMode#DEDICATED} mode.
+         *
+         * @return the number of replayer agents to spread replays over.
+         * @see #REPLAYER_COUNT_PROP_NAME
+         */
+        public static int replayerCount()
+        {
+            return Integer.getInteger(REPLAYER_COUNT_PROP_NAME, REPLAYER_COUNT_DEFAULT);
+        }
+
+        /**
+         * The quantum in bytes a replay of weight 1 may send per duty cycle of its replayer.
+         *
+         * @return the quantum in bytes a replay of weight 1 may send per duty cycle of its replayer.
+         * @see #REPLAY_QUANTUM_LENGTH_PROP_NAME
+         */
+        public static int replayQuantumLength()
+        {
+            return Integer.getInteger(REPLAY_QUANTUM_LENGTH_PROP_NAME, REPLAY_QUANTUM_LENGTH_DEFAULT);
+        }
+
+        /**
+         * The number of threads which read segment blocks ahead of replays.
+         *
+         * @return the number of threads which read segment blocks ahead of replays.
+         * @see #REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME
+         */
+        public static int replayReadAheadThreadCount()
+        {
+            return Integer.getInteger(REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME, REPLAY_READ_AHEAD_THREAD_COUNT_DEFAULT);
+        }
+
+        /**
+         * Maximum number of catalog entries the catalog file will grow to hold.
          *
          * @return the maximum number of catalog entries to support for the catalog file.
          */
@@ -559,6 +669,9 @@ public class Archive implements AutoCloseable
         private Aeron aeron;
         private File archiveDir;
         private String archiveDirectoryName = Configuration.archiveDirName();
+        private File tierDir;
+        private String tierDirectoryName = Configuration.tierDirName();
+        private boolean tierCompress = Configuration.tierCompress();
         private FileChannel archiveDirChannel;
         private Catalog catalog;
         private ArchiveMarkFile markFile;
@@ -599,6 +712,9 @@ public class Archive implements AutoCloseable
         private AgentInvoker mediaDriverAgentInvoker;
         private int maxConcurrentRecordings = Configuration.maxConcurrentRecordings();
         private int maxConcurrentReplays = Configuration.maxConcurrentReplays();
+        private int replayerCount = Configuration.replayerCount();
+        private int replayQuantumLength = Configuration.replayQuantumLength();
+        private int replayReadAheadThreadCount = Configuration.replayReadAheadThreadCount();
 
         /**
          * Perform a shallow copy of the object.
@@ -715,6 +831,24 @@ public class Archive implements AutoCloseable
 
             archiveDirChannel = channelForDirectorySync(archiveDir, catalogFileSyncLevel);
 
+            if (null == tierDir && null != tierDirectoryName)
+            {
+                tierDir = new File(tierDirectoryName);
+            }
+
+            if (null != tierDir)
+            {
+                if (deleteArchiveOnStart && tierDir.exists())
+                {
+                    IoUtil.delete(tierDir, false);
+                }
+
+                if (tierDir.getAbsoluteFile().equals(archiveDir.getAbsoluteFile()))
+                {
+                    throw new ArchiveException("tier dir must be different to archive dir: " + tierDir);
+                }
+            }
+
             if (!BitUtil.isPowerOfTwo(segmentFileLength))
             {
                 throw new ArchiveException("segment file length not a power of 2: " + segmentFileLength);
@@ -742,7 +876,27 @@ public class Archive implements AutoCloseable
 
             archiveClientContext.aeron(aeron).lock(NoOpLock.INSTANCE).errorHandler(errorHandler);
 
-            int expectedCount = DEDICATED == threadingMode ? 2 : 0;
+            if (DEDICATED != threadingMode)
+            {
+                replayerCount = 1;
+            }
+            else if (replayerCount < 1)
+            {
+                throw new ArchiveException("replayer count must be at least 1: " + replayerCount);
+            }
+
+            if (replayQuantumLength < TERM_MIN_LENGTH || replayQuantumLength > Configuration.MAX_BLOCK_LENGTH)
+            {
+                throw new ArchiveException("replay quantum length not in valid range: " + replayQuantumLength);
+            }
+
+            if (replayReadAheadThreadCount < 0)
+            {
+                throw new ArchiveException("replay read-ahead thread count must not be negative: " +
+                    replayReadAheadThreadCount);
+            }
+
+            int expectedCount = DEDICATED == threadingMode ? 1 + replayerCount : 0;
             expectedCount += aeron.conductorAgentInvoker() == null ? 1 : 0;
             abortLatch = new CountDownLatch(expectedCount);
         }
@@ -815,6 +969,78 @@ public class Archive implements AutoCloseable
             return this;
         }
 
+        /**
+         * Set the directory name of the secondary storage tier to which detached segments are moved until they are
+         * attached again or deleted. This name is used if {@link #tierDir(File)} is not set.
+         *
+         * @param tierDirectoryName of the secondary storage tier.
+         * @return this for a fluent API.
+         * @see Configuration#TIER_DIR_PROP_NAME
+         */
+        public Context tierDirectoryName(final String tierDirectoryName)
+        {
+            this.tierDirectoryName = tierDirectoryName;
+            return this;
+        }
+
+        /**
+         * Get the directory name of the secondary storage tier.
+         *
+         * @return the directory name of the secondary storage tier or null if not set.
+         * @see Configuration#TIER_DIR_PROP_NAME
+         */
+        public String tierDirectoryName()
+        {
+            return tierDirectoryName;
+        }
+
+        /**
+         * Get the directory of the secondary storage tier to which detached segments are moved.
+         *
+         * @return the directory of the secondary storage tier or null if segments are not tiered.
+         */
+        public File tierDir()
+        {
+            return tierDir;
+        }
+
+        /**
+         * Set the directory of the secondary storage tier to which detached segments are moved.
+         * Segments in the tier can be attached again and replayed without first being copied back.
+         *
+         * @param tierDir of the secondary storage tier.
+         * @return this for a fluent API.
+         */
+        public Context tierDir(final File tierDir)
+        {
+            this.tierDir = tierDir;
+            return this;
+        }
+
+        /**
+         * Should segments be compressed as they are moved to the storage tier.
+         *
+         * @return true if segments should be compressed as they are moved to the storage tier.
+         * @see Configuration#TIER_COMPRESS_PROP_NAME
+         */
+        public boolean tierCompress()
+        {
+            return tierCompress;
+        }
+
+        /**
+         * Should segments be compressed as they are moved to the storage tier.
+         *
+         * @param tierCompress true if segments should be compressed as they are moved to the storage tier.
+         * @return this for a fluent API.
+         * @see Configuration#TIER_COMPRESS_PROP_NAME
+         */
+        public Context tierCompress(final boolean tierCompress)
+        {
+            this.tierCompress = tierCompress;
+            return this;
+        }
+
         /**
          * Get the {@link FileChannel} for the directory in which the Archive will store recordings and the
          * {@link Catalog}. This can be used for sync'ing the directory.
@@ -1525,7 +1751,82 @@ public class Archive implements AutoCloseable
         }
 
         /**
-         * Delete the archive directory if the {@link #archiveDir()} value is not null.
+         * Get the number of replayer agents replays are spread over.
+         *
+         * @return the number of replayer agents replays are spread over.
+         * @see Configuration#REPLAYER_COUNT_PROP_NAME
+         */
+        public int replayerCount()
+        {
+            return replayerCount;
+        }
+
+        /**
+         * Set the number of replayer agents replays are spread over when in {@link ArchiveThreadingMode#DEDICATED}
+         * mode. Each replay is assigned to the replayer with the least total weight of replays at the time it starts.
+         *
+         * @param replayerCount the number of replayer agents.
+         * @return this for a fluent API.
+         * @see Configuration#REPLAYER_COUNT_PROP_NAME
+         */
+        public Context replayerCount(final int replayerCount)
+        {
+            this.replayerCount = replayerCount;
+            return this;
+        }
+
+        /**
+         * Get the quantum in bytes a replay of weight 1 may send per duty cycle of its replayer.
+         *
+         * @return the quantum in bytes a replay of weight 1 may send per duty cycle of its replayer.
+         * @see Configuration#REPLAY_QUANTUM_LENGTH_PROP_NAME
+         */
+        public int replayQuantumLength()
+        {
+            return replayQuantumLength;
+        }
+
+        /**
+         * Set the quantum in bytes a replay of weight 1 may send per duty cycle of its replayer.
+         *
+         * @param replayQuantumLength in bytes a replay of weight 1 may send per duty cycle of its replayer.
+         * @return this for a fluent API.
+         * @see Configuration#REPLAY_QUANTUM_LENGTH_PROP_NAME
+         */
+        public Context replayQuantumLength(final int replayQuantumLength)
+        {
+            this.replayQuantumLength = replayQuantumLength;
+            return this;
+        }
+
+        /**
+         * Get the number of threads which read segment blocks ahead of replays.
+         *
+         * @return the number of threads which read segment blocks ahead of replays.
+         * @see Configuration#REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME
+         */
+        public int replayReadAheadThreadCount()
+        {
+            return replayReadAheadThreadCount;
+        }
+
+        /**
+         * Set the number of threads which read segment blocks ahead of replays so they are in the page cache by the
+         * time a replayer reads them. Zero disables read-ahead.
+         *
+         * @param replayReadAheadThreadCount the number of threads which read segment blocks ahead of replays.
+         * @return this for a fluent API.
+         * @see Configuration#REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME
+         */
+        public Context replayReadAheadThreadCount(final int replayReadAheadThreadCount)
+        {
+            this.replayReadAheadThreadCount = replayReadAheadThreadCount;
+            return this;
+        }
+
+        /**
+         * Delete the archive directory if the {@link #archiveDir()} value is not null, and the storage tier
+         * directory if the {@link #tierDir()} value is not null.
          */
         public void deleteArchiveDirectory()
         {
@@ -1533,6 +1834,11 @@ public class Archive implements AutoCloseable
             {
                 IoUtil.delete(archiveDir, false);
             }
+
+            if (null != tierDir)
+            {
+                IoUtil.delete(tierDir, false);
+            }
         }
 
         /**
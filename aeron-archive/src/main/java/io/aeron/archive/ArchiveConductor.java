@@ -18,8 +18,10 @@ package io.aeron.archive;
 import io.aeron.*;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.archive.client.ArchiveException;
+import io.aeron.archive.codecs.RecordingCompression;
 import io.aeron.archive.codecs.RecordingDescriptorDecoder;
 import io.aeron.archive.codecs.RecordingSignal;
+import io.aeron.archive.codecs.ReplayRequestDecoder;
 import io.aeron.archive.codecs.SourceLocation;
 import io.aeron.archive.status.RecordingPos;
 import io.aeron.logbuffer.LogBufferDescriptor;
@@ -41,6 +43,7 @@ import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileAttribute;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.concurrent.ThreadLocalRandom;
@@ -75,6 +78,8 @@ abstract class ArchiveConductor
     private final Long2ObjectHashMap<ReplaySession> replaySessionByIdMap = new Long2ObjectHashMap<>();
     private final Long2ObjectHashMap<RecordingSession> recordingSessionByIdMap = new Long2ObjectHashMap<>();
     private final Long2ObjectHashMap<ReplicationSession> replicationSessionByIdMap = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<SegmentCompressionSession> compressionSessionByIdMap =
+        new Long2ObjectHashMap<>();
     private final Int2ObjectHashMap<Counter> counterByIdMap = new Int2ObjectHashMap<>();
     private final Object2ObjectHashMap<String, Subscription> recordingSubscriptionMap = new Object2ObjectHashMap<>();
     private final UnsafeBuffer descriptorBuffer = new UnsafeBuffer();
@@ -83,8 +88,8 @@ abstract class ArchiveConductor
     private final UnsafeBuffer counterMetadataBuffer = new UnsafeBuffer(new byte[METADATA_LENGTH]);
     private final UnsafeBuffer dataBuffer = new UnsafeBuffer(
         allocateDirectAligned(MAX_BLOCK_LENGTH, BitUtil.CACHE_LINE_LENGTH));
-    private final UnsafeBuffer replayBuffer = new UnsafeBuffer(
-        allocateDirectAligned(MAX_BLOCK_LENGTH, BitUtil.CACHE_LINE_LENGTH));
+    private final UnsafeBuffer[] replayBuffers;
+    private final long[] replayerWeights;
 
     private final Runnable aeronCloseHandler = this::abort;
     private final Aeron aeron;
@@ -99,16 +104,20 @@ abstract class ArchiveConductor
     private final Catalog catalog;
     private final ArchiveMarkFile markFile;
     private final RecordingEventsProxy recordingEventsProxy;
+    private final SegmentTier segmentTier;
+    private final ReplayReadAhead replayReadAhead;
     private final long connectTimeoutMs;
     private long timeOfLastMarkFileUpdateMs;
+    private SegmentCompressor segmentCompressor;
     private long nextSessionId = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
     private final int maxConcurrentRecordings;
     private final int maxConcurrentReplays;
+    private final int replayQuantumLength;
     private int replayId = 1;
     private volatile boolean isAbort;
 
     protected final Archive.Context ctx;
-    SessionWorker<ReplaySession> replayer;
+    final ArrayList<SessionWorker<ReplaySession>> replayers = new ArrayList<>();
     SessionWorker<RecordingSession> recorder;
 
     ArchiveConductor(final Archive.Context ctx)
@@ -125,6 +134,7 @@ abstract class ArchiveConductor
         archiveDirChannel = ctx.archiveDirChannel();
         maxConcurrentRecordings = ctx.maxConcurrentRecordings();
         maxConcurrentReplays = ctx.maxConcurrentReplays();
+        replayQuantumLength = ctx.replayQuantumLength();
         connectTimeoutMs = TimeUnit.NANOSECONDS.toMillis(ctx.connectTimeoutNs());
 
         aeron.addUnavailableCounterHandler(this);
@@ -143,12 +153,48 @@ abstract class ArchiveConductor
         catalog = ctx.catalog();
         markFile = ctx.archiveMarkFile();
         cachedEpochClock.update(epochClock.time());
+
+        segmentTier = null == ctx.tierDir() ? null : new SegmentTier(
+            archiveDir,
+            ctx.tierDir(),
+            ctx.tierCompress(),
+            ctx.fileSyncLevel() > 0,
+            ctx.countedErrorHandler(),
+            ctx.errorCounter());
+
+        replayReadAhead = 0 == ctx.replayReadAheadThreadCount() ? null : new ReplayReadAhead(
+            ctx.replayReadAheadThreadCount(),
+            MAX_BLOCK_LENGTH,
+            maxConcurrentReplays,
+            ctx.countedErrorHandler(),
+            ctx.errorCounter());
+
+        replayerWeights = new long[ctx.replayerCount()];
+        replayBuffers = new UnsafeBuffer[ctx.replayerCount()];
+        for (int i = 0; i < replayBuffers.length; i++)
+        {
+            replayBuffers[i] = new UnsafeBuffer(allocateDirectAligned(MAX_BLOCK_LENGTH, BitUtil.CACHE_LINE_LENGTH));
+        }
     }
 
     public void onStart()
     {
-        replayer = newReplayer();
+        for (int i = 0; i < replayBuffers.length; i++)
+        {
+            replayers.add(newReplayer(i));
+        }
+
         recorder = newRecorder();
+
+        if (null != segmentTier)
+        {
+            segmentTier.start(ctx.threadFactory(), ctx.idleStrategy());
+        }
+
+        if (null != replayReadAhead)
+        {
+            replayReadAhead.start(ctx.threadFactory(), ctx::idleStrategy);
+        }
     }
 
     public void onAvailableImage(final Image image)
@@ -176,11 +222,14 @@ abstract class ArchiveConductor
 
     protected abstract SessionWorker<RecordingSession> newRecorder();
 
-    protected abstract SessionWorker<ReplaySession> newReplayer();
+    protected abstract SessionWorker<ReplaySession> newReplayer(int index);
 
     protected final void preSessionsClose()
     {
         closeSessionWorkers();
+        CloseHelper.close(replayReadAhead);
+        CloseHelper.close(segmentCompressor);
+        CloseHelper.close(segmentTier);
     }
 
     protected abstract void closeSessionWorkers();
@@ -217,7 +266,10 @@ abstract class ArchiveConductor
     {
         try
         {
-            replayer.abort();
+            for (final SessionWorker<ReplaySession> replayer : replayers)
+            {
+                replayer.abort();
+            }
             recorder.abort();
             isAbort = true;
             ctx.abortLatch().await(AgentRunner.RETRY_CLOSE_TIMEOUT_MS * 2L, TimeUnit.MILLISECONDS);
@@ -330,6 +382,7 @@ abstract class ArchiveConductor
         final long correlationId,
         final int streamId,
         final SourceLocation sourceLocation,
+        final RecordingCompression compression,
         final String originalChannel,
         final ControlSession controlSession)
     {
@@ -353,7 +406,7 @@ abstract class ArchiveConductor
                     SPY_PREFIX + strippedChannel : strippedChannel;
 
                 final AvailableImageHandler handler = (image) -> taskQueue.addLast(() -> startRecordingSession(
-                    controlSession, correlationId, strippedChannel, originalChannel, image));
+                    controlSession, correlationId, strippedChannel, originalChannel, compression, image));
 
                 final Subscription subscription = aeron.addSubscription(channel, streamId, handler, null);
 
@@ -528,6 +581,7 @@ abstract class ArchiveConductor
         final long position,
         final long length,
         final int replayStreamId,
+        final int weight,
         final String replayChannel,
         final ControlSession controlSession)
     {
@@ -538,6 +592,15 @@ abstract class ArchiveConductor
             return;
         }
 
+        final int replayWeight = ReplayRequestDecoder.weightNullValue() == weight ? 1 : weight;
+        if (replayWeight < ReplayRequestDecoder.weightMinValue() ||
+            replayWeight > ReplayRequestDecoder.weightMaxValue())
+        {
+            final String msg = "replay weight not in valid range: " + weight;
+            controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
+            return;
+        }
+
         if (!catalog.hasRecording(recordingId))
         {
             final String msg = "unknown recording id " + recordingId;
@@ -569,6 +632,7 @@ abstract class ArchiveConductor
 
         final long replaySessionId = ((long)(replayId++) << 32) | (replayPublication.sessionId() & 0xFFFF_FFFFL);
         final RecordingSession recordingSession = recordingSessionByIdMap.get(recordingId);
+        final int replayerIndex = leastLoadedReplayer();
         final ReplaySession replaySession = new ReplaySession(
             replayPosition,
             length,
@@ -577,17 +641,22 @@ abstract class ArchiveConductor
             correlationId,
             controlSession,
             controlResponseProxy,
-            replayBuffer,
+            replayBuffers[replayerIndex],
             catalog,
             archiveDir,
+            segmentTier,
+            replayReadAhead,
             segmentFile,
             cachedEpochClock,
             replayPublication,
             recordingSummary,
-            null == recordingSession ? null : recordingSession.recordingPosition());
+            null == recordingSession ? null : recordingSession.recordingPosition(),
+            replayerIndex,
+            replayWeight,
+            replayQuantumLength,
+            newReplayRateCounter(replaySessionId, recordingId, replayWeight));
 
-        replaySessionByIdMap.put(replaySessionId, replaySession);
-        replayer.addSession(replaySession);
+        addReplaySession(replaySession);
     }
 
     void startBoundedReplay(
@@ -639,6 +708,7 @@ abstract class ArchiveConductor
             correlationId, controlSession, replayChannel, replayStreamId, replayPosition, recordingSummary);
 
         final long replaySessionId = ((long)(replayId++) << 32) | (replayPublication.sessionId() & 0xFFFF_FFFFL);
+        final int replayerIndex = leastLoadedReplayer();
         final ReplaySession replaySession = new ReplaySession(
             replayPosition,
             length,
@@ -647,17 +717,22 @@ abstract class ArchiveConductor
             correlationId,
             controlSession,
             controlResponseProxy,
-            replayBuffer,
+            replayBuffers[replayerIndex],
             catalog,
             archiveDir,
+            segmentTier,
+            replayReadAhead,
             segmentFile,
             cachedEpochClock,
             replayPublication,
             recordingSummary,
-            limitCounter);
+            limitCounter,
+            replayerIndex,
+            1,
+            replayQuantumLength,
+            newReplayRateCounter(replaySessionId, recordingId, 1));
 
-        replaySessionByIdMap.put(replaySessionId, replaySession);
-        replayer.addSession(replaySession);
+        addReplaySession(replaySession);
     }
 
     void stopReplay(final long correlationId, final long replaySessionId, final ControlSession controlSession)
@@ -804,13 +879,23 @@ abstract class ArchiveConductor
 
             if (segmentOffset > 0)
             {
+                if (null != segmentTier && segmentTier.isCold(recordingId, segmentBasePosition))
+                {
+                    segmentTier.rehydrate(recordingId, segmentBasePosition);
+                }
+
                 if (!eraseRemainingSegment(
                     correlationId, controlSession, position, segmentLength, segmentOffset, termLength, file))
                 {
                     return;
                 }
+
+                if (null != segmentTier)
+                {
+                    segmentTier.delete(recordingId, segmentBasePosition);
+                }
             }
-            else if (!file.delete())
+            else if (!deleteSegment(recordingId, segmentBasePosition))
             {
                 final String msg = "failed to delete " + file;
                 controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
@@ -821,10 +906,9 @@ abstract class ArchiveConductor
 
             for (long p = segmentBasePosition + segmentLength; p <= stopPosition; p += segmentLength)
             {
-                final File f = new File(archiveDir, segmentFileName(recordingId, p));
-                if (!f.delete())
+                if (!deleteSegment(recordingId, p))
                 {
-                    final String msg = "failed to delete " + f;
+                    final String msg = "failed to delete " + segmentFileName(recordingId, p);
                     controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
                     throw new ArchiveException(msg);
                 }
@@ -876,6 +960,12 @@ abstract class ArchiveConductor
         {
             catalog.recordingStopped(recordingId, session.recordedPosition(), epochClock.time());
 
+            final SegmentCompressionSession compressionSession = compressionSessionByIdMap.get(recordingId);
+            if (null != compressionSession)
+            {
+                compressionSession.recordingStopped(session.recordedPosition());
+            }
+
             session.controlSession().attemptSendSignal(
                 session.correlationId(),
                 recordingId,
@@ -890,7 +980,11 @@ abstract class ArchiveConductor
 
     void closeReplaySession(final ReplaySession session)
     {
-        replaySessionByIdMap.remove(session.sessionId());
+        if (null != replaySessionByIdMap.remove(session.sessionId()))
+        {
+            replayerWeights[session.replayerIndex()] -= session.weight();
+        }
+
         session.sendPendingError(controlResponseProxy);
         closeSession(session);
     }
@@ -967,6 +1061,11 @@ abstract class ArchiveConductor
             isValidDetach(correlationId, controlSession, recordingId, newStartPosition))
         {
             catalog.startPosition(recordingId, newStartPosition);
+            if (null != segmentTier)
+            {
+                offloadDetachedSegments(recordingId);
+            }
+
             controlSession.sendOkResponse(correlationId, controlResponseProxy);
         }
     }
@@ -1009,26 +1108,32 @@ abstract class ArchiveConductor
 
             while (position >= 0)
             {
-                final File file = new File(archiveDir, segmentFileName(recordingId, position));
+                File file = new File(archiveDir, segmentFileName(recordingId, position));
                 if (!file.exists())
                 {
-                    break;
+                    if (null == segmentTier || !segmentTier.isCold(recordingId, position))
+                    {
+                        break;
+                    }
+
+                    file = segmentTier.tierFile(recordingId, position);
                 }
 
                 final long fileLength = file.length();
-                if (fileLength != segmentLength)
+                if (fileLength != segmentLength && !CompressedSegment.isCompressed(file))
                 {
                     final String msg = "file length " + fileLength + " not equal to segment length " + segmentLength;
                     controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
                     return;
                 }
 
-                try (FileChannel fileChannel = FileChannel.open(file.toPath(), FILE_OPTIONS, NO_ATTRIBUTES))
+                try (SegmentReader segmentReader = new SegmentReader())
                 {
+                    segmentReader.open(file);
                     final int termCount = (int)(position >> bitsToShift);
                     final int termId = recordingSummary.initialTermId + termCount;
                     final int termOffset = findTermOffsetForStart(
-                        correlationId, controlSession, file, fileChannel, streamId, termId, termLength);
+                        correlationId, controlSession, file, segmentReader, streamId, termId, termLength);
 
                     if (termOffset < 0)
                     {
@@ -1084,13 +1189,15 @@ abstract class ArchiveConductor
                     position -= segmentLength;
                     continue;
                 }
-                else if (!srcFile.exists())
+                final String dstFile = segmentFileName(dstRecordingId, position);
+                if (!srcFile.exists())
                 {
-                    break;
+                    if (null == segmentTier || !segmentTier.rename(srcFile.getName(), dstFile))
+                    {
+                        break;
+                    }
                 }
-
-                final String dstFile = segmentFileName(dstRecordingId, position);
-                if (!srcFile.renameTo(new File(archiveDir, dstFile)))
+                else if (!srcFile.renameTo(new File(archiveDir, dstFile)))
                 {
                     final String msg = "failed to rename " + srcFile + " to " + dstFile;
                     controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
@@ -1112,6 +1219,25 @@ abstract class ArchiveConductor
         replicationSessionByIdMap.remove(replicationSession.sessionId());
     }
 
+    void removeSegmentCompressionSession(final SegmentCompressionSession compressionSession)
+    {
+        compressionSessionByIdMap.remove(compressionSession.sessionId());
+    }
+
+    boolean hasActiveReplay(final long recordingId, final long segmentFileBasePosition)
+    {
+        for (final ReplaySession replaySession : replaySessionByIdMap.values())
+        {
+            if (replaySession.recordingId() == recordingId &&
+                replaySession.segmentFileBasePosition() == segmentFileBasePosition)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private long deleteDetachedSegments(final long recordingId)
     {
         catalog.recordingSummary(recordingId, recordingSummary);
@@ -1121,8 +1247,7 @@ abstract class ArchiveConductor
 
         while (filenamePosition >= 0)
         {
-            final File f = new File(archiveDir, segmentFileName(recordingId, filenamePosition));
-            if (!f.delete())
+            if (!deleteSegment(recordingId, filenamePosition))
             {
                 break;
             }
@@ -1134,11 +1259,37 @@ abstract class ArchiveConductor
         return count;
     }
 
+    private void offloadDetachedSegments(final long recordingId)
+    {
+        catalog.recordingSummary(recordingId, recordingSummary);
+        final int segmentFile = recordingSummary.segmentFileLength;
+        long filenamePosition = recordingSummary.startPosition - segmentFile;
+
+        while (filenamePosition >= 0)
+        {
+            final File f = new File(archiveDir, segmentFileName(recordingId, filenamePosition));
+            if (!segmentTier.offload(f, segmentFile) && !segmentTier.tierFile(recordingId, filenamePosition).exists())
+            {
+                break;
+            }
+
+            filenamePosition -= segmentFile;
+        }
+    }
+
+    private boolean deleteSegment(final long recordingId, final long segmentBasePosition)
+    {
+        // the tier copy goes first so a background rehydrate cannot bring back the archive copy once it is deleted
+        final boolean isTierDeleted = null != segmentTier && segmentTier.delete(recordingId, segmentBasePosition);
+
+        return new File(archiveDir, segmentFileName(recordingId, segmentBasePosition)).delete() || isTierDeleted;
+    }
+
     private int findTermOffsetForStart(
         final long correlationId,
         final ControlSession controlSession,
         final File file,
-        final FileChannel fileChannel,
+        final SegmentReader segmentReader,
         final int streamId,
         final int termId,
         final int termLength)
@@ -1148,7 +1299,7 @@ abstract class ArchiveConductor
         final ByteBuffer byteBuffer = dataBuffer.byteBuffer();
         byteBuffer.clear().limit(DataHeaderFlyweight.HEADER_LENGTH);
 
-        if (DataHeaderFlyweight.HEADER_LENGTH != fileChannel.read(byteBuffer, 0))
+        if (DataHeaderFlyweight.HEADER_LENGTH != segmentReader.read(byteBuffer, 0))
         {
             final String msg = "failed to read segment file";
             controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
@@ -1162,7 +1313,7 @@ abstract class ArchiveConductor
             do
             {
                 byteBuffer.clear().limit(Math.min(termLength - termOffset, MAX_BLOCK_LENGTH));
-                final int bytesRead = fileChannel.read(byteBuffer, termOffset);
+                final int bytesRead = segmentReader.read(byteBuffer, termOffset);
                 if (-1 == bytesRead)
                 {
                     final String msg = "read failed on " + file;
@@ -1322,6 +1473,7 @@ abstract class ArchiveConductor
         final long correlationId,
         final String strippedChannel,
         final String originalChannel,
+        final RecordingCompression compression,
         final Image image)
     {
         final int sessionId = image.sessionId();
@@ -1366,6 +1518,21 @@ abstract class ArchiveConductor
         recordingSessionByIdMap.put(recordingId, session);
         recorder.addSession(session);
 
+        if (RecordingCompression.LZ == compression)
+        {
+            final SegmentCompressionSession compressionSession = new SegmentCompressionSession(
+                recordingId,
+                segmentFileBasePosition(startPosition, startPosition, termBufferLength, segmentFileLength),
+                segmentFileLength,
+                position,
+                archiveDir,
+                segmentCompressor(),
+                this);
+
+            compressionSessionByIdMap.put(recordingId, compressionSession);
+            addSession(compressionSession);
+        }
+
         controlSession.attemptSendSignal(
             correlationId,
             recordingId,
@@ -1428,6 +1595,47 @@ abstract class ArchiveConductor
             RecordingSignal.EXTEND);
     }
 
+    private int leastLoadedReplayer()
+    {
+        int index = 0;
+        for (int i = 1; i < replayerWeights.length; i++)
+        {
+            if (replayerWeights[i] < replayerWeights[index])
+            {
+                index = i;
+            }
+        }
+
+        return index;
+    }
+
+    private SegmentCompressor segmentCompressor()
+    {
+        if (null == segmentCompressor)
+        {
+            segmentCompressor = new SegmentCompressor(
+                maxConcurrentRecordings, ctx.fileSyncLevel() > 0, ctx.countedErrorHandler(), ctx.errorCounter());
+            segmentCompressor.start(ctx.threadFactory(), ctx.idleStrategy());
+        }
+
+        return segmentCompressor;
+    }
+
+    private void addReplaySession(final ReplaySession replaySession)
+    {
+        final int replayerIndex = replaySession.replayerIndex();
+        replaySessionByIdMap.put(replaySession.sessionId(), replaySession);
+        replayerWeights[replayerIndex] += replaySession.weight();
+        replayers.get(replayerIndex).addSession(replaySession);
+    }
+
+    private Counter newReplayRateCounter(final long replaySessionId, final long recordingId, final int weight)
+    {
+        return aeron.addCounter(
+            Configuration.ARCHIVE_REPLAY_RATE_TYPE_ID,
+            "replay-rate: replaySessionId=" + replaySessionId + " recordingId=" + recordingId + " weight=" + weight);
+    }
+
     private ExclusivePublication newReplayPublication(
         final long correlationId,
         final ControlSession controlSession,
@@ -1509,6 +1717,13 @@ abstract class ArchiveConductor
             }
         }
 
+        if (compressionSessionByIdMap.containsKey(recordingId))
+        {
+            final String msg = "cannot truncate recording with active segment compression " + recordingId;
+            controlSession.sendErrorResponse(correlationId, ACTIVE_RECORDING, msg, controlResponseProxy);
+            return false;
+        }
+
         catalog.recordingSummary(recordingId, recordingSummary);
         final long stopPosition = recordingSummary.stopPosition;
         final long startPosition = recordingSummary.startPosition;
@@ -1607,6 +1822,12 @@ abstract class ArchiveConductor
             }
         }
 
+        final SegmentCompressionSession compressionSession = compressionSessionByIdMap.get(recordingId);
+        if (null != compressionSession)
+        {
+            upperBound = Math.min(upperBound, compressionSession.segmentBasePosition());
+        }
+
         if (position > upperBound)
         {
             final String msg = "invalid detach: newStartPosition=" + position + " upperBound=" + upperBound;
@@ -1642,6 +1863,13 @@ abstract class ArchiveConductor
             return false;
         }
 
+        if (compressionSessionByIdMap.containsKey(srcRecordingId))
+        {
+            final String msg = "source recording segments still being compressed " + srcRecordingId;
+            controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
+            return false;
+        }
+
         if (dstStartPosition != srcStopPosition)
         {
             final String msg =
@@ -1713,7 +1941,7 @@ abstract class ArchiveConductor
             recordingSummary.segmentFileLength);
 
         final File segmentFile = new File(archiveDir, segmentFileName(recordingId, segmentFileBasePosition));
-        if (!segmentFile.exists())
+        if (!segmentFile.exists() && (null == segmentTier || !segmentTier.isCold(recordingId, segmentFileBasePosition)))
         {
             final String msg = "initial segment file does not exist for replay recording id " + recordingId;
             controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
@@ -1732,14 +1960,21 @@ abstract class ArchiveConductor
         final int termLength,
         final File file)
     {
-        try (FileChannel channel = FileChannel.open(file.toPath(), FILE_OPTIONS, NO_ATTRIBUTES))
+        if (CompressedSegment.isCompressed(file))
+        {
+            CompressedSegment.decompress(file, ctx.fileSyncLevel() > 0);
+        }
+
+        try (SegmentReader segmentReader = new SegmentReader();
+            FileChannel channel = FileChannel.open(file.toPath(), FILE_OPTIONS, NO_ATTRIBUTES))
         {
             final int termOffset = (int)(position & (termLength - 1));
             final int termCount = (int)(position >> LogBufferDescriptor.positionBitsToShift(termLength));
             final int termId = recordingSummary.initialTermId + termCount;
 
+            segmentReader.open(file);
             if (ReplaySession.notHeaderAligned(
-                channel, dataBuffer, segmentOffset, termOffset, termId, recordingSummary.streamId))
+                segmentReader, dataBuffer, segmentOffset, termOffset, termId, recordingSummary.streamId))
             {
                 final String msg = position + " position not aligned to data header";
                 controlSession.sendErrorResponse(correlationId, msg, controlResponseProxy);
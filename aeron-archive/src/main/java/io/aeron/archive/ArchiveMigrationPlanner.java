@@ -36,6 +36,7 @@ class ArchiveMigrationPlanner
     {
         ALL_MIGRATION_STEPS.add(new ArchiveMigration_0_1());
         ALL_MIGRATION_STEPS.add(new ArchiveMigration_1_2());
+        ALL_MIGRATION_STEPS.add(new ArchiveMigration_2_3());
         // as migrations are added, they are added to the static list in order of operation
     }
 
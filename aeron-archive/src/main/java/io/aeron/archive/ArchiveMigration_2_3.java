@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import org.agrona.CloseHelper;
+import org.agrona.IoUtil;
+import org.agrona.LangUtil;
+import org.agrona.SemanticVersion;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.aeron.archive.MigrationUtils.fullVersionString;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Converts the fixed 1KB record catalog into the variable length segmented format. The new catalog is written
+ * alongside the existing one and then atomically renamed over it so the catalog is never left partially migrated.
+ */
+class ArchiveMigration_2_3 implements ArchiveMigrationStep
+{
+    private static final int MINIMUM_VERSION = SemanticVersion.compose(3, 0, 0);
+    private static final String MIGRATION_DIR_NAME = "catalog-migration";
+
+    public int minimumVersion()
+    {
+        return MINIMUM_VERSION;
+    }
+
+    public void migrate(final ArchiveMarkFile markFile, final Catalog catalog, final File archiveDir)
+    {
+        final FileChannel migrationTimestampFile = MigrationUtils.createMigrationTimestampFile(
+            archiveDir, markFile.decoder().version(), minimumVersion());
+
+        final File migrationDir = new File(archiveDir, MIGRATION_DIR_NAME);
+        IoUtil.delete(migrationDir, true);
+        IoUtil.ensureDirectoryExists(migrationDir, MIGRATION_DIR_NAME);
+
+        try (Catalog newCatalog = new Catalog(
+            migrationDir, null, 0, catalog.maxEntries(), System::currentTimeMillis))
+        {
+            catalog.forEach(
+                (headerEncoder, headerDecoder, encoder, decoder) ->
+                {
+                    final long recordingId = newCatalog.appendDescriptor(
+                        headerDecoder.valid(), decoder.buffer(), decoder.offset(), headerDecoder.length());
+
+                    System.out.println("(recordingId=" + recordingId + ") OK");
+                });
+
+            newCatalog.updateVersion(minimumVersion());
+        }
+
+        final Path sourcePath = new File(migrationDir, Archive.Configuration.CATALOG_FILE_NAME).toPath();
+        final Path targetPath = new File(archiveDir, Archive.Configuration.CATALOG_FILE_NAME).toPath();
+
+        System.out.println("replacing " + targetPath + " with " + sourcePath);
+
+        try
+        {
+            Files.move(sourcePath, targetPath, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (final Exception ex)
+        {
+            System.err.println("ERR: could not replace catalog: " + sourcePath + " -> " + targetPath);
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        IoUtil.delete(migrationDir, false);
+        markFile.encoder().version(minimumVersion());
+
+        CloseHelper.close(migrationTimestampFile);
+    }
+
+    public String toString()
+    {
+        return "to " + fullVersionString(minimumVersion());
+    }
+}
@@ -25,10 +25,12 @@ import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.UnsafeBuffer;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.function.IntConsumer;
 
 import static io.aeron.archive.Archive.Configuration.RECORDING_SEGMENT_SUFFIX;
@@ -44,9 +46,18 @@ import static org.agrona.BitUtil.align;
 
 /**
  * Catalog for the archive keeps details of recorded images, past and present, and used for browsing.
- * The format is simple, allocating a fixed 1KB record for each record descriptor. This allows offset
- * based look up of a descriptor in the file. The first record contains the catalog header.
+ * The format is a header followed by variable length records, one for each record descriptor, aligned to
+ * {@link #DESCRIPTOR_ALIGNMENT}. An in memory index of recordingId to file offset is built when the catalog
+ * is loaded which allows offset based look up of a descriptor.
  * <p>
+ * The file is mapped in segments of {@link CatalogHeaderDecoder#segmentLength()} so it can grow beyond a single
+ * {@link MappedByteBuffer}. A descriptor never straddles a segment boundary, when it would not fit the remainder
+ * of the segment is filled with a padding entry and the descriptor is appended to the start of the next segment.
+ * <p>
+ * Catalogs before version 3 have a 1KB header followed by fixed 1KB records. These can be opened by tooling so they
+ * can be migrated but are not supported by a running {@link Archive}.
+ * <p>
+ * @see CatalogHeaderDecoder
  * @see RecordingDescriptorHeaderDecoder
  * @see RecordingDescriptorDecoder
  * Catalog file format:
@@ -54,6 +65,20 @@ import static org.agrona.BitUtil.align;
  *   0                   1                   2                   3
  *   0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
  *  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *  |                          Version                              |
+ *  +---------------------------------------------------------------+
+ *  |                Entry Length (0 for variable)                  |
+ *  +---------------------------------------------------------------+
+ *  |                         Alignment                             |
+ *  +---------------------------------------------------------------+
+ *  |                       Segment Length                          |
+ *  +---------------------------------------------------------------+
+ *  |                        Max Entries                            |
+ *  |                                                               |
+ *  +---------------------------------------------------------------+
+ *  |                    Reserved (40 bytes)                       ...
+ * ...                                                              |
+ *  +---------------------------------------------------------------+
  *  |                      Descriptor Length                        |
  *  +---------------+-----------------------------------------------+
  *  |     valid     |                  Reserved                     |
@@ -70,10 +95,12 @@ import static org.agrona.BitUtil.align;
  *  +---------------------------------------------------------------+
  *  |                          Reserved                             |
  *  +---------------------------------------------------------------+
- *  |             Recording Descriptor (less than 1024)             |
+ *  |           Recording Descriptor (Descriptor Length)            |
  *  |                                                              ...
  * ...                                                              |
  *  +---------------------------------------------------------------+
+ *  |                 Padding to Alignment boundary                 |
+ *  +---------------------------------------------------------------+
  *  |                          Repeats...                           |
  *  |                                                              ...
  * ...                                                              |
@@ -95,12 +122,21 @@ class Catalog implements AutoCloseable
     static final int PAGE_SIZE = 4096;
     static final int NULL_RECORD_ID = Aeron.NULL_VALUE;
 
+    static final int CATALOG_HEADER_LENGTH = CatalogHeaderDecoder.BLOCK_LENGTH;
     static final int DESCRIPTOR_HEADER_LENGTH = RecordingDescriptorHeaderDecoder.BLOCK_LENGTH;
-    static final int DEFAULT_RECORD_LENGTH = 1024;
-    static final long MAX_ENTRIES = calculateMaxEntries(Integer.MAX_VALUE, DEFAULT_RECORD_LENGTH);
+    static final int DESCRIPTOR_ALIGNMENT = FRAME_ALIGNMENT;
+    static final int MAX_DESCRIPTOR_LENGTH = 1024;
+    static final int MAX_DESCRIPTOR_STRINGS_COMBINED_LENGTH =
+        MAX_DESCRIPTOR_LENGTH - (DESCRIPTOR_HEADER_LENGTH + RecordingDescriptorEncoder.BLOCK_LENGTH + 12);
+    static final int DEFAULT_SEGMENT_LENGTH = 16 * 1024 * 1024;
+    static final int LEGACY_MAJOR_VERSION = 2;
+    static final long MAX_ENTRIES = ArrayUtil.MAX_CAPACITY;
     static final long DEFAULT_MAX_ENTRIES = 8 * 1024;
     static final byte VALID = 1;
     static final byte INVALID = 0;
+    static final byte PADDING = -1;
+
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
 
     private final RecordingDescriptorHeaderDecoder descriptorHeaderDecoder = new RecordingDescriptorHeaderDecoder();
     private final RecordingDescriptorHeaderEncoder descriptorHeaderEncoder = new RecordingDescriptorHeaderEncoder();
@@ -108,20 +144,28 @@ class Catalog implements AutoCloseable
     private final RecordingDescriptorEncoder descriptorEncoder = new RecordingDescriptorEncoder();
     private final RecordingDescriptorDecoder descriptorDecoder = new RecordingDescriptorDecoder();
 
-    private final MappedByteBuffer catalogByteBuffer;
-    private final UnsafeBuffer catalogBuffer;
-    private final UnsafeBuffer fieldAccessBuffer;
+    private final UnsafeBuffer catalogBuffer = new UnsafeBuffer();
+
+    // segments and the index are replaced with larger copies by the conductor. They are volatile so other threads,
+    // such as a replayer reading the stop position of a recording, observe fully populated copies. The entries for a
+    // recording are written before it is handed to another thread so a copy published before then is sufficient.
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile UnsafeBuffer[] segmentBuffers = new UnsafeBuffer[0];
+    private volatile long[] descriptorOffsetByRecordingId = new long[INITIAL_INDEX_CAPACITY];
 
-    private final int recordLength;
-    private final int maxDescriptorStringsCombinedLength;
-    private final int maxRecordingId;
+    private final int segmentLength;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final int fixedEntryLength;
     private final boolean forceWrites;
     private final boolean forceMetadata;
     private boolean isClosed;
     private final File archiveDir;
     private final EpochClock epochClock;
     private final FileChannel catalogChannel;
+    private long maxEntries;
     private long nextRecordingId = 0;
+    private long nextDescriptorOffset;
 
     Catalog(
         final File archiveDir,
@@ -129,53 +173,47 @@ class Catalog implements AutoCloseable
         final int fileSyncLevel,
         final long maxNumEntries,
         final EpochClock epochClock)
+    {
+        this(archiveDir, archiveDirChannel, fileSyncLevel, maxNumEntries, DEFAULT_SEGMENT_LENGTH, epochClock);
+    }
+
+    Catalog(
+        final File archiveDir,
+        final FileChannel archiveDirChannel,
+        final int fileSyncLevel,
+        final long maxNumEntries,
+        final int segmentLength,
+        final EpochClock epochClock)
     {
         this.archiveDir = archiveDir;
         this.forceWrites = fileSyncLevel > 0;
         this.forceMetadata = fileSyncLevel > 1;
         this.epochClock = epochClock;
+        this.fixedEntryLength = 0;
 
         validateMaxEntries(maxNumEntries);
+        validateSegmentLength(segmentLength);
 
         try
         {
             final File catalogFile = new File(archiveDir, Archive.Configuration.CATALOG_FILE_NAME);
             final boolean catalogPreExists = catalogFile.exists();
-            final MappedByteBuffer catalogMappedByteBuffer;
             FileChannel catalogFileChannel = null;
-            final long catalogLength;
 
             try
             {
                 catalogFileChannel = FileChannel.open(catalogFile.toPath(), CREATE, READ, WRITE, SPARSE);
-                if (catalogPreExists)
-                {
-                    catalogLength = Math.max(catalogFileChannel.size(), calculateCatalogLength(maxNumEntries));
-                }
-                else
-                {
-                    catalogLength = calculateCatalogLength(maxNumEntries);
-                }
-
-                catalogMappedByteBuffer = catalogFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, catalogLength);
             }
             catch (final Exception ex)
             {
-                CloseHelper.close(catalogFileChannel);
                 throw new RuntimeException(ex);
             }
 
             catalogChannel = catalogFileChannel;
-            catalogByteBuffer = catalogMappedByteBuffer;
-            catalogBuffer = new UnsafeBuffer(catalogByteBuffer);
-            fieldAccessBuffer = new UnsafeBuffer(catalogByteBuffer);
-
-            final CatalogHeaderDecoder catalogHeaderDecoder = new CatalogHeaderDecoder();
-            catalogHeaderDecoder.wrap(
-                catalogBuffer, 0, CatalogHeaderDecoder.BLOCK_LENGTH, CatalogHeaderDecoder.SCHEMA_VERSION);
 
             if (catalogPreExists)
             {
+                final CatalogHeaderDecoder catalogHeaderDecoder = readHeader(catalogChannel);
                 final int version = catalogHeaderDecoder.version();
                 if (SemanticVersion.major(version) != ArchiveMarkFile.MAJOR_VERSION)
                 {
@@ -183,22 +221,36 @@ class Catalog implements AutoCloseable
                         ", archive is " + SemanticVersion.toString(ArchiveMarkFile.SEMANTIC_VERSION));
                 }
 
-                recordLength = catalogHeaderDecoder.entryLength();
+                validateSegmentLength(catalogHeaderDecoder.segmentLength());
+                this.segmentLength = catalogHeaderDecoder.segmentLength();
+                this.maxEntries = Math.max(catalogHeaderDecoder.maxEntries(), maxNumEntries);
             }
             else
             {
                 forceWrites(archiveDirChannel, forceWrites, forceMetadata);
-                recordLength = DEFAULT_RECORD_LENGTH;
+                this.segmentLength = segmentLength;
+                this.maxEntries = maxNumEntries;
+            }
+
+            segmentShift = Integer.numberOfTrailingZeros(this.segmentLength);
+            segmentMask = this.segmentLength - 1;
 
-                new CatalogHeaderEncoder()
-                    .wrap(catalogBuffer, 0)
-                    .entryLength(DEFAULT_RECORD_LENGTH)
-                    .version(ArchiveMarkFile.SEMANTIC_VERSION);
+            final long segmentCount = Math.max(1, (catalogSize(catalogChannel) + segmentMask) >> segmentShift);
+            for (int i = 0; i < segmentCount; i++)
+            {
+                mapSegment(catalogChannel, FileChannel.MapMode.READ_WRITE, this.segmentLength);
             }
 
-            maxDescriptorStringsCombinedLength =
-                recordLength - (DESCRIPTOR_HEADER_LENGTH + RecordingDescriptorEncoder.BLOCK_LENGTH + 12);
-            maxRecordingId = (int)calculateMaxEntries(catalogLength, recordLength) - 1;
+            final CatalogHeaderEncoder catalogHeaderEncoder = new CatalogHeaderEncoder().wrap(segmentBuffers[0], 0);
+            if (!catalogPreExists)
+            {
+                catalogHeaderEncoder
+                    .version(ArchiveMarkFile.SEMANTIC_VERSION)
+                    .entryLength(0)
+                    .alignment(DESCRIPTOR_ALIGNMENT)
+                    .segmentLength(this.segmentLength);
+            }
+            catalogHeaderEncoder.maxEntries(this.maxEntries);
 
             refreshCatalog(true);
         }
@@ -225,48 +277,62 @@ class Catalog implements AutoCloseable
         try
         {
             final File catalogFile = new File(archiveDir, Archive.Configuration.CATALOG_FILE_NAME);
-            final MappedByteBuffer catalogMappedByteBuffer;
-            final long catalogLength;
-
             final StandardOpenOption[] openOptions =
                 writable ? new StandardOpenOption[]{ READ, WRITE, SPARSE } : new StandardOpenOption[]{ READ };
+            final FileChannel.MapMode mapMode =
+                writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
             try (FileChannel channel = FileChannel.open(catalogFile.toPath(), openOptions))
             {
-                catalogLength = channel.size();
-                catalogMappedByteBuffer = channel.map(
-                    writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, catalogLength);
-            }
-            catch (final Exception ex)
-            {
-                throw new RuntimeException(ex);
-            }
-
-            catalogByteBuffer = catalogMappedByteBuffer;
-            catalogBuffer = new UnsafeBuffer(catalogByteBuffer);
-            fieldAccessBuffer = new UnsafeBuffer(catalogByteBuffer);
+                final long catalogLength = channel.size();
+                final CatalogHeaderDecoder catalogHeaderDecoder = readHeader(channel);
 
-            final CatalogHeaderDecoder catalogHeaderDecoder = new CatalogHeaderDecoder();
-            catalogHeaderDecoder.wrap(
-                catalogBuffer, 0, CatalogHeaderDecoder.BLOCK_LENGTH, CatalogHeaderDecoder.SCHEMA_VERSION);
+                final int version = catalogHeaderDecoder.version();
+                if (null == versionCheck)
+                {
+                    if (SemanticVersion.major(version) != ArchiveMarkFile.MAJOR_VERSION)
+                    {
+                        throw new ArchiveException("invalid version " + SemanticVersion.toString(version) +
+                            ", archive is " + SemanticVersion.toString(ArchiveMarkFile.SEMANTIC_VERSION));
+                    }
+                }
+                else
+                {
+                    versionCheck.accept(version);
+                }
 
-            final int version = catalogHeaderDecoder.version();
-            if (null == versionCheck)
-            {
-                if (SemanticVersion.major(version) != ArchiveMarkFile.MAJOR_VERSION)
+                if (SemanticVersion.major(version) <= LEGACY_MAJOR_VERSION)
                 {
-                    throw new ArchiveException("invalid version " + SemanticVersion.toString(version) +
-                        ", archive is " + SemanticVersion.toString(ArchiveMarkFile.SEMANTIC_VERSION));
+                    fixedEntryLength = catalogHeaderDecoder.entryLength();
+                    segmentLength = (int)Math.min(catalogLength, Integer.MAX_VALUE);
+                    segmentShift = Integer.SIZE - 1;
+                    segmentMask = Integer.MAX_VALUE;
+                    maxEntries = calculateMaxEntries(catalogLength, fixedEntryLength);
+                    mapSegment(channel, mapMode, segmentLength);
+                }
+                else
+                {
+                    validateSegmentLength(catalogHeaderDecoder.segmentLength());
+                    fixedEntryLength = 0;
+                    segmentLength = catalogHeaderDecoder.segmentLength();
+                    segmentShift = Integer.numberOfTrailingZeros(segmentLength);
+                    segmentMask = segmentLength - 1;
+                    maxEntries = catalogHeaderDecoder.maxEntries();
+
+                    for (long position = 0; position < catalogLength; position += segmentLength)
+                    {
+                        mapSegment(channel, mapMode, (int)Math.min(segmentLength, catalogLength - position));
+                    }
                 }
             }
-            else
+            catch (final ArchiveException ex)
             {
-                versionCheck.accept(version);
+                throw ex;
+            }
+            catch (final Exception ex)
+            {
+                throw new RuntimeException(ex);
             }
-
-            recordLength = catalogHeaderDecoder.entryLength();
-            maxDescriptorStringsCombinedLength =
-                recordLength - (DESCRIPTOR_HEADER_LENGTH + RecordingDescriptorEncoder.BLOCK_LENGTH + 12);
-            maxRecordingId = (int)calculateMaxEntries(catalogLength, recordLength) - 1;
 
             refreshCatalog(false);
         }
@@ -283,13 +349,16 @@ class Catalog implements AutoCloseable
         {
             isClosed = true;
             CloseHelper.close(catalogChannel);
-            IoUtil.unmap(catalogByteBuffer);
+            for (final MappedByteBuffer segment : segments)
+            {
+                IoUtil.unmap(segment);
+            }
         }
     }
 
-    int maxEntries()
+    long maxEntries()
     {
-        return maxRecordingId + 1;
+        return maxEntries;
     }
 
     int countEntries()
@@ -299,18 +368,16 @@ class Catalog implements AutoCloseable
 
     int version()
     {
-        final UnsafeBuffer buffer = new UnsafeBuffer(catalogByteBuffer);
         final CatalogHeaderDecoder catalogHeaderDecoder = new CatalogHeaderDecoder()
-            .wrap(buffer, 0, CatalogHeaderDecoder.BLOCK_LENGTH, CatalogHeaderDecoder.SCHEMA_VERSION);
+            .wrap(segmentBuffers[0], 0, CatalogHeaderDecoder.BLOCK_LENGTH, CatalogHeaderDecoder.SCHEMA_VERSION);
 
         return catalogHeaderDecoder.version();
     }
 
     void updateVersion(final int version)
     {
-        final UnsafeBuffer buffer = new UnsafeBuffer(catalogByteBuffer);
         new CatalogHeaderEncoder()
-            .wrap(buffer, 0)
+            .wrap(segmentBuffers[0], 0)
             .version(version);
     }
 
@@ -329,23 +396,25 @@ class Catalog implements AutoCloseable
         final String originalChannel,
         final String sourceIdentity)
     {
-        if (nextRecordingId > maxRecordingId)
+        if (nextRecordingId >= maxEntries)
         {
             throw new ArchiveException("catalog is full, max recordings reached: " + maxEntries());
         }
 
         final int combinedStringsLen = strippedChannel.length() + sourceIdentity.length() + originalChannel.length();
-        if (combinedStringsLen > maxDescriptorStringsCombinedLength)
+        if (combinedStringsLen > MAX_DESCRIPTOR_STRINGS_COMBINED_LENGTH)
         {
             throw new ArchiveException("combined length of channel:'" + strippedChannel +
                 "' and sourceIdentity:'" + sourceIdentity +
                 "' and originalChannel:'" + originalChannel +
-                "' exceeds max allowed:" + maxDescriptorStringsCombinedLength);
+                "' exceeds max allowed:" + MAX_DESCRIPTOR_STRINGS_COMBINED_LENGTH);
         }
 
-        final long recordingId = nextRecordingId++;
+        final long recordingId = nextRecordingId;
+        final int descriptorLength = RecordingDescriptorEncoder.BLOCK_LENGTH + 12 + combinedStringsLen;
+        final long offset = allocateDescriptor(descriptorLength);
 
-        catalogBuffer.wrap(catalogByteBuffer, recordingDescriptorOffset(recordingId), recordLength);
+        wrapSegment(offset, DESCRIPTOR_HEADER_LENGTH + descriptorLength, catalogBuffer);
         descriptorEncoder
             .wrap(catalogBuffer, DESCRIPTOR_HEADER_LENGTH)
             .recordingId(recordingId)
@@ -368,6 +437,7 @@ class Catalog implements AutoCloseable
             .length(descriptorEncoder.encodedLength())
             .valid(VALID);
 
+        addIndexEntry(offset);
         forceWrites(catalogChannel, forceWrites, forceMetadata);
 
         return recordingId;
@@ -402,36 +472,90 @@ class Catalog implements AutoCloseable
             sourceIdentity);
     }
 
-    boolean wrapDescriptor(final long recordingId, final UnsafeBuffer buffer)
+    /**
+     * Append an already encoded {@link RecordingDescriptorDecoder} to the catalog as is, such as when migrating
+     * from a previous version of the catalog. The recordingId in the descriptor must be the next in sequence.
+     *
+     * @param valid            flag for the descriptor header.
+     * @param buffer           containing the encoded descriptor.
+     * @param offset           in the buffer at which the descriptor begins.
+     * @param descriptorLength of the encoded descriptor.
+     * @return the recordingId for the appended descriptor.
+     */
+    long appendDescriptor(final byte valid, final DirectBuffer buffer, final int offset, final int descriptorLength)
     {
-        if (recordingId < 0 || recordingId > maxRecordingId)
+        if (nextRecordingId >= maxEntries)
         {
-            return false;
+            throw new ArchiveException("catalog is full, max recordings reached: " + maxEntries());
         }
 
-        buffer.wrap(catalogByteBuffer, recordingDescriptorOffset(recordingId), recordLength);
+        if (descriptorLength > MAX_DESCRIPTOR_LENGTH - DESCRIPTOR_HEADER_LENGTH)
+        {
+            throw new ArchiveException("descriptor length exceeds max allowed: " + descriptorLength);
+        }
+
+        final long recordingId = nextRecordingId;
+        final long descriptorOffset = allocateDescriptor(descriptorLength);
+
+        wrapSegment(descriptorOffset, DESCRIPTOR_HEADER_LENGTH + descriptorLength, catalogBuffer);
+        catalogBuffer.putBytes(DESCRIPTOR_HEADER_LENGTH, buffer, offset, descriptorLength);
+
+        descriptorDecoder.wrap(
+            catalogBuffer,
+            DESCRIPTOR_HEADER_LENGTH,
+            RecordingDescriptorDecoder.BLOCK_LENGTH,
+            RecordingDescriptorDecoder.SCHEMA_VERSION);
+
+        if (descriptorDecoder.recordingId() != recordingId)
+        {
+            throw new ArchiveException(
+                "recordingId out of sequence: expected=" + recordingId + " actual=" + descriptorDecoder.recordingId());
+        }
+
+        descriptorHeaderEncoder
+            .wrap(catalogBuffer, 0)
+            .length(descriptorLength)
+            .valid(valid);
 
-        return descriptorLength(buffer) > 0;
+        addIndexEntry(descriptorOffset);
+        forceWrites(catalogChannel, forceWrites, forceMetadata);
+
+        return recordingId;
     }
 
-    boolean wrapAndValidateDescriptor(final long recordingId, final UnsafeBuffer buffer)
+    boolean wrapDescriptor(final long recordingId, final UnsafeBuffer buffer)
     {
-        if (recordingId < 0 || recordingId > maxRecordingId)
+        if (recordingId < 0 || recordingId >= nextRecordingId)
         {
             return false;
         }
 
-        buffer.wrap(catalogByteBuffer, recordingDescriptorOffset(recordingId), recordLength);
+        final long offset = recordingDescriptorOffset(recordingId);
+        final UnsafeBuffer segmentBuffer = segmentBuffers[segmentIndex(offset)];
+        final int descriptorLength = segmentBuffer.getInt(
+            segmentOffset(offset) + RecordingDescriptorHeaderDecoder.lengthEncodingOffset(), BYTE_ORDER);
+
+        wrapSegment(offset, DESCRIPTOR_HEADER_LENGTH + descriptorLength, buffer);
 
-        return descriptorLength(buffer) > 0 && isValidDescriptor(buffer);
+        return descriptorLength > 0;
+    }
+
+    boolean wrapAndValidateDescriptor(final long recordingId, final UnsafeBuffer buffer)
+    {
+        return wrapDescriptor(recordingId, buffer) && isValidDescriptor(buffer);
     }
 
     boolean hasRecording(final long recordingId)
     {
-        return recordingId >= 0 && recordingId < nextRecordingId &&
-            fieldAccessBuffer.getByte(
-                recordingDescriptorOffset(recordingId) +
-                    RecordingDescriptorHeaderDecoder.validEncodingOffset()) == VALID;
+        if (recordingId < 0 || recordingId >= nextRecordingId)
+        {
+            return false;
+        }
+
+        final long offset = recordingDescriptorOffset(recordingId);
+
+        return segmentBuffers[segmentIndex(offset)].getByte(
+            segmentOffset(offset) + RecordingDescriptorHeaderDecoder.validEncodingOffset()) == VALID;
     }
 
     int forEach(final CatalogEntryProcessor consumer)
@@ -491,9 +615,7 @@ class Catalog implements AutoCloseable
         long recordingId = nextRecordingId;
         while (--recordingId >= minRecordingId)
         {
-            catalogBuffer.wrap(catalogByteBuffer, recordingDescriptorOffset(recordingId), recordLength);
-
-            if (isValidDescriptor(catalogBuffer))
+            if (wrapDescriptor(recordingId, catalogBuffer) && isValidDescriptor(catalogBuffer))
             {
                 descriptorDecoder.wrap(
                     catalogBuffer,
@@ -560,7 +682,9 @@ class Catalog implements AutoCloseable
 
     void recordingStopped(final long recordingId, final long position, final long timestampMs)
     {
-        final int offset = recordingDescriptorOffset(recordingId) + RecordingDescriptorHeaderDecoder.BLOCK_LENGTH;
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset);
         final long stopPosition = nativeOrder() == BYTE_ORDER ? position : Long.reverseBytes(position);
 
         fieldAccessBuffer.putLong(offset + stopTimestampEncodingOffset(), timestampMs, BYTE_ORDER);
@@ -571,7 +695,9 @@ class Catalog implements AutoCloseable
 
     void stopPosition(final long recordingId, final long position)
     {
-        final int offset = recordingDescriptorOffset(recordingId) + RecordingDescriptorHeaderDecoder.BLOCK_LENGTH;
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset);
         final long stopPosition = nativeOrder() == BYTE_ORDER ? position : Long.reverseBytes(position);
         fieldAccessBuffer.putLongVolatile(offset + stopPositionEncodingOffset(), stopPosition);
 
@@ -581,7 +707,9 @@ class Catalog implements AutoCloseable
     void extendRecording(
         final long recordingId, final long controlSessionId, final long correlationId, final int sessionId)
     {
-        final int offset = recordingDescriptorOffset(recordingId) + RecordingDescriptorHeaderDecoder.BLOCK_LENGTH;
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset);
         final long stopPosition = nativeOrder() == BYTE_ORDER ? NULL_POSITION : Long.reverseBytes(NULL_POSITION);
 
         fieldAccessBuffer.putLong(offset + controlSessionIdEncodingOffset(), controlSessionId, BYTE_ORDER);
@@ -595,9 +723,9 @@ class Catalog implements AutoCloseable
 
     long startPosition(final long recordingId)
     {
-        final int offset = recordingDescriptorOffset(recordingId) +
-            RecordingDescriptorHeaderDecoder.BLOCK_LENGTH +
-            startPositionEncodingOffset();
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset) + startPositionEncodingOffset();
 
         final long startPosition = fieldAccessBuffer.getLongVolatile(offset);
 
@@ -606,18 +734,18 @@ class Catalog implements AutoCloseable
 
     void startPosition(final long recordingId, final long position)
     {
-        final int offset = recordingDescriptorOffset(recordingId) +
-            RecordingDescriptorHeaderDecoder.BLOCK_LENGTH +
-            startPositionEncodingOffset();
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset) + startPositionEncodingOffset();
 
         fieldAccessBuffer.putLong(offset, position, BYTE_ORDER);
     }
 
     long stopPosition(final long recordingId)
     {
-        final int offset = recordingDescriptorOffset(recordingId) +
-            RecordingDescriptorHeaderDecoder.BLOCK_LENGTH +
-            stopPositionEncodingOffset();
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset) + stopPositionEncodingOffset();
 
         final long stopPosition = fieldAccessBuffer.getLongVolatile(offset);
 
@@ -626,7 +754,9 @@ class Catalog implements AutoCloseable
 
     RecordingSummary recordingSummary(final long recordingId, final RecordingSummary summary)
     {
-        final int offset = recordingDescriptorOffset(recordingId) + RecordingDescriptorHeaderDecoder.BLOCK_LENGTH;
+        final long descriptorOffset = recordingDescriptorOffset(recordingId) + DESCRIPTOR_HEADER_LENGTH;
+        final UnsafeBuffer fieldAccessBuffer = segmentBuffers[segmentIndex(descriptorOffset)];
+        final int offset = segmentOffset(descriptorOffset);
 
         summary.recordingId = recordingId;
         summary.startPosition = fieldAccessBuffer.getLong(offset + startPositionEncodingOffset(), BYTE_ORDER);
@@ -651,11 +781,6 @@ class Catalog implements AutoCloseable
         return descriptorBuffer.getByte(RecordingDescriptorHeaderDecoder.validEncodingOffset()) == VALID;
     }
 
-    static long calculateCatalogLength(final long maxEntries)
-    {
-        return Math.min((maxEntries * DEFAULT_RECORD_LENGTH) + DEFAULT_RECORD_LENGTH, Integer.MAX_VALUE);
-    }
-
     static long calculateMaxEntries(final long catalogLength, final long recordLength)
     {
         if (Integer.MAX_VALUE == catalogLength)
@@ -666,9 +791,9 @@ class Catalog implements AutoCloseable
         return (catalogLength / recordLength) - 1;
     }
 
-    int recordingDescriptorOffset(final long recordingId)
+    long recordingDescriptorOffset(final long recordingId)
     {
-        return (int)(recordingId * recordLength) + recordLength;
+        return descriptorOffsetByRecordingId[(int)recordingId];
     }
 
     static void validateMaxEntries(final long maxEntries)
@@ -680,6 +805,16 @@ class Catalog implements AutoCloseable
         }
     }
 
+    static void validateSegmentLength(final int segmentLength)
+    {
+        if (segmentLength < MAX_DESCRIPTOR_LENGTH + CATALOG_HEADER_LENGTH || !BitUtil.isPowerOfTwo(segmentLength))
+        {
+            throw new ArchiveException(
+                "Catalog segment length must be a power of 2 greater than " +
+                (MAX_DESCRIPTOR_LENGTH + CATALOG_HEADER_LENGTH) + ": segmentLength=" + segmentLength);
+        }
+    }
+
     static long recoverStopOffset(final File segmentFile, final int segmentFileLength)
     {
         long lastFragmentOffset = 0;
@@ -724,21 +859,64 @@ class Catalog implements AutoCloseable
     }
 
     /**
-     * On catalog load we verify entries are in coherent state and attempt to recover entries data where untimely
-     * termination of recording has resulted in an unaccounted for stopPosition/stopTimestamp. This operation may be
-     * expensive for large catalogs.
+     * On catalog load we build the index of descriptor offsets, then verify entries are in coherent state and
+     * attempt to recover entries data where untimely termination of recording has resulted in an unaccounted for
+     * stopPosition/stopTimestamp. This operation may be expensive for large catalogs.
      *
      * @param fixOnRefresh set if the catalog should have its entries fixed.
      */
     private void refreshCatalog(final boolean fixOnRefresh)
     {
-        if (fixOnRefresh)
+        long offset = fixedEntryLength > 0 ? fixedEntryLength : CATALOG_HEADER_LENGTH;
+
+        while (true)
         {
-            forEach(this::refreshAndFixDescriptor);
+            final int segmentIndex = segmentIndex(offset);
+            if (segmentIndex >= segmentBuffers.length)
+            {
+                break;
+            }
+
+            final UnsafeBuffer segmentBuffer = segmentBuffers[segmentIndex];
+            final int segmentOffset = segmentOffset(offset);
+            if (segmentOffset + DESCRIPTOR_HEADER_LENGTH > segmentBuffer.capacity())
+            {
+                offset = (long)(segmentIndex + 1) << segmentShift;
+                continue;
+            }
+
+            // padding is checked first as it has a length of 0 when only its header fits at the end of a segment
+            final byte valid = segmentBuffer.getByte(
+                segmentOffset + RecordingDescriptorHeaderDecoder.validEncodingOffset());
+            if (PADDING == valid)
+            {
+                offset = (long)(segmentIndex + 1) << segmentShift;
+                continue;
+            }
+
+            final int length = segmentBuffer.getInt(
+                segmentOffset + RecordingDescriptorHeaderDecoder.lengthEncodingOffset(), BYTE_ORDER);
+            if (length <= 0)
+            {
+                break;
+            }
+
+            final int entryLength = fixedEntryLength > 0 ?
+                fixedEntryLength : align(DESCRIPTOR_HEADER_LENGTH + length, DESCRIPTOR_ALIGNMENT);
+            if (segmentOffset + entryLength > segmentBuffer.capacity())
+            {
+                break;
+            }
+
+            addIndexEntry(offset);
+            offset += entryLength;
         }
-        else
+
+        nextDescriptorOffset = offset;
+
+        if (fixOnRefresh)
         {
-            forEach(((headerEncoder, headerDecoder, descriptorEncoder, descriptorDecoder) -> nextRecordingId++));
+            forEach(this::refreshAndFixDescriptor);
         }
     }
 
@@ -795,8 +973,120 @@ class Catalog implements AutoCloseable
 
             encoder.stopTimestamp(epochClock.time());
         }
+    }
+
+    private long allocateDescriptor(final int descriptorLength)
+    {
+        final int entryLength = align(DESCRIPTOR_HEADER_LENGTH + descriptorLength, DESCRIPTOR_ALIGNMENT);
+        long offset = nextDescriptorOffset;
+
+        final int segmentOffset = segmentOffset(offset);
+        if (segmentOffset + entryLength > segmentLength)
+        {
+            final int segmentIndex = segmentIndex(offset);
+            if (segmentOffset + DESCRIPTOR_HEADER_LENGTH <= segmentLength)
+            {
+                descriptorHeaderEncoder
+                    .wrap(segmentBuffers[segmentIndex], segmentOffset)
+                    .length(segmentLength - segmentOffset - DESCRIPTOR_HEADER_LENGTH)
+                    .valid(PADDING);
+            }
+
+            offset = (long)(segmentIndex + 1) << segmentShift;
+        }
+
+        while (segmentIndex(offset) >= segmentBuffers.length)
+        {
+            mapSegment(catalogChannel, FileChannel.MapMode.READ_WRITE, segmentLength);
+        }
+
+        nextDescriptorOffset = offset + entryLength;
+
+        return offset;
+    }
+
+    private void addIndexEntry(final long offset)
+    {
+        final int index = (int)nextRecordingId;
+        if (index >= descriptorOffsetByRecordingId.length)
+        {
+            final int newCapacity = (int)Math.min((long)index << 1, ArrayUtil.MAX_CAPACITY);
+            descriptorOffsetByRecordingId = Arrays.copyOf(descriptorOffsetByRecordingId, newCapacity);
+        }
+
+        descriptorOffsetByRecordingId[index] = offset;
+        nextRecordingId = index + 1;
+    }
+
+    private void wrapSegment(final long offset, final int length, final UnsafeBuffer buffer)
+    {
+        buffer.wrap(segments[segmentIndex(offset)], segmentOffset(offset), length);
+    }
+
+    private int segmentIndex(final long offset)
+    {
+        return (int)(offset >>> segmentShift);
+    }
+
+    private int segmentOffset(final long offset)
+    {
+        return (int)(offset & segmentMask);
+    }
+
+    private void mapSegment(final FileChannel channel, final FileChannel.MapMode mapMode, final int length)
+    {
+        final int segmentIndex = segments.length;
+        final MappedByteBuffer segment;
+        try
+        {
+            segment = channel.map(mapMode, (long)segmentIndex * segmentLength, length);
+        }
+        catch (final Exception ex)
+        {
+            throw new RuntimeException(ex);
+        }
+
+        final MappedByteBuffer[] newSegments = Arrays.copyOf(segments, segmentIndex + 1);
+        final UnsafeBuffer[] newSegmentBuffers = Arrays.copyOf(segmentBuffers, segmentIndex + 1);
+        newSegments[segmentIndex] = segment;
+        newSegmentBuffers[segmentIndex] = new UnsafeBuffer(segment);
+
+        segments = newSegments;
+        segmentBuffers = newSegmentBuffers;
+    }
+
+    private static CatalogHeaderDecoder readHeader(final FileChannel channel)
+    {
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(CATALOG_HEADER_LENGTH);
+        try
+        {
+            while (byteBuffer.hasRemaining())
+            {
+                if (channel.read(byteBuffer, byteBuffer.position()) < 0)
+                {
+                    throw new ArchiveException("catalog header truncated");
+                }
+            }
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        return new CatalogHeaderDecoder().wrap(
+            new UnsafeBuffer(byteBuffer), 0, CatalogHeaderDecoder.BLOCK_LENGTH, CatalogHeaderDecoder.SCHEMA_VERSION);
+    }
 
-        nextRecordingId = recordingId + 1;
+    private static long catalogSize(final FileChannel channel)
+    {
+        try
+        {
+            return channel.size();
+        }
+        catch (final IOException ex)
+        {
+            throw new RuntimeException(ex);
+        }
     }
 
     private void forceWrites(final FileChannel channel, final boolean forceWrites, final boolean forceMetadata)
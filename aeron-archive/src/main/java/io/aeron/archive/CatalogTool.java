@@ -159,23 +159,29 @@ public class CatalogTool
 
             if (readContinueAnswer())
             {
-                try (ArchiveMarkFile markFile = openMarkFileReadWrite();
-                    Catalog catalog = openCatalogReadWrite())
+                try (ArchiveMarkFile markFile = openMarkFileReadWrite())
                 {
-                    System.out.println(
-                        "MarkFile version=" + fullVersionString(markFile.decoder().version()));
-                    System.out.println(
-                        "Catalog version=" + fullVersionString(catalog.version()));
-                    System.out.println(
-                        "Latest version=" + fullVersionString(ArchiveMarkFile.SEMANTIC_VERSION));
+                    try (Catalog catalog = openCatalogReadWrite())
+                    {
+                        System.out.println(
+                            "MarkFile version=" + fullVersionString(markFile.decoder().version()));
+                        System.out.println(
+                            "Catalog version=" + fullVersionString(catalog.version()));
+                        System.out.println(
+                            "Latest version=" + fullVersionString(ArchiveMarkFile.SEMANTIC_VERSION));
+                    }
 
                     final List<ArchiveMigrationStep> steps = ArchiveMigrationPlanner.createPlan(
                         markFile.decoder().version());
 
                     for (final ArchiveMigrationStep step : steps)
                     {
-                        System.out.println("Migration step " + step.toString());
-                        step.migrate(markFile, catalog, archiveDir);
+                        // a step may replace the catalog file so it is reopened for each step
+                        try (Catalog catalog = openCatalogReadWrite())
+                        {
+                            System.out.println("Migration step " + step.toString());
+                            step.migrate(markFile, catalog, archiveDir);
+                        }
                     }
                 }
                 catch (final Exception ex)
@@ -481,7 +487,7 @@ public class CatalogTool
         System.out.println("     recording files availability and contents. Faulty entries are marked as unusable.");
         System.out.println("  count-entries: queries the number of recording entries in the catalog.");
         System.out.println("  max-entries <optional number of entries>: gets or increases the maximum number of");
-        System.out.println("     recording entries the catalog can store.");
+        System.out.println("     recording entries the catalog can grow to store.");
         System.out.println("  migrate: migrate previous archive MarkFile, Catalog, and recordings from previous");
         System.out.println("     to the latest version.");
     }
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+import static org.agrona.BufferUtil.allocateDirectAligned;
+
+/**
+ * Layout of a recording segment file once it has been compressed. Compressed segments keep the file name of the
+ * raw segment they replace so purge, detach, and migrate operations are unaffected.
+ * <p>
+ * The segment is split into blocks of {@link #BLOCK_LENGTH} bytes which are compressed independently with
+ * {@link LzBlockCodec} so a read at any position only requires the block containing it to be decompressed. A block
+ * which does not compress is stored raw and is identified by having a stored length equal to the block length.
+ * <pre>
+ *   0                   1                   2                   3
+ *   0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+ *  +---------------------------------------------------------------+
+ *  |                             Magic                             |
+ *  +---------------------------------------------------------------+
+ *  |                            Version                            |
+ *  +---------------------------------------------------------------+
+ *  |                        Segment Length                         |
+ *  +---------------------------------------------------------------+
+ *  |                         Block Length                          |
+ *  +---------------------------------------------------------------+
+ *  |                          Block Count                          |
+ *  +---------------------------------------------------------------+
+ *  |                           Reserved                           ...
+ * ...                                                              |
+ *  +---------------------------------------------------------------+
+ *  |             Block File Offsets (Block Count + 1)             ...
+ * ...                                                              |
+ *  +---------------------------------------------------------------+
+ *  |                        Compressed Blocks                     ...
+ * ...                                                              |
+ *  +---------------------------------------------------------------+
+ * </pre>
+ * The magic is negative so it can never be mistaken for the frame length at the start of a raw segment.
+ */
+final class CompressedSegment
+{
+    static final int MAGIC = 0xC0A1_5E61;
+    static final int VERSION = 1;
+    static final int BLOCK_LENGTH = 64 * 1024;
+    static final int HEADER_LENGTH = 32;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int SEGMENT_LENGTH_OFFSET = 8;
+    static final int BLOCK_LENGTH_OFFSET = 12;
+    static final int BLOCK_COUNT_OFFSET = 16;
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Suffix for files written while a segment is being compressed or decompressed before they replace the segment.
+     */
+    static final String IN_PROGRESS_SUFFIX = ".lz.tmp";
+
+    private CompressedSegment()
+    {
+    }
+
+    /**
+     * Number of blocks a segment is split into for compression.
+     *
+     * @param segmentLength of the raw segment.
+     * @return number of blocks a segment is split into for compression.
+     */
+    static int blockCount(final int segmentLength)
+    {
+        return (segmentLength + BLOCK_LENGTH - 1) / BLOCK_LENGTH;
+    }
+
+    /**
+     * Offset in the file at which the first compressed block begins, following the header and block index.
+     *
+     * @param blockCount in the compressed segment.
+     * @return offset in the file at which the first compressed block begins.
+     */
+    static int dataOffset(final int blockCount)
+    {
+        return HEADER_LENGTH + ((blockCount + 1) * Integer.BYTES);
+    }
+
+    /**
+     * Is the segment file open on the channel in compressed form.
+     *
+     * @param channel open on the segment file.
+     * @return true if the segment has been compressed otherwise false.
+     * @throws IOException if the channel can not be read.
+     */
+    static boolean isCompressed(final FileChannel channel) throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).order(BYTE_ORDER);
+        if (Integer.BYTES != channel.read(buffer, MAGIC_OFFSET))
+        {
+            return false;
+        }
+
+        return MAGIC == buffer.getInt(0);
+    }
+
+    /**
+     * Is the segment file in compressed form.
+     *
+     * @param segmentFile to check.
+     * @return true if the segment has been compressed otherwise false.
+     */
+    static boolean isCompressed(final File segmentFile)
+    {
+        try (FileChannel channel = FileChannel.open(segmentFile.toPath(), READ))
+        {
+            return isCompressed(channel);
+        }
+        catch (final IOException ex)
+        {
+            throw new ArchiveException("failed to read segment " + segmentFile, ex, ArchiveException.GENERIC);
+        }
+    }
+
+    /**
+     * Compress a raw segment into a new file, as done when a segment is moved to a slower storage tier. The
+     * destination is written under a temporary name and only replaced once complete.
+     *
+     * @param segmentFile   raw segment to be compressed.
+     * @param dstFile       to contain the compressed segment.
+     * @param segmentLength of the raw segment.
+     * @param forceWrites   to storage before the compressed file replaces any existing destination.
+     */
+    static void compress(
+        final File segmentFile, final File dstFile, final int segmentLength, final boolean forceWrites)
+    {
+        final File tempFile = inProgressFile(dstFile);
+        new Writer().write(segmentFile, tempFile, segmentLength, forceWrites);
+        replace(tempFile, dstFile);
+    }
+
+    /**
+     * The file under which a segment is written while being compressed or decompressed before it replaces the
+     * segment.
+     *
+     * @param segmentFile to be replaced.
+     * @return the file under which a segment is written before it replaces the segment.
+     */
+    static File inProgressFile(final File segmentFile)
+    {
+        return new File(segmentFile.getParentFile(), segmentFile.getName() + IN_PROGRESS_SUFFIX);
+    }
+
+    /**
+     * Atomically replace a segment with a file written by {@link Writer#write(File, File, int, boolean)} so readers
+     * opening the segment see either the previous or the complete new form.
+     *
+     * @param tempFile    which has been written.
+     * @param segmentFile to be replaced.
+     */
+    static void replace(final File tempFile, final File segmentFile)
+    {
+        try
+        {
+            Files.move(tempFile.toPath(), segmentFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (final IOException ex)
+        {
+            throw new ArchiveException("failed to replace segment " + segmentFile, ex, ArchiveException.GENERIC);
+        }
+    }
+
+    /**
+     * Restore a compressed segment to its raw form in place so it can be modified, as required when a recording is
+     * truncated within the segment.
+     *
+     * @param segmentFile to be decompressed.
+     * @param forceWrites to storage before the raw segment replaces the compressed segment.
+     */
+    static void decompress(final File segmentFile, final boolean forceWrites)
+    {
+        final File tempFile = inProgressFile(segmentFile);
+
+        try (SegmentReader reader = new SegmentReader();
+            FileChannel rawChannel = FileChannel.open(tempFile.toPath(), CREATE, TRUNCATE_EXISTING, WRITE))
+        {
+            reader.open(segmentFile);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_LENGTH);
+            long position = 0;
+
+            while (reader.read(buffer, position) > 0)
+            {
+                buffer.flip();
+                while (buffer.hasRemaining())
+                {
+                    position += rawChannel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+
+            if (forceWrites)
+            {
+                rawChannel.force(false);
+            }
+        }
+        catch (final IOException ex)
+        {
+            throw new ArchiveException("failed to decompress segment " + segmentFile, ex, ArchiveException.GENERIC);
+        }
+
+        replace(tempFile, segmentFile);
+    }
+
+    /**
+     * Writer of the compressed form of raw segments which holds the buffers for compression so a thread compressing
+     * many segments does not allocate them for each. This is the only writer of the compressed segment format.
+     * <p>
+     * <b>Note:</b> This class is not threadsafe.
+     */
+    static final class Writer
+    {
+        private final int[] hashTable = new int[LzBlockCodec.HASH_TABLE_LENGTH];
+        private final UnsafeBuffer rawBuffer = new UnsafeBuffer(
+            allocateDirectAligned(BLOCK_LENGTH, BitUtil.CACHE_LINE_LENGTH));
+        private final UnsafeBuffer compressedBuffer = new UnsafeBuffer(allocateDirectAligned(
+            BitUtil.align(LzBlockCodec.maxCompressedLength(BLOCK_LENGTH), BitUtil.CACHE_LINE_LENGTH),
+            BitUtil.CACHE_LINE_LENGTH));
+
+        /**
+         * Write the compressed form of a raw segment to a file, truncating any existing content. The file does not
+         * replace the segment, that is left to the caller via {@link CompressedSegment#replace(File, File)}.
+         *
+         * @param segmentFile   raw segment to be compressed.
+         * @param dstFile       to contain the compressed segment.
+         * @param segmentLength of the raw segment.
+         * @param forceWrites   to storage before returning.
+         */
+        void write(final File segmentFile, final File dstFile, final int segmentLength, final boolean forceWrites)
+        {
+            final int blockCount = blockCount(segmentLength);
+            final ByteBuffer indexBuffer = ByteBuffer.allocate(dataOffset(blockCount)).order(BYTE_ORDER);
+
+            try (FileChannel rawChannel = FileChannel.open(segmentFile.toPath(), READ);
+                FileChannel compressedChannel = FileChannel.open(dstFile.toPath(), CREATE, TRUNCATE_EXISTING, WRITE))
+            {
+                int writeOffset = dataOffset(blockCount);
+                indexBuffer.putInt(HEADER_LENGTH, writeOffset);
+
+                for (int i = 0; i < blockCount; i++)
+                {
+                    final int blockLength = Math.min(BLOCK_LENGTH, segmentLength - (i * BLOCK_LENGTH));
+                    final ByteBuffer rawByteBuffer = rawBuffer.byteBuffer();
+                    rawByteBuffer.clear().limit(blockLength);
+                    readFully(rawChannel, rawByteBuffer, (long)i * BLOCK_LENGTH);
+
+                    final int compressedLength = LzBlockCodec.compress(
+                        rawBuffer, 0, blockLength, compressedBuffer, 0, hashTable);
+                    final ByteBuffer writeBuffer;
+                    if (compressedLength < blockLength)
+                    {
+                        writeBuffer = compressedBuffer.byteBuffer();
+                        writeBuffer.clear().limit(compressedLength);
+                    }
+                    else
+                    {
+                        writeBuffer = rawByteBuffer;
+                        writeBuffer.flip();
+                    }
+
+                    writeOffset += writeFully(compressedChannel, writeBuffer, writeOffset);
+                    indexBuffer.putInt(HEADER_LENGTH + ((i + 1) * Integer.BYTES), writeOffset);
+                }
+
+                indexBuffer
+                    .putInt(MAGIC_OFFSET, MAGIC)
+                    .putInt(VERSION_OFFSET, VERSION)
+                    .putInt(SEGMENT_LENGTH_OFFSET, segmentLength)
+                    .putInt(BLOCK_LENGTH_OFFSET, BLOCK_LENGTH)
+                    .putInt(BLOCK_COUNT_OFFSET, blockCount);
+                writeFully(compressedChannel, indexBuffer, 0);
+
+                if (forceWrites)
+                {
+                    compressedChannel.force(false);
+                }
+            }
+            catch (final IOException ex)
+            {
+                throw new ArchiveException("failed to compress segment " + segmentFile, ex, ArchiveException.GENERIC);
+            }
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+        throws IOException
+    {
+        long readPosition = position;
+        while (buffer.hasRemaining())
+        {
+            final int bytesRead = channel.read(buffer, readPosition);
+            if (bytesRead < 0)
+            {
+                throw new IOException("unexpected end of segment at " + readPosition);
+            }
+
+            readPosition += bytesRead;
+        }
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+        throws IOException
+    {
+        int bytesWritten = 0;
+        while (buffer.hasRemaining())
+        {
+            bytesWritten += channel.write(buffer, position + bytesWritten);
+        }
+
+        return bytesWritten;
+    }
+}
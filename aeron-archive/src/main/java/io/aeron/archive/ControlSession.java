@@ -19,6 +19,7 @@ import io.aeron.Aeron;
 import io.aeron.Publication;
 import io.aeron.Subscription;
 import io.aeron.archive.codecs.ControlResponseCode;
+import io.aeron.archive.codecs.RecordingCompression;
 import io.aeron.archive.codecs.RecordingSignal;
 import io.aeron.archive.codecs.SourceLocation;
 import org.agrona.CloseHelper;
@@ -182,12 +183,16 @@ class ControlSession implements Session
     }
 
     void onStartRecording(
-        final long correlationId, final int streamId, final SourceLocation sourceLocation, final String channel)
+        final long correlationId,
+        final int streamId,
+        final SourceLocation sourceLocation,
+        final RecordingCompression compression,
+        final String channel)
     {
         updateState();
         if (State.ACTIVE == state)
         {
-            conductor.startRecording(correlationId, streamId, sourceLocation, channel, this);
+            conductor.startRecording(correlationId, streamId, sourceLocation, compression, channel, this);
         }
     }
 
@@ -255,13 +260,14 @@ class ControlSession implements Session
         final long position,
         final long length,
         final int replayStreamId,
+        final int weight,
         final String replayChannel)
     {
         updateState();
         if (State.ACTIVE == state)
         {
             conductor.startReplay(
-                correlationId, recordingId, position, length, replayStreamId, replayChannel, this);
+                correlationId, recordingId, position, length, replayStreamId, weight, replayChannel, this);
         }
     }
 
@@ -173,14 +173,15 @@ class ControlSessionDemuxer implements Session, FragmentHandler
                     decoder.wrap(
                         tempBuffer,
                         0,
-                        StartRecordingRequestDecoder.BLOCK_LENGTH,
-                        StartRecordingRequestDecoder.SCHEMA_VERSION);
+                        fixedLength + padLength,
+                        StartRecordingRequestDecoder.compressionSinceVersion() - 1);
                 }
 
                 controlSession.onStartRecording(
                     correlationId,
                     decoder.streamId(),
                     decoder.sourceLocation(),
+                    decoder.compression(),
                     decoder.channel());
                 break;
             }
@@ -222,6 +223,7 @@ class ControlSessionDemuxer implements Session, FragmentHandler
                     decoder.position(),
                     decoder.length(),
                     decoder.replayStreamId(),
+                    decoder.weight(),
                     decoder.replayChannel());
                 break;
             }
@@ -20,6 +20,7 @@ import org.agrona.ErrorHandler;
 import org.agrona.concurrent.*;
 import org.agrona.concurrent.status.AtomicCounter;
 
+import java.util.ArrayList;
 import java.util.concurrent.CountDownLatch;
 
 final class DedicatedModeArchiveConductor extends ArchiveConductor
@@ -27,7 +28,7 @@ final class DedicatedModeArchiveConductor extends ArchiveConductor
     private static final int COMMAND_LIMIT = 10;
 
     private final ManyToOneConcurrentLinkedQueue<Session> closeQueue;
-    private AgentRunner replayerAgentRunner;
+    private final ArrayList<AgentRunner> replayerAgentRunners = new ArrayList<>();
     private AgentRunner recorderAgentRunner;
 
     DedicatedModeArchiveConductor(final Archive.Context ctx)
@@ -41,9 +42,16 @@ final class DedicatedModeArchiveConductor extends ArchiveConductor
         super.onStart();
 
         recorderAgentRunner = new AgentRunner(ctx.recorderIdleStrategy(), errorHandler, ctx.errorCounter(), recorder);
-        replayerAgentRunner = new AgentRunner(ctx.replayerIdleStrategy(), errorHandler, ctx.errorCounter(), replayer);
+        for (final SessionWorker<ReplaySession> replayer : replayers)
+        {
+            replayerAgentRunners.add(
+                new AgentRunner(ctx.replayerIdleStrategy(), errorHandler, ctx.errorCounter(), replayer));
+        }
 
-        AgentRunner.startOnThread(replayerAgentRunner, ctx.threadFactory());
+        for (final AgentRunner replayerAgentRunner : replayerAgentRunners)
+        {
+            AgentRunner.startOnThread(replayerAgentRunner, ctx.threadFactory());
+        }
         AgentRunner.startOnThread(recorderAgentRunner, ctx.threadFactory());
     }
 
@@ -52,9 +60,11 @@ final class DedicatedModeArchiveConductor extends ArchiveConductor
         return new DedicatedModeRecorder(errorHandler, ctx.errorCounter(), closeQueue, ctx.abortLatch());
     }
 
-    protected SessionWorker<ReplaySession> newReplayer()
+    protected SessionWorker<ReplaySession> newReplayer(final int index)
     {
-        return new DedicatedModeReplayer(errorHandler, ctx.errorCounter(), closeQueue, ctx.abortLatch());
+        final String roleName = 1 == ctx.replayerCount() ? "archive-replayer" : "archive-replayer-" + index;
+
+        return new DedicatedModeReplayer(roleName, errorHandler, ctx.errorCounter(), closeQueue, ctx.abortLatch());
     }
 
     protected int preWork()
@@ -73,13 +83,16 @@ final class DedicatedModeArchiveConductor extends ArchiveConductor
             errorHandler.onError(ex);
         }
 
-        try
-        {
-            CloseHelper.close(replayerAgentRunner);
-        }
-        catch (final Exception ex)
+        for (final AgentRunner replayerAgentRunner : replayerAgentRunners)
         {
-            errorHandler.onError(ex);
+            try
+            {
+                CloseHelper.close(replayerAgentRunner);
+            }
+            catch (final Exception ex)
+            {
+                errorHandler.onError(ex);
+            }
         }
 
         while (processCloseQueue() > 0 || !closeQueue.isEmpty())
@@ -220,12 +233,13 @@ final class DedicatedModeArchiveConductor extends ArchiveConductor
         private volatile boolean isAbort;
 
         DedicatedModeReplayer(
+            final String roleName,
             final ErrorHandler errorHandler,
             final AtomicCounter errorCounter,
             final ManyToOneConcurrentLinkedQueue<Session> closeQueue,
             final CountDownLatch abortLatch)
         {
-            super("archive-replayer", errorHandler);
+            super(roleName, errorHandler);
 
             this.closeQueue = closeQueue;
             this.errorCounter = errorCounter;
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import java.util.Arrays;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Pure Java block compressor which produces and consumes the LZ4 block format, i.e. a sequence of tokens each
+ * followed by literals and a back reference of at most 64KB, with the last sequence being literals only.
+ * <p>
+ * The compressor favours speed over ratio by using a single hash probe per position and skipping ahead faster when
+ * input does not compress, which suits the repetitive header and payload structure of recorded term frames.
+ */
+final class LzBlockCodec
+{
+    /**
+     * Length of the hash table which must be provided to {@link #compress(DirectBuffer, int, int, MutableDirectBuffer,
+     * int, int[])}.
+     */
+    static final int HASH_TABLE_LENGTH = 1 << 12;
+
+    private static final int HASH_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(HASH_TABLE_LENGTH);
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_DISTANCE = 0xFFFF;
+    private static final int RUN_MASK = 0xF;
+    private static final int SKIP_TRIGGER = 6;
+
+    private LzBlockCodec()
+    {
+    }
+
+    /**
+     * Maximum length the compressed form of a block may take when the input does not compress.
+     *
+     * @param length of the input block.
+     * @return maximum length the compressed form of a block may take.
+     */
+    static int maxCompressedLength(final int length)
+    {
+        return length + (length / 255) + 16;
+    }
+
+    /**
+     * Compress a block of bytes.
+     *
+     * @param src       containing the block to compress.
+     * @param srcOffset at which the block begins.
+     * @param srcLength of the block.
+     * @param dst       to write the compressed block to which must have {@link #maxCompressedLength(int)} available.
+     * @param dstOffset at which to begin writing.
+     * @param hashTable of {@link #HASH_TABLE_LENGTH} used as scratch space.
+     * @return the length of the compressed block.
+     */
+    static int compress(
+        final DirectBuffer src,
+        final int srcOffset,
+        final int srcLength,
+        final MutableDirectBuffer dst,
+        final int dstOffset,
+        final int[] hashTable)
+    {
+        final int srcEnd = srcOffset + srcLength;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int matchFindLimit = srcEnd - MATCH_FIND_LIMIT;
+        int anchor = srcOffset;
+        int index = srcOffset;
+        int dstIndex = dstOffset;
+        int searchCount = 1 << SKIP_TRIGGER;
+
+        Arrays.fill(hashTable, -1);
+
+        while (index < matchFindLimit)
+        {
+            final int sequence = src.getInt(index, LITTLE_ENDIAN);
+            final int hash = hash(sequence);
+            final int candidate = hashTable[hash];
+            hashTable[hash] = index;
+
+            if (candidate < 0 || index - candidate > MAX_DISTANCE || src.getInt(candidate, LITTLE_ENDIAN) != sequence)
+            {
+                index += searchCount++ >>> SKIP_TRIGGER;
+                continue;
+            }
+
+            int matchStart = index;
+            int reference = candidate;
+            while (matchStart > anchor && reference > srcOffset &&
+                src.getByte(matchStart - 1) == src.getByte(reference - 1))
+            {
+                matchStart--;
+                reference--;
+            }
+
+            final int matchEnd = matchEnd(src, index + MIN_MATCH, candidate + MIN_MATCH, matchLimit);
+
+            dstIndex = writeSequence(
+                src, anchor, matchStart - anchor, matchStart - reference, matchEnd - matchStart, dst, dstIndex);
+
+            anchor = matchEnd;
+            index = matchEnd;
+            searchCount = 1 << SKIP_TRIGGER;
+        }
+
+        dstIndex = writeLastLiterals(src, anchor, srcEnd - anchor, dst, dstIndex);
+
+        return dstIndex - dstOffset;
+    }
+
+    /**
+     * Decompress a block of bytes.
+     *
+     * @param src       containing the compressed block.
+     * @param srcOffset at which the compressed block begins.
+     * @param srcLength of the compressed block.
+     * @param dst       to write the decompressed block to.
+     * @param dstOffset at which to begin writing.
+     * @param dstLength available for the decompressed block.
+     * @return the length of the decompressed block.
+     * @throws ArchiveException if the compressed block is malformed or does not fit in the destination.
+     */
+    static int decompress(
+        final DirectBuffer src,
+        final int srcOffset,
+        final int srcLength,
+        final MutableDirectBuffer dst,
+        final int dstOffset,
+        final int dstLength)
+    {
+        final int srcEnd = srcOffset + srcLength;
+        final int dstEnd = dstOffset + dstLength;
+        int srcIndex = srcOffset;
+        int dstIndex = dstOffset;
+
+        while (srcIndex < srcEnd)
+        {
+            final int token = src.getByte(srcIndex++) & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (RUN_MASK == literalLength)
+            {
+                int b;
+                do
+                {
+                    b = src.getByte(srcIndex++) & 0xFF;
+                    literalLength += b;
+                }
+                while (0xFF == b && srcIndex < srcEnd);
+            }
+
+            if (srcIndex + literalLength > srcEnd || dstIndex + literalLength > dstEnd)
+            {
+                throw new ArchiveException("malformed compressed block: literals exceed bounds at " + srcIndex);
+            }
+
+            dst.putBytes(dstIndex, src, srcIndex, literalLength);
+            srcIndex += literalLength;
+            dstIndex += literalLength;
+
+            if (srcIndex >= srcEnd)
+            {
+                break;
+            }
+
+            final int distance = src.getShort(srcIndex, LITTLE_ENDIAN) & 0xFFFF;
+            srcIndex += 2;
+
+            int matchLength = token & RUN_MASK;
+            if (RUN_MASK == matchLength)
+            {
+                int b;
+                do
+                {
+                    b = src.getByte(srcIndex++) & 0xFF;
+                    matchLength += b;
+                }
+                while (0xFF == b && srcIndex < srcEnd);
+            }
+            matchLength += MIN_MATCH;
+
+            final int matchOffset = dstIndex - distance;
+            if (0 == distance || matchOffset < dstOffset || dstIndex + matchLength > dstEnd)
+            {
+                throw new ArchiveException("malformed compressed block: invalid match at " + srcIndex);
+            }
+
+            copyMatch(dst, matchOffset, dstIndex, matchLength);
+            dstIndex += matchLength;
+        }
+
+        return dstIndex - dstOffset;
+    }
+
+    private static int hash(final int sequence)
+    {
+        return (sequence * -1640531535) >>> HASH_SHIFT;
+    }
+
+    private static int matchEnd(final DirectBuffer src, final int start, final int referenceStart, final int limit)
+    {
+        int index = start;
+        int reference = referenceStart;
+
+        while (index <= limit - 8)
+        {
+            final long diff = src.getLong(index, LITTLE_ENDIAN) ^ src.getLong(reference, LITTLE_ENDIAN);
+            if (0 != diff)
+            {
+                return index + (Long.numberOfTrailingZeros(diff) >>> 3);
+            }
+
+            index += 8;
+            reference += 8;
+        }
+
+        while (index < limit && src.getByte(index) == src.getByte(reference))
+        {
+            index++;
+            reference++;
+        }
+
+        return index;
+    }
+
+    private static int writeSequence(
+        final DirectBuffer src,
+        final int literalOffset,
+        final int literalLength,
+        final int distance,
+        final int matchLength,
+        final MutableDirectBuffer dst,
+        final int dstOffset)
+    {
+        final int tokenIndex = dstOffset;
+        int dstIndex = dstOffset + 1;
+        int token;
+
+        if (literalLength >= RUN_MASK)
+        {
+            token = RUN_MASK << 4;
+            dstIndex = writeLength(literalLength - RUN_MASK, dst, dstIndex);
+        }
+        else
+        {
+            token = literalLength << 4;
+        }
+
+        dst.putBytes(dstIndex, src, literalOffset, literalLength);
+        dstIndex += literalLength;
+
+        dst.putShort(dstIndex, (short)distance, LITTLE_ENDIAN);
+        dstIndex += 2;
+
+        final int encodedMatchLength = matchLength - MIN_MATCH;
+        if (encodedMatchLength >= RUN_MASK)
+        {
+            token |= RUN_MASK;
+            dstIndex = writeLength(encodedMatchLength - RUN_MASK, dst, dstIndex);
+        }
+        else
+        {
+            token |= encodedMatchLength;
+        }
+
+        dst.putByte(tokenIndex, (byte)token);
+
+        return dstIndex;
+    }
+
+    private static int writeLastLiterals(
+        final DirectBuffer src,
+        final int literalOffset,
+        final int literalLength,
+        final MutableDirectBuffer dst,
+        final int dstOffset)
+    {
+        int dstIndex = dstOffset;
+
+        if (literalLength >= RUN_MASK)
+        {
+            dst.putByte(dstIndex++, (byte)(RUN_MASK << 4));
+            dstIndex = writeLength(literalLength - RUN_MASK, dst, dstIndex);
+        }
+        else
+        {
+            dst.putByte(dstIndex++, (byte)(literalLength << 4));
+        }
+
+        dst.putBytes(dstIndex, src, literalOffset, literalLength);
+
+        return dstIndex + literalLength;
+    }
+
+    private static int writeLength(final int length, final MutableDirectBuffer dst, final int dstOffset)
+    {
+        int remaining = length;
+        int dstIndex = dstOffset;
+
+        while (remaining >= 0xFF)
+        {
+            dst.putByte(dstIndex++, (byte)0xFF);
+            remaining -= 0xFF;
+        }
+
+        dst.putByte(dstIndex++, (byte)remaining);
+
+        return dstIndex;
+    }
+
+    private static void copyMatch(
+        final MutableDirectBuffer buffer, final int matchOffset, final int dstOffset, final int matchLength)
+    {
+        final int distance = dstOffset - matchOffset;
+        if (distance >= matchLength)
+        {
+            buffer.putBytes(dstOffset, buffer, matchOffset, matchLength);
+        }
+        else
+        {
+            int copied = 0;
+            while (copied < matchLength)
+            {
+                final int chunk = Math.min(distance, matchLength - copied);
+                buffer.putBytes(dstOffset + copied, buffer, matchOffset, chunk);
+                copied += chunk;
+            }
+        }
+    }
+}
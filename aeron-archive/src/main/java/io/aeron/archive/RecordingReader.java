@@ -25,6 +25,7 @@ import org.agrona.concurrent.UnsafeBuffer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
@@ -38,6 +39,8 @@ import static io.aeron.protocol.DataHeaderFlyweight.RESERVED_VALUE_OFFSET;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 import static java.nio.file.StandardOpenOption.READ;
+import static org.agrona.BitUtil.CACHE_LINE_LENGTH;
+import static org.agrona.BufferUtil.allocateDirectAligned;
 
 class RecordingReader implements AutoCloseable
 {
@@ -49,7 +52,9 @@ class RecordingReader implements AutoCloseable
     private final int segmentLength;
     private final int termLength;
 
-    private final UnsafeBuffer termBuffer;
+    private final UnsafeBuffer termBuffer = new UnsafeBuffer();
+    private final SegmentReader segmentReader = new SegmentReader();
+    private UnsafeBuffer decompressedTermBuffer;
     private MappedByteBuffer mappedSegmentBuffer;
 
     private long replayPosition;
@@ -98,7 +103,7 @@ class RecordingReader implements AutoCloseable
 
         termOffset = (int)(fromPosition & (termLength - 1));
         termBaseSegmentOffset = segmentOffset - termOffset;
-        termBuffer = new UnsafeBuffer(mappedSegmentBuffer, termBaseSegmentOffset, termLength);
+        wrapTerm();
 
         if (fromPosition > startPosition &&
             (DataHeaderFlyweight.termOffset(termBuffer, termOffset) != termOffset ||
@@ -192,13 +197,52 @@ class RecordingReader implements AutoCloseable
             termBaseSegmentOffset = 0;
         }
 
-        termBuffer.wrap(mappedSegmentBuffer, termBaseSegmentOffset, termLength);
+        wrapTerm();
+    }
+
+    private void wrapTerm()
+    {
+        if (null != mappedSegmentBuffer)
+        {
+            termBuffer.wrap(mappedSegmentBuffer, termBaseSegmentOffset, termLength);
+            return;
+        }
+
+        if (null == decompressedTermBuffer)
+        {
+            decompressedTermBuffer = new UnsafeBuffer(allocateDirectAligned(termLength, CACHE_LINE_LENGTH));
+        }
+
+        final ByteBuffer byteBuffer = decompressedTermBuffer.byteBuffer();
+        byteBuffer.clear();
+
+        try
+        {
+            long position = termBaseSegmentOffset;
+            while (byteBuffer.hasRemaining())
+            {
+                final int bytesRead = segmentReader.read(byteBuffer, position);
+                if (bytesRead < 0)
+                {
+                    throw new IllegalStateException("unexpected end of compressed segment at " + position);
+                }
+
+                position += bytesRead;
+            }
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        termBuffer.wrap(decompressedTermBuffer, 0, termLength);
     }
 
     private void closeRecordingSegment()
     {
         IoUtil.unmap(mappedSegmentBuffer);
         mappedSegmentBuffer = null;
+        segmentReader.close();
     }
 
     private void openRecordingSegment()
@@ -213,7 +257,14 @@ class RecordingReader implements AutoCloseable
 
         try (FileChannel channel = FileChannel.open(segmentFile.toPath(), FILE_OPTIONS, NO_ATTRIBUTES))
         {
-            mappedSegmentBuffer = channel.map(READ_ONLY, 0, segmentLength);
+            if (CompressedSegment.isCompressed(channel))
+            {
+                segmentReader.open(segmentFile);
+            }
+            else
+            {
+                mappedSegmentBuffer = channel.map(READ_ONLY, 0, segmentLength);
+            }
         }
         catch (final IOException ex)
         {
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.*;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Pool of I/O agents which read segment blocks ahead of replays so they are resident in the page cache by the time
+ * the replayer reads them, keeping the replayer thread from stalling on a cold read which would hold up every other
+ * replay sharing it.
+ * <p>
+ * Each replay owns a small number of {@link Request}s which it reuses so the number of blocks in flight per replay
+ * is bounded and no allocation is required to issue a read-ahead. A request keeps the channel of the segment file it
+ * last read open until the replay moves to another segment or closes. The data read is discarded, it is the side
+ * effect of the pages being loaded that is of value.
+ */
+final class ReplayReadAhead implements AutoCloseable
+{
+    /**
+     * Number of blocks a replay may have in flight ahead of its replay position.
+     */
+    static final int REQUESTS_PER_REPLAY = 2;
+
+    private final int blockLength;
+    private final ManyToManyConcurrentArrayQueue<Request> requestQueue;
+    private final ArrayList<AgentRunner> readerRunners = new ArrayList<>();
+    private final Reader[] readers;
+    private final ErrorHandler errorHandler;
+    private final AtomicCounter errorCounter;
+
+    ReplayReadAhead(
+        final int threadCount,
+        final int blockLength,
+        final int maxConcurrentReplays,
+        final ErrorHandler errorHandler,
+        final AtomicCounter errorCounter)
+    {
+        this.blockLength = blockLength;
+        this.errorHandler = errorHandler;
+        this.errorCounter = errorCounter;
+
+        requestQueue = new ManyToManyConcurrentArrayQueue<>(Math.max(2, maxConcurrentReplays * REQUESTS_PER_REPLAY));
+        readers = new Reader[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            readers[i] = new Reader(threadCount > 1 ? "archive-replay-read-ahead-" + i : "archive-replay-read-ahead");
+        }
+    }
+
+    /**
+     * Start the read-ahead agents each on their own thread.
+     *
+     * @param threadFactory        for the read-ahead threads.
+     * @param idleStrategySupplier for the read-ahead agents when there are no blocks to read.
+     */
+    void start(final ThreadFactory threadFactory, final Supplier<IdleStrategy> idleStrategySupplier)
+    {
+        for (final Reader reader : readers)
+        {
+            final AgentRunner runner = new AgentRunner(idleStrategySupplier.get(), errorHandler, errorCounter, reader);
+            readerRunners.add(runner);
+            AgentRunner.startOnThread(runner, threadFactory);
+        }
+    }
+
+    public void close()
+    {
+        CloseHelper.closeAll(readerRunners);
+    }
+
+    /**
+     * Maximum length of a block read ahead by a single request.
+     *
+     * @return maximum length of a block read ahead by a single request.
+     */
+    int blockLength()
+    {
+        return blockLength;
+    }
+
+    /**
+     * Submit a request to read a block of a segment file ahead of a replay. Submission is rejected if the request is
+     * still in flight from a previous submission.
+     *
+     * @param request    to be reused for the read.
+     * @param file       containing the block.
+     * @param fileOffset at which the block begins.
+     * @param length     of the block which is limited to {@link #blockLength()}.
+     * @return true if the request was submitted otherwise false.
+     */
+    boolean submit(final Request request, final File file, final long fileOffset, final int length)
+    {
+        if (request.isInFlight)
+        {
+            return false;
+        }
+
+        request.file = file;
+        request.fileOffset = fileOffset;
+        request.length = Math.min(length, blockLength);
+        request.isInFlight = true;
+
+        if (!requestQueue.offer(request))
+        {
+            request.isInFlight = false;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reusable request to read a block ahead of a replay which is owned by a single replay.
+     */
+    static final class Request
+    {
+        File file;
+        long fileOffset;
+        int length;
+        volatile boolean isInFlight;
+        volatile boolean isClosed;
+        private File channelFile;
+        private FileChannel channel;
+
+        boolean isInFlight()
+        {
+            return isInFlight;
+        }
+
+        /**
+         * Close the request when its replay is closed. The cached channel is closed here unless a read is in flight
+         * in which case the reader closes it on completion.
+         */
+        void close()
+        {
+            isClosed = true;
+            if (!isInFlight)
+            {
+                closeChannel();
+            }
+        }
+
+        private FileChannel channel() throws IOException
+        {
+            if (!file.equals(channelFile))
+            {
+                closeChannel();
+                channel = FileChannel.open(file.toPath(), READ);
+                channelFile = file;
+            }
+
+            return channel;
+        }
+
+        private void closeChannel()
+        {
+            final FileChannel channel = this.channel;
+            this.channel = null;
+            channelFile = null;
+            CloseHelper.quietClose(channel);
+        }
+    }
+
+    final class Reader implements Agent
+    {
+        private final String roleName;
+        private final ByteBuffer scratchBuffer;
+
+        Reader(final String roleName)
+        {
+            this.roleName = roleName;
+            scratchBuffer = ByteBuffer.allocateDirect(blockLength);
+        }
+
+        public int doWork()
+        {
+            final Request request = requestQueue.poll();
+            if (null == request)
+            {
+                return 0;
+            }
+
+            try
+            {
+                read(request);
+            }
+            finally
+            {
+                request.isInFlight = false;
+                if (request.isClosed)
+                {
+                    request.closeChannel();
+                }
+            }
+
+            return 1;
+        }
+
+        public String roleName()
+        {
+            return roleName;
+        }
+
+        private void read(final Request request)
+        {
+            try
+            {
+                final FileChannel channel = request.channel();
+                scratchBuffer.clear().limit(request.length);
+                long position = request.fileOffset;
+                while (scratchBuffer.hasRemaining())
+                {
+                    final int bytesRead = channel.read(scratchBuffer, position);
+                    if (bytesRead < 0)
+                    {
+                        break;
+                    }
+
+                    position += bytesRead;
+                }
+            }
+            catch (final NoSuchFileException ignore)
+            {
+                // segment may have been moved to the tier or deleted since the request was submitted
+            }
+            catch (final IOException ex)
+            {
+                request.closeChannel();
+                throw new ArchiveException("failed to read ahead " + request.file, ex, ArchiveException.GENERIC);
+            }
+        }
+    }
+}
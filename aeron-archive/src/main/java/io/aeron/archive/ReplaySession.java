@@ -33,10 +33,6 @@ import org.agrona.concurrent.UnsafeBuffer;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileAttribute;
-import java.util.EnumSet;
 
 import static io.aeron.archive.Archive.Configuration.MAX_BLOCK_LENGTH;
 import static io.aeron.archive.Archive.segmentFileName;
@@ -44,7 +40,6 @@ import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 import static io.aeron.logbuffer.FrameDescriptor.FRAME_ALIGNMENT;
 import static io.aeron.protocol.DataHeaderFlyweight.RESERVED_VALUE_OFFSET;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
-import static java.nio.file.StandardOpenOption.READ;
 
 /**
  * A replay session with a client which works through the required request response flow and streaming of recorded data.
@@ -60,6 +55,13 @@ import static java.nio.file.StandardOpenOption.READ;
  * <li>Stream recorded data into the publication {@link ExclusivePublication}.</li>
  * <li>If the replay is aborted part way through, send a ReplayAborted message and terminate.</li>
  * </ul>
+ * <p>
+ * Replays serviced by the same replayer share its bandwidth by deficit round robin. Each duty cycle a session is
+ * credited with a quantum of bytes scaled by its weight and may only send what it has been credited, so a replay
+ * reading large blocks from a fast disk cannot starve others on the same replayer.
+ * <p>
+ * When a {@link SegmentTier} is configured, segments only present in the tier are read from there directly while
+ * being rehydrated in the background, and the following segment is rehydrated ahead of the replay reaching it.
  */
 class ReplaySession implements Session, AutoCloseable
 {
@@ -68,8 +70,7 @@ class ReplaySession implements Session, AutoCloseable
         INIT, REPLAY, INACTIVE, DONE
     }
 
-    private static final EnumSet<StandardOpenOption> FILE_OPTIONS = EnumSet.of(READ);
-    private static final FileAttribute<?>[] NO_ATTRIBUTES = new FileAttribute[0];
+    static final long REPLAY_RATE_INTERVAL_MS = 1000;
 
     private final long connectDeadlineMs;
     private final long correlationId;
@@ -79,9 +80,17 @@ class ReplaySession implements Session, AutoCloseable
     private long replayPosition;
     private long stopPosition;
     private long replayLimit;
+    private long readAheadPosition;
     private volatile long segmentFileBasePosition;
     private int termBaseSegmentOffset;
     private int termOffset;
+    private int deficit;
+    private long rateBytes;
+    private long rateTimestampMs;
+    private final int replayerIndex;
+    private final int weight;
+    private final int quantumLength;
+    private final int maxDeficit;
     private final int streamId;
     private final int termLength;
     private final int segmentLength;
@@ -91,10 +100,14 @@ class ReplaySession implements Session, AutoCloseable
     private final ControlSession controlSession;
     private final EpochClock epochClock;
     private final File archiveDir;
+    private final SegmentTier segmentTier;
+    private final ReplayReadAhead readAhead;
+    private final ReplayReadAhead.Request[] readAheadRequests;
     private final Catalog catalog;
     private final Counter limitPosition;
+    private final Counter replayRate;
     private final UnsafeBuffer replayBuffer;
-    private FileChannel fileChannel;
+    private final SegmentReader segmentReader = new SegmentReader();
     private File segmentFile;
     private State state = State.INIT;
     private String errorMessage = null;
@@ -111,11 +124,17 @@ class ReplaySession implements Session, AutoCloseable
         final UnsafeBuffer replayBuffer,
         final Catalog catalog,
         final File archiveDir,
+        final SegmentTier segmentTier,
+        final ReplayReadAhead readAhead,
         final File initialSegmentFile,
         final EpochClock epochClock,
         final ExclusivePublication publication,
         final RecordingSummary recordingSummary,
-        final Counter replayLimitPosition)
+        final Counter replayLimitPosition,
+        final int replayerIndex,
+        final int weight,
+        final int replayQuantumLength,
+        final Counter replayRate)
     {
         this.controlSession = controlSession;
         this.sessionId = replaySessionId;
@@ -126,11 +145,31 @@ class ReplaySession implements Session, AutoCloseable
         this.streamId = recordingSummary.streamId;
         this.epochClock = epochClock;
         this.archiveDir = archiveDir;
+        this.segmentTier = segmentTier;
+        this.readAhead = readAhead;
         this.segmentFile = initialSegmentFile;
         this.publication = publication;
         this.limitPosition = replayLimitPosition;
         this.replayBuffer = replayBuffer;
         this.catalog = catalog;
+        this.replayerIndex = replayerIndex;
+        this.weight = weight;
+        this.replayRate = replayRate;
+        this.quantumLength = (int)Math.min((long)replayQuantumLength * weight, MAX_BLOCK_LENGTH);
+        this.maxDeficit = Math.min(quantumLength + recordingSummary.mtuLength, MAX_BLOCK_LENGTH);
+        if (null == readAhead)
+        {
+            readAheadRequests = null;
+        }
+        else
+        {
+            readAheadRequests = new ReplayReadAhead.Request[ReplayReadAhead.REQUESTS_PER_REPLAY];
+            for (int i = 0; i < readAheadRequests.length; i++)
+            {
+                readAheadRequests[i] = new ReplayReadAhead.Request();
+            }
+        }
+
         this.startPosition = recordingSummary.startPosition;
         this.stopPosition = null == limitPosition ? recordingSummary.stopPosition : limitPosition.get();
 
@@ -170,7 +209,16 @@ class ReplaySession implements Session, AutoCloseable
     public void close()
     {
         closeRecordingSegment();
+        if (null != readAheadRequests)
+        {
+            for (final ReplayReadAhead.Request request : readAheadRequests)
+            {
+                request.close();
+            }
+        }
+
         CloseHelper.close(publication);
+        CloseHelper.close(replayRate);
     }
 
     public long sessionId()
@@ -239,11 +287,26 @@ class ReplaySession implements Session, AutoCloseable
         return segmentFileBasePosition;
     }
 
+    long readAheadPosition()
+    {
+        return readAheadPosition;
+    }
+
     Counter limitPosition()
     {
         return limitPosition;
     }
 
+    int replayerIndex()
+    {
+        return replayerIndex;
+    }
+
+    int weight()
+    {
+        return weight;
+    }
+
     void sendPendingError(final ControlResponseProxy controlResponseProxy)
     {
         if (null != errorMessage && !controlSession.isDone())
@@ -254,7 +317,7 @@ class ReplaySession implements Session, AutoCloseable
 
     private int init() throws IOException
     {
-        if (null == fileChannel)
+        if (!segmentReader.isOpen())
         {
             final int positionBitsToShift = publication.positionBitsToShift();
             final long startTermBasePosition = startPosition - (startPosition & (termLength - 1));
@@ -268,7 +331,7 @@ class ReplaySession implements Session, AutoCloseable
 
             if (replayPosition > startPosition && replayPosition != stopPosition)
             {
-                if (notHeaderAligned(fileChannel, replayBuffer, segmentOffset, termOffset, termId, streamId))
+                if (notHeaderAligned(segmentReader, replayBuffer, segmentOffset, termOffset, termId, streamId))
                 {
                     onError(replayPosition + " position not aligned to data header");
                     return 0;
@@ -287,6 +350,7 @@ class ReplaySession implements Session, AutoCloseable
         }
 
         state(State.REPLAY);
+        rateTimestampMs = epochClock.time();
 
         return 1;
     }
@@ -301,11 +365,16 @@ class ReplaySession implements Session, AutoCloseable
             return fragments;
         }
 
+        updateReplayRate();
+
         if (limitPosition != null && replayPosition >= stopPosition && noNewData(replayPosition, stopPosition))
         {
+            deficit = 0;
             return fragments;
         }
 
+        deficit = Math.min(deficit + quantumLength, maxDeficit);
+
         if (termOffset == termLength)
         {
             nextTerm();
@@ -313,6 +382,7 @@ class ReplaySession implements Session, AutoCloseable
 
         int frameOffset = 0;
         final int bytesRead = readRecording(stopPosition - replayPosition);
+        readAhead(replayPosition + bytesRead);
 
         while (frameOffset < bytesRead)
         {
@@ -344,6 +414,9 @@ class ReplaySession implements Session, AutoCloseable
                         .reservedValue(replayBuffer.getLong(frameOffset + RESERVED_VALUE_OFFSET, LITTLE_ENDIAN))
                         .putBytes(replayBuffer, dataOffset, dataLength)
                         .commit();
+
+                    deficit -= alignedLength;
+                    rateBytes += alignedLength;
                 }
             }
             else if (frameType == HeaderFlyweight.HDR_TYPE_PAD)
@@ -382,14 +455,14 @@ class ReplaySession implements Session, AutoCloseable
     {
         if (publication.availableWindow() > 0)
         {
-            final int limit = Math.min((int)Math.min(availableReplay, MAX_BLOCK_LENGTH), termLength - termOffset);
+            final int limit = Math.min((int)Math.min(availableReplay, deficit), termLength - termOffset);
             final ByteBuffer byteBuffer = replayBuffer.byteBuffer();
             byteBuffer.clear().limit(limit);
 
             int position = termBaseSegmentOffset + termOffset;
             do
             {
-                position += fileChannel.read(byteBuffer, position);
+                position += segmentReader.read(byteBuffer, position);
             }
             while (byteBuffer.remaining() > 0);
 
@@ -399,6 +472,55 @@ class ReplaySession implements Session, AutoCloseable
         return 0;
     }
 
+    private void readAhead(final long readPosition)
+    {
+        if (null == readAhead || null == segmentFile || segmentReader.isCompressed())
+        {
+            return;
+        }
+
+        final int blockLength = readAhead.blockLength();
+        final long windowLimit = Math.min(
+            readPosition + ((long)ReplayReadAhead.REQUESTS_PER_REPLAY * blockLength),
+            Math.min(replayLimit, segmentFileBasePosition + segmentLength));
+        if (readAheadPosition < readPosition)
+        {
+            readAheadPosition = readPosition;
+        }
+
+        for (final ReplayReadAhead.Request request : readAheadRequests)
+        {
+            if (readAheadPosition >= windowLimit)
+            {
+                break;
+            }
+
+            final int length = (int)Math.min(blockLength, windowLimit - readAheadPosition);
+            if (readAheadPosition + length > stopPosition)
+            {
+                break;
+            }
+
+            if (readAhead.submit(request, segmentFile, readAheadPosition - segmentFileBasePosition, length))
+            {
+                readAheadPosition += length;
+            }
+        }
+    }
+
+    private void updateReplayRate()
+    {
+        final long nowMs = epochClock.time();
+        final long elapsedMs = nowMs - rateTimestampMs;
+
+        if (elapsedMs >= REPLAY_RATE_INTERVAL_MS)
+        {
+            replayRate.setOrdered((rateBytes * 1000) / elapsedMs);
+            rateBytes = 0;
+            rateTimestampMs = nowMs;
+        }
+    }
+
     private void onError(final String errorMessage)
     {
         state(State.INACTIVE);
@@ -452,8 +574,7 @@ class ReplaySession implements Session, AutoCloseable
 
     private void closeRecordingSegment()
     {
-        CloseHelper.close(fileChannel);
-        fileChannel = null;
+        segmentReader.close();
         segmentFile = null;
     }
 
@@ -461,22 +582,35 @@ class ReplaySession implements Session, AutoCloseable
     {
         if (null == segmentFile)
         {
-            final String segmentFileName = segmentFileName(recordingId, segmentFileBasePosition);
-            segmentFile = new File(archiveDir, segmentFileName);
+            segmentFile = new File(archiveDir, segmentFileName(recordingId, segmentFileBasePosition));
+        }
 
-            if (!segmentFile.exists())
+        if (!segmentFile.exists())
+        {
+            if (null == segmentTier || !segmentTier.isCold(recordingId, segmentFileBasePosition))
             {
-                final String msg = "recording segment not found " + segmentFileName;
+                final String msg = "recording segment not found " + segmentFile.getName();
                 onError(msg);
                 throw new ArchiveException(msg);
             }
+
+            segmentFile = segmentTier.tierFile(recordingId, segmentFileBasePosition);
+            segmentTier.requestRehydrate(recordingId, segmentFileBasePosition);
         }
 
-        fileChannel = FileChannel.open(segmentFile.toPath(), FILE_OPTIONS, NO_ATTRIBUTES);
+        segmentReader.open(segmentFile);
+
+        final long nextSegmentBasePosition = segmentFileBasePosition + segmentLength;
+        if (null != segmentTier &&
+            nextSegmentBasePosition < replayLimit &&
+            segmentTier.isCold(recordingId, nextSegmentBasePosition))
+        {
+            segmentTier.requestRehydrate(recordingId, nextSegmentBasePosition);
+        }
     }
 
     static boolean notHeaderAligned(
-        final FileChannel channel,
+        final SegmentReader segmentReader,
         final UnsafeBuffer buffer,
         final int segmentOffset,
         final int termOffset,
@@ -485,7 +619,7 @@ class ReplaySession implements Session, AutoCloseable
     {
         final ByteBuffer byteBuffer = buffer.byteBuffer();
         byteBuffer.clear().limit(DataHeaderFlyweight.HEADER_LENGTH);
-        if (DataHeaderFlyweight.HEADER_LENGTH != channel.read(byteBuffer, segmentOffset))
+        if (DataHeaderFlyweight.HEADER_LENGTH != segmentReader.read(byteBuffer, segmentOffset))
         {
             throw new ArchiveException("failed to read fragment header");
         }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.Counter;
+import io.aeron.archive.client.ArchiveException;
+
+import java.io.File;
+
+import static io.aeron.archive.Archive.segmentFileName;
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+
+/**
+ * Compresses the segments of a recording as they are closed by the recorder rolling over to the next segment.
+ * <p>
+ * Each closed segment is compressed by the {@link SegmentCompressor} on its own thread into a temporary file. The
+ * session runs on the conductor and atomically replaces the segment with the temporary file once no replay is reading
+ * the segment, so readers see either the raw or complete compressed form and an open replay is never left reading a
+ * replaced file. The session remains active until the recording stops and all full segments have been compressed.
+ * The last segment of a recording is never full until rolled over so is left raw which allows for extension and
+ * recovery of the stop position.
+ */
+class SegmentCompressionSession implements Session
+{
+    private final long recordingId;
+    private final int segmentLength;
+    private final File archiveDir;
+    private final Counter recordingPosition;
+    private final SegmentCompressor compressor;
+    private final SegmentCompressor.Request request = new SegmentCompressor.Request();
+    private final ArchiveConductor conductor;
+
+    private long segmentBasePosition;
+    private long stopPosition = NULL_POSITION;
+    private long compressedSegmentCount;
+    private boolean isAborted;
+
+    SegmentCompressionSession(
+        final long recordingId,
+        final long segmentBasePosition,
+        final int segmentLength,
+        final Counter recordingPosition,
+        final File archiveDir,
+        final SegmentCompressor compressor,
+        final ArchiveConductor conductor)
+    {
+        this.recordingId = recordingId;
+        this.segmentBasePosition = segmentBasePosition;
+        this.segmentLength = segmentLength;
+        this.recordingPosition = recordingPosition;
+        this.archiveDir = archiveDir;
+        this.compressor = compressor;
+        this.conductor = conductor;
+    }
+
+    public long sessionId()
+    {
+        return recordingId;
+    }
+
+    public void abort()
+    {
+        isAborted = true;
+    }
+
+    public boolean isDone()
+    {
+        return isAborted ||
+            (NULL_POSITION != stopPosition && SegmentCompressor.Request.IDLE == request.state() && !hasClosedSegment());
+    }
+
+    public void close()
+    {
+        request.cancel();
+        conductor.removeSegmentCompressionSession(this);
+    }
+
+    public int doWork()
+    {
+        int workCount = 0;
+
+        if (isAborted)
+        {
+            return workCount;
+        }
+
+        switch (request.state())
+        {
+            case SegmentCompressor.Request.IDLE:
+                if (hasClosedSegment() && compressor.submit(
+                    request, new File(archiveDir, segmentFileName(recordingId, segmentBasePosition)), segmentLength))
+                {
+                    workCount++;
+                }
+                break;
+
+            case SegmentCompressor.Request.SKIPPED:
+                nextSegment();
+                workCount++;
+                break;
+
+            case SegmentCompressor.Request.COMPRESSED:
+                if (!conductor.hasActiveReplay(recordingId, segmentBasePosition))
+                {
+                    CompressedSegment.replace(request.tempFile, request.segmentFile);
+                    compressedSegmentCount++;
+                    nextSegment();
+                    workCount++;
+                }
+                break;
+
+            case SegmentCompressor.Request.FAILED:
+                abort();
+                throw new ArchiveException(
+                    "failed to compress segment for recording " + recordingId, request.failure,
+                    ArchiveException.GENERIC);
+        }
+
+        return workCount;
+    }
+
+    /**
+     * Notify that the recording has stopped so only segments below the stop position remain to be compressed.
+     *
+     * @param stopPosition of the recording.
+     */
+    void recordingStopped(final long stopPosition)
+    {
+        this.stopPosition = stopPosition;
+    }
+
+    long segmentBasePosition()
+    {
+        return segmentBasePosition;
+    }
+
+    long compressedSegmentCount()
+    {
+        return compressedSegmentCount;
+    }
+
+    private boolean hasClosedSegment()
+    {
+        final long limitPosition = NULL_POSITION != stopPosition ? stopPosition :
+            recordingPosition.isClosed() ? NULL_POSITION : recordingPosition.get();
+
+        return limitPosition >= segmentBasePosition + segmentLength;
+    }
+
+    private void nextSegment()
+    {
+        request.reset();
+        segmentBasePosition += segmentLength;
+    }
+}
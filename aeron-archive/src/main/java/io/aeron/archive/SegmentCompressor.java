@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.*;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.io.File;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Agent which compresses closed segments on behalf of {@link SegmentCompressionSession}s on its own thread so the
+ * conductor is not held up by the file I/O of compression.
+ * <p>
+ * A compressed segment is left under its in-progress name for the session to move into place on the conductor, which
+ * knows when a replay is reading the segment so it is not replaced from under the replay.
+ */
+final class SegmentCompressor implements Agent, AutoCloseable
+{
+    private final boolean forceWrites;
+    private final ManyToOneConcurrentArrayQueue<Request> requestQueue;
+    private final CompressedSegment.Writer writer = new CompressedSegment.Writer();
+    private final ErrorHandler errorHandler;
+    private final AtomicCounter errorCounter;
+    private AgentRunner compressorRunner;
+
+    SegmentCompressor(
+        final int maxConcurrentSessions,
+        final boolean forceWrites,
+        final ErrorHandler errorHandler,
+        final AtomicCounter errorCounter)
+    {
+        this.forceWrites = forceWrites;
+        this.errorHandler = errorHandler;
+        this.errorCounter = errorCounter;
+
+        requestQueue = new ManyToOneConcurrentArrayQueue<>(Math.max(2, maxConcurrentSessions));
+    }
+
+    /**
+     * Start the compressor on its own thread.
+     *
+     * @param threadFactory for the compressor thread.
+     * @param idleStrategy  for the compressor when there are no segments to compress.
+     */
+    void start(final ThreadFactory threadFactory, final IdleStrategy idleStrategy)
+    {
+        compressorRunner = new AgentRunner(idleStrategy, errorHandler, errorCounter, this);
+        AgentRunner.startOnThread(compressorRunner, threadFactory);
+    }
+
+    public void close()
+    {
+        CloseHelper.close(compressorRunner);
+    }
+
+    public String roleName()
+    {
+        return "archive-segment-compressor";
+    }
+
+    public int doWork()
+    {
+        final Request request = requestQueue.poll();
+        if (null == request)
+        {
+            return 0;
+        }
+
+        int state;
+        try
+        {
+            if (CompressedSegment.isCompressed(request.segmentFile))
+            {
+                state = Request.SKIPPED;
+            }
+            else
+            {
+                writer.write(request.segmentFile, request.tempFile, request.segmentLength, forceWrites);
+                state = Request.COMPRESSED;
+            }
+        }
+        catch (final RuntimeException ex)
+        {
+            request.failure = ex;
+            state = Request.FAILED;
+        }
+
+        // cancel is checked after the state is published, and cancel checks the state after flagging, so at least
+        // one side sees the other and the compressed file cannot leak
+        final File tempFile = request.tempFile;
+        request.state = state;
+
+        if (request.isCancelled)
+        {
+            tempFile.delete();
+        }
+
+        return 1;
+    }
+
+    /**
+     * Submit a request to compress a segment. Submission is rejected if the request is not idle.
+     *
+     * @param request       to be reused for the segment.
+     * @param segmentFile   raw segment to be compressed.
+     * @param segmentLength of the raw segment.
+     * @return true if the request was submitted otherwise false.
+     */
+    boolean submit(final Request request, final File segmentFile, final int segmentLength)
+    {
+        if (Request.IDLE != request.state)
+        {
+            return false;
+        }
+
+        request.segmentFile = segmentFile;
+        request.tempFile = CompressedSegment.inProgressFile(segmentFile);
+        request.segmentLength = segmentLength;
+        request.failure = null;
+        request.state = Request.IN_FLIGHT;
+
+        if (!requestQueue.offer(request))
+        {
+            request.state = Request.IDLE;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reusable request to compress a segment which is owned by a single {@link SegmentCompressionSession}.
+     */
+    static final class Request
+    {
+        static final int IDLE = 0;
+        static final int IN_FLIGHT = 1;
+        static final int SKIPPED = 2;
+        static final int COMPRESSED = 3;
+        static final int FAILED = 4;
+
+        File segmentFile;
+        File tempFile;
+        int segmentLength;
+        RuntimeException failure;
+        volatile int state = IDLE;
+        volatile boolean isCancelled;
+
+        int state()
+        {
+            return state;
+        }
+
+        void reset()
+        {
+            state = IDLE;
+        }
+
+        /**
+         * Cancel the request so any compressed file written for it is deleted rather than left for the session.
+         */
+        void cancel()
+        {
+            isCancelled = true;
+            if (IN_FLIGHT != state && null != tempFile)
+            {
+                tempFile.delete();
+            }
+        }
+    }
+}
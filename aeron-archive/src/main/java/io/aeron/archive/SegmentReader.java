@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static io.aeron.archive.CompressedSegment.*;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.agrona.BufferUtil.allocateDirectAligned;
+
+/**
+ * Reads a recording segment file by position in its raw form regardless of whether the file has been compressed.
+ * <p>
+ * Reads from a compressed segment decompress the containing block which is cached so sequential reads only
+ * decompress each block once. Buffers are retained when the reader is reopened on the next segment.
+ */
+final class SegmentReader implements AutoCloseable
+{
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_LENGTH).order(BYTE_ORDER);
+    private FileChannel channel;
+    private boolean isCompressed;
+    private int segmentLength;
+    private int blockCount;
+    private int cachedBlockIndex = -1;
+    private int[] blockOffsets = new int[0];
+    private ByteBuffer indexByteBuffer;
+    private UnsafeBuffer compressedBuffer;
+    private UnsafeBuffer blockBuffer;
+
+    /**
+     * Open the segment file for reading, closing any segment previously open.
+     *
+     * @param segmentFile to be read.
+     * @throws IOException if the file cannot be opened or its header read.
+     */
+    void open(final File segmentFile) throws IOException
+    {
+        close();
+
+        channel = FileChannel.open(segmentFile.toPath(), READ);
+        isCompressed = CompressedSegment.isCompressed(channel);
+        cachedBlockIndex = -1;
+
+        if (isCompressed)
+        {
+            readIndex(segmentFile);
+        }
+    }
+
+    boolean isOpen()
+    {
+        return null != channel;
+    }
+
+    boolean isCompressed()
+    {
+        return isCompressed;
+    }
+
+    /**
+     * Read bytes of the raw segment from a given position into the remaining space of a buffer, with the same
+     * semantics as {@link FileChannel#read(ByteBuffer, long)}.
+     *
+     * @param dst      to read into.
+     * @param position within the raw segment to read from.
+     * @return the number of bytes read, possibly zero, or -1 if the position is at or beyond the end of the segment.
+     * @throws IOException if an I/O error occurs.
+     */
+    int read(final ByteBuffer dst, final long position) throws IOException
+    {
+        if (!isCompressed)
+        {
+            return channel.read(dst, position);
+        }
+
+        if (position >= segmentLength)
+        {
+            return -1;
+        }
+
+        int bytesRead = 0;
+        long readPosition = position;
+
+        while (dst.hasRemaining() && readPosition < segmentLength)
+        {
+            final int blockIndex = (int)(readPosition / BLOCK_LENGTH);
+            final int blockOffset = (int)(readPosition - ((long)blockIndex * BLOCK_LENGTH));
+            final int blockLength = loadBlock(blockIndex);
+            final int length = Math.min(dst.remaining(), blockLength - blockOffset);
+
+            blockBuffer.getBytes(blockOffset, dst, length);
+            bytesRead += length;
+            readPosition += length;
+        }
+
+        return bytesRead;
+    }
+
+    public void close()
+    {
+        CloseHelper.close(channel);
+        channel = null;
+        isCompressed = false;
+    }
+
+    private void readIndex(final File segmentFile) throws IOException
+    {
+        headerBuffer.clear();
+        readFully(headerBuffer, 0);
+
+        if (VERSION != headerBuffer.getInt(VERSION_OFFSET) || BLOCK_LENGTH != headerBuffer.getInt(BLOCK_LENGTH_OFFSET))
+        {
+            throw new ArchiveException("unsupported compressed segment format: " + segmentFile);
+        }
+
+        segmentLength = headerBuffer.getInt(SEGMENT_LENGTH_OFFSET);
+        blockCount = headerBuffer.getInt(BLOCK_COUNT_OFFSET);
+
+        final int indexLength = (blockCount + 1) * Integer.BYTES;
+        if (null == indexByteBuffer || indexByteBuffer.capacity() < indexLength)
+        {
+            indexByteBuffer = ByteBuffer.allocate(indexLength).order(BYTE_ORDER);
+            blockOffsets = new int[blockCount + 1];
+        }
+
+        indexByteBuffer.clear().limit(indexLength);
+        readFully(indexByteBuffer, HEADER_LENGTH);
+
+        for (int i = 0; i <= blockCount; i++)
+        {
+            blockOffsets[i] = indexByteBuffer.getInt(i * Integer.BYTES);
+        }
+
+        if (null == blockBuffer)
+        {
+            blockBuffer = new UnsafeBuffer(allocateDirectAligned(BLOCK_LENGTH, BitUtil.CACHE_LINE_LENGTH));
+            compressedBuffer = new UnsafeBuffer(allocateDirectAligned(
+                BitUtil.align(LzBlockCodec.maxCompressedLength(BLOCK_LENGTH), BitUtil.CACHE_LINE_LENGTH),
+                BitUtil.CACHE_LINE_LENGTH));
+        }
+    }
+
+    private int loadBlock(final int blockIndex) throws IOException
+    {
+        final int blockLength = Math.min(BLOCK_LENGTH, segmentLength - (blockIndex * BLOCK_LENGTH));
+
+        if (blockIndex != cachedBlockIndex)
+        {
+            final int storedOffset = blockOffsets[blockIndex];
+            final int storedLength = blockOffsets[blockIndex + 1] - storedOffset;
+
+            if (storedLength == blockLength)
+            {
+                final ByteBuffer byteBuffer = blockBuffer.byteBuffer();
+                byteBuffer.clear().limit(blockLength);
+                readFully(byteBuffer, storedOffset);
+            }
+            else
+            {
+                final ByteBuffer byteBuffer = compressedBuffer.byteBuffer();
+                byteBuffer.clear().limit(storedLength);
+                readFully(byteBuffer, storedOffset);
+
+                final int length = LzBlockCodec.decompress(
+                    compressedBuffer, 0, storedLength, blockBuffer, 0, blockLength);
+                if (length != blockLength)
+                {
+                    throw new ArchiveException(
+                        "compressed block " + blockIndex + " length " + length + " expected " + blockLength);
+                }
+            }
+
+            cachedBlockIndex = blockIndex;
+        }
+
+        return blockLength;
+    }
+
+    private void readFully(final ByteBuffer buffer, final long position) throws IOException
+    {
+        long readPosition = position;
+        while (buffer.hasRemaining())
+        {
+            final int bytesRead = channel.read(buffer, readPosition);
+            if (bytesRead < 0)
+            {
+                throw new ArchiveException("unexpected end of compressed segment at " + readPosition);
+            }
+
+            readPosition += bytesRead;
+        }
+    }
+}
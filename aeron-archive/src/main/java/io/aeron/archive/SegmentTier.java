@@ -0,0 +1,279 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.CloseHelper;
+import org.agrona.ErrorHandler;
+import org.agrona.concurrent.*;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadFactory;
+
+import static io.aeron.archive.Archive.segmentFileName;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Secondary storage tier, typically on slower and cheaper disk, to which detached segments are moved so they remain
+ * available to be attached again without being copied back. Deleting or purging segments removes them from the tier.
+ * <p>
+ * Segments in the tier keep their segment file name and may optionally be compressed on the way in. A segment which
+ * is part of a recording but only present in the tier is cold. Replays read cold segments directly from the tier
+ * while requesting they be rehydrated back into the archive directory by a background agent, so following replays
+ * read them from the archive directory once the copy has atomically landed.
+ * <p>
+ * Deleting and renaming tier copies is serialised with rehydration so a queued rehydrate cannot resurrect a segment.
+ */
+final class SegmentTier implements AutoCloseable
+{
+    static final int REHYDRATE_QUEUE_CAPACITY = 1024;
+    static final String REHYDRATE_SUFFIX = ".tier.tmp";
+
+    private final File archiveDir;
+    private final File tierDir;
+    private final boolean compress;
+    private final boolean forceWrites;
+    private final ManyToOneConcurrentArrayQueue<String> rehydrateQueue =
+        new ManyToOneConcurrentArrayQueue<>(REHYDRATE_QUEUE_CAPACITY);
+    private final Rehydrator rehydrator = new Rehydrator();
+    private final ErrorHandler errorHandler;
+    private final AtomicCounter errorCounter;
+    private AgentRunner rehydratorRunner;
+
+    SegmentTier(
+        final File archiveDir,
+        final File tierDir,
+        final boolean compress,
+        final boolean forceWrites,
+        final ErrorHandler errorHandler,
+        final AtomicCounter errorCounter)
+    {
+        this.archiveDir = archiveDir;
+        this.tierDir = tierDir;
+        this.compress = compress;
+        this.forceWrites = forceWrites;
+        this.errorHandler = errorHandler;
+        this.errorCounter = errorCounter;
+
+        if (!tierDir.exists() && !tierDir.mkdirs())
+        {
+            throw new ArchiveException("failed to create tier dir: " + tierDir.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Start the agent which rehydrates cold segments on its own thread.
+     *
+     * @param threadFactory  for the rehydrator thread.
+     * @param idleStrategy   for the rehydrator when there are no segments to rehydrate.
+     */
+    void start(final ThreadFactory threadFactory, final IdleStrategy idleStrategy)
+    {
+        rehydratorRunner = new AgentRunner(idleStrategy, errorHandler, errorCounter, rehydrator);
+        AgentRunner.startOnThread(rehydratorRunner, threadFactory);
+    }
+
+    public void close()
+    {
+        CloseHelper.close(rehydratorRunner);
+    }
+
+    File tierDir()
+    {
+        return tierDir;
+    }
+
+    /**
+     * The file for a segment in the tier.
+     *
+     * @param recordingId         of the segment.
+     * @param segmentBasePosition of the segment.
+     * @return the file for a segment in the tier.
+     */
+    File tierFile(final long recordingId, final long segmentBasePosition)
+    {
+        return new File(tierDir, segmentFileName(recordingId, segmentBasePosition));
+    }
+
+    /**
+     * Is a segment cold, i.e. present in the tier but not in the archive directory.
+     *
+     * @param recordingId         of the segment.
+     * @param segmentBasePosition of the segment.
+     * @return true if the segment is only present in the tier.
+     */
+    boolean isCold(final long recordingId, final long segmentBasePosition)
+    {
+        final String segmentFileName = segmentFileName(recordingId, segmentBasePosition);
+
+        return !new File(archiveDir, segmentFileName).exists() && new File(tierDir, segmentFileName).exists();
+    }
+
+    /**
+     * Move a segment from the archive directory into the tier, compressing it if configured and not already
+     * compressed. The segment is written to a temporary file in the tier which is then renamed, so the tier only ever
+     * holds complete segments, before the source is deleted.
+     *
+     * @param segmentFile in the archive directory.
+     * @param segmentLength of the segment.
+     * @return true if the segment existed and was moved otherwise false.
+     */
+    boolean offload(final File segmentFile, final int segmentLength)
+    {
+        if (!segmentFile.exists())
+        {
+            return false;
+        }
+
+        final File tierFile = new File(tierDir, segmentFile.getName());
+        final File tempFile = CompressedSegment.inProgressFile(tierFile);
+        try
+        {
+            if (compress && !CompressedSegment.isCompressed(segmentFile))
+            {
+                CompressedSegment.compress(segmentFile, tierFile, segmentLength, forceWrites);
+            }
+            else
+            {
+                Files.copy(segmentFile.toPath(), tempFile.toPath(), REPLACE_EXISTING);
+                if (forceWrites)
+                {
+                    try (FileChannel channel = FileChannel.open(tempFile.toPath(), WRITE))
+                    {
+                        channel.force(true);
+                    }
+                }
+
+                CompressedSegment.replace(tempFile, tierFile);
+            }
+
+            Files.delete(segmentFile.toPath());
+        }
+        catch (final IOException ex)
+        {
+            tempFile.delete();
+            throw new ArchiveException("failed to offload segment " + segmentFile, ex, ArchiveException.GENERIC);
+        }
+
+        return true;
+    }
+
+    /**
+     * Delete the tier copy of a segment.
+     *
+     * @param recordingId         of the segment.
+     * @param segmentBasePosition of the segment.
+     * @return true if the tier held a copy of the segment which has been deleted.
+     */
+    synchronized boolean delete(final long recordingId, final long segmentBasePosition)
+    {
+        return tierFile(recordingId, segmentBasePosition).delete();
+    }
+
+    /**
+     * Rename the tier copy of a segment, as happens when segments are migrated between recordings. Any copy of the
+     * source segment rehydrated into the archive directory is deleted as it would otherwise be orphaned.
+     *
+     * @param srcFileName of the segment in the tier.
+     * @param dstFileName for the segment in the tier.
+     * @return true if the segment was renamed.
+     */
+    synchronized boolean rename(final String srcFileName, final String dstFileName)
+    {
+        if (!new File(tierDir, srcFileName).renameTo(new File(tierDir, dstFileName)))
+        {
+            return false;
+        }
+
+        new File(archiveDir, srcFileName).delete();
+
+        return true;
+    }
+
+    /**
+     * Copy a cold segment back into the archive directory on the calling thread so it can be modified in place.
+     * Rehydration is serialised with the background rehydrator so a segment is only ever copied back once.
+     *
+     * @param recordingId         of the segment.
+     * @param segmentBasePosition of the segment.
+     */
+    void rehydrate(final long recordingId, final long segmentBasePosition)
+    {
+        rehydrate(segmentFileName(recordingId, segmentBasePosition));
+    }
+
+    /**
+     * Request a cold segment be rehydrated in the background. The request is dropped if the queue is full as it is
+     * only an optimisation and replays can read cold segments directly from the tier.
+     *
+     * @param recordingId         of the segment.
+     * @param segmentBasePosition of the segment.
+     * @return true if the request was queued.
+     */
+    boolean requestRehydrate(final long recordingId, final long segmentBasePosition)
+    {
+        return rehydrateQueue.offer(segmentFileName(recordingId, segmentBasePosition));
+    }
+
+    private synchronized void rehydrate(final String segmentFileName)
+    {
+        final File segmentFile = new File(archiveDir, segmentFileName);
+        final File tierFile = new File(tierDir, segmentFileName);
+        if (segmentFile.exists() || !tierFile.exists())
+        {
+            return;
+        }
+
+        final File tempFile = new File(archiveDir, segmentFileName + REHYDRATE_SUFFIX);
+        try
+        {
+            Files.copy(tierFile.toPath(), tempFile.toPath(), REPLACE_EXISTING);
+            Files.move(tempFile.toPath(), segmentFile.toPath(), ATOMIC_MOVE);
+        }
+        catch (final IOException ex)
+        {
+            tempFile.delete();
+            throw new ArchiveException("failed to rehydrate segment " + tierFile, ex, ArchiveException.GENERIC);
+        }
+    }
+
+    final class Rehydrator implements Agent
+    {
+        public int doWork()
+        {
+            final String segmentFileName = rehydrateQueue.poll();
+            if (null == segmentFileName)
+            {
+                return 0;
+            }
+
+            rehydrate(segmentFileName);
+
+            return 1;
+        }
+
+        public String roleName()
+        {
+            return "archive-tier-rehydrator";
+        }
+    }
+}
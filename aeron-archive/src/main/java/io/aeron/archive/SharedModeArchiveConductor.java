@@ -33,7 +33,7 @@ final class SharedModeArchiveConductor extends ArchiveConductor
     {
         super.onStart();
 
-        replayerAgentInvoker = new AgentInvoker(errorHandler, ctx.errorCounter(), replayer);
+        replayerAgentInvoker = new AgentInvoker(errorHandler, ctx.errorCounter(), replayers.get(0));
         recorderAgentInvoker = new AgentInvoker(errorHandler, ctx.errorCounter(), recorder);
 
         replayerAgentInvoker.start();
@@ -45,7 +45,7 @@ final class SharedModeArchiveConductor extends ArchiveConductor
         return new SharedModeRecorder(errorHandler);
     }
 
-    protected SessionWorker<ReplaySession> newReplayer()
+    protected SessionWorker<ReplaySession> newReplayer(final int index)
     {
         return new SharedModeReplayer(errorHandler);
     }
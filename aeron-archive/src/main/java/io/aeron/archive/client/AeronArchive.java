@@ -17,6 +17,7 @@ package io.aeron.archive.client;
 
 import io.aeron.*;
 import io.aeron.archive.codecs.ControlResponseCode;
+import io.aeron.archive.codecs.RecordingCompression;
 import io.aeron.archive.codecs.SourceLocation;
 import io.aeron.exceptions.AeronException;
 import io.aeron.exceptions.ConcurrentConcludeException;
@@ -534,6 +535,29 @@ public class AeronArchive implements AutoCloseable
      * passed to {@link #stopRecording(long)}
      */
     public long startRecording(final String channel, final int streamId, final SourceLocation sourceLocation)
+    {
+        return startRecording(channel, streamId, sourceLocation, RecordingCompression.NONE);
+    }
+
+    /**
+     * Start recording a channel and stream pairing with segments of the recording being compressed once closed.
+     * <p>
+     * Compression is applied by the archive in the background once a segment file fills and the recording rolls
+     * over to the next segment. Replay and {@link #listRecording(long, RecordingDescriptorConsumer)} are unaffected
+     * as segments are decompressed transparently with positions preserved.
+     *
+     * @param channel        to be recorded.
+     * @param streamId       to be recorded.
+     * @param sourceLocation of the publication to be recorded.
+     * @param compression    to be applied to the closed segments of the recording.
+     * @return the subscriptionId, i.e. {@link Subscription#registrationId()}, of the recording. This can be
+     * passed to {@link #stopRecording(long)}
+     */
+    public long startRecording(
+        final String channel,
+        final int streamId,
+        final SourceLocation sourceLocation,
+        final RecordingCompression compression)
     {
         lock.lock();
         try
@@ -543,7 +567,8 @@ public class AeronArchive implements AutoCloseable
 
             final long correlationId = aeron.nextCorrelationId();
 
-            if (!archiveProxy.startRecording(channel, streamId, sourceLocation, correlationId, controlSessionId))
+            if (!archiveProxy.startRecording(
+                channel, streamId, sourceLocation, compression, correlationId, controlSessionId))
             {
                 throw new ArchiveException("failed to send start recording request");
             }
@@ -692,6 +717,36 @@ public class AeronArchive implements AutoCloseable
         final long length,
         final String replayChannel,
         final int replayStreamId)
+    {
+        return startReplay(recordingId, position, length, replayChannel, replayStreamId, 1);
+    }
+
+    /**
+     * Start a replay for a length in bytes of a recording from a position with a relative share of the replayer
+     * bandwidth. Replays which are serviced by the same replayer agent share its bandwidth in proportion to their
+     * weight, so a replay with a weight of 4 will be given four times the bytes per duty cycle of a replay with
+     * a weight of 1 when both are able to progress.
+     * <p>
+     * The lower 32-bits of the returned value contains the {@link Image#sessionId()} of the received replay. All
+     * 64-bits are required to uniquely identify the replay when calling {@link #stopReplay(long)}.
+     *
+     * @param recordingId    to be replayed.
+     * @param position       from which the replay should begin or {@link #NULL_POSITION} if from the start.
+     * @param length         of the stream to be replayed. Use {@link Long#MAX_VALUE} to follow a live recording or
+     *                       {@link #NULL_LENGTH} to replay the whole stream of unknown length.
+     * @param replayChannel  to which the replay should be sent.
+     * @param replayStreamId to which the replay should be sent.
+     * @param weight         relative share of the replayer bandwidth in the range 1 to 1024.
+     * @return the id of the replay session which will be the same as the {@link Image#sessionId()} of the received
+     * replay for correlation with the matching channel and stream id in the lower 32 bits.
+     */
+    public long startReplay(
+        final long recordingId,
+        final long position,
+        final long length,
+        final String replayChannel,
+        final int replayStreamId,
+        final int weight)
     {
         lock.lock();
         try
@@ -707,6 +762,7 @@ public class AeronArchive implements AutoCloseable
                 length,
                 replayChannel,
                 replayStreamId,
+                weight,
                 correlationId,
                 controlSessionId))
             {
@@ -1714,7 +1770,7 @@ public class AeronArchive implements AutoCloseable
     public static class Configuration
     {
         public static final int PROTOCOL_MAJOR_VERSION = 1;
-        public static final int PROTOCOL_MINOR_VERSION = 2;
+        public static final int PROTOCOL_MINOR_VERSION = 3;
         public static final int PROTOCOL_PATCH_VERSION = 0;
         public static final int PROTOCOL_SEMANTIC_VERSION = SemanticVersion.compose(
             PROTOCOL_MAJOR_VERSION, PROTOCOL_MINOR_VERSION, PROTOCOL_PATCH_VERSION);
@@ -222,6 +222,30 @@ public class ArchiveProxy
         final SourceLocation sourceLocation,
         final long correlationId,
         final long controlSessionId)
+    {
+        return startRecording(
+            channel, streamId, sourceLocation, RecordingCompression.NONE, correlationId, controlSessionId);
+    }
+
+    /**
+     * Start recording streams for a given channel and stream id pairing with closed segments of the recordings being
+     * compressed by the archive.
+     *
+     * @param channel          to be recorded.
+     * @param streamId         to be recorded.
+     * @param sourceLocation   of the publication to be recorded.
+     * @param compression      to be applied to segments of the recordings once closed.
+     * @param correlationId    for this request.
+     * @param controlSessionId for this request.
+     * @return true if successfully offered otherwise false.
+     */
+    public boolean startRecording(
+        final String channel,
+        final int streamId,
+        final SourceLocation sourceLocation,
+        final RecordingCompression compression,
+        final long correlationId,
+        final long controlSessionId)
     {
         if (null == startRecordingRequestEncoder)
         {
@@ -234,6 +258,7 @@ public class ArchiveProxy
             .correlationId(correlationId)
             .streamId(streamId)
             .sourceLocation(sourceLocation)
+            .compression(compression)
             .channel(channel);
 
         return offer(startRecordingRequestEncoder.encodedLength());
@@ -310,6 +335,32 @@ public class ArchiveProxy
         final int replayStreamId,
         final long correlationId,
         final long controlSessionId)
+    {
+        return replay(recordingId, position, length, replayChannel, replayStreamId, 1, correlationId, controlSessionId);
+    }
+
+    /**
+     * Replay a recording from a given position with a relative share of the replayer bandwidth.
+     *
+     * @param recordingId      to be replayed.
+     * @param position         from which the replay should be started.
+     * @param length           of the stream to be replayed. Use {@link Long#MAX_VALUE} to follow a live stream.
+     * @param replayChannel    to which the replay should be sent.
+     * @param replayStreamId   to which the replay should be sent.
+     * @param weight           relative share of the replayer bandwidth when competing with other replays.
+     * @param correlationId    for this request.
+     * @param controlSessionId for this request.
+     * @return true if successfully offered otherwise false.
+     */
+    public boolean replay(
+        final long recordingId,
+        final long position,
+        final long length,
+        final String replayChannel,
+        final int replayStreamId,
+        final int weight,
+        final long correlationId,
+        final long controlSessionId)
     {
         if (null == replayRequestEncoder)
         {
@@ -324,6 +375,7 @@ public class ArchiveProxy
             .position(position)
             .length(length)
             .replayStreamId(replayStreamId)
+            .weight(weight)
             .replayChannel(replayChannel);
 
         return offer(replayRequestEncoder.encodedLength());
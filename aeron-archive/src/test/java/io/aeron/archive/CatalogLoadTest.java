@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.EpochClock;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the time taken to open a {@link Catalog} containing a large number of entries as the index of descriptor
+ * offsets is rebuilt on open.
+ */
+@Ignore
+public class CatalogLoadTest
+{
+    private static final int ENTRY_COUNT = 10_000_000;
+    private static final int OPEN_ITERATIONS = 5;
+    private static final int TERM_LENGTH = 64 * 1024;
+    private static final int SEGMENT_LENGTH = 128 * 1024 * 1024;
+    private static final int MTU_LENGTH = 1408;
+
+    private final File archiveDir = TestUtil.makeTestDirectory();
+    private final EpochClock clock = System::currentTimeMillis;
+
+    @After
+    public void after()
+    {
+        IoUtil.delete(archiveDir, false);
+    }
+
+    @Test
+    public void shouldOpenCatalogWithTenMillionEntries()
+    {
+        long startNs = System.nanoTime();
+        try (Catalog catalog = new Catalog(archiveDir, null, 0, ENTRY_COUNT, clock))
+        {
+            for (int i = 0; i < ENTRY_COUNT; i++)
+            {
+                catalog.addNewRecording(
+                    0L,
+                    0L,
+                    0L,
+                    clock.time(),
+                    0,
+                    SEGMENT_LENGTH,
+                    TERM_LENGTH,
+                    MTU_LENGTH,
+                    i,
+                    1001,
+                    "aeron:udp?endpoint=localhost:8010",
+                    "aeron:udp?endpoint=localhost:8010|alias=md",
+                    "127.0.0.1:" + (i & 0xFFFF));
+            }
+        }
+
+        final File catalogFile = new File(archiveDir, Archive.Configuration.CATALOG_FILE_NAME);
+        System.out.format(
+            "populated %,d entries in %,d ms, catalog length %,d bytes%n",
+            ENTRY_COUNT,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs),
+            catalogFile.length());
+
+        for (int i = 0; i < OPEN_ITERATIONS; i++)
+        {
+            startNs = System.nanoTime();
+            try (Catalog catalog = new Catalog(archiveDir, null, 0, ENTRY_COUNT, clock))
+            {
+                final long openNs = System.nanoTime() - startNs;
+                assertEquals(ENTRY_COUNT, catalog.countEntries());
+
+                System.out.format(
+                    "opened catalog of %,d entries in %,d ms%n", ENTRY_COUNT, TimeUnit.NANOSECONDS.toMillis(openNs));
+            }
+        }
+    }
+}
@@ -15,10 +15,15 @@
  */
 package io.aeron.archive;
 
+import io.aeron.archive.codecs.CatalogHeaderEncoder;
 import io.aeron.archive.codecs.RecordingDescriptorDecoder;
+import io.aeron.archive.codecs.RecordingDescriptorEncoder;
 import io.aeron.archive.codecs.RecordingDescriptorHeaderDecoder;
+import io.aeron.archive.codecs.RecordingDescriptorHeaderEncoder;
 import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.BitUtil;
 import org.agrona.IoUtil;
+import org.agrona.SemanticVersion;
 import org.agrona.collections.ArrayUtil;
 import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.UnsafeBuffer;
@@ -29,6 +34,7 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -451,6 +457,158 @@ public class CatalogTest
         }
     }
 
+    @Test
+    public void shouldGrowAcrossSegments()
+    {
+        after();
+        final File archiveDir = TestUtil.makeTestDirectory();
+        final int catalogSegmentLength = 2048;
+        final int recordingCount = 50;
+
+        try (Catalog catalog = new Catalog(archiveDir, null, 0, MAX_ENTRIES, catalogSegmentLength, clock))
+        {
+            for (int i = 0; i < recordingCount; i++)
+            {
+                final String channel = "channel" + i;
+                assertEquals(i, catalog.addNewRecording(
+                    0L, 0L, 0, SEGMENT_LENGTH, TERM_LENGTH, MTU_LENGTH, i, i, channel, channel + "?tag=f", "src"));
+            }
+        }
+
+        assertThat(new File(archiveDir, Archive.Configuration.CATALOG_FILE_NAME).length() % catalogSegmentLength,
+            is(0L));
+
+        try (Catalog catalog = new Catalog(archiveDir, clock))
+        {
+            assertEquals(recordingCount, catalog.countEntries());
+            for (int i = 0; i < recordingCount; i++)
+            {
+                verifyRecordingForId(catalog, i, i, i, "channel" + i, "src");
+            }
+        }
+    }
+
+    @Test
+    public void shouldReloadEntriesAfterSegmentWithOnlyPaddingHeaderRemaining()
+    {
+        after();
+        final File archiveDir = TestUtil.makeTestDirectory();
+        final int catalogSegmentLength = 2048;
+        final String shortChannel = "c";
+        final int shortEntryLength = catalogEntryLength(shortChannel);
+        int recordingCount = 0;
+
+        try (Catalog catalog = new Catalog(archiveDir, null, 0, MAX_ENTRIES, catalogSegmentLength, clock))
+        {
+            int remaining = catalogSegmentLength - Catalog.CATALOG_HEADER_LENGTH;
+            while (remaining - Catalog.DESCRIPTOR_HEADER_LENGTH >= 2 * shortEntryLength)
+            {
+                addRecording(catalog, recordingCount++, shortChannel);
+                remaining -= shortEntryLength;
+            }
+
+            final int fillLength = remaining - Catalog.DESCRIPTOR_HEADER_LENGTH;
+            final int fillChannelLength =
+                (fillLength - Catalog.DESCRIPTOR_HEADER_LENGTH - descriptorLength("")) / 2;
+            final String fillChannel = new String(new char[fillChannelLength]).replace('\0', 'f');
+            assertEquals(fillLength, catalogEntryLength(fillChannel));
+            addRecording(catalog, recordingCount++, fillChannel);
+
+            for (int i = 0; i < 3; i++)
+            {
+                addRecording(catalog, recordingCount++, shortChannel);
+            }
+        }
+
+        try (Catalog catalog = new Catalog(archiveDir, clock))
+        {
+            assertEquals(recordingCount, catalog.countEntries());
+            verifyRecordingForId(catalog, recordingCount - 1, recordingCount - 1, recordingCount - 1, "c", "src");
+        }
+
+        try (Catalog catalog = new Catalog(archiveDir, null, 0, MAX_ENTRIES, catalogSegmentLength, clock))
+        {
+            assertEquals(recordingCount, addRecording(catalog, recordingCount, shortChannel));
+        }
+    }
+
+    @Test
+    public void shouldMigrateFixedLengthCatalog()
+    {
+        after();
+        final File archiveDir = TestUtil.makeTestDirectory();
+        final int legacyRecordLength = 1024;
+        final int recordingCount = 3;
+
+        try (FileChannel catalogChannel = FileChannel.open(
+            new File(archiveDir, Archive.Configuration.CATALOG_FILE_NAME).toPath(), CREATE_NEW, READ, WRITE))
+        {
+            final MappedByteBuffer mappedByteBuffer = catalogChannel.map(
+                FileChannel.MapMode.READ_WRITE, 0, legacyRecordLength * (MAX_ENTRIES + 1));
+            final UnsafeBuffer buffer = new UnsafeBuffer(mappedByteBuffer);
+
+            new CatalogHeaderEncoder()
+                .wrap(buffer, 0)
+                .version(SemanticVersion.compose(2, 0, 0))
+                .entryLength(legacyRecordLength);
+
+            final RecordingDescriptorEncoder encoder = new RecordingDescriptorEncoder();
+            for (int i = 0; i < recordingCount; i++)
+            {
+                final int offset = (i + 1) * legacyRecordLength;
+                final String channel = "channel" + i;
+                encoder
+                    .wrap(buffer, offset + Catalog.DESCRIPTOR_HEADER_LENGTH)
+                    .recordingId(i)
+                    .startPosition(0L)
+                    .stopPosition(1024L * i)
+                    .segmentFileLength(SEGMENT_LENGTH)
+                    .termBufferLength(TERM_LENGTH)
+                    .mtuLength(MTU_LENGTH)
+                    .sessionId(i)
+                    .streamId(i)
+                    .strippedChannel(channel)
+                    .originalChannel(channel + "?tag=f")
+                    .sourceIdentity("src");
+
+                new RecordingDescriptorHeaderEncoder()
+                    .wrap(buffer, offset)
+                    .length(encoder.encodedLength())
+                    .valid(i == 1 ? Catalog.INVALID : Catalog.VALID);
+            }
+
+            IoUtil.unmap(mappedByteBuffer);
+        }
+        catch (final IOException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+
+        try (ArchiveMarkFile markFile = new ArchiveMarkFile(
+            new File(archiveDir, ArchiveMarkFile.FILENAME), ArchiveMarkFile.ALIGNMENT, clock, 0);
+            Catalog catalog = new Catalog(archiveDir, clock, true, (version) -> {}))
+        {
+            assertEquals(recordingCount, catalog.countEntries());
+            new ArchiveMigration_2_3().migrate(markFile, catalog, archiveDir);
+            assertEquals(SemanticVersion.compose(3, 0, 0), markFile.decoder().version());
+        }
+
+        try (Catalog catalog = new Catalog(archiveDir, clock))
+        {
+            assertEquals(recordingCount, catalog.countEntries());
+            assertEquals(MAX_ENTRIES, catalog.maxEntries());
+            assertTrue(catalog.hasRecording(0));
+            assertFalse(catalog.hasRecording(1));
+            assertTrue(catalog.hasRecording(2));
+            assertEquals(2048L, catalog.stopPosition(2));
+
+            for (int i = 0; i < recordingCount; i++)
+            {
+                verifyRecordingForId(catalog, i, i, i, "channel" + i, "src");
+            }
+        }
+    }
+
     private void createSegmentFile(final long newRecordingId) throws IOException
     {
         final File segmentFile = new File(archiveDir, segmentFileName(newRecordingId, 0));
@@ -468,4 +626,21 @@ public class CatalogTest
             log.write(bb, PAGE_SIZE - HEADER_LENGTH + 128);
         }
     }
+
+    private static long addRecording(final Catalog catalog, final int id, final String channel)
+    {
+        return catalog.addNewRecording(
+            0L, 0L, 0, SEGMENT_LENGTH, TERM_LENGTH, MTU_LENGTH, id, id, channel, channel + "?tag=f", "src");
+    }
+
+    private static int descriptorLength(final String channel)
+    {
+        return RecordingDescriptorEncoder.BLOCK_LENGTH + 12 + (2 * channel.length()) + "?tag=f".length() + 3;
+    }
+
+    private static int catalogEntryLength(final String channel)
+    {
+        return BitUtil.align(
+            Catalog.DESCRIPTOR_HEADER_LENGTH + descriptorLength(channel), Catalog.DESCRIPTOR_ALIGNMENT);
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.archive.client.ArchiveException;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.*;
+
+public class LzBlockCodecTest
+{
+    private static final int BLOCK_LENGTH = 64 * 1024;
+
+    private final int[] hashTable = new int[LzBlockCodec.HASH_TABLE_LENGTH];
+    private final UnsafeBuffer src = new UnsafeBuffer(new byte[BLOCK_LENGTH]);
+    private final UnsafeBuffer compressed = new UnsafeBuffer(
+        new byte[LzBlockCodec.maxCompressedLength(BLOCK_LENGTH)]);
+    private final UnsafeBuffer dst = new UnsafeBuffer(new byte[BLOCK_LENGTH]);
+
+    @Test
+    public void shouldRoundTripEmptyBlock()
+    {
+        assertRoundTrip(0);
+    }
+
+    @Test
+    public void shouldRoundTripBlockShorterThanMinimumMatch()
+    {
+        src.putStringWithoutLengthAscii(0, "abc");
+        assertRoundTrip(3);
+    }
+
+    @Test
+    public void shouldCompressRepetitiveFrames()
+    {
+        for (int offset = 0; offset < BLOCK_LENGTH; offset += 128)
+        {
+            src.putInt(offset, 128);
+            src.putInt(offset + 8, offset);
+            src.putLong(offset + 24, offset / 128);
+            src.putStringWithoutLengthAscii(offset + 32, "px=101.25 qty=500 side=BUY venue=XLON");
+        }
+
+        final int compressedLength = assertRoundTrip(BLOCK_LENGTH);
+        assertThat(compressedLength, lessThan(BLOCK_LENGTH / 4));
+    }
+
+    @Test
+    public void shouldRoundTripOverlappingRuns()
+    {
+        src.setMemory(0, 1000, (byte)'a');
+        src.putStringWithoutLengthAscii(1000, "abababababababababababababababababababab");
+        src.setMemory(1040, 5000, (byte)0);
+
+        assertRoundTrip(6040);
+    }
+
+    @Test
+    public void shouldRoundTripIncompressibleBlock()
+    {
+        final byte[] bytes = new byte[BLOCK_LENGTH];
+        new Random(7).nextBytes(bytes);
+        src.putBytes(0, bytes);
+
+        final int compressedLength = assertRoundTrip(BLOCK_LENGTH);
+        assertTrue(compressedLength <= LzBlockCodec.maxCompressedLength(BLOCK_LENGTH));
+    }
+
+    @Test
+    public void shouldRoundTripMixedContentAtOffset()
+    {
+        final Random random = new Random(42);
+        final int offset = 17;
+        final int length = 40_000;
+
+        for (int i = 0; i < length; i++)
+        {
+            src.putByte(offset + i, (byte)(random.nextInt(4) == 0 ? random.nextInt() : i % 13));
+        }
+
+        final int compressedLength = LzBlockCodec.compress(src, offset, length, compressed, 5, hashTable);
+        final int decompressedLength = LzBlockCodec.decompress(compressed, 5, compressedLength, dst, 3, length);
+
+        assertEquals(length, decompressedLength);
+        for (int i = 0; i < length; i++)
+        {
+            assertEquals(src.getByte(offset + i), dst.getByte(3 + i));
+        }
+    }
+
+    @Test(expected = ArchiveException.class)
+    public void shouldRejectBlockWhichOverflowsDestination()
+    {
+        src.setMemory(0, BLOCK_LENGTH, (byte)1);
+        final int compressedLength = LzBlockCodec.compress(src, 0, BLOCK_LENGTH, compressed, 0, hashTable);
+
+        LzBlockCodec.decompress(compressed, 0, compressedLength, dst, 0, BLOCK_LENGTH / 2);
+    }
+
+    private int assertRoundTrip(final int length)
+    {
+        final int compressedLength = LzBlockCodec.compress(src, 0, length, compressed, 0, hashTable);
+        final int decompressedLength = LzBlockCodec.decompress(compressed, 0, compressedLength, dst, 0, BLOCK_LENGTH);
+
+        assertEquals(length, decompressedLength);
+        for (int i = 0; i < length; i++)
+        {
+            assertEquals("index=" + i, src.getByte(i), dst.getByte(i));
+        }
+
+        return compressedLength;
+    }
+}
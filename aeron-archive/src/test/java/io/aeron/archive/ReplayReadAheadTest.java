@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import org.agrona.ErrorHandler;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static io.aeron.archive.Archive.segmentFileName;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReplayReadAheadTest
+{
+    private static final long RECORDING_ID = 7;
+    private static final int BLOCK_LENGTH = 64 * 1024;
+    private static final int SEGMENT_LENGTH = BLOCK_LENGTH * 4;
+
+    private final File archiveDir = TestUtil.makeTestDirectory();
+    private final ErrorHandler errorHandler = mock(ErrorHandler.class);
+
+    @Before
+    public void before() throws IOException
+    {
+        Files.write(segmentFile(0).toPath(), new byte[SEGMENT_LENGTH]);
+    }
+
+    @After
+    public void after()
+    {
+        IoUtil.delete(archiveDir, false);
+    }
+
+    @Test
+    public void shouldRejectRequestWhileInFlight()
+    {
+        try (ReplayReadAhead readAhead = newReadAhead(1))
+        {
+            final ReplayReadAhead.Request request = new ReplayReadAhead.Request();
+
+            assertTrue(readAhead.submit(request, segmentFile(0), 0, BLOCK_LENGTH * 2));
+            assertTrue(request.isInFlight());
+            assertEquals(BLOCK_LENGTH, request.length);
+            assertFalse(readAhead.submit(request, segmentFile(0), BLOCK_LENGTH, BLOCK_LENGTH));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldCompleteRequestsOnReadAheadThreads()
+    {
+        try (ReplayReadAhead readAhead = newReadAhead(2))
+        {
+            readAhead.start(Thread::new, YieldingIdleStrategy::new);
+
+            final ReplayReadAhead.Request[] requests = new ReplayReadAhead.Request[4];
+            for (int i = 0; i < requests.length; i++)
+            {
+                requests[i] = new ReplayReadAhead.Request();
+                assertTrue(readAhead.submit(requests[i], segmentFile(0), (long)i * BLOCK_LENGTH, BLOCK_LENGTH));
+            }
+
+            awaitCompletion(requests);
+            assertTrue(readAhead.submit(requests[0], segmentFile(0), SEGMENT_LENGTH - 16, BLOCK_LENGTH));
+            awaitCompletion(requests);
+        }
+
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldIgnoreMissingSegment()
+    {
+        try (ReplayReadAhead readAhead = newReadAhead(1))
+        {
+            readAhead.start(Thread::new, YieldingIdleStrategy::new);
+
+            final ReplayReadAhead.Request request = new ReplayReadAhead.Request();
+            assertTrue(readAhead.submit(request, segmentFile(SEGMENT_LENGTH), 0, BLOCK_LENGTH));
+
+            awaitCompletion(request);
+        }
+
+        verifyNoMoreInteractions(errorHandler);
+    }
+
+    private ReplayReadAhead newReadAhead(final int threadCount)
+    {
+        return new ReplayReadAhead(threadCount, BLOCK_LENGTH, 4, errorHandler, mock(AtomicCounter.class));
+    }
+
+    private File segmentFile(final long segmentBasePosition)
+    {
+        return new File(archiveDir, segmentFileName(RECORDING_ID, segmentBasePosition));
+    }
+
+    private static void awaitCompletion(final ReplayReadAhead.Request... requests)
+    {
+        for (final ReplayReadAhead.Request request : requests)
+        {
+            while (request.isInFlight())
+            {
+                Thread.yield();
+            }
+        }
+    }
+}
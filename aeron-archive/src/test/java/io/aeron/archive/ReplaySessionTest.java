@@ -24,6 +24,7 @@ import io.aeron.protocol.DataHeaderFlyweight;
 import org.agrona.IoUtil;
 import org.agrona.concurrent.EpochClock;
 import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -66,6 +67,7 @@ public class ReplaySessionTest
     private final ControlSession mockControlSession = mock(ControlSession.class);
     private final ArchiveConductor mockArchiveConductor = mock(ArchiveConductor.class);
     private final Counter recordingPositionCounter = mock(Counter.class);
+    private final Counter replayRateCounter = mock(Counter.class);
     private final UnsafeBuffer replayBuffer = new UnsafeBuffer(
         allocateDirectAligned(Archive.Configuration.MAX_BLOCK_LENGTH, 128));
 
@@ -243,10 +245,16 @@ public class ReplaySessionTest
             mockCatalog,
             archiveDir,
             null,
+            null,
+            null,
             epochClock,
             mockReplayPub,
             recordingSummary,
-            recordingPositionCounter);
+            recordingPositionCounter,
+            0,
+            1,
+            Archive.Configuration.REPLAY_QUANTUM_LENGTH_DEFAULT,
+            replayRateCounter);
 
         replaySession.doWork();
         assertEquals(ReplaySession.State.DONE, replaySession.state());
@@ -296,6 +304,83 @@ public class ReplaySessionTest
         }
     }
 
+    @Test
+    public void shouldLimitBytesSentPerDutyCycleToWeightedQuantum()
+    {
+        final long length = 4 * FRAME_LENGTH;
+        final long correlationId = 1L;
+
+        try (ReplaySession replaySession = replaySession(
+            length, correlationId, mockReplayPub, mockControlSession, null, 2, FRAME_LENGTH, null))
+        {
+            final UnsafeBuffer termBuffer = new UnsafeBuffer(allocateDirectAligned(4096, 64));
+            mockPublication(mockReplayPub, termBuffer);
+            when(mockReplayPub.isConnected()).thenReturn(true);
+
+            assertEquals(1 + 2, replaySession.doWork());
+            assertEquals(replaySession.state(), ReplaySession.State.REPLAY);
+            assertThat(messageCounter, is(2));
+            validateFrame(termBuffer, 0, FrameDescriptor.UNFRAGMENTED);
+            validateFrame(termBuffer, 1, FrameDescriptor.BEGIN_FRAG_FLAG);
+            assertFalse(replaySession.isDone());
+
+            assertEquals(2, replaySession.doWork());
+            assertThat(messageCounter, is(4));
+            validateFrame(termBuffer, 2, FrameDescriptor.END_FRAG_FLAG);
+            verify(mockReplayPub).appendPadding(FRAME_LENGTH - HEADER_LENGTH);
+            assertTrue(replaySession.isDone());
+        }
+    }
+
+    @Test
+    public void shouldKeepReadAheadWithinWindowOfInFlightBlocks()
+    {
+        final long length = 4 * FRAME_LENGTH;
+        final long correlationId = 1L;
+
+        try (ReplayReadAhead readAhead = new ReplayReadAhead(
+            1, FRAME_LENGTH, 1, Throwable::printStackTrace, mock(AtomicCounter.class));
+            ReplaySession replaySession = replaySession(
+                length, correlationId, mockReplayPub, mockControlSession, null, 1, FRAME_LENGTH, readAhead))
+        {
+            final UnsafeBuffer termBuffer = new UnsafeBuffer(allocateDirectAligned(4096, 64));
+            mockPublication(mockReplayPub, termBuffer);
+            when(mockReplayPub.isConnected()).thenReturn(true);
+
+            assertEquals(1 + 1, replaySession.doWork());
+            assertEquals(RECORDING_POSITION + 3 * FRAME_LENGTH, replaySession.readAheadPosition());
+
+            assertEquals(1, replaySession.doWork());
+            assertThat(messageCounter, is(2));
+            assertEquals(RECORDING_POSITION + 3 * FRAME_LENGTH, replaySession.readAheadPosition());
+        }
+    }
+
+    @Test
+    public void shouldUpdateReplayRateOncePerInterval()
+    {
+        final long length = 4 * FRAME_LENGTH;
+        final long correlationId = 1L;
+
+        try (ReplaySession replaySession = replaySession(
+            length, correlationId, mockReplayPub, mockControlSession, null, 1, FRAME_LENGTH, null))
+        {
+            final UnsafeBuffer termBuffer = new UnsafeBuffer(allocateDirectAligned(4096, 64));
+            mockPublication(mockReplayPub, termBuffer);
+            when(mockReplayPub.isConnected()).thenReturn(true);
+
+            assertEquals(1 + 1, replaySession.doWork());
+            assertEquals(1, replaySession.doWork());
+            verify(replayRateCounter, never()).setOrdered(anyLong());
+
+            when(epochClock.time()).thenReturn(TIME + (2 * ReplaySession.REPLAY_RATE_INTERVAL_MS));
+            replaySession.doWork();
+            verify(replayRateCounter).setOrdered(FRAME_LENGTH);
+        }
+
+        verify(replayRateCounter).close();
+    }
+
     @Test
     public void shouldGiveUpIfPublishersAreNotConnectedAfterTimeout()
     {
@@ -456,6 +541,27 @@ public class ReplaySessionTest
         final ExclusivePublication replay,
         final ControlSession controlSession,
         final Counter recordingPositionCounter)
+    {
+        return replaySession(
+            length,
+            correlationId,
+            replay,
+            controlSession,
+            recordingPositionCounter,
+            1,
+            Archive.Configuration.REPLAY_QUANTUM_LENGTH_DEFAULT,
+            null);
+    }
+
+    private ReplaySession replaySession(
+        final long length,
+        final long correlationId,
+        final ExclusivePublication replay,
+        final ControlSession controlSession,
+        final Counter recordingPositionCounter,
+        final int weight,
+        final int quantumLength,
+        final ReplayReadAhead readAhead)
     {
         return new ReplaySession(
             RECORDING_POSITION,
@@ -469,10 +575,16 @@ public class ReplaySessionTest
             mockCatalog,
             archiveDir,
             null,
+            readAhead,
+            null,
             epochClock,
             replay,
             recordingSummary,
-            recordingPositionCounter);
+            recordingPositionCounter,
+            0,
+            weight,
+            quantumLength,
+            replayRateCounter);
     }
 
     static void validateFrame(final UnsafeBuffer buffer, final int message, final byte flags)
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.Counter;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.logbuffer.FrameDescriptor;
+import io.aeron.logbuffer.LogBufferDescriptor;
+import io.aeron.protocol.DataHeaderFlyweight;
+import io.aeron.protocol.HeaderFlyweight;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static io.aeron.archive.Archive.segmentFileName;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SegmentCompressionSessionTest
+{
+    private static final long RECORDING_ID = 3;
+    private static final int TERM_LENGTH = LogBufferDescriptor.TERM_MIN_LENGTH;
+    private static final int SEGMENT_LENGTH = TERM_LENGTH * 4;
+    private static final int FRAME_LENGTH = 256;
+    private static final int INITIAL_TERM_ID = 11;
+    private static final int STREAM_ID = 1001;
+    private static final int SESSION_ID = 7;
+
+    private final File archiveDir = TestUtil.makeTestDirectory();
+    private final Counter recordingPosition = mock(Counter.class);
+    private final ArchiveConductor mockConductor = mock(ArchiveConductor.class);
+    private final SegmentCompressor compressor = new SegmentCompressor(1, false, Throwable::printStackTrace, null);
+    private final RecordingSummary recordingSummary = new RecordingSummary();
+    private byte[] firstSegment;
+
+    @Before
+    public void before() throws IOException
+    {
+        firstSegment = writeSegment(0, SEGMENT_LENGTH);
+        writeSegment(SEGMENT_LENGTH, TERM_LENGTH);
+
+        recordingSummary.recordingId = RECORDING_ID;
+        recordingSummary.startPosition = 0;
+        recordingSummary.stopPosition = SEGMENT_LENGTH + TERM_LENGTH;
+        recordingSummary.segmentFileLength = SEGMENT_LENGTH;
+        recordingSummary.termBufferLength = TERM_LENGTH;
+        recordingSummary.initialTermId = INITIAL_TERM_ID;
+        recordingSummary.streamId = STREAM_ID;
+        recordingSummary.sessionId = SESSION_ID;
+    }
+
+    @After
+    public void after()
+    {
+        IoUtil.delete(archiveDir, false);
+    }
+
+    @Test
+    public void shouldNotCompressSegmentUntilClosed()
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH - FRAME_LENGTH);
+        final SegmentCompressionSession session = newSession();
+
+        assertEquals(0, session.doWork());
+        assertFalse(session.isDone());
+        assertFalse(CompressedSegment.isCompressed(segmentFile(0)));
+    }
+
+    @Test
+    public void shouldCompressClosedSegmentsAndLeaveActiveSegmentRaw()
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        final SegmentCompressionSession session = newSession();
+
+        compress(session);
+
+        assertEquals(1, session.compressedSegmentCount());
+        assertTrue(CompressedSegment.isCompressed(segmentFile(0)));
+        assertThat(segmentFile(0).length(), lessThan((long)SEGMENT_LENGTH / 4));
+        assertFalse(CompressedSegment.isCompressed(segmentFile(SEGMENT_LENGTH)));
+        assertFalse(CompressedSegment.inProgressFile(segmentFile(0)).exists());
+
+        session.close();
+        verify(mockConductor).removeSegmentCompressionSession(session);
+    }
+
+    @Test
+    public void shouldNotReplaceSegmentWhileReplayIsReadingIt()
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        when(mockConductor.hasActiveReplay(RECORDING_ID, 0)).thenReturn(true);
+        final SegmentCompressionSession session = newSession();
+
+        compress(session);
+
+        assertEquals(0, session.compressedSegmentCount());
+        assertFalse(CompressedSegment.isCompressed(segmentFile(0)));
+        assertTrue(CompressedSegment.inProgressFile(segmentFile(0)).exists());
+
+        when(mockConductor.hasActiveReplay(RECORDING_ID, 0)).thenReturn(false);
+        compress(session);
+
+        assertEquals(1, session.compressedSegmentCount());
+        assertTrue(CompressedSegment.isCompressed(segmentFile(0)));
+        assertFalse(CompressedSegment.inProgressFile(segmentFile(0)).exists());
+    }
+
+    @Test
+    public void shouldDeleteCompressedSegmentNotYetInPlaceWhenClosed()
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        when(mockConductor.hasActiveReplay(RECORDING_ID, 0)).thenReturn(true);
+        final SegmentCompressionSession session = newSession();
+
+        compress(session);
+        session.close();
+
+        assertFalse(CompressedSegment.isCompressed(segmentFile(0)));
+        assertFalse(CompressedSegment.inProgressFile(segmentFile(0)).exists());
+    }
+
+    @Test
+    public void shouldCompressTheSameAsSegmentsCompressedForTier() throws IOException
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        final File tierFile = new File(archiveDir, "tier-copy.rec");
+        CompressedSegment.compress(segmentFile(0), tierFile, SEGMENT_LENGTH, false);
+
+        compress(newSession());
+
+        assertArrayEquals(Files.readAllBytes(tierFile.toPath()), Files.readAllBytes(segmentFile(0).toPath()));
+    }
+
+    @Test
+    public void shouldReadCompressedSegmentAtExactPositions() throws IOException
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        compress(newSession());
+
+        try (SegmentReader reader = new SegmentReader())
+        {
+            reader.open(segmentFile(0));
+            assertTrue(reader.isCompressed());
+
+            final int[] positions = { 0, FRAME_LENGTH, CompressedSegment.BLOCK_LENGTH - 96, SEGMENT_LENGTH - 4096 };
+            for (final int position : positions)
+            {
+                final ByteBuffer buffer = ByteBuffer.allocate(4096);
+                assertEquals(4096, reader.read(buffer, position));
+
+                for (int i = 0; i < 4096; i++)
+                {
+                    assertEquals("position=" + (position + i), firstSegment[position + i], buffer.get(i));
+                }
+            }
+
+            assertEquals(-1, reader.read(ByteBuffer.allocate(16), SEGMENT_LENGTH));
+        }
+    }
+
+    @Test
+    public void shouldReplayAcrossCompressedAndRawSegments()
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        compress(newSession());
+
+        final long fromPosition = SEGMENT_LENGTH - (2 * FRAME_LENGTH);
+        final int[] fragmentCount = new int[1];
+        final long[] expectedPosition = { fromPosition };
+
+        try (RecordingReader reader = new RecordingReader(
+            recordingSummary, archiveDir, fromPosition, AeronArchive.NULL_LENGTH))
+        {
+            while (!reader.isDone())
+            {
+                reader.poll(
+                    (buffer, offset, length, frameType, flags, reservedValue) ->
+                    {
+                        assertEquals(expectedPosition[0], reservedValue);
+                        assertEquals(FRAME_LENGTH - DataHeaderFlyweight.HEADER_LENGTH, length);
+                        expectedPosition[0] += FRAME_LENGTH;
+                        fragmentCount[0]++;
+                    },
+                    10);
+            }
+        }
+
+        assertEquals(2 + (TERM_LENGTH / FRAME_LENGTH), fragmentCount[0]);
+    }
+
+    @Test
+    public void shouldCompleteOnceStoppedAndRemainingSegmentsCompressed()
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH - FRAME_LENGTH);
+        final SegmentCompressionSession session = newSession();
+
+        assertEquals(0, session.doWork());
+        session.recordingStopped(SEGMENT_LENGTH + TERM_LENGTH);
+        compress(session);
+
+        assertTrue(session.isDone());
+        assertEquals(1, session.compressedSegmentCount());
+    }
+
+    @Test
+    public void shouldRestoreRawSegmentWhenDecompressed() throws IOException
+    {
+        when(recordingPosition.get()).thenReturn((long)SEGMENT_LENGTH + TERM_LENGTH);
+        compress(newSession());
+
+        CompressedSegment.decompress(segmentFile(0), false);
+
+        assertFalse(CompressedSegment.isCompressed(segmentFile(0)));
+        assertArrayEquals(firstSegment, Files.readAllBytes(segmentFile(0).toPath()));
+    }
+
+    private SegmentCompressionSession newSession()
+    {
+        return new SegmentCompressionSession(
+            RECORDING_ID, 0, SEGMENT_LENGTH, recordingPosition, archiveDir, compressor, mockConductor);
+    }
+
+    private void compress(final SegmentCompressionSession session)
+    {
+        int workCount;
+        do
+        {
+            workCount = session.doWork() + compressor.doWork();
+        }
+        while (workCount > 0 && !session.isDone());
+    }
+
+    private File segmentFile(final long segmentBasePosition)
+    {
+        return new File(archiveDir, segmentFileName(RECORDING_ID, segmentBasePosition));
+    }
+
+    private byte[] writeSegment(final long segmentBasePosition, final int dataLength) throws IOException
+    {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[SEGMENT_LENGTH]);
+        final DataHeaderFlyweight header = new DataHeaderFlyweight();
+        final int positionBitsToShift = LogBufferDescriptor.positionBitsToShift(TERM_LENGTH);
+
+        for (int offset = 0; offset < dataLength; offset += FRAME_LENGTH)
+        {
+            final long position = segmentBasePosition + offset;
+            header.wrap(buffer, offset, FRAME_LENGTH);
+            header
+                .termOffset((int)(position & (TERM_LENGTH - 1)))
+                .termId(INITIAL_TERM_ID + (int)(position >>> positionBitsToShift))
+                .streamId(STREAM_ID)
+                .sessionId(SESSION_ID)
+                .reservedValue(position)
+                .flags(FrameDescriptor.UNFRAGMENTED)
+                .headerType(HeaderFlyweight.HDR_TYPE_DATA)
+                .version(HeaderFlyweight.CURRENT_VERSION)
+                .frameLength(FRAME_LENGTH);
+
+            buffer.putStringWithoutLengthAscii(
+                offset + DataHeaderFlyweight.HEADER_LENGTH, "instrument=" + (offset % 4096) + " px=101.25 qty=500");
+        }
+
+        final byte[] bytes = buffer.byteArray();
+        Files.write(segmentFile(segmentBasePosition).toPath(), bytes);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static io.aeron.archive.Archive.segmentFileName;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class SegmentTierTest
+{
+    private static final long RECORDING_ID = 5;
+    private static final int SEGMENT_LENGTH = 256 * 1024;
+
+    private final File archiveDir = TestUtil.makeTestDirectory();
+    private final File tierDir = new File(archiveDir.getParentFile(), archiveDir.getName() + "-tier");
+    private byte[] segment;
+
+    @Before
+    public void before() throws IOException
+    {
+        segment = new byte[SEGMENT_LENGTH];
+        for (int i = 0; i < SEGMENT_LENGTH; i++)
+        {
+            segment[i] = (byte)((i % 1024) < 32 ? i : 'x');
+        }
+
+        Files.write(segmentFile(0).toPath(), segment);
+        Files.write(segmentFile(SEGMENT_LENGTH).toPath(), segment);
+    }
+
+    @After
+    public void after()
+    {
+        IoUtil.delete(archiveDir, false);
+        IoUtil.delete(tierDir, false);
+    }
+
+    @Test
+    public void shouldOffloadAndRehydrateRawSegment() throws IOException
+    {
+        try (SegmentTier segmentTier = newSegmentTier(false))
+        {
+            assertTrue(segmentTier.offload(segmentFile(0), SEGMENT_LENGTH));
+            assertFalse(segmentFile(0).exists());
+            assertTrue(segmentTier.isCold(RECORDING_ID, 0));
+            assertFalse(segmentTier.isCold(RECORDING_ID, SEGMENT_LENGTH));
+            assertArrayEquals(segment, Files.readAllBytes(segmentTier.tierFile(RECORDING_ID, 0).toPath()));
+
+            segmentTier.rehydrate(RECORDING_ID, 0);
+
+            assertFalse(segmentTier.isCold(RECORDING_ID, 0));
+            assertArrayEquals(segment, Files.readAllBytes(segmentFile(0).toPath()));
+        }
+    }
+
+    @Test
+    public void shouldCompressSegmentWhenOffloaded() throws IOException
+    {
+        try (SegmentTier segmentTier = newSegmentTier(true);
+            SegmentReader reader = new SegmentReader())
+        {
+            assertTrue(segmentTier.offload(segmentFile(0), SEGMENT_LENGTH));
+
+            final File tierFile = segmentTier.tierFile(RECORDING_ID, 0);
+            assertTrue(CompressedSegment.isCompressed(tierFile));
+            assertThat(tierFile.length(), lessThan((long)SEGMENT_LENGTH / 4));
+
+            reader.open(tierFile);
+            final ByteBuffer buffer = ByteBuffer.allocate(SEGMENT_LENGTH);
+            assertEquals(SEGMENT_LENGTH, reader.read(buffer, 0));
+            assertArrayEquals(segment, buffer.array());
+        }
+    }
+
+    @Test
+    public void shouldNotOffloadMissingSegment()
+    {
+        try (SegmentTier segmentTier = newSegmentTier(false))
+        {
+            assertFalse(segmentTier.offload(segmentFile(SEGMENT_LENGTH * 2L), SEGMENT_LENGTH));
+            assertFalse(segmentTier.isCold(RECORDING_ID, SEGMENT_LENGTH * 2L));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldRehydrateInBackgroundWhenRequested() throws IOException
+    {
+        try (SegmentTier segmentTier = newSegmentTier(false))
+        {
+            segmentTier.start(Thread::new, new YieldingIdleStrategy());
+            segmentTier.offload(segmentFile(0), SEGMENT_LENGTH);
+            segmentTier.offload(segmentFile(SEGMENT_LENGTH), SEGMENT_LENGTH);
+
+            assertTrue(segmentTier.requestRehydrate(RECORDING_ID, 0));
+            assertTrue(segmentTier.requestRehydrate(RECORDING_ID, SEGMENT_LENGTH));
+
+            while (segmentTier.isCold(RECORDING_ID, 0) || segmentTier.isCold(RECORDING_ID, SEGMENT_LENGTH))
+            {
+                Thread.yield();
+            }
+
+            assertArrayEquals(segment, Files.readAllBytes(segmentFile(SEGMENT_LENGTH).toPath()));
+            assertFalse(new File(archiveDir, segmentFile(0).getName() + SegmentTier.REHYDRATE_SUFFIX).exists());
+        }
+    }
+
+    @Test
+    public void shouldDeleteTierCopy()
+    {
+        try (SegmentTier segmentTier = newSegmentTier(false))
+        {
+            segmentTier.offload(segmentFile(0), SEGMENT_LENGTH);
+
+            assertTrue(segmentTier.delete(RECORDING_ID, 0));
+            assertFalse(segmentTier.isCold(RECORDING_ID, 0));
+            assertFalse(segmentTier.delete(RECORDING_ID, 0));
+        }
+    }
+
+    @Test
+    public void shouldRenameTierCopyAndDeleteRehydratedSource()
+    {
+        try (SegmentTier segmentTier = newSegmentTier(false))
+        {
+            segmentTier.offload(segmentFile(0), SEGMENT_LENGTH);
+            segmentTier.rehydrate(RECORDING_ID, 0);
+            assertTrue(segmentFile(0).exists());
+
+            final String dstFileName = segmentFileName(RECORDING_ID + 1, 0);
+            assertTrue(segmentTier.rename(segmentFileName(RECORDING_ID, 0), dstFileName));
+
+            assertFalse(segmentFile(0).exists());
+            assertFalse(segmentTier.tierFile(RECORDING_ID, 0).exists());
+            assertTrue(segmentTier.tierFile(RECORDING_ID + 1, 0).exists());
+            assertEquals(1, tierDir.list().length);
+        }
+    }
+
+    private SegmentTier newSegmentTier(final boolean compress)
+    {
+        return new SegmentTier(
+            archiveDir, tierDir, compress, false, Throwable::printStackTrace, mock(AtomicCounter.class));
+    }
+
+    private File segmentFile(final long segmentBasePosition)
+    {
+        return new File(archiveDir, segmentFileName(RECORDING_ID, segmentBasePosition));
+    }
+}
@@ -71,6 +71,18 @@ public final class ClusterBackup implements AutoCloseable
      */
     public static final int CLUSTER_BACKUP_ERROR_COUNT_TYPE_ID = 211;
 
+    /**
+     * The type id of the {@link Counter} used for the total bytes of snapshots retrieved from the cluster.
+     */
+    public static final int SNAPSHOT_RETRIEVAL_BYTES_TYPE_ID =
+        ConsensusModule.Configuration.SNAPSHOT_RETRIEVAL_BYTES_TYPE_ID;
+
+    /**
+     * The type id of the {@link Counter} used for the aggregate rate in bytes per second of snapshots retrieved.
+     */
+    public static final int SNAPSHOT_RETRIEVAL_RATE_TYPE_ID =
+        ConsensusModule.Configuration.SNAPSHOT_RETRIEVAL_RATE_TYPE_ID;
+
     enum State
     {
         INIT(0),
@@ -349,6 +361,8 @@ public final class ClusterBackup implements AutoCloseable
         private Counter stateCounter;
         private Counter liveLogPositionCounter;
         private Counter nextQueryDeadlineMsCounter;
+        private Counter snapshotRetrievalBytesCounter;
+        private Counter snapshotRetrievalRateCounter;
 
         private AeronArchive.Context archiveContext;
         private ShutdownSignalBarrier shutdownSignalBarrier;
@@ -472,6 +486,18 @@ public final class ClusterBackup implements AutoCloseable
                 nextQueryDeadlineMsCounter = aeron.addCounter(QUERY_DEADLINE_TYPE_ID, "Next Query Deadline (ms)");
             }
 
+            if (null == snapshotRetrievalBytesCounter)
+            {
+                snapshotRetrievalBytesCounter = aeron.addCounter(
+                    SNAPSHOT_RETRIEVAL_BYTES_TYPE_ID, "Snapshot Retrieval Bytes");
+            }
+
+            if (null == snapshotRetrievalRateCounter)
+            {
+                snapshotRetrievalRateCounter = aeron.addCounter(
+                    SNAPSHOT_RETRIEVAL_RATE_TYPE_ID, "Snapshot Retrieval Rate (bytes/s)");
+            }
+
             if (null == threadFactory)
             {
                 threadFactory = Thread::new;
@@ -1188,6 +1214,50 @@ public final class ClusterBackup implements AutoCloseable
             return this;
         }
 
+        /**
+         * Get the counter for the total bytes of snapshots retrieved from the cluster.
+         *
+         * @return the counter for the total bytes of snapshots retrieved from the cluster.
+         */
+        public Counter snapshotRetrievalBytesCounter()
+        {
+            return snapshotRetrievalBytesCounter;
+        }
+
+        /**
+         * Set the counter for the total bytes of snapshots retrieved from the cluster.
+         *
+         * @param snapshotRetrievalBytesCounter the counter for the total bytes of snapshots retrieved.
+         * @return this for a fluent API.
+         */
+        public Context snapshotRetrievalBytesCounter(final Counter snapshotRetrievalBytesCounter)
+        {
+            this.snapshotRetrievalBytesCounter = snapshotRetrievalBytesCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the aggregate rate in bytes per second of snapshots retrieved from the cluster.
+         *
+         * @return the counter for the aggregate rate in bytes per second of snapshots retrieved from the cluster.
+         */
+        public Counter snapshotRetrievalRateCounter()
+        {
+            return snapshotRetrievalRateCounter;
+        }
+
+        /**
+         * Set the counter for the aggregate rate in bytes per second of snapshots retrieved from the cluster.
+         *
+         * @param snapshotRetrievalRateCounter the counter for the aggregate rate of snapshots retrieved.
+         * @return this for a fluent API.
+         */
+        public Context snapshotRetrievalRateCounter(final Counter snapshotRetrievalRateCounter)
+        {
+            this.snapshotRetrievalRateCounter = snapshotRetrievalRateCounter;
+            return this;
+        }
+
         /**
          * Get the {@link ClusterBackupEventsListener} in use for the backup agent.
          *
@@ -1262,6 +1332,8 @@ public final class ClusterBackup implements AutoCloseable
             {
                 CloseHelper.close(stateCounter);
                 CloseHelper.close(liveLogPositionCounter);
+                CloseHelper.close(snapshotRetrievalBytesCounter);
+                CloseHelper.close(snapshotRetrievalRateCounter);
             }
 
             CloseHelper.close(markFile);
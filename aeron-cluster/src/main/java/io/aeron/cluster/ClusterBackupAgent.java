@@ -25,10 +25,8 @@ import io.aeron.cluster.client.AeronCluster;
 import io.aeron.cluster.client.ClusterException;
 import io.aeron.cluster.codecs.BackupResponseDecoder;
 import io.aeron.cluster.codecs.MessageHeaderDecoder;
-import io.aeron.cluster.codecs.SnapshotMarkerDecoder;
 import io.aeron.cluster.service.ClusterMarkFile;
-import io.aeron.cluster.service.ClusteredServiceContainer;
-import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.cluster.service.RecoveryProgress;
 import io.aeron.logbuffer.Header;
 import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
@@ -81,9 +79,7 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
     private AeronArchive.AsyncConnect clusterArchiveAsyncConnect;
     private AeronArchive clusterArchive;
 
-    private Subscription snapshotRetrieveSubscription;
-    private Image snapshotRetrieveImage;
-    private SnapshotReader snapshotReader;
+    private SnapshotRetrieval snapshotRetrieval;
 
     private final FragmentAssembler memberStatusFragmentAssembler = new FragmentAssembler(this::onFragment);
     private final Subscription memberStatusSubscription;
@@ -98,14 +94,11 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
     private long timeOfLastProgressMs = 0;
     private long correlationId = NULL_VALUE;
     private long leaderLogRecordingId = NULL_VALUE;
-    private long snapshotRetrieveSubscriptionId = NULL_VALUE;
     private long liveLogReplaySubscriptionId = NULL_VALUE;
     private long liveLogRecordingId = NULL_VALUE;
     private long liveLogReplayId = NULL_VALUE;
     private int leaderCommitPositionCounterId = NULL_VALUE;
     private int clusterMembersStatusEndpointsCursor = NULL_VALUE;
-    private int snapshotCursor = 0;
-    private int snapshotReplaySessionId = NULL_VALUE;
     private int liveLogReplaySessionId = NULL_VALUE;
     private int liveLogRecCounterId = NULL_COUNTER_ID;
 
@@ -145,7 +138,7 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
     {
         if (!ctx.ownsAeronClient())
         {
-            CloseHelper.close(snapshotRetrieveSubscription);
+            CloseHelper.close(snapshotRetrieval);
             CloseHelper.close(memberStatusSubscription);
             CloseHelper.close(memberStatusPublication);
         }
@@ -252,12 +245,12 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
 
         memberStatusFragmentAssembler.clear();
         final ExclusivePublication memberStatusPublication = this.memberStatusPublication;
-        final Subscription snapshotRetrieveSubscription = this.snapshotRetrieveSubscription;
+        final SnapshotRetrieval snapshotRetrieval = this.snapshotRetrieval;
         final AeronArchive clusterArchive = this.clusterArchive;
         final AeronArchive.AsyncConnect clusterArchiveAsyncConnect = this.clusterArchiveAsyncConnect;
 
         this.memberStatusPublication = null;
-        this.snapshotRetrieveSubscription = null;
+        this.snapshotRetrieval = null;
         this.clusterArchive = null;
         this.clusterArchiveAsyncConnect = null;
 
@@ -268,7 +261,7 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
         liveLogReplaySubscriptionId = NULL_VALUE;
 
         CloseHelper.closeAll(
-            memberStatusPublication, snapshotRetrieveSubscription, clusterArchive, clusterArchiveAsyncConnect);
+            memberStatusPublication, snapshotRetrieval, clusterArchive, clusterArchiveAsyncConnect);
     }
 
     private void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
@@ -330,6 +323,14 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
     {
         if (BACKUP_QUERY == state && correlationId == this.correlationId)
         {
+            final int snapshotDeltaCount = backupResponseDecoder.snapshotDeltaCount();
+            if (snapshotDeltaCount > 0)
+            {
+                throw new ClusterException(
+                    "snapshot deltas cannot be backed up, a base snapshot is required: snapshotDeltaCount=" +
+                    snapshotDeltaCount + " leaderMemberId=" + leaderMemberId);
+            }
+
             final BackupResponseDecoder.SnapshotsDecoder snapshotsDecoder = backupResponseDecoder.snapshots();
 
             if (snapshotsDecoder.count() > 0)
@@ -389,7 +390,6 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
             }
 
             timeOfLastBackupQueryMs = 0;
-            snapshotCursor = 0;
             this.correlationId = NULL_VALUE;
             leaderCommitPositionCounterId = commitPositionCounterId;
 
@@ -498,96 +498,52 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
 
     private int snapshotRetrieve(final long nowMs)
     {
-        int workCount = 0;
-
         if (null == clusterArchive)
         {
             clusterArchive = clusterArchiveAsyncConnect.poll();
             return null == clusterArchive ? 0 : 1;
         }
 
-        if (null != snapshotReader)
+        if (null == snapshotRetrieval)
         {
-            if (snapshotReader.poll() == 0)
-            {
-                if (snapshotReader.isDone())
-                {
-                    final RecordingLog.Snapshot snapshot = snapshotsToRetrieve.get(snapshotCursor);
-
-                    snapshotsRetrieved.add(new RecordingLog.Snapshot(
-                        snapshotReader.recordingId,
-                        snapshot.leadershipTermId,
-                        snapshot.termBaseLogPosition,
-                        snapshot.logPosition,
-                        snapshot.timestamp,
-                        snapshot.serviceId));
-
-                    CloseHelper.close(snapshotRetrieveSubscription);
-                    backupArchive.stopRecording(snapshotRetrieveSubscriptionId);
-                    snapshotRetrieveSubscription = null;
-                    snapshotRetrieveImage = null;
-                    snapshotReader = null;
-                    correlationId = NULL_VALUE;
-                    snapshotReplaySessionId = NULL_VALUE;
-                    timeOfLastProgressMs = nowMs;
+            snapshotRetrieval = new SnapshotRetrieval(
+                aeron,
+                clusterArchive,
+                backupArchive,
+                snapshotsToRetrieve,
+                ctx.transferEndpoint(),
+                ctx.replayStreamId(),
+                new RecoveryProgress(ctx.snapshotRetrievalBytesCounter(), ctx.snapshotRetrievalRateCounter()));
+            timeOfLastProgressMs = nowMs;
 
-                    if (++snapshotCursor >= snapshotsToRetrieve.size())
-                    {
-                        state(LIVE_LOG_REPLAY, nowMs);
-                        workCount++;
-                    }
-                }
-                else if (null != snapshotRetrieveImage && snapshotRetrieveImage.isClosed())
-                {
-                    throw new ClusterException("retrieval of snapshot image ended unexpectedly");
-                }
-            }
-            else
-            {
-                timeOfLastProgressMs = nowMs;
-                workCount++;
-            }
+            return 1;
         }
-        else if (null == snapshotRetrieveImage && null != snapshotRetrieveSubscription)
+
+        int workCount = snapshotRetrieval.poll();
+        if (workCount > 0)
         {
-            snapshotRetrieveImage = snapshotRetrieveSubscription.imageBySessionId(snapshotReplaySessionId);
-            if (null != snapshotRetrieveImage)
-            {
-                snapshotReader = new SnapshotReader(snapshotRetrieveImage, ctx.aeron().countersReader());
-                timeOfLastProgressMs = nowMs;
-                workCount++;
-            }
+            timeOfLastProgressMs = nowMs;
         }
-        else if (NULL_VALUE == correlationId)
+
+        if (snapshotRetrieval.isDone())
         {
-            final long replayId = ctx.aeron().nextCorrelationId();
-            final RecordingLog.Snapshot snapshot = snapshotsToRetrieve.get(snapshotCursor);
-            final String transferChannel = "aeron:udp?endpoint=" + ctx.transferEndpoint();
-
-            if (clusterArchive.archiveProxy().replay(
-                snapshot.recordingId,
-                0,
-                NULL_LENGTH,
-                transferChannel,
-                ctx.replayStreamId(),
-                replayId,
-                clusterArchive.controlSessionId()))
+            for (int i = 0, size = snapshotsToRetrieve.size(); i < size; i++)
             {
-                correlationId = replayId;
-                timeOfLastProgressMs = nowMs;
-                workCount++;
+                final RecordingLog.Snapshot snapshot = snapshotsToRetrieve.get(i);
+
+                snapshotsRetrieved.add(new RecordingLog.Snapshot(
+                    snapshotRetrieval.recordingId(i),
+                    snapshot.leadershipTermId,
+                    snapshot.termBaseLogPosition,
+                    snapshot.logPosition,
+                    snapshot.timestamp,
+                    snapshot.serviceId));
             }
-        }
-        else if (pollForResponse(clusterArchive, correlationId))
-        {
-            snapshotReplaySessionId = (int)clusterArchive.controlResponsePoller().relevantId();
-            final String replaySubscriptionChannel =
-                "aeron:udp?endpoint=" + ctx.transferEndpoint() + "|session-id=" + snapshotReplaySessionId;
 
-            snapshotRetrieveSubscription = ctx.aeron().addSubscription(replaySubscriptionChannel, ctx.replayStreamId());
-            snapshotRetrieveSubscriptionId = backupArchive.startRecording(
-                replaySubscriptionChannel, ctx.replayStreamId(), SourceLocation.REMOTE);
+            snapshotRetrieval.close();
+            snapshotRetrieval = null;
             timeOfLastProgressMs = nowMs;
+            state(LIVE_LOG_REPLAY, nowMs);
             workCount++;
         }
 
@@ -816,98 +772,4 @@ public class ClusterBackupAgent implements Agent, UnavailableCounterHandler
     {
         return (NULL_COUNTER_ID == liveLogRecCounterId) && (nowMs > (timeOfLastProgressMs + backupProgressTimeoutMs));
     }
-
-    static class SnapshotReader implements ControlledFragmentHandler
-    {
-        private static final int FRAGMENT_LIMIT = 10;
-
-        private boolean inSnapshot = false;
-        private boolean isDone = false;
-        private long endPosition = 0;
-        private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
-        private final SnapshotMarkerDecoder snapshotMarkerDecoder = new SnapshotMarkerDecoder();
-        private final CountersReader countersReader;
-        private final Image image;
-        private long recordingId = RecordingPos.NULL_RECORDING_ID;
-        private long recordingPosition = NULL_POSITION;
-        private int counterId;
-
-        SnapshotReader(final Image image, final CountersReader countersReader)
-        {
-            this.countersReader = countersReader;
-            this.image = image;
-            counterId = RecordingPos.findCounterIdBySession(countersReader, image.sessionId());
-        }
-
-        boolean isDone()
-        {
-            return isDone && endPosition <= recordingPosition;
-        }
-
-        void pollRecordingPosition()
-        {
-            if (NULL_COUNTER_ID == counterId)
-            {
-                counterId = RecordingPos.findCounterIdBySession(countersReader, image.sessionId());
-            }
-            else if (RecordingPos.NULL_RECORDING_ID == recordingId)
-            {
-                recordingId = RecordingPos.getRecordingId(countersReader, counterId);
-            }
-            else
-            {
-                recordingPosition = countersReader.getCounterValue(counterId);
-            }
-        }
-
-        int poll()
-        {
-            pollRecordingPosition();
-
-            return image.controlledPoll(this, FRAGMENT_LIMIT);
-        }
-
-        public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
-        {
-            messageHeaderDecoder.wrap(buffer, offset);
-
-            if (messageHeaderDecoder.templateId() == SnapshotMarkerDecoder.TEMPLATE_ID)
-            {
-                snapshotMarkerDecoder.wrap(
-                    buffer,
-                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
-                    messageHeaderDecoder.blockLength(),
-                    messageHeaderDecoder.version());
-
-                final long typeId = snapshotMarkerDecoder.typeId();
-                if (typeId != ConsensusModule.Configuration.SNAPSHOT_TYPE_ID &&
-                    typeId != ClusteredServiceContainer.SNAPSHOT_TYPE_ID)
-                {
-                    throw new ClusterException("unexpected snapshot type: " + typeId);
-                }
-
-                switch (snapshotMarkerDecoder.mark())
-                {
-                    case BEGIN:
-                        if (inSnapshot)
-                        {
-                            throw new ClusterException("already in snapshot");
-                        }
-                        inSnapshot = true;
-                        return Action.CONTINUE;
-
-                    case END:
-                        if (!inSnapshot)
-                        {
-                            throw new ClusterException("missing begin snapshot");
-                        }
-                        isDone = true;
-                        endPosition = header.position();
-                        return Action.BREAK;
-                }
-            }
-
-            return ControlledFragmentHandler.Action.CONTINUE;
-        }
-    }
 }
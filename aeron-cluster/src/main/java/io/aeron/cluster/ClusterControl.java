@@ -78,7 +78,13 @@ public class ClusterControl
         /**
          * Abort processing and terminate the cluster without taking a snapshot.
          */
-        ABORT(6);
+        ABORT(6),
+
+        /**
+         * Stop appending ingress and hand leadership over to the most up to date follower once it has reached the
+         * end of the log, without waiting for the leader heartbeat timeout.
+         */
+        TRANSFER_LEADERSHIP(7);
 
         private final int code;
 
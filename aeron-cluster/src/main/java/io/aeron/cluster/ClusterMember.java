@@ -985,6 +985,34 @@ public final class ClusterMember
         return possibleVotes >= ClusterMember.quorumThreshold(clusterMembers.length);
     }
 
+    /**
+     * Is the candidate the preferred choice among the members which have canvassed their position, i.e. no member
+     * has a more recent log and none with an equal log has a lower member id. Canvass positions act as a pre-vote
+     * so only the preferred candidate need nominate itself without delay and split votes are avoided.
+     *
+     * @param clusterMembers to compare the candidate against.
+     * @param candidate      for leadership.
+     * @return true if the candidate is preferred otherwise false.
+     */
+    public static boolean isPreferredCandidate(final ClusterMember[] clusterMembers, final ClusterMember candidate)
+    {
+        for (final ClusterMember member : clusterMembers)
+        {
+            if (NULL_POSITION == member.logPosition || member == candidate)
+            {
+                continue;
+            }
+
+            final int result = compareLog(candidate, member);
+            if (result < 0 || (0 == result && member.id < candidate.id))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * The result is positive if lhs has the more recent log, zero if logs are equal, and negative if rhs has the more
      * recent log.
@@ -20,9 +20,9 @@ import io.aeron.Publication;
 import io.aeron.cluster.client.ClusterException;
 import io.aeron.cluster.codecs.CloseReason;
 import io.aeron.cluster.codecs.EventCode;
+import io.aeron.cluster.service.ResponsePublicationPool;
 import io.aeron.driver.exceptions.InvalidChannelException;
 import io.aeron.logbuffer.BufferClaim;
-import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 import org.agrona.collections.ArrayUtil;
 
@@ -48,12 +48,17 @@ class ClusterSession
     private final int responseStreamId;
     private final String responseChannel;
     private Publication responsePublication;
+    private ResponsePublicationPool responsePublicationPool;
     private State state = State.INIT;
     private String responseDetail = null;
     private EventCode eventCode = null;
     private CloseReason closeReason = CloseReason.NULL_VAL;
     private byte[] encodedPrincipal = NULL_PRINCIPAL;
 
+    ClusterSessionActivityList activityList;
+    ClusterSession previousByActivity;
+    ClusterSession nextByActivity;
+
     ClusterSession(final long sessionId, final int responseStreamId, final String responseChannel)
     {
         this.id = sessionId;
@@ -90,8 +95,7 @@ class ClusterSession
 
     public void close()
     {
-        CloseHelper.close(responsePublication);
-        responsePublication = null;
+        disconnect();
         state = State.CLOSED;
     }
 
@@ -121,7 +125,7 @@ class ClusterSession
         return closeReason;
     }
 
-    void connect(final Aeron aeron)
+    void connect(final ResponsePublicationPool responsePublicationPool)
     {
         if (null != responsePublication)
         {
@@ -130,7 +134,8 @@ class ClusterSession
 
         try
         {
-            responsePublication = aeron.addPublication(responseChannel, responseStreamId);
+            responsePublication = responsePublicationPool.acquire(responseChannel, responseStreamId);
+            this.responsePublicationPool = responsePublicationPool;
         }
         catch (final InvalidChannelException ignore)
         {
@@ -139,8 +144,11 @@ class ClusterSession
 
     void disconnect()
     {
-        CloseHelper.close(responsePublication);
-        responsePublication = null;
+        if (null != responsePublication)
+        {
+            responsePublicationPool.release(responsePublication);
+            responsePublication = null;
+        }
     }
 
     boolean isResponsePublicationConnected()
@@ -206,7 +214,7 @@ class ClusterSession
 
     void lastActivity(final long timeNs, final long correlationId)
     {
-        timeOfLastActivityNs = timeNs;
+        timeOfLastActivityNs(timeNs);
         this.correlationId = correlationId;
     }
 
@@ -235,6 +243,21 @@ class ClusterSession
     void timeOfLastActivityNs(final long timeNs)
     {
         timeOfLastActivityNs = timeNs;
+
+        if (null != activityList)
+        {
+            activityList.moveToTail(this);
+        }
+    }
+
+    /**
+     * Next session in the {@link ClusterSessionActivityList} this session belongs to.
+     *
+     * @return the next session with more recent activity or null if this is the most recent or not in a list.
+     */
+    ClusterSession nextByActivity()
+    {
+        return nextByActivity;
     }
 
     long correlationId()
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+/**
+ * Intrusive list of {@link ClusterSession}s ordered by time of last activity, least recent first, so the sessions
+ * which have timed out can be found from the head without visiting those which are still active.
+ * <p>
+ * A session is moved to the tail when its activity is updated. Activity is recorded at the current time so this keeps
+ * the list in order.
+ */
+class ClusterSessionActivityList
+{
+    private ClusterSession head;
+    private ClusterSession tail;
+    private int size;
+
+    /**
+     * Session with the least recent activity.
+     *
+     * @return the session with the least recent activity or null if the list is empty.
+     */
+    ClusterSession head()
+    {
+        return head;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    void add(final ClusterSession session)
+    {
+        if (null != session.activityList)
+        {
+            session.activityList.remove(session);
+        }
+
+        session.activityList = this;
+        linkAtTail(session);
+        size++;
+    }
+
+    void remove(final ClusterSession session)
+    {
+        if (this == session.activityList)
+        {
+            unlink(session);
+            session.activityList = null;
+            size--;
+        }
+    }
+
+    void moveToTail(final ClusterSession session)
+    {
+        if (tail != session)
+        {
+            unlink(session);
+            linkAtTail(session);
+        }
+    }
+
+    private void linkAtTail(final ClusterSession session)
+    {
+        session.previousByActivity = tail;
+        session.nextByActivity = null;
+
+        if (null == tail)
+        {
+            head = session;
+        }
+        else
+        {
+            tail.nextByActivity = session;
+        }
+
+        tail = session;
+    }
+
+    private void unlink(final ClusterSession session)
+    {
+        final ClusterSession previous = session.previousByActivity;
+        final ClusterSession next = session.nextByActivity;
+
+        if (null == previous)
+        {
+            head = next;
+        }
+        else
+        {
+            previous.nextByActivity = next;
+        }
+
+        if (null == next)
+        {
+            tail = previous;
+        }
+        else
+        {
+            next.previousByActivity = previous;
+        }
+
+        session.previousByActivity = null;
+        session.nextByActivity = null;
+    }
+}
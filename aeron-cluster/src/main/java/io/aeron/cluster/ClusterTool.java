@@ -17,6 +17,7 @@ package io.aeron.cluster;
 
 import io.aeron.Aeron;
 import io.aeron.CncFileDescriptor;
+import io.aeron.Publication;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.cluster.codecs.BooleanType;
 import io.aeron.cluster.codecs.mark.ClusterComponentType;
@@ -60,6 +61,8 @@ import static org.agrona.SystemUtil.getDurationInNanos;
  *             remove-passive: [memberId] requests removal of passive member specified in memberId.
  *               backup-query: [delay] schedules (or displays) time of next backup query for cluster backup.
  *  tombstone-latest-snapshot: Mark the latest snapshot as a tombstone so previous is loaded..
+ *      compact-recording-log: Remove tombstoned entries from the recording log of a stopped cluster component.
+ *        transfer-leadership: [memberId] hand leadership over to the member, or the most up to date follower.
  * </pre>
  */
 public class ClusterTool
@@ -69,6 +72,7 @@ public class ClusterTool
 
     private static final long TIMEOUT_MS =
         NANOSECONDS.toMillis(getDurationInNanos(AERON_CLUSTER_TOOL_TIMEOUT_PROP_NAME, 0));
+    private static final long CONNECT_TIMEOUT_MS = 1000;
 
     public static void main(final String[] args)
     {
@@ -152,6 +156,14 @@ public class ClusterTool
             case "tombstone-latest-snapshot":
                 tombstoneLatestSnapshot(System.out, clusterDir);
                 break;
+
+            case "compact-recording-log":
+                compactRecordingLog(System.out, clusterDir);
+                break;
+
+            case "transfer-leadership":
+                transferLeadership(System.out, clusterDir, args.length < 3 ? NULL_VALUE : Integer.parseInt(args[2]));
+                break;
         }
     }
 
@@ -288,6 +300,24 @@ public class ClusterTool
         }
     }
 
+    public static void transferLeadership(final PrintStream out, final File clusterDir, final int memberId)
+    {
+        if (markFileExists(clusterDir) || TIMEOUT_MS > 0)
+        {
+            try (ClusterMarkFile markFile = openMarkFile(clusterDir, System.out::println))
+            {
+                if (!transferLeadership(markFile, memberId))
+                {
+                    out.println("could not send transfer leadership request");
+                }
+            }
+        }
+        else
+        {
+            out.println(ClusterMarkFile.FILENAME + " does not exist.");
+        }
+    }
+
     public static void printNextBackupQuery(final PrintStream out, final File clusterDir)
     {
         if (markFileExists(clusterDir) || TIMEOUT_MS > 0)
@@ -496,6 +526,44 @@ public class ClusterTool
         return false;
     }
 
+    public static boolean transferLeadership(final File clusterDir, final int memberId)
+    {
+        if (markFileExists(clusterDir) || TIMEOUT_MS > 0)
+        {
+            try (ClusterMarkFile markFile = openMarkFile(clusterDir, null))
+            {
+                return transferLeadership(markFile, memberId);
+            }
+        }
+
+        return false;
+    }
+
+    public static boolean transferLeadership(final ClusterMarkFile markFile, final int memberId)
+    {
+        final String aeronDirectoryName = markFile.decoder().aeronDirectory();
+        markFile.decoder().archiveChannel();
+        final String channel = markFile.decoder().serviceControlChannel();
+        final int toConsensusModuleStreamId = markFile.decoder().consensusModuleStreamId();
+
+        try (Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(aeronDirectoryName));
+            Publication publication = aeron.addPublication(channel, toConsensusModuleStreamId);
+            ConsensusModuleProxy consensusModuleProxy = new ConsensusModuleProxy(publication))
+        {
+            final long deadlineMs = System.currentTimeMillis() + Math.max(TIMEOUT_MS, CONNECT_TIMEOUT_MS);
+            while (!publication.isConnected())
+            {
+                if (System.currentTimeMillis() > deadlineMs)
+                {
+                    return false;
+                }
+                Thread.yield();
+            }
+
+            return consensusModuleProxy.transferLeadership(aeron.nextCorrelationId(), memberId);
+        }
+    }
+
     public static long nextBackupQueryDeadlineMs(final File clusterDir)
     {
         if (markFileExists(clusterDir) || TIMEOUT_MS > 0)
@@ -576,6 +644,16 @@ public class ClusterTool
         }
     }
 
+    public static int compactRecordingLog(final PrintStream out, final File clusterDir)
+    {
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir))
+        {
+            final int removedCount = recordingLog.compact();
+            out.println(" compact recording log: removed " + removedCount + " tombstoned entries");
+            return removedCount;
+        }
+    }
+
     private static ClusterMarkFile openMarkFile(final File clusterDir, final Consumer<String> logger)
     {
         return new ClusterMarkFile(clusterDir, ClusterMarkFile.FILENAME, System::currentTimeMillis, TIMEOUT_MS, logger);
@@ -656,5 +734,9 @@ public class ClusterTool
             "               backup-query: [delay] display time of next backup query or set time of next backup query.");
         out.println(
             "  tombstone-latest-snapshot: Mark the latest snapshot as a tombstone so previous is loaded.");
+        out.println(
+            "      compact-recording-log: Remove tombstoned entries from the recording log of a stopped component.");
+        out.println(
+            "        transfer-leadership: [memberId] hand leadership to the member, or the most up to date follower.");
     }
 }
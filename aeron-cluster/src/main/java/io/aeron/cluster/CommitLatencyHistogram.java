@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import org.agrona.CloseHelper;
+
+/**
+ * Histogram of the latency from a position being appended to the log by the leader until the commit position
+ * covering it is sent to the followers. The histogram is held in counters, one per power of two bucket of
+ * microseconds, so it can be observed with tools such as AeronStat and sampled to get a rate.
+ */
+final class CommitLatencyHistogram implements AutoCloseable
+{
+    /**
+     * Number of buckets with the last one counting all latencies beyond the range of the one before.
+     */
+    static final int BUCKET_COUNT = 24;
+
+    private final Counter[] buckets;
+
+    CommitLatencyHistogram(final Counter[] buckets)
+    {
+        if (BUCKET_COUNT != buckets.length)
+        {
+            throw new IllegalArgumentException("expected " + BUCKET_COUNT + " buckets: length=" + buckets.length);
+        }
+
+        this.buckets = buckets;
+    }
+
+    /**
+     * Allocate the bucket counters for a histogram.
+     *
+     * @param aeron  to allocate the counters.
+     * @param typeId for the counters.
+     * @return a new histogram backed by the allocated counters.
+     */
+    static CommitLatencyHistogram allocate(final Aeron aeron, final int typeId)
+    {
+        final Counter[] buckets = new Counter[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            final String label = i < (BUCKET_COUNT - 1) ?
+                "Commit latency < " + (1L << i) + "us" :
+                "Commit latency >= " + (1L << (BUCKET_COUNT - 2)) + "us";
+
+            buckets[i] = aeron.addCounter(typeId, label);
+        }
+
+        return new CommitLatencyHistogram(buckets);
+    }
+
+    /**
+     * Index of the bucket which will count a latency.
+     *
+     * @param latencyNs to be counted.
+     * @return index of the bucket which will count the latency.
+     */
+    static int bucketIndex(final long latencyNs)
+    {
+        final long latencyUs = Math.max(0, latencyNs / 1000);
+
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(latencyUs));
+    }
+
+    /**
+     * Record a commit latency.
+     *
+     * @param latencyNs from append to commit position being sent.
+     */
+    void record(final long latencyNs)
+    {
+        buckets[bucketIndex(latencyNs)].incrementOrdered();
+    }
+
+    /**
+     * Get the count recorded in a bucket.
+     *
+     * @param index of the bucket.
+     * @return the count recorded in the bucket.
+     */
+    long count(final int index)
+    {
+        return buckets[index].get();
+    }
+
+    public void close()
+    {
+        CloseHelper.closeAll(buckets);
+    }
+}
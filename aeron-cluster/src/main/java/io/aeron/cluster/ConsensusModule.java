@@ -257,6 +257,116 @@ public class ConsensusModule implements AutoCloseable
          */
         public static final int CLUSTER_INGRESS_FRAGMENT_LIMIT_DEFAULT = 50;
 
+        /**
+         * Property name for the maximum length in bytes of a batch of ingress messages the leader appends to the log
+         * as a single message. Messages from a poll of ingress are accumulated into a batch and appended once the
+         * batch is full or the poll completes, reducing the appends to the log to one per batch rather than one per
+         * message. Batches are limited to the max message length of the log publication. Zero disables batching.
+         * <p>
+         * <b>Note:</b> Every message in a batch is delivered to the services with the log position at the end of the
+         * batch, as given by {@link io.aeron.logbuffer.Header#position()}, and the cluster timestamp at which the
+         * first message of the batch was received. Services which rely on a distinct log position or timestamp per
+         * message should leave batching disabled.
+         */
+        public static final String CLUSTER_INGRESS_BATCH_LENGTH_PROP_NAME = "aeron.cluster.ingress.batch.length";
+
+        /**
+         * Default for the maximum length in bytes of a batch of ingress messages which disables batching.
+         */
+        public static final int CLUSTER_INGRESS_BATCH_LENGTH_DEFAULT = 0;
+
+        /**
+         * Property name for the maximum length in bytes of a batch of service messages the leader appends to the log
+         * as a single message. Messages offered by the services to the cluster which are pending append are gathered
+         * into a batch, which is unpacked when the log is delivered, so a service which fans out many messages costs
+         * one append to the log per batch rather than one per message. Batches are limited to the max message length
+         * of the log publication. Zero disables batching.
+         */
+        public static final String SERVICE_MESSAGE_BATCH_LENGTH_PROP_NAME =
+            "aeron.cluster.service.message.batch.length";
+
+        /**
+         * Default for the maximum length in bytes of a batch of service messages which disables batching.
+         */
+        public static final int SERVICE_MESSAGE_BATCH_LENGTH_DEFAULT = 0;
+
+        /**
+         * Property name for the limit on snapshot deltas taken by the services between base snapshots. When a
+         * snapshot is requested and fewer deltas than the limit have been taken since the last base snapshot then the
+         * services are asked for a snapshot delta of only their state changed since their previous snapshot. The
+         * limit is capped by what can be held in the {@link io.aeron.cluster.service.RecoveryState} for the count of
+         * services. Snapshots on shutdown are always base snapshots. Zero disables snapshot deltas.
+         * <p>
+         * Dynamic join and cluster backup transfer only base snapshots, so a joining member or backup fails with an
+         * error until the leader takes a base snapshot when the latest snapshot has deltas.
+         */
+        public static final String SNAPSHOT_DELTA_LIMIT_PROP_NAME = "aeron.cluster.snapshot.delta.limit";
+
+        /**
+         * Default for the limit on snapshot deltas between base snapshots which disables snapshot deltas.
+         */
+        public static final int SNAPSHOT_DELTA_LIMIT_DEFAULT = 0;
+
+        /**
+         * Property name for if the replay of the log on recovery should be started from the archive while the
+         * snapshots are still being loaded, so the log is prefetched into the replay buffer ready for when the
+         * services join the replay. Only applies when the replay channel is IPC.
+         */
+        public static final String LOG_REPLAY_PREFETCH_PROP_NAME = "aeron.cluster.log.replay.prefetch";
+
+        /**
+         * Default to false so the replay of the log is started once the services are ready to consume it.
+         */
+        public static final boolean LOG_REPLAY_PREFETCH_DEFAULT = false;
+
+        /**
+         * Property name for if cluster sessions with the same response channel and stream id should share a single
+         * response publication for egress. Clients sharing the channel demultiplex messages by cluster session id.
+         */
+        public static final String EGRESS_MULTIPLEX_PROP_NAME = "aeron.cluster.egress.multiplex";
+
+        /**
+         * Default to false so each cluster session has a response publication of its own.
+         */
+        public static final boolean EGRESS_MULTIPLEX_DEFAULT = false;
+
+        /**
+         * Property name for if ingress should be assembled and validated on a pipeline thread of its own which hands
+         * over messages to the consensus module thread via a ring buffer.
+         */
+        public static final String INGRESS_PIPELINE_PROP_NAME = "aeron.cluster.ingress.pipeline";
+
+        /**
+         * Default to false so ingress is polled on the consensus module thread.
+         */
+        public static final boolean INGRESS_PIPELINE_DEFAULT = false;
+
+        /**
+         * Property name for the length of the ring buffer between the ingress pipeline and the consensus module
+         * thread, which must be a power of two. Messages longer than an eighth of the length are handed over one at a
+         * time outside of the ring buffer.
+         */
+        public static final String INGRESS_PIPELINE_BUFFER_LENGTH_PROP_NAME =
+            "aeron.cluster.ingress.pipeline.buffer.length";
+
+        /**
+         * Default length for the ring buffer between the ingress pipeline and the consensus module thread.
+         */
+        public static final int INGRESS_PIPELINE_BUFFER_LENGTH_DEFAULT = 1024 * 1024;
+
+        /**
+         * Property name for the length of log a follower must be behind the leader by, when joining an election, for
+         * it to catch up by replicating the log from the archive of the leader into its own archive and then replaying
+         * it from local disk. Followers which are less far behind catch up on a replay merged into the live log.
+         */
+        public static final String CATCHUP_REPLICATION_THRESHOLD_PROP_NAME =
+            "aeron.cluster.catchup.replication.threshold";
+
+        /**
+         * Default length of log a follower must be behind by to catch up by replicating the log.
+         */
+        public static final long CATCHUP_REPLICATION_THRESHOLD_DEFAULT = 64 * 1024 * 1024;
+
         /**
          * Type of snapshot for this component.
          */
@@ -468,6 +578,71 @@ public class ConsensusModule implements AutoCloseable
          */
         public static final int SNAPSHOT_COUNTER_TYPE_ID = 205;
 
+        /**
+         * Counter type id for the count of commit position messages sent to followers by a leader.
+         */
+        public static final int COMMIT_POSITION_MESSAGE_COUNT_TYPE_ID = 216;
+
+        /**
+         * Counter type id for the buckets of the commit latency histogram.
+         */
+        public static final int COMMIT_LATENCY_HISTOGRAM_TYPE_ID = 217;
+
+        /**
+         * Counter type id for the position reached by the replay of the log on recovery.
+         */
+        public static final int LOG_REPLAY_POSITION_TYPE_ID = 219;
+
+        /**
+         * Counter type id for the rate in bytes per second of the replay of the log on recovery.
+         */
+        public static final int LOG_REPLAY_RATE_TYPE_ID = 220;
+
+        /**
+         * Counter type id for the limit of a prefetched replay of the log.
+         */
+        public static final int LOG_REPLAY_LIMIT_TYPE_ID = 221;
+
+        /**
+         * Counter type id for the position reached by the replication of the log from the leader for catch up.
+         */
+        public static final int LOG_REPLICATION_POSITION_TYPE_ID = 225;
+
+        /**
+         * Counter type id for the rate in bytes per second of the replication of the log from the leader for catch up.
+         */
+        public static final int LOG_REPLICATION_RATE_TYPE_ID = 226;
+
+        /**
+         * Counter type id for the total bytes of snapshots retrieved from another member, e.g. on dynamic join.
+         */
+        public static final int SNAPSHOT_RETRIEVAL_BYTES_TYPE_ID = 227;
+
+        /**
+         * Counter type id for the aggregate rate in bytes per second of snapshots retrieved from another member.
+         */
+        public static final int SNAPSHOT_RETRIEVAL_RATE_TYPE_ID = 228;
+
+        /**
+         * Counter type id for the time in milliseconds taken by a dynamic join to complete.
+         */
+        public static final int DYNAMIC_JOIN_TIME_TYPE_ID = 229;
+
+        /**
+         * Counter type id for the total time in nanoseconds spent in each {@link Election.State}.
+         */
+        public static final int ELECTION_STATE_TIME_TYPE_ID = 230;
+
+        /**
+         * Counter type id for the count of service messages pending until committed to the log.
+         */
+        public static final int PENDING_SERVICE_MESSAGE_COUNT_TYPE_ID = 231;
+
+        /**
+         * Counter type id for the rate in messages per second at which service messages are appended to the log.
+         */
+        public static final int SERVICE_MESSAGE_APPEND_RATE_TYPE_ID = 232;
+
         /**
          * Type id for election state counter.
          */
@@ -523,6 +698,29 @@ public class ConsensusModule implements AutoCloseable
          */
         public static final long LEADER_HEARTBEAT_INTERVAL_DEFAULT_NS = TimeUnit.MILLISECONDS.toNanos(200);
 
+        /**
+         * Minimum interval at which a leader will send an advancing commit position to followers. Commit positions
+         * which advance within the interval are coalesced unless the commit has caught up with the log or advanced by
+         * {@link #COMMIT_POSITION_DELTA_PROP_NAME}. Zero sends every advance of the commit position.
+         */
+        public static final String COMMIT_POSITION_INTERVAL_PROP_NAME = "aeron.cluster.commit.position.interval";
+
+        /**
+         * Default minimum interval at which a leader will send an advancing commit position which sends every advance.
+         */
+        public static final long COMMIT_POSITION_INTERVAL_DEFAULT_NS = 0;
+
+        /**
+         * Number of bytes the commit position must advance to be sent to followers before the
+         * {@link #COMMIT_POSITION_INTERVAL_PROP_NAME} has elapsed. Zero only sends on the interval.
+         */
+        public static final String COMMIT_POSITION_DELTA_PROP_NAME = "aeron.cluster.commit.position.delta";
+
+        /**
+         * Default number of bytes the commit position must advance to be sent before the interval has elapsed.
+         */
+        public static final int COMMIT_POSITION_DELTA_DEFAULT = 0;
+
         /**
          * Timeout after which an election vote will be attempted after startup while waiting to canvass the status
          * of members if a majority has been heard from.
@@ -555,6 +753,20 @@ public class ConsensusModule implements AutoCloseable
          */
         public static final long ELECTION_STATUS_INTERVAL_DEFAULT_NS = TimeUnit.MILLISECONDS.toNanos(20);
 
+        /**
+         * Property name for if elections should take the fast path. A member which the canvass shows has the most
+         * recent log, with the lowest member id breaking ties, nominates itself as soon as a quorum of members have
+         * canvassed rather than waiting out the canvass timeout and a random delay. A leader closing gracefully also
+         * hands off to the follower with the highest appended position so followers need not wait for the leader
+         * heartbeat timeout.
+         */
+        public static final String FAST_ELECTION_PROP_NAME = "aeron.cluster.election.fast";
+
+        /**
+         * Default to false so elections wait out the canvass timeout and a random nomination delay.
+         */
+        public static final boolean FAST_ELECTION_DEFAULT = false;
+
         /**
          * Interval at which a dynamic joining member will send add cluster member and snapshot recording
          * queries.
@@ -598,6 +810,16 @@ public class ConsensusModule implements AutoCloseable
          */
         public static final long TERMINATION_TIMEOUT_DEFAULT_NS = TimeUnit.SECONDS.toNanos(5);
 
+        /**
+         * Timeout waiting for services to record a snapshot which is being written in the background.
+         */
+        public static final String SERVICE_SNAPSHOT_TIMEOUT_PROP_NAME = "aeron.cluster.service.snapshot.timeout";
+
+        /**
+         * Timeout waiting for services to record a snapshot which is being written in the background default value.
+         */
+        public static final long SERVICE_SNAPSHOT_TIMEOUT_DEFAULT_NS = TimeUnit.SECONDS.toNanos(30);
+
         /**
          * Resolution in nanoseconds for each tick of the timer wheel for scheduling deadlines.
          */
@@ -610,7 +832,8 @@ public class ConsensusModule implements AutoCloseable
 
         /**
          * Number of ticks, or spokes, on the timer wheel. Higher number of ticks reduces potential conflicts
-         * traded off against memory usage.
+         * traded off against memory usage. Timers are held on a hierarchy of up to four wheels each with this number
+         * of ticks, and each tick of a wheel spans a full rotation of the wheel below it.
          */
         public static final String TICKS_PER_WHEEL_PROP_NAME = "aeron.cluster.ticks.per.wheel";
 
@@ -620,6 +843,19 @@ public class ConsensusModule implements AutoCloseable
          */
         public static final int TICKS_PER_WHEEL_DEFAULT = 128;
 
+        /**
+         * Property name for the maximum number of expired timers the leader appends to the log as a single event.
+         * Timers which expire in the same poll are appended together, in as many events as needed to fit the max
+         * message length of the log, rather than as an event each. Zero appends an event for each timer.
+         */
+        public static final String TIMER_EXPIRY_BATCH_LIMIT_PROP_NAME = "aeron.cluster.timer.expiry.batch.limit";
+
+        /**
+         * Default for the maximum number of expired timers appended to the log as a single event which disables
+         * batching.
+         */
+        public static final int TIMER_EXPIRY_BATCH_LIMIT_DEFAULT = 0;
+
         /**
          * The level at which files should be sync'ed to disk.
          * <ul>
@@ -647,6 +883,116 @@ public class ConsensusModule implements AutoCloseable
             return Integer.getInteger(CLUSTER_INGRESS_FRAGMENT_LIMIT_PROP_NAME, CLUSTER_INGRESS_FRAGMENT_LIMIT_DEFAULT);
         }
 
+        /**
+         * The value {@link #CLUSTER_INGRESS_BATCH_LENGTH_DEFAULT} or system property
+         * {@link #CLUSTER_INGRESS_BATCH_LENGTH_PROP_NAME} if set.
+         *
+         * @return {@link #CLUSTER_INGRESS_BATCH_LENGTH_DEFAULT} or system property
+         * {@link #CLUSTER_INGRESS_BATCH_LENGTH_PROP_NAME} if set.
+         */
+        public static int ingressBatchLength()
+        {
+            return Integer.getInteger(CLUSTER_INGRESS_BATCH_LENGTH_PROP_NAME, CLUSTER_INGRESS_BATCH_LENGTH_DEFAULT);
+        }
+
+        /**
+         * The value {@link #SERVICE_MESSAGE_BATCH_LENGTH_DEFAULT} or system property
+         * {@link #SERVICE_MESSAGE_BATCH_LENGTH_PROP_NAME} if set.
+         *
+         * @return {@link #SERVICE_MESSAGE_BATCH_LENGTH_DEFAULT} or system property
+         * {@link #SERVICE_MESSAGE_BATCH_LENGTH_PROP_NAME} if set.
+         */
+        public static int serviceMessageBatchLength()
+        {
+            return Integer.getInteger(SERVICE_MESSAGE_BATCH_LENGTH_PROP_NAME, SERVICE_MESSAGE_BATCH_LENGTH_DEFAULT);
+        }
+
+        /**
+         * The value {@link #SNAPSHOT_DELTA_LIMIT_DEFAULT} or system property
+         * {@link #SNAPSHOT_DELTA_LIMIT_PROP_NAME} if set.
+         *
+         * @return {@link #SNAPSHOT_DELTA_LIMIT_DEFAULT} or system property
+         * {@link #SNAPSHOT_DELTA_LIMIT_PROP_NAME} if set.
+         */
+        public static int snapshotDeltaLimit()
+        {
+            return Integer.getInteger(SNAPSHOT_DELTA_LIMIT_PROP_NAME, SNAPSHOT_DELTA_LIMIT_DEFAULT);
+        }
+
+        /**
+         * The value {@link #LOG_REPLAY_PREFETCH_DEFAULT} or system property {@link #LOG_REPLAY_PREFETCH_PROP_NAME}
+         * if set.
+         *
+         * @return {@link #LOG_REPLAY_PREFETCH_DEFAULT} or system property {@link #LOG_REPLAY_PREFETCH_PROP_NAME}
+         * if set.
+         */
+        public static boolean logReplayPrefetch()
+        {
+            final String property = System.getProperty(LOG_REPLAY_PREFETCH_PROP_NAME);
+            if (null == property)
+            {
+                return LOG_REPLAY_PREFETCH_DEFAULT;
+            }
+
+            return "true".equalsIgnoreCase(property);
+        }
+
+        /**
+         * The value {@link #EGRESS_MULTIPLEX_DEFAULT} or system property {@link #EGRESS_MULTIPLEX_PROP_NAME} if set.
+         *
+         * @return {@link #EGRESS_MULTIPLEX_DEFAULT} or system property {@link #EGRESS_MULTIPLEX_PROP_NAME} if set.
+         */
+        public static boolean egressMultiplex()
+        {
+            final String property = System.getProperty(EGRESS_MULTIPLEX_PROP_NAME);
+            if (null == property)
+            {
+                return EGRESS_MULTIPLEX_DEFAULT;
+            }
+
+            return "true".equalsIgnoreCase(property);
+        }
+
+        /**
+         * The value {@link #INGRESS_PIPELINE_DEFAULT} or system property {@link #INGRESS_PIPELINE_PROP_NAME} if set.
+         *
+         * @return {@link #INGRESS_PIPELINE_DEFAULT} or system property {@link #INGRESS_PIPELINE_PROP_NAME} if set.
+         */
+        public static boolean ingressPipeline()
+        {
+            final String property = System.getProperty(INGRESS_PIPELINE_PROP_NAME);
+            if (null == property)
+            {
+                return INGRESS_PIPELINE_DEFAULT;
+            }
+
+            return "true".equalsIgnoreCase(property);
+        }
+
+        /**
+         * The value {@link #INGRESS_PIPELINE_BUFFER_LENGTH_DEFAULT} or system property
+         * {@link #INGRESS_PIPELINE_BUFFER_LENGTH_PROP_NAME} if set.
+         *
+         * @return {@link #INGRESS_PIPELINE_BUFFER_LENGTH_DEFAULT} or system property
+         * {@link #INGRESS_PIPELINE_BUFFER_LENGTH_PROP_NAME} if set.
+         */
+        public static int ingressPipelineBufferLength()
+        {
+            return getSizeAsInt(INGRESS_PIPELINE_BUFFER_LENGTH_PROP_NAME, INGRESS_PIPELINE_BUFFER_LENGTH_DEFAULT);
+        }
+
+        /**
+         * The value {@link #CATCHUP_REPLICATION_THRESHOLD_DEFAULT} or system property
+         * {@link #CATCHUP_REPLICATION_THRESHOLD_PROP_NAME} if set.
+         *
+         * @return {@link #CATCHUP_REPLICATION_THRESHOLD_DEFAULT} or system property
+         * {@link #CATCHUP_REPLICATION_THRESHOLD_PROP_NAME} if set.
+         */
+        public static long catchupReplicationThreshold()
+        {
+            return getSizeAsLong(CATCHUP_REPLICATION_THRESHOLD_PROP_NAME, CATCHUP_REPLICATION_THRESHOLD_DEFAULT);
+        }
+
         /**
          * The value {@link #CLUSTER_MEMBER_ID_DEFAULT} or system property
          * {@link #CLUSTER_MEMBER_ID_PROP_NAME} if set.
@@ -820,6 +1166,28 @@ public class ConsensusModule implements AutoCloseable
             return getDurationInNanos(LEADER_HEARTBEAT_INTERVAL_PROP_NAME, LEADER_HEARTBEAT_INTERVAL_DEFAULT_NS);
         }
 
+        /**
+         * Minimum interval at which a leader will send an advancing commit position to followers.
+         *
+         * @return minimum interval in nanoseconds at which a leader will send an advancing commit position.
+         * @see #COMMIT_POSITION_INTERVAL_PROP_NAME
+         */
+        public static long commitPositionIntervalNs()
+        {
+            return getDurationInNanos(COMMIT_POSITION_INTERVAL_PROP_NAME, COMMIT_POSITION_INTERVAL_DEFAULT_NS);
+        }
+
+        /**
+         * Number of bytes the commit position must advance to be sent before the interval has elapsed.
+         *
+         * @return number of bytes the commit position must advance to be sent before the interval has elapsed.
+         * @see #COMMIT_POSITION_DELTA_PROP_NAME
+         */
+        public static int commitPositionDelta()
+        {
+            return Integer.getInteger(COMMIT_POSITION_DELTA_PROP_NAME, COMMIT_POSITION_DELTA_DEFAULT);
+        }
+
         /**
          * Timeout waiting to canvass the status of cluster members before voting if a majority have been heard from.
          *
@@ -853,6 +1221,22 @@ public class ConsensusModule implements AutoCloseable
             return getDurationInNanos(ELECTION_STATUS_INTERVAL_PROP_NAME, ELECTION_STATUS_INTERVAL_DEFAULT_NS);
         }
 
+        /**
+         * The value {@link #FAST_ELECTION_DEFAULT} or system property {@link #FAST_ELECTION_PROP_NAME} if set.
+         *
+         * @return {@link #FAST_ELECTION_DEFAULT} or system property {@link #FAST_ELECTION_PROP_NAME} if set.
+         */
+        public static boolean fastElection()
+        {
+            final String property = System.getProperty(FAST_ELECTION_PROP_NAME);
+            if (null == property)
+            {
+                return FAST_ELECTION_DEFAULT;
+            }
+
+            return "true".equalsIgnoreCase(property);
+        }
+
         /**
          * Interval at which a dynamic joining member will send out add cluster members and snapshot recording
          * queries.
@@ -877,6 +1261,17 @@ public class ConsensusModule implements AutoCloseable
             return getDurationInNanos(TERMINATION_TIMEOUT_PROP_NAME, TERMINATION_TIMEOUT_DEFAULT_NS);
         }
 
+        /**
+         * Timeout waiting for services to record a snapshot which is being written in the background.
+         *
+         * @return timeout in nanoseconds to wait for services to record a snapshot.
+         * @see #SERVICE_SNAPSHOT_TIMEOUT_PROP_NAME
+         */
+        public static long serviceSnapshotTimeoutNs()
+        {
+            return getDurationInNanos(SERVICE_SNAPSHOT_TIMEOUT_PROP_NAME, SERVICE_SNAPSHOT_TIMEOUT_DEFAULT_NS);
+        }
+
         /**
          * Size in bytes of the error buffer in the mark file.
          *
@@ -961,6 +1356,18 @@ public class ConsensusModule implements AutoCloseable
             return Integer.getInteger(TICKS_PER_WHEEL_PROP_NAME, TICKS_PER_WHEEL_DEFAULT);
         }
 
+        /**
+         * The value {@link #TIMER_EXPIRY_BATCH_LIMIT_DEFAULT} or system property
+         * {@link #TIMER_EXPIRY_BATCH_LIMIT_PROP_NAME} if set.
+         *
+         * @return {@link #TIMER_EXPIRY_BATCH_LIMIT_DEFAULT} or system property
+         * {@link #TIMER_EXPIRY_BATCH_LIMIT_PROP_NAME} if set.
+         */
+        public static int timerExpiryBatchLimit()
+        {
+            return Integer.getInteger(TIMER_EXPIRY_BATCH_LIMIT_PROP_NAME, TIMER_EXPIRY_BATCH_LIMIT_DEFAULT);
+        }
+
         /**
          * The level at which files should be sync'ed to disk.
          * <ul>
@@ -1013,6 +1420,14 @@ public class ConsensusModule implements AutoCloseable
         private String ingressChannel = AeronCluster.Configuration.ingressChannel();
         private int ingressStreamId = AeronCluster.Configuration.ingressStreamId();
         private int ingressFragmentLimit = Configuration.ingressFragmentLimit();
+        private int ingressBatchLength = Configuration.ingressBatchLength();
+        private int serviceMessageBatchLength = Configuration.serviceMessageBatchLength();
+        private int snapshotDeltaLimit = Configuration.snapshotDeltaLimit();
+        private boolean logReplayPrefetch = Configuration.logReplayPrefetch();
+        private boolean egressMultiplex = Configuration.egressMultiplex();
+        private boolean ingressPipeline = Configuration.ingressPipeline();
+        private int ingressPipelineBufferLength = Configuration.ingressPipelineBufferLength();
+        private long catchupReplicationThreshold = Configuration.catchupReplicationThreshold();
         private String logChannel = Configuration.logChannel();
         private int logStreamId = Configuration.logStreamId();
         private String memberEndpoints = Configuration.memberEndpoints();
@@ -1031,14 +1446,19 @@ public class ConsensusModule implements AutoCloseable
         private int maxConcurrentSessions = Configuration.maxConcurrentSessions();
         private int ticksPerWheel = Configuration.ticksPerWheel();
         private long wheelTickResolutionNs = Configuration.wheelTickResolutionNs();
+        private int timerExpiryBatchLimit = Configuration.timerExpiryBatchLimit();
         private long sessionTimeoutNs = Configuration.sessionTimeoutNs();
         private long leaderHeartbeatTimeoutNs = Configuration.leaderHeartbeatTimeoutNs();
         private long leaderHeartbeatIntervalNs = Configuration.leaderHeartbeatIntervalNs();
+        private long commitPositionIntervalNs = Configuration.commitPositionIntervalNs();
+        private int commitPositionDelta = Configuration.commitPositionDelta();
         private long startupCanvassTimeoutNs = Configuration.startupCanvassTimeoutNs();
         private long electionTimeoutNs = Configuration.electionTimeoutNs();
         private long electionStatusIntervalNs = Configuration.electionStatusIntervalNs();
+        private boolean fastElection = Configuration.fastElection();
         private long dynamicJoinIntervalNs = Configuration.dynamicJoinIntervalNs();
         private long terminationTimeoutNs = Configuration.terminationTimeoutNs();
+        private long serviceSnapshotTimeoutNs = Configuration.serviceSnapshotTimeoutNs();
 
         private ThreadFactory threadFactory;
         private Supplier<IdleStrategy> idleStrategySupplier;
@@ -1058,6 +1478,17 @@ public class ConsensusModule implements AutoCloseable
         private Counter snapshotCounter;
         private Counter invalidRequestCounter;
         private Counter timedOutClientCounter;
+        private Counter commitPositionMessageCounter;
+        private Counter logReplayPositionCounter;
+        private Counter logReplayRateCounter;
+        private Counter logReplicationPositionCounter;
+        private Counter logReplicationRateCounter;
+        private Counter snapshotRetrievalBytesCounter;
+        private Counter snapshotRetrievalRateCounter;
+        private Counter dynamicJoinTimeCounter;
+        private CommitLatencyHistogram commitLatencyHistogram;
+        private ElectionStateTimes electionStateTimes;
+        private ServiceMessageCounters serviceMessageCounters;
         private ShutdownSignalBarrier shutdownSignalBarrier;
         private Runnable terminationHook;
 
@@ -1216,6 +1647,67 @@ public class ConsensusModule implements AutoCloseable
                     CLUSTER_CLIENT_TIMEOUT_COUNT_TYPE_ID, "Timed out cluster client count");
             }
 
+            if (null == commitPositionMessageCounter)
+            {
+                commitPositionMessageCounter = aeron.addCounter(
+                    COMMIT_POSITION_MESSAGE_COUNT_TYPE_ID, "Commit position messages sent");
+            }
+
+            if (null == logReplayPositionCounter)
+            {
+                logReplayPositionCounter = aeron.addCounter(LOG_REPLAY_POSITION_TYPE_ID, "Cluster log replay position");
+            }
+
+            if (null == logReplayRateCounter)
+            {
+                logReplayRateCounter = aeron.addCounter(LOG_REPLAY_RATE_TYPE_ID, "Cluster log replay rate bytes/s");
+            }
+
+            if (null == logReplicationPositionCounter)
+            {
+                logReplicationPositionCounter = aeron.addCounter(
+                    LOG_REPLICATION_POSITION_TYPE_ID, "Cluster log replication position");
+            }
+
+            if (null == logReplicationRateCounter)
+            {
+                logReplicationRateCounter = aeron.addCounter(
+                    LOG_REPLICATION_RATE_TYPE_ID, "Cluster log replication rate bytes/s");
+            }
+
+            if (null == snapshotRetrievalBytesCounter)
+            {
+                snapshotRetrievalBytesCounter = aeron.addCounter(
+                    SNAPSHOT_RETRIEVAL_BYTES_TYPE_ID, "Cluster snapshot retrieval bytes");
+            }
+
+            if (null == snapshotRetrievalRateCounter)
+            {
+                snapshotRetrievalRateCounter = aeron.addCounter(
+                    SNAPSHOT_RETRIEVAL_RATE_TYPE_ID, "Cluster snapshot retrieval rate bytes/s");
+            }
+
+            if (null == dynamicJoinTimeCounter)
+            {
+                dynamicJoinTimeCounter = aeron.addCounter(DYNAMIC_JOIN_TIME_TYPE_ID, "Cluster dynamic join time ms");
+            }
+
+            if (null == commitLatencyHistogram)
+            {
+                commitLatencyHistogram = CommitLatencyHistogram.allocate(aeron, COMMIT_LATENCY_HISTOGRAM_TYPE_ID);
+            }
+
+            if (null == electionStateTimes)
+            {
+                electionStateTimes = ElectionStateTimes.allocate(aeron, ELECTION_STATE_TIME_TYPE_ID);
+            }
+
+            if (null == serviceMessageCounters)
+            {
+                serviceMessageCounters = ServiceMessageCounters.allocate(
+                    aeron, PENDING_SERVICE_MESSAGE_COUNT_TYPE_ID, SERVICE_MESSAGE_APPEND_RATE_TYPE_ID);
+            }
+
             if (null == clusterNodeRole)
             {
                 clusterNodeRole = aeron.addCounter(Configuration.CLUSTER_NODE_ROLE_TYPE_ID, "Cluster node role");
@@ -1267,7 +1759,7 @@ public class ConsensusModule implements AutoCloseable
 
             if (null == logPublisher)
             {
-                logPublisher = new LogPublisher();
+                logPublisher = new LogPublisher(ingressBatchLength, serviceMessageBatchLength);
             }
 
             if (null == egressPublisher)
@@ -1665,31 +2157,223 @@ public class ConsensusModule implements AutoCloseable
         }
 
         /**
-         * Set the channel parameter for the cluster log channel.
+         * Set the maximum length in bytes of a batch of ingress messages appended to the log as a single message.
          *
-         * @param channel parameter for the cluster log channel.
-         * @return this for a fluent API.
-         * @see Configuration#LOG_CHANNEL_PROP_NAME
+         * @param ingressBatchLength in bytes of a batch of ingress messages or zero to disable batching.
+         * @return this for a fluent API
+         * @see Configuration#CLUSTER_INGRESS_BATCH_LENGTH_PROP_NAME
          */
-        public Context logChannel(final String channel)
+        public Context ingressBatchLength(final int ingressBatchLength)
         {
-            logChannel = channel;
+            this.ingressBatchLength = ingressBatchLength;
             return this;
         }
 
         /**
-         * Get the channel parameter for the cluster log channel.
+         * The maximum length in bytes of a batch of ingress messages appended to the log as a single message.
          *
-         * @return the channel parameter for the cluster channel.
-         * @see Configuration#LOG_CHANNEL_PROP_NAME
+         * @return the maximum length in bytes of a batch of ingress messages or zero if batching is disabled.
+         * @see Configuration#CLUSTER_INGRESS_BATCH_LENGTH_PROP_NAME
          */
-        public String logChannel()
+        public int ingressBatchLength()
         {
-            return logChannel;
+            return ingressBatchLength;
         }
 
         /**
-         * Set the stream id for the cluster log channel.
+         * Set the maximum length in bytes of a batch of service messages appended to the log as a single message.
+         *
+         * @param serviceMessageBatchLength in bytes of a batch of service messages or zero to disable batching.
+         * @return this for a fluent API
+         * @see Configuration#SERVICE_MESSAGE_BATCH_LENGTH_PROP_NAME
+         */
+        public Context serviceMessageBatchLength(final int serviceMessageBatchLength)
+        {
+            this.serviceMessageBatchLength = serviceMessageBatchLength;
+            return this;
+        }
+
+        /**
+         * The maximum length in bytes of a batch of service messages appended to the log as a single message.
+         *
+         * @return the maximum length in bytes of a batch of service messages or zero if batching is disabled.
+         * @see Configuration#SERVICE_MESSAGE_BATCH_LENGTH_PROP_NAME
+         */
+        public int serviceMessageBatchLength()
+        {
+            return serviceMessageBatchLength;
+        }
+
+        /**
+         * Set the limit on snapshot deltas taken by the services between base snapshots.
+         *
+         * @param snapshotDeltaLimit on snapshot deltas between base snapshots or zero to disable snapshot deltas.
+         * @return this for a fluent API
+         * @see Configuration#SNAPSHOT_DELTA_LIMIT_PROP_NAME
+         */
+        public Context snapshotDeltaLimit(final int snapshotDeltaLimit)
+        {
+            this.snapshotDeltaLimit = snapshotDeltaLimit;
+            return this;
+        }
+
+        /**
+         * The limit on snapshot deltas taken by the services between base snapshots.
+         *
+         * @return the limit on snapshot deltas between base snapshots or zero if snapshot deltas are disabled.
+         * @see Configuration#SNAPSHOT_DELTA_LIMIT_PROP_NAME
+         */
+        public int snapshotDeltaLimit()
+        {
+            return snapshotDeltaLimit;
+        }
+
+        /**
+         * Set if the replay of the log on recovery should be prefetched while the snapshots are loaded.
+         *
+         * @param logReplayPrefetch true if the replay of the log should be prefetched.
+         * @return this for a fluent API
+         * @see Configuration#LOG_REPLAY_PREFETCH_PROP_NAME
+         */
+        public Context logReplayPrefetch(final boolean logReplayPrefetch)
+        {
+            this.logReplayPrefetch = logReplayPrefetch;
+            return this;
+        }
+
+        /**
+         * Should the replay of the log on recovery be prefetched while the snapshots are loaded?
+         *
+         * @return true if the replay of the log should be prefetched.
+         * @see Configuration#LOG_REPLAY_PREFETCH_PROP_NAME
+         */
+        public boolean logReplayPrefetch()
+        {
+            return logReplayPrefetch;
+        }
+
+        /**
+         * Set if cluster sessions with the same response channel and stream id should share a response publication.
+         *
+         * @param egressMultiplex true if cluster sessions should share response publications.
+         * @return this for a fluent API
+         * @see Configuration#EGRESS_MULTIPLEX_PROP_NAME
+         */
+        public Context egressMultiplex(final boolean egressMultiplex)
+        {
+            this.egressMultiplex = egressMultiplex;
+            return this;
+        }
+
+        /**
+         * Should cluster sessions with the same response channel and stream id share a response publication?
+         *
+         * @return true if cluster sessions should share response publications.
+         * @see Configuration#EGRESS_MULTIPLEX_PROP_NAME
+         */
+        public boolean egressMultiplex()
+        {
+            return egressMultiplex;
+        }
+
+        /**
+         * Set if ingress should be assembled and validated on a pipeline thread of its own.
+         *
+         * @param ingressPipeline true if ingress should be assembled and validated on a pipeline thread.
+         * @return this for a fluent API
+         * @see Configuration#INGRESS_PIPELINE_PROP_NAME
+         */
+        public Context ingressPipeline(final boolean ingressPipeline)
+        {
+            this.ingressPipeline = ingressPipeline;
+            return this;
+        }
+
+        /**
+         * Should ingress be assembled and validated on a pipeline thread of its own?
+         *
+         * @return true if ingress should be assembled and validated on a pipeline thread.
+         * @see Configuration#INGRESS_PIPELINE_PROP_NAME
+         */
+        public boolean ingressPipeline()
+        {
+            return ingressPipeline;
+        }
+
+        /**
+         * Set the length of the ring buffer between the ingress pipeline and the consensus module thread.
+         *
+         * @param ingressPipelineBufferLength which must be a power of two.
+         * @return this for a fluent API
+         * @see Configuration#INGRESS_PIPELINE_BUFFER_LENGTH_PROP_NAME
+         */
+        public Context ingressPipelineBufferLength(final int ingressPipelineBufferLength)
+        {
+            this.ingressPipelineBufferLength = ingressPipelineBufferLength;
+            return this;
+        }
+
+        /**
+         * Length of the ring buffer between the ingress pipeline and the consensus module thread.
+         *
+         * @return length of the ring buffer between the ingress pipeline and the consensus module thread.
+         * @see Configuration#INGRESS_PIPELINE_BUFFER_LENGTH_PROP_NAME
+         */
+        public int ingressPipelineBufferLength()
+        {
+            return ingressPipelineBufferLength;
+        }
+
+        /**
+         * Set the length of log a follower must be behind by to catch up by replicating the log from the leader.
+         *
+         * @param catchupReplicationThreshold length of log a follower must be behind by to replicate the log.
+         * @return this for a fluent API
+         * @see Configuration#CATCHUP_REPLICATION_THRESHOLD_PROP_NAME
+         */
+        public Context catchupReplicationThreshold(final long catchupReplicationThreshold)
+        {
+            this.catchupReplicationThreshold = catchupReplicationThreshold;
+            return this;
+        }
+
+        /**
+         * Get the length of log a follower must be behind by to catch up by replicating the log from the leader.
+         *
+         * @return length of log a follower must be behind by to replicate the log.
+         * @see Configuration#CATCHUP_REPLICATION_THRESHOLD_PROP_NAME
+         */
+        public long catchupReplicationThreshold()
+        {
+            return catchupReplicationThreshold;
+        }
+
+        /**
+         * Set the channel parameter for the cluster log channel.
+         *
+         * @param channel parameter for the cluster log channel.
+         * @return this for a fluent API.
+         * @see Configuration#LOG_CHANNEL_PROP_NAME
+         */
+        public Context logChannel(final String channel)
+        {
+            logChannel = channel;
+            return this;
+        }
+
+        /**
+         * Get the channel parameter for the cluster log channel.
+         *
+         * @return the channel parameter for the cluster channel.
+         * @see Configuration#LOG_CHANNEL_PROP_NAME
+         */
+        public String logChannel()
+        {
+            return logChannel;
+        }
+
+        /**
+         * Set the stream id for the cluster log channel.
          *
          * @param streamId for the cluster log channel.
          * @return this for a fluent API
@@ -2002,6 +2686,30 @@ public class ConsensusModule implements AutoCloseable
             return ticksPerWheel;
         }
 
+        /**
+         * Set the maximum number of expired timers the leader appends to the log as a single event.
+         *
+         * @param timerExpiryBatchLimit for the number of timers in an event or zero to append an event for each.
+         * @return this for a fluent API
+         * @see Configuration#TIMER_EXPIRY_BATCH_LIMIT_PROP_NAME
+         */
+        public Context timerExpiryBatchLimit(final int timerExpiryBatchLimit)
+        {
+            this.timerExpiryBatchLimit = timerExpiryBatchLimit;
+            return this;
+        }
+
+        /**
+         * The maximum number of expired timers the leader appends to the log as a single event.
+         *
+         * @return the maximum number of expired timers in an event or zero if an event is appended for each.
+         * @see Configuration#TIMER_EXPIRY_BATCH_LIMIT_PROP_NAME
+         */
+        public int timerExpiryBatchLimit()
+        {
+            return timerExpiryBatchLimit;
+        }
+
         /**
          * Set the number of clustered services in this cluster instance.
          *
@@ -2122,6 +2830,54 @@ public class ConsensusModule implements AutoCloseable
             return leaderHeartbeatIntervalNs;
         }
 
+        /**
+         * Minimum interval at which a leader will send an advancing commit position to followers.
+         *
+         * @param commitPositionIntervalNs minimum interval between sending advancing commit positions.
+         * @return this for a fluent API.
+         * @see Configuration#COMMIT_POSITION_INTERVAL_PROP_NAME
+         */
+        public Context commitPositionIntervalNs(final long commitPositionIntervalNs)
+        {
+            this.commitPositionIntervalNs = commitPositionIntervalNs;
+            return this;
+        }
+
+        /**
+         * Minimum interval at which a leader will send an advancing commit position to followers.
+         *
+         * @return the minimum interval at which a leader will send an advancing commit position to followers.
+         * @see Configuration#COMMIT_POSITION_INTERVAL_PROP_NAME
+         */
+        public long commitPositionIntervalNs()
+        {
+            return commitPositionIntervalNs;
+        }
+
+        /**
+         * Number of bytes the commit position must advance to be sent before the interval has elapsed.
+         *
+         * @param commitPositionDelta in bytes or zero to only send on the interval.
+         * @return this for a fluent API.
+         * @see Configuration#COMMIT_POSITION_DELTA_PROP_NAME
+         */
+        public Context commitPositionDelta(final int commitPositionDelta)
+        {
+            this.commitPositionDelta = commitPositionDelta;
+            return this;
+        }
+
+        /**
+         * Number of bytes the commit position must advance to be sent before the interval has elapsed.
+         *
+         * @return number of bytes the commit position must advance to be sent before the interval has elapsed.
+         * @see Configuration#COMMIT_POSITION_DELTA_PROP_NAME
+         */
+        public int commitPositionDelta()
+        {
+            return commitPositionDelta;
+        }
+
         /**
          * Timeout to wait for hearing the status of all cluster members on startup after recovery before commencing
          * an election if a majority of members has been heard from.
@@ -2198,6 +2954,32 @@ public class ConsensusModule implements AutoCloseable
             return electionStatusIntervalNs;
         }
 
+        /**
+         * Set if elections should take the fast path of immediate nomination by the member with the most recent log
+         * and handoff from a leader closing gracefully.
+         *
+         * @param fastElection true if elections should take the fast path.
+         * @return this for a fluent API.
+         * @see Configuration#FAST_ELECTION_PROP_NAME
+         */
+        public Context fastElection(final boolean fastElection)
+        {
+            this.fastElection = fastElection;
+            return this;
+        }
+
+        /**
+         * Should elections take the fast path of immediate nomination by the member with the most recent log and
+         * handoff from a leader closing gracefully?
+         *
+         * @return true if elections should take the fast path.
+         * @see Configuration#FAST_ELECTION_PROP_NAME
+         */
+        public boolean fastElection()
+        {
+            return fastElection;
+        }
+
         /**
          * Interval at which a dynamic joining member will send add cluster member and snapshot recording queries.
          *
@@ -2251,6 +3033,33 @@ public class ConsensusModule implements AutoCloseable
             return terminationTimeoutNs;
         }
 
+        /**
+         * Timeout to wait for services to record a snapshot which is being written in the background. When it expires
+         * the pending snapshot is abandoned and not added to the recording log.
+         *
+         * @param serviceSnapshotTimeoutNs to wait for services to record a snapshot.
+         * @return this for a fluent API.
+         * @see Configuration#SERVICE_SNAPSHOT_TIMEOUT_PROP_NAME
+         * @see Configuration#SERVICE_SNAPSHOT_TIMEOUT_DEFAULT_NS
+         */
+        public Context serviceSnapshotTimeoutNs(final long serviceSnapshotTimeoutNs)
+        {
+            this.serviceSnapshotTimeoutNs = serviceSnapshotTimeoutNs;
+            return this;
+        }
+
+        /**
+         * Timeout to wait for services to record a snapshot which is being written in the background.
+         *
+         * @return timeout to wait for services to record a snapshot.
+         * @see Configuration#SERVICE_SNAPSHOT_TIMEOUT_PROP_NAME
+         * @see Configuration#SERVICE_SNAPSHOT_TIMEOUT_DEFAULT_NS
+         */
+        public long serviceSnapshotTimeoutNs()
+        {
+            return serviceSnapshotTimeoutNs;
+        }
+
         /**
          * Get the thread factory used for creating threads.
          *
@@ -2571,6 +3380,215 @@ public class ConsensusModule implements AutoCloseable
             return this;
         }
 
+        /**
+         * Get the counter for the count of commit position messages sent to followers by a leader.
+         *
+         * @return the counter for the count of commit position messages sent to followers by a leader.
+         */
+        public Counter commitPositionMessageCounter()
+        {
+            return commitPositionMessageCounter;
+        }
+
+        /**
+         * Set the counter for the count of commit position messages sent to followers by a leader.
+         *
+         * @param commitPositionMessageCounter the count of commit position messages sent to followers.
+         * @return this for a fluent API.
+         */
+        public Context commitPositionMessageCounter(final Counter commitPositionMessageCounter)
+        {
+            this.commitPositionMessageCounter = commitPositionMessageCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the position reached by the replay of the log on recovery.
+         *
+         * @return the counter for the position reached by the replay of the log on recovery.
+         */
+        public Counter logReplayPositionCounter()
+        {
+            return logReplayPositionCounter;
+        }
+
+        /**
+         * Set the counter for the position reached by the replay of the log on recovery.
+         *
+         * @param logReplayPositionCounter for the position reached by the replay of the log on recovery.
+         * @return this for a fluent API.
+         */
+        public Context logReplayPositionCounter(final Counter logReplayPositionCounter)
+        {
+            this.logReplayPositionCounter = logReplayPositionCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the rate in bytes per second of the replay of the log on recovery.
+         *
+         * @return the counter for the rate in bytes per second of the replay of the log on recovery.
+         */
+        public Counter logReplayRateCounter()
+        {
+            return logReplayRateCounter;
+        }
+
+        /**
+         * Set the counter for the rate in bytes per second of the replay of the log on recovery.
+         *
+         * @param logReplayRateCounter for the rate in bytes per second of the replay of the log on recovery.
+         * @return this for a fluent API.
+         */
+        public Context logReplayRateCounter(final Counter logReplayRateCounter)
+        {
+            this.logReplayRateCounter = logReplayRateCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the position reached by the replication of the log from the leader for catch up.
+         *
+         * @return the counter for the position reached by the replication of the log from the leader for catch up.
+         */
+        public Counter logReplicationPositionCounter()
+        {
+            return logReplicationPositionCounter;
+        }
+
+        /**
+         * Set the counter for the position reached by the replication of the log from the leader for catch up.
+         *
+         * @param logReplicationPositionCounter for the position reached by the replication of the log.
+         * @return this for a fluent API.
+         */
+        public Context logReplicationPositionCounter(final Counter logReplicationPositionCounter)
+        {
+            this.logReplicationPositionCounter = logReplicationPositionCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the rate in bytes per second of the replication of the log from the leader for catch up.
+         *
+         * @return the counter for the rate in bytes per second of the replication of the log from the leader.
+         */
+        public Counter logReplicationRateCounter()
+        {
+            return logReplicationRateCounter;
+        }
+
+        /**
+         * Set the counter for the rate in bytes per second of the replication of the log from the leader for catch up.
+         *
+         * @param logReplicationRateCounter for the rate in bytes per second of the replication of the log.
+         * @return this for a fluent API.
+         */
+        public Context logReplicationRateCounter(final Counter logReplicationRateCounter)
+        {
+            this.logReplicationRateCounter = logReplicationRateCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the total bytes of snapshots retrieved from another member.
+         *
+         * @return the counter for the total bytes of snapshots retrieved from another member.
+         */
+        public Counter snapshotRetrievalBytesCounter()
+        {
+            return snapshotRetrievalBytesCounter;
+        }
+
+        /**
+         * Set the counter for the total bytes of snapshots retrieved from another member.
+         *
+         * @param snapshotRetrievalBytesCounter for the total bytes of snapshots retrieved from another member.
+         * @return this for a fluent API.
+         */
+        public Context snapshotRetrievalBytesCounter(final Counter snapshotRetrievalBytesCounter)
+        {
+            this.snapshotRetrievalBytesCounter = snapshotRetrievalBytesCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the aggregate rate in bytes per second of snapshots retrieved from another member.
+         *
+         * @return the counter for the aggregate rate in bytes per second of snapshots retrieved.
+         */
+        public Counter snapshotRetrievalRateCounter()
+        {
+            return snapshotRetrievalRateCounter;
+        }
+
+        /**
+         * Set the counter for the aggregate rate in bytes per second of snapshots retrieved from another member.
+         *
+         * @param snapshotRetrievalRateCounter for the aggregate rate in bytes per second of snapshots retrieved.
+         * @return this for a fluent API.
+         */
+        public Context snapshotRetrievalRateCounter(final Counter snapshotRetrievalRateCounter)
+        {
+            this.snapshotRetrievalRateCounter = snapshotRetrievalRateCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the time in milliseconds taken by a dynamic join to complete.
+         *
+         * @return the counter for the time in milliseconds taken by a dynamic join to complete.
+         */
+        public Counter dynamicJoinTimeCounter()
+        {
+            return dynamicJoinTimeCounter;
+        }
+
+        /**
+         * Set the counter for the time in milliseconds taken by a dynamic join to complete.
+         *
+         * @param dynamicJoinTimeCounter for the time in milliseconds taken by a dynamic join to complete.
+         * @return this for a fluent API.
+         */
+        public Context dynamicJoinTimeCounter(final Counter dynamicJoinTimeCounter)
+        {
+            this.dynamicJoinTimeCounter = dynamicJoinTimeCounter;
+            return this;
+        }
+
+        Context commitLatencyHistogram(final CommitLatencyHistogram commitLatencyHistogram)
+        {
+            this.commitLatencyHistogram = commitLatencyHistogram;
+            return this;
+        }
+
+        CommitLatencyHistogram commitLatencyHistogram()
+        {
+            return commitLatencyHistogram;
+        }
+
+        Context electionStateTimes(final ElectionStateTimes electionStateTimes)
+        {
+            this.electionStateTimes = electionStateTimes;
+            return this;
+        }
+
+        ElectionStateTimes electionStateTimes()
+        {
+            return electionStateTimes;
+        }
+
+        Context serviceMessageCounters(final ServiceMessageCounters serviceMessageCounters)
+        {
+            this.serviceMessageCounters = serviceMessageCounters;
+            return this;
+        }
+
+        ServiceMessageCounters serviceMessageCounters()
+        {
+            return serviceMessageCounters;
+        }
+
         /**
          * {@link Aeron} client for communicating with the local Media Driver.
          * <p>
@@ -2861,6 +3879,17 @@ public class ConsensusModule implements AutoCloseable
                 CloseHelper.close(clusterNodeRole);
                 CloseHelper.close(controlToggle);
                 CloseHelper.close(snapshotCounter);
+                CloseHelper.close(commitPositionMessageCounter);
+                CloseHelper.close(logReplayPositionCounter);
+                CloseHelper.close(logReplayRateCounter);
+                CloseHelper.close(logReplicationPositionCounter);
+                CloseHelper.close(logReplicationRateCounter);
+                CloseHelper.close(snapshotRetrievalBytesCounter);
+                CloseHelper.close(snapshotRetrievalRateCounter);
+                CloseHelper.close(dynamicJoinTimeCounter);
+                CloseHelper.close(commitLatencyHistogram);
+                CloseHelper.close(electionStateTimes);
+                CloseHelper.close(serviceMessageCounters);
             }
         }
 
@@ -37,6 +37,9 @@ final class ConsensusModuleAdapter implements AutoCloseable
     private final CloseSessionDecoder closeSessionDecoder = new CloseSessionDecoder();
     private final ClusterMembersQueryDecoder clusterMembersQueryDecoder = new ClusterMembersQueryDecoder();
     private final RemoveMemberDecoder removeMemberDecoder = new RemoveMemberDecoder();
+    private final TransferLeadershipDecoder transferLeadershipDecoder = new TransferLeadershipDecoder();
+    private final ServiceSnapshotRecordedDecoder serviceSnapshotRecordedDecoder =
+        new ServiceSnapshotRecordedDecoder();
     private final FragmentAssembler fragmentAssembler = new FragmentAssembler(this::onFragment);
 
     ConsensusModuleAdapter(final Subscription subscription, final ConsensusModuleAgent consensusModuleAgent)
@@ -130,6 +133,19 @@ final class ConsensusModuleAdapter implements AutoCloseable
                     serviceAckDecoder.serviceId());
                 break;
 
+            case ServiceSnapshotRecordedDecoder.TEMPLATE_ID:
+                serviceSnapshotRecordedDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                consensusModuleAgent.onServiceSnapshotRecorded(
+                    serviceSnapshotRecordedDecoder.logPosition(),
+                    serviceSnapshotRecordedDecoder.recordingId(),
+                    serviceSnapshotRecordedDecoder.serviceId());
+                break;
+
             case ClusterMembersQueryDecoder.TEMPLATE_ID:
                 clusterMembersQueryDecoder.wrap(
                     buffer,
@@ -154,6 +170,17 @@ final class ConsensusModuleAdapter implements AutoCloseable
                     removeMemberDecoder.memberId(),
                     BooleanType.TRUE == removeMemberDecoder.isPassive());
                 break;
+
+            case TransferLeadershipDecoder.TEMPLATE_ID:
+                transferLeadershipDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                consensusModuleAgent.onTransferLeadership(
+                    transferLeadershipDecoder.correlationId(), transferLeadershipDecoder.memberId());
+                break;
         }
     }
 }
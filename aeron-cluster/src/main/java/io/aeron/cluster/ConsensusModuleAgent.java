@@ -26,6 +26,7 @@ import io.aeron.cluster.codecs.*;
 import io.aeron.cluster.service.Cluster;
 import io.aeron.cluster.service.ClusterMarkFile;
 import io.aeron.cluster.service.RecoveryState;
+import io.aeron.cluster.service.ResponsePublicationPool;
 import io.aeron.exceptions.AeronException;
 import io.aeron.exceptions.TimeoutException;
 import io.aeron.logbuffer.ControlledFragmentHandler;
@@ -37,6 +38,7 @@ import org.agrona.collections.*;
 import org.agrona.concurrent.*;
 import org.agrona.concurrent.status.CountersReader;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
@@ -52,15 +54,19 @@ import static io.aeron.cluster.ConsensusModule.Configuration.*;
 import static io.aeron.cluster.client.AeronCluster.SESSION_HEADER_LENGTH;
 import static io.aeron.cluster.service.ClusteredServiceContainer.Configuration.MARK_FILE_UPDATE_INTERVAL_NS;
 import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
 
-class ConsensusModuleAgent implements Agent, MemberStatusListener
+class ConsensusModuleAgent implements Agent, MemberStatusListener, TimerService.TimerHandler
 {
     static final long SLOW_TICK_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(10);
     private static final int SERVICE_MESSAGE_LIMIT = 20;
+    private static final int MAX_COMMIT_LATENCY_SAMPLES = 1024;
 
     private final long sessionTimeoutNs;
     private final long leaderHeartbeatIntervalNs;
     private final long leaderHeartbeatTimeoutNs;
+    private final long commitPositionIntervalNs;
+    private final int commitPositionDelta;
     private long nextSessionId = 1;
     private long nextServiceSessionId = Long.MIN_VALUE + 1;
     private long logServiceSessionId = Long.MIN_VALUE;
@@ -72,9 +78,18 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     private long lastAppendedPosition = 0;
     private long timeOfLastLogUpdateNs = 0;
     private long timeOfLastAppendPositionNs = 0;
+    private long lastCommitPositionSent = 0;
+    private long lastSampledAppendPosition = 0;
     private long timeOfLastMarkFileUpdateNs;
     private long timeNs;
+    private long pendingSnapshotLogPosition = NULL_POSITION;
+    private long pendingSnapshotLeadershipTermId;
+    private long pendingSnapshotTermBaseLogPosition;
+    private long pendingSnapshotTimestamp;
+    private long pendingSnapshotRecordingId;
+    private long pendingSnapshotDeadlineNs;
     private int pendingServiceMessageHeadOffset = 0;
+    private long serviceMessageBatchPosition = NULL_POSITION;
     private int uncommittedServiceMessages = 0;
     private int logInitialTermId = NULL_VALUE;
     private int logTermBufferLength = NULL_VALUE;
@@ -84,10 +99,15 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     private int pendingMemberRemovals = 0;
     private int logPublicationTag;
     private int logPublicationChannelTag;
+    private boolean isSnapshotDelta = false;
+    private boolean isPendingSnapshotDelta = false;
     private final int logSubscriptionTag;
     private final int logSubscriptionChannelTag;
     private ReadableCounter appendedPosition;
     private final Counter commitPosition;
+    private final Counter commitPositionMessageCounter;
+    private final CommitLatencyHistogram commitLatencyHistogram;
+    private final ServiceMessageCounters serviceMessageCounters;
     private ConsensusModule.State state = ConsensusModule.State.INIT;
     private Cluster.Role role = Cluster.Role.FOLLOWER;
     private ClusterMember[] clusterMembers;
@@ -96,6 +116,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     private ClusterMember thisMember;
     private long[] rankedPositions;
     private final ServiceAck[] serviceAcks;
+    private final long[] pendingSnapshotServiceRecordingIds;
     private final Counter clusterRoleCounter;
     private final ClusterMarkFile markFile;
     private final AgentInvoker aeronClientInvoker;
@@ -107,21 +128,30 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     private final ConsensusModuleAdapter consensusModuleAdapter;
     private final ServiceProxy serviceProxy;
     private final IngressAdapter ingressAdapter;
+    private final IngressPipeline ingressPipeline;
+    private final AgentRunner ingressPipelineRunner;
     private final EgressPublisher egressPublisher;
     private final LogPublisher logPublisher;
     private LogAdapter logAdapter;
     private final MemberStatusAdapter memberStatusAdapter;
     private final MemberStatusPublisher memberStatusPublisher = new MemberStatusPublisher();
     private final Long2ObjectHashMap<ClusterSession> sessionByIdMap = new Long2ObjectHashMap<>();
+    private final ClusterSessionActivityList sessionActivityList = new ClusterSessionActivityList();
+    private final ArrayList<ClusterSession> pendingEventSessions = new ArrayList<>();
     private final ArrayList<ClusterSession> pendingSessions = new ArrayList<>();
     private final ArrayList<ClusterSession> rejectedSessions = new ArrayList<>();
     private final ArrayList<ClusterSession> redirectSessions = new ArrayList<>();
     private final Int2ObjectHashMap<ClusterMember> clusterMemberByIdMap = new Int2ObjectHashMap<>();
     private final Long2LongCounterMap expiredTimerCountByCorrelationIdMap = new Long2LongCounterMap(0);
     private final LongArrayQueue uncommittedTimers = new LongArrayQueue(Long.MAX_VALUE);
+    private final LongArrayQueue commitLatencySamples = new LongArrayQueue(Long.MAX_VALUE);
     private final ExpandableRingBuffer pendingServiceMessages = new ExpandableRingBuffer();
     private final ExpandableRingBuffer.MessageConsumer serviceSessionMessageAppender =
         this::serviceSessionMessageAppender;
+    private final ExpandableRingBuffer.MessageConsumer serviceSessionMessageBatcher =
+        this::serviceSessionMessageBatcher;
+    private final ExpandableRingBuffer.MessageConsumer serviceSessionMessageBatchMarker =
+        this::serviceSessionMessageBatchMarker;
     private final ExpandableRingBuffer.MessageConsumer leaderServiceSessionMessageSweeper =
         this::leaderServiceSessionMessageSweeper;
     private final ExpandableRingBuffer.MessageConsumer followerServiceSessionMessageSweeper =
@@ -129,6 +159,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     private final Authenticator authenticator;
     private final ClusterSessionProxy sessionProxy;
     private final Aeron aeron;
+    private final ResponsePublicationPool responsePublicationPool;
     private AeronArchive archive;
     private final ConsensusModule.Context ctx;
     private final MutableDirectBuffer tempBuffer;
@@ -136,9 +167,13 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     private final RecordingLog recordingLog;
     private final ArrayList<RecordingLog.Snapshot> dynamicJoinSnapshots = new ArrayList<>();
     private RecordingLog.RecoveryPlan recoveryPlan;
+    private LogReplay prefetchedLogReplay;
     private Election election;
     private DynamicJoin dynamicJoin;
     private ClusterTermination clusterTermination;
+    private LeadershipTransfer leadershipTransfer;
+    private int handoffCandidateId = NULL_VALUE;
+    private long handoffLogPosition = NULL_POSITION;
     private String logRecordingChannel;
     private String liveLogDestination;
     private String replayLogDestination;
@@ -148,23 +183,29 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     {
         this.ctx = ctx;
         this.aeron = ctx.aeron();
+        this.responsePublicationPool = new ResponsePublicationPool(aeron, ctx.egressMultiplex());
         this.clusterClock = ctx.clusterClock();
         this.clusterTimeUnit = clusterClock.timeUnit();
         this.sessionTimeoutNs = ctx.sessionTimeoutNs();
         this.leaderHeartbeatIntervalNs = ctx.leaderHeartbeatIntervalNs();
         this.leaderHeartbeatTimeoutNs = ctx.leaderHeartbeatTimeoutNs();
+        this.commitPositionIntervalNs = ctx.commitPositionIntervalNs();
+        this.commitPositionDelta = ctx.commitPositionDelta();
         this.egressPublisher = ctx.egressPublisher();
         this.moduleState = ctx.moduleStateCounter();
         this.commitPosition = ctx.commitPositionCounter();
+        this.commitPositionMessageCounter = ctx.commitPositionMessageCounter();
+        this.commitLatencyHistogram = ctx.commitLatencyHistogram();
+        this.serviceMessageCounters = ctx.serviceMessageCounters();
         this.controlToggle = ctx.controlToggleCounter();
         this.logPublisher = ctx.logPublisher();
         this.idleStrategy = ctx.idleStrategy();
         this.timerService = new TimerService(
             this,
-            clusterTimeUnit,
             0,
             findNextPositivePowerOfTwo(clusterTimeUnit.convert(ctx.wheelTickResolutionNs(), TimeUnit.NANOSECONDS)),
-            ctx.ticksPerWheel());
+            ctx.ticksPerWheel(),
+            ctx.timerExpiryBatchLimit());
         this.clusterMembers = ClusterMember.parse(ctx.clusterMembers());
         this.sessionProxy = new ClusterSessionProxy(egressPublisher);
         this.memberId = ctx.clusterMemberId();
@@ -173,6 +214,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         this.recordingLog = ctx.recordingLog();
         this.tempBuffer = ctx.tempBuffer();
         this.serviceAcks = ServiceAck.newArray(ctx.serviceCount());
+        this.pendingSnapshotServiceRecordingIds = new long[ctx.serviceCount()];
         this.highMemberId = ClusterMember.highMemberId(clusterMembers);
         this.logPublicationChannelTag = (int)aeron.nextCorrelationId();
         this.logSubscriptionChannelTag = (int)aeron.nextCorrelationId();
@@ -198,7 +240,23 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
 
         ClusterMember.addMemberStatusPublications(clusterMembers, thisMember, memberStatusUri, statusStreamId, aeron);
 
-        ingressAdapter = new IngressAdapter(ctx.ingressFragmentLimit(), this, ctx.invalidRequestCounter());
+        if (ctx.ingressPipeline())
+        {
+            ingressPipeline = new IngressPipeline(
+                ctx.ingressFragmentLimit(),
+                ctx.invalidRequestCounter(),
+                new UnsafeBuffer(ByteBuffer.allocateDirect(ctx.ingressPipelineBufferLength() + TRAILER_LENGTH)));
+            ingressPipelineRunner = new AgentRunner(
+                ctx.idleStrategy(), ctx.errorHandler(), ctx.errorCounter(), ingressPipeline);
+        }
+        else
+        {
+            ingressPipeline = null;
+            ingressPipelineRunner = null;
+        }
+
+        ingressAdapter = new IngressAdapter(
+            ctx.ingressFragmentLimit(), this, ctx.invalidRequestCounter(), ingressPipeline);
 
         consensusModuleAdapter = new ConsensusModuleAdapter(
             aeron.addSubscription(ctx.serviceControlChannel(), ctx.consensusModuleStreamId()), this);
@@ -209,6 +267,17 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
 
     public void onClose()
     {
+        CloseHelper.close(ingressPipelineRunner);
+
+        if (ctx.fastElection() &&
+            Cluster.Role.LEADER == role &&
+            null == election &&
+            !aeron.isClosed() &&
+            (ConsensusModule.State.ACTIVE == state || ConsensusModule.State.SUSPENDED == state))
+        {
+            handoffLeadership();
+        }
+
         if (!ctx.ownsAeronClient())
         {
             for (final ClusterSession session : sessionByIdMap.values())
@@ -216,6 +285,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 session.close();
             }
 
+            CloseHelper.close(responsePublicationPool);
             CloseHelper.close(memberStatusAdapter);
             ClusterMember.closeMemberPublications(clusterMembers);
 
@@ -225,17 +295,24 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             CloseHelper.close(consensusModuleAdapter);
         }
 
+        CloseHelper.close(prefetchedLogReplay);
         CloseHelper.close(archive);
         ctx.close();
     }
 
     public void onStart()
     {
+        if (null != ingressPipelineRunner)
+        {
+            AgentRunner.startOnThread(ingressPipelineRunner, ctx.threadFactory());
+        }
+
         archive = AeronArchive.connect(ctx.archiveContext().clone());
 
         if (null == (dynamicJoin = requiresDynamicJoin()))
         {
             recoveryPlan = recordingLog.createRecoveryPlan(archive, ctx.serviceCount());
+            prefetchLogReplay(recoveryPlan);
             try (Counter ignore = addRecoveryStateCounter(recoveryPlan))
             {
                 if (!recoveryPlan.snapshots.isEmpty())
@@ -286,6 +363,11 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             workCount += slowTickWork(nowMs, nowNs);
         }
 
+        if (null != ingressPipeline)
+        {
+            ingressPipeline.admit(leadershipTermId, nextSessionId);
+        }
+
         if (null != dynamicJoin)
         {
             workCount += dynamicJoin.doWork(nowNs);
@@ -315,10 +397,15 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         final byte[] encodedCredentials)
     {
         final long clusterSessionId = Cluster.Role.LEADER == role ? nextSessionId++ : NULL_VALUE;
+        if (null != ingressPipeline)
+        {
+            ingressPipeline.admit(leadershipTermId, nextSessionId);
+        }
+
         final ClusterSession session = new ClusterSession(clusterSessionId, responseStreamId, responseChannel);
         final long now = clusterClock.time();
         session.lastActivity(clusterTimeUnit.toNanos(now), correlationId);
-        session.connect(aeron);
+        session.connect(responsePublicationPool);
 
         if (Cluster.Role.LEADER != role)
         {
@@ -355,7 +442,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
 
             if (logPublisher.appendSessionClose(session, leadershipTermId, clusterClock.time()))
             {
-                sessionByIdMap.remove(clusterSessionId);
+                removeSession(session);
             }
         }
     }
@@ -382,7 +469,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         {
             final long now = clusterClock.time();
 
-            if (logPublisher.appendMessage(leadershipTermId, clusterSessionId, now, buffer, offset, length) > 0)
+            if (logPublisher.appendIngressMessage(leadershipTermId, clusterSessionId, now, buffer, offset, length))
             {
                 session.timeOfLastActivityNs(clusterTimeUnit.toNanos(now));
                 return ControlledFragmentHandler.Action.CONTINUE;
@@ -439,6 +526,35 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         return false;
     }
 
+    public int onTimerEvents(final long[] correlationIds, final int count)
+    {
+        final long timestamp = clusterClock.time();
+        final int maxBatchCount = logPublisher.maxTimerBatchCount();
+        int appended = 0;
+
+        while (appended < count)
+        {
+            final int batchCount = Math.min(count - appended, maxBatchCount);
+            final long appendPosition = logPublisher.appendTimers(
+                leadershipTermId, timestamp, correlationIds, appended, batchCount);
+
+            if (appendPosition <= 0)
+            {
+                break;
+            }
+
+            for (int i = appended, end = appended + batchCount; i < end; i++)
+            {
+                uncommittedTimers.offerLong(appendPosition);
+                uncommittedTimers.offerLong(correlationIds[i]);
+            }
+
+            appended += batchCount;
+        }
+
+        return appended;
+    }
+
     public void onCanvassPosition(final long logLeadershipTermId, final long logPosition, final int followerMemberId)
     {
         if (null != election)
@@ -713,7 +829,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             final long now = clusterClock.time();
             session.lastActivity(clusterTimeUnit.toNanos(now), correlationId);
             session.isBackupQuery(true);
-            session.connect(aeron);
+            session.connect(responsePublicationPool);
 
             if (AeronCluster.Configuration.PROTOCOL_MAJOR_VERSION != SemanticVersion.major(version))
             {
@@ -735,6 +851,32 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         }
     }
 
+    public void onLeadershipHandoff(
+        final long leadershipTermId, final long logPosition, final int leaderMemberId, final int candidateMemberId)
+    {
+        if (null == election &&
+            Cluster.Role.FOLLOWER == role &&
+            leadershipTermId == this.leadershipTermId &&
+            null != leaderMember &&
+            leaderMemberId == leaderMember.id())
+        {
+            handoffCandidateId = candidateMemberId;
+            handoffLogPosition = logPosition;
+        }
+    }
+
+    public void onTransferLeadership(final long correlationId, final int memberId)
+    {
+        if (null == election &&
+            Cluster.Role.LEADER == role &&
+            ConsensusModule.State.ACTIVE == state &&
+            null == leadershipTransfer)
+        {
+            final long now = clusterClock.time();
+            startLeadershipTransfer(memberId, clusterTimeUnit.toNanos(now));
+        }
+    }
+
     @SuppressWarnings("unused")
     public void onRemoveMember(final long correlationId, final int memberId, final boolean isPassive)
     {
@@ -938,6 +1080,11 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         }
     }
 
+    ClusterMember[] clusterMembers()
+    {
+        return clusterMembers;
+    }
+
     void appendedPositionCounter(final ReadableCounter appendedPositionCounter)
     {
         this.appendedPosition = appendedPositionCounter;
@@ -951,6 +1098,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             if (session.openedLogPosition() > logPosition)
             {
                 i.remove();
+                sessionActivityList.remove(session);
                 session.close();
             }
         }
@@ -979,7 +1127,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             if (Cluster.Role.LEADER == role &&
                 logPublisher.appendSessionClose(session, leadershipTermId, clusterClock.time()))
             {
-                sessionByIdMap.remove(clusterSessionId);
+                removeSession(session);
             }
         }
     }
@@ -1011,6 +1159,56 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         timerService.cancelTimer(correlationId);
     }
 
+    boolean isServiceSnapshotPending()
+    {
+        if (NULL_POSITION != pendingSnapshotLogPosition)
+        {
+            consensusModuleAdapter.poll();
+        }
+
+        return NULL_POSITION != pendingSnapshotLogPosition;
+    }
+
+    void onServiceSnapshotRecorded(final long logPosition, final long recordingId, final int serviceId)
+    {
+        if (logPosition != pendingSnapshotLogPosition || NULL_VALUE != pendingSnapshotServiceRecordingIds[serviceId])
+        {
+            return;
+        }
+
+        if (NULL_VALUE == recordingId)
+        {
+            cancelPendingSnapshot("service failed to record snapshot: serviceId=" + serviceId);
+            return;
+        }
+
+        pendingSnapshotServiceRecordingIds[serviceId] = recordingId;
+        for (final long snapshotRecordingId : pendingSnapshotServiceRecordingIds)
+        {
+            if (NULL_VALUE == snapshotRecordingId)
+            {
+                return;
+            }
+        }
+
+        final RecordingLog.Entry lastTermEntry = recordingLog.findLastTerm();
+        if (null != lastTermEntry && lastTermEntry.leadershipTermId != pendingSnapshotLeadershipTermId)
+        {
+            cancelPendingSnapshot("new term appended: leadershipTermId=" + lastTermEntry.leadershipTermId);
+            return;
+        }
+
+        pendingSnapshotLogPosition = NULL_POSITION;
+        appendSnapshotEntries(
+            pendingSnapshotRecordingId,
+            pendingSnapshotLeadershipTermId,
+            pendingSnapshotTermBaseLogPosition,
+            logPosition,
+            pendingSnapshotTimestamp,
+            pendingSnapshotServiceRecordingIds,
+            isPendingSnapshotDelta);
+    }
+
     void onServiceAck(
         final long logPosition, final long timestamp, final long ackId, final long relevantId, final int serviceId)
     {
@@ -1124,7 +1322,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         session.open(logPosition);
         session.lastActivity(timestamp, correlationId);
 
-        sessionByIdMap.put(clusterSessionId, session);
+        addSession(session);
         if (clusterSessionId >= nextSessionId)
         {
             nextSessionId = clusterSessionId + 1;
@@ -1140,7 +1338,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         final int responseStreamId,
         final String responseChannel)
     {
-        sessionByIdMap.put(clusterSessionId, new ClusterSession(
+        addSession(new ClusterSession(
             clusterSessionId,
             correlationId,
             openedPosition,
@@ -1158,12 +1356,15 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     void onLoadPendingMessage(final DirectBuffer buffer, final int offset, final int length)
     {
         pendingServiceMessages.append(buffer, offset, length);
+        serviceMessageCounters.onEnqueued();
     }
 
     @SuppressWarnings("unused")
     void onReplaySessionClose(final long clusterSessionId, final long timestamp, final CloseReason closeReason)
     {
-        sessionByIdMap.remove(clusterSessionId).close(closeReason);
+        final ClusterSession session = sessionByIdMap.remove(clusterSessionId);
+        sessionActivityList.remove(session);
+        session.close(closeReason);
     }
 
     @SuppressWarnings("unused")
@@ -1181,6 +1382,13 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 break;
 
             case SNAPSHOT:
+                isSnapshotDelta = false;
+                expectedAckPosition = logPosition;
+                state(ConsensusModule.State.SNAPSHOT);
+                break;
+
+            case SNAPSHOT_DELTA:
+                isSnapshotDelta = true;
                 expectedAckPosition = logPosition;
                 state(ConsensusModule.State.SNAPSHOT);
                 break;
@@ -1218,11 +1426,16 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
 
         this.leadershipTermId = leadershipTermId;
 
-        if (null != election && null != appendedPosition)
+        if (null != election)
         {
-            final long recordingId = RecordingPos.getRecordingId(aeron.countersReader(), appendedPosition.counterId());
-            election.onReplayNewLeadershipTermEvent(
-                recordingId, leadershipTermId, logPosition, timestamp, termBaseLogPosition);
+            final long recordingId = null != appendedPosition ?
+                RecordingPos.getRecordingId(aeron.countersReader(), appendedPosition.counterId()) : logRecordingId();
+
+            if (NULL_VALUE != recordingId)
+            {
+                election.onReplayNewLeadershipTermEvent(
+                    recordingId, leadershipTermId, logPosition, timestamp, termBaseLogPosition);
+            }
         }
     }
 
@@ -1295,6 +1508,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         this.nextServiceSessionId = nextServiceSessionId;
         this.logServiceSessionId = logServiceSessionId;
         pendingServiceMessages.reset(pendingMessageCapacity);
+        serviceMessageCounters.resetPending();
     }
 
     void onReloadClusterMembers(final int memberId, final int highMemberId, final String members)
@@ -1351,18 +1565,20 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         {
             if (session.state() != CLOSED)
             {
-                session.connect(aeron);
+                session.connect(responsePublicationPool);
             }
         }
 
         final long now = clusterClock.time();
         final long nowNs = clusterTimeUnit.toNanos(now);
+        pendingEventSessions.clear();
         for (final ClusterSession session : sessionByIdMap.values())
         {
             if (session.state() != CLOSED)
             {
                 session.timeOfLastActivityNs(nowNs);
                 session.hasNewLeaderEventPending(true);
+                pendingEventSessions.add(session);
             }
         }
     }
@@ -1503,7 +1719,14 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 recordingLog.commitLogPosition(leadershipTermId, stopPosition);
             }
 
-            if (plan.hasReplay())
+            if (null != prefetchedLogReplay && prefetchedLogReplay.canReplay(
+                log.recordingId, startPosition, stopPosition))
+            {
+                logReplay = prefetchedLogReplay;
+                logReplay.stopPosition(stopPosition);
+                prefetchedLogReplay = null;
+            }
+            else if (plan.hasReplay())
             {
                 logReplay = new LogReplay(
                     archive,
@@ -1517,9 +1740,66 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             }
         }
 
+        closePrefetchedLogReplay();
+
         return logReplay;
     }
 
+    LogReplay newLogReplay(final long startPosition, final long stopPosition, final long leadershipTermId)
+    {
+        final int replaySessionId = BitUtil.generateRandomisedId();
+
+        return new LogReplay(
+            archive, logRecordingId(), startPosition, stopPosition, leadershipTermId, replaySessionId, this, ctx);
+    }
+
+    LogReplication newLogReplication(
+        final ClusterMember leaderMember, final long logPosition, final long catchupLogPosition, final long nowNs)
+    {
+        final long recordingId = logRecordingId();
+        if (NULL_VALUE == recordingId || (catchupLogPosition - logPosition) < ctx.catchupReplicationThreshold())
+        {
+            return null;
+        }
+
+        final long stopPosition = archive.getStopPosition(recordingId);
+        if (NULL_POSITION == stopPosition || stopPosition < logPosition || stopPosition >= catchupLogPosition)
+        {
+            return null;
+        }
+
+        return new LogReplication(archive, recordingId, stopPosition, catchupLogPosition, leaderMember, ctx, nowNs);
+    }
+
+    private void prefetchLogReplay(final RecordingLog.RecoveryPlan plan)
+    {
+        final boolean isIpcReplay = IPC_MEDIA.equals(ChannelUri.parse(ctx.replayChannel()).media());
+        if (ctx.logReplayPrefetch() && isIpcReplay && plan.hasReplay())
+        {
+            final RecordingLog.Log log = plan.log;
+            prefetchedLogReplay = new LogReplay(
+                archive,
+                log.recordingId,
+                log.startPosition,
+                log.stopPosition,
+                log.leadershipTermId,
+                log.sessionId,
+                this,
+                ctx);
+
+            prefetchedLogReplay.prefetch(log.termBufferLength);
+        }
+    }
+
+    private void closePrefetchedLogReplay()
+    {
+        if (null != prefetchedLogReplay)
+        {
+            prefetchedLogReplay.close();
+            prefetchedLogReplay = null;
+        }
+    }
+
     void awaitServicesReadyForReplay(
         final String channel,
         final int streamId,
@@ -1634,6 +1914,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         }
 
         election = null;
+        closePrefetchedLogReplay();
         followerCommitPosition = termBaseLogPosition;
         commitPosition.setOrdered(termBaseLogPosition);
         pendingServiceMessages.consume(followerServiceSessionMessageSweeper, Integer.MAX_VALUE);
@@ -1842,17 +2123,28 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
 
         workCount += processRedirectSessions(redirectSessions, nowNs);
         workCount += processRejectedSessions(rejectedSessions, nowNs);
+        serviceMessageCounters.update(nowNs);
+
+        if (NULL_POSITION != pendingSnapshotLogPosition && nowNs >= pendingSnapshotDeadlineNs)
+        {
+            cancelPendingSnapshot("timeout waiting for services");
+            workCount += 1;
+        }
 
         if (null == election)
         {
             if (Cluster.Role.LEADER == role)
             {
-                workCount += checkControlToggle(nowNs);
+                if (null == leadershipTransfer)
+                {
+                    workCount += checkControlToggle(nowNs);
+                }
 
-                if (ConsensusModule.State.ACTIVE == state)
+                if (ConsensusModule.State.ACTIVE == state && null == leadershipTransfer)
                 {
                     workCount += processPendingSessions(pendingSessions, nowMs, nowNs);
-                    workCount += checkSessions(sessionByIdMap, nowNs);
+                    workCount += checkSessions(sessionActivityList, nowNs);
+                    workCount += processPendingEventSessions(pendingEventSessions);
                     workCount += processPassiveMembers(passiveMembers);
 
                     if (!ClusterMember.hasActiveQuorum(clusterMembers, nowNs, leaderHeartbeatTimeoutNs))
@@ -1899,12 +2191,25 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
     {
         int workCount = 0;
 
-        if (Cluster.Role.LEADER == role && ConsensusModule.State.ACTIVE == state)
+        if (Cluster.Role.LEADER == role && ConsensusModule.State.ACTIVE == state && null != leadershipTransfer)
+        {
+            workCount += checkLeadershipTransfer(nowNs);
+            if (null != election)
+            {
+                return workCount;
+            }
+        }
+        else if (Cluster.Role.LEADER == role && ConsensusModule.State.ACTIVE == state)
         {
             workCount += timerService.poll(timestamp);
-            workCount += pendingServiceMessages.forEach(
-                pendingServiceMessageHeadOffset, serviceSessionMessageAppender, SERVICE_MESSAGE_LIMIT);
+            workCount += appendServiceMessages();
             workCount += ingressAdapter.poll();
+
+            if (logPublisher.ingressBatchCount() > 0)
+            {
+                logPublisher.flushIngressBatch();
+                workCount += 1;
+            }
         }
         else if (Cluster.Role.FOLLOWER == role &&
             (ConsensusModule.State.ACTIVE == state || ConsensusModule.State.SUSPENDED == state))
@@ -1922,6 +2227,15 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             }
 
             workCount += count;
+
+            if (NULL_VALUE != handoffCandidateId && commitPosition.getWeak() >= handoffLogPosition)
+            {
+                final int candidateId = handoffCandidateId;
+                handoffCandidateId = NULL_VALUE;
+                enterElection(nowNs);
+                election.onLeadershipHandoff(candidateId);
+                return workCount + 1;
+            }
         }
 
         workCount += memberStatusAdapter.poll();
@@ -1952,18 +2266,23 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 break;
 
             case SNAPSHOT:
-                if (ConsensusModule.State.ACTIVE == state && appendAction(ClusterAction.SNAPSHOT))
+            {
+                final ClusterAction action = snapshotAction();
+                if (ConsensusModule.State.ACTIVE == state && appendAction(action))
                 {
+                    isSnapshotDelta = ClusterAction.SNAPSHOT_DELTA == action;
                     expectedAckPosition = logPosition();
                     state(ConsensusModule.State.SNAPSHOT);
                 }
                 break;
+            }
 
             case SHUTDOWN:
                 if (ConsensusModule.State.ACTIVE == state && appendAction(ClusterAction.SNAPSHOT))
                 {
                     final long position = logPosition();
 
+                    isSnapshotDelta = false;
                     clusterTermination = new ClusterTermination(
                         memberStatusPublisher, nowNs + ctx.terminationTimeoutNs());
                     clusterTermination.terminationPosition(clusterMembers, thisMember, position);
@@ -1973,6 +2292,14 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 }
                 break;
 
+            case TRANSFER_LEADERSHIP:
+                if (ConsensusModule.State.ACTIVE == state)
+                {
+                    startLeadershipTransfer(NULL_VALUE, nowNs);
+                    ClusterControl.ToggleState.reset(controlToggle);
+                }
+                break;
+
             case ABORT:
                 if (ConsensusModule.State.ACTIVE == state)
                 {
@@ -2000,6 +2327,23 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         return logPublisher.appendClusterAction(leadershipTermId, clusterClock.time(), action);
     }
 
+    private ClusterAction snapshotAction()
+    {
+        final int serviceCount = ctx.serviceCount();
+        final int deltaLimit = Math.min(ctx.snapshotDeltaLimit(), RecoveryState.maxSnapshotDeltaCount(serviceCount));
+
+        if (serviceCount > 0 && deltaLimit > 0)
+        {
+            final int deltaCount = recordingLog.snapshotDeltaCount();
+            if (NULL_VALUE != deltaCount && deltaCount < deltaLimit)
+            {
+                return ClusterAction.SNAPSHOT_DELTA;
+            }
+        }
+
+        return ClusterAction.SNAPSHOT;
+    }
+
     private int processPendingSessions(
         final ArrayList<ClusterSession> pendingSessions, final long nowMs, final long nowNs)
     {
@@ -2056,8 +2400,12 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 {
                     ArrayListUtil.fastUnorderedRemove(pendingSessions, i, lastIndex--);
                     session.timeOfLastActivityNs(nowNs);
-                    sessionByIdMap.put(session.id(), session);
+                    addSession(session);
                     appendSessionOpen(session);
+                    if (session.state() == CONNECTED)
+                    {
+                        pendingEventSessions.add(session);
+                    }
                 }
 
                 workCount += 1;
@@ -2173,66 +2521,95 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         return workCount;
     }
 
-    private int checkSessions(final Long2ObjectHashMap<ClusterSession> sessionByIdMap, final long nowNs)
+    private int checkSessions(final ClusterSessionActivityList sessionActivityList, final long nowNs)
     {
         int workCount = 0;
 
-        for (final Iterator<ClusterSession> i = sessionByIdMap.values().iterator(); i.hasNext(); )
+        ClusterSession session = sessionActivityList.head();
+        while (null != session && nowNs > (session.timeOfLastActivityNs() + sessionTimeoutNs))
         {
-            final ClusterSession session = i.next();
+            final ClusterSession nextSession = session.nextByActivity();
 
-            if (nowNs > (session.timeOfLastActivityNs() + sessionTimeoutNs))
+            switch (session.state())
             {
-                switch (session.state())
-                {
-                    case OPEN:
-                        if (session.isResponsePublicationConnected())
-                        {
-                            egressPublisher.sendEvent(
-                                session, leadershipTermId, leaderMember.id(), EventCode.ERROR, SESSION_TIMEOUT_MSG);
-                        }
+                case OPEN:
+                    if (session.isResponsePublicationConnected())
+                    {
+                        egressPublisher.sendEvent(
+                            session, leadershipTermId, leaderMember.id(), EventCode.ERROR, SESSION_TIMEOUT_MSG);
+                    }
 
-                        session.close(CloseReason.TIMEOUT);
-                        if (logPublisher.appendSessionClose(session, leadershipTermId, clusterClock.time()))
+                    session.close(CloseReason.TIMEOUT);
+                    if (logPublisher.appendSessionClose(session, leadershipTermId, clusterClock.time()))
+                    {
+                        removeSession(session);
+                        ctx.timedOutClientCounter().incrementOrdered();
+                    }
+                    break;
+
+                case CLOSED:
+                    if (logPublisher.appendSessionClose(session, leadershipTermId, clusterClock.time()))
+                    {
+                        removeSession(session);
+                        if (session.closeReason() == CloseReason.TIMEOUT)
                         {
-                            i.remove();
                             ctx.timedOutClientCounter().incrementOrdered();
                         }
-                        break;
+                    }
+                    break;
 
-                    case CLOSED:
-                        if (logPublisher.appendSessionClose(session, leadershipTermId, clusterClock.time()))
-                        {
-                            i.remove();
-                            if (session.closeReason() == CloseReason.TIMEOUT)
-                            {
-                                ctx.timedOutClientCounter().incrementOrdered();
-                            }
-                        }
-                        break;
+                default:
+                    removeSession(session);
+                    session.close();
+            }
 
-                    default:
-                        i.remove();
-                        session.close();
-                }
+            workCount += 1;
+            session = nextSession;
+        }
 
-                workCount += 1;
-            }
-            else if (session.state() == CONNECTED)
+        return workCount;
+    }
+
+    private int processPendingEventSessions(final ArrayList<ClusterSession> pendingEventSessions)
+    {
+        int workCount = 0;
+
+        for (int lastIndex = pendingEventSessions.size() - 1, i = lastIndex; i >= 0; i--)
+        {
+            final ClusterSession session = pendingEventSessions.get(i);
+
+            if (session.state() == CONNECTED)
             {
                 appendSessionOpen(session);
                 workCount += 1;
             }
-            else if (session.hasNewLeaderEventPending())
+            else if (session.state() != CLOSED && session.hasNewLeaderEventPending())
             {
                 sendNewLeaderEvent(session);
                 workCount += 1;
             }
+
+            if (session.state() == CLOSED || (session.state() != CONNECTED && !session.hasNewLeaderEventPending()))
+            {
+                ArrayListUtil.fastUnorderedRemove(pendingEventSessions, i, lastIndex--);
+            }
         }
 
         return workCount;
     }
 
+    private void addSession(final ClusterSession session)
+    {
+        sessionByIdMap.put(session.id(), session);
+        sessionActivityList.add(session);
+    }
+
+    private void removeSession(final ClusterSession session)
+    {
+        sessionByIdMap.remove(session.id());
+        sessionActivityList.remove(session);
+    }
+
     private void sendNewLeaderEvent(final ClusterSession session)
     {
         if (egressPublisher.newLeader(session, leadershipTermId, leaderMember.id(), clientFacingEndpoints))
@@ -2339,6 +2716,15 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 serviceSnapshotRecordingIds[serviceSnapshot.serviceId] = serviceSnapshot.recordingId;
             }
 
+            final int serviceCount = serviceSnapshotRecordingIds.length;
+            final long[] snapshotDeltaRecordingIds = new long[plan.snapshotDeltas.size()];
+            for (int i = 0, length = snapshotDeltaRecordingIds.length; i < length; i++)
+            {
+                final RecordingLog.Snapshot snapshotDelta = plan.snapshotDeltas.get(i);
+                snapshotDeltaRecordingIds[((i / serviceCount) * serviceCount) + snapshotDelta.serviceId] =
+                    snapshotDelta.recordingId;
+            }
+
             return RecoveryState.allocate(
                 aeron,
                 tempBuffer,
@@ -2346,7 +2732,8 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 snapshot.logPosition,
                 snapshot.timestamp,
                 plan.hasReplay(),
-                serviceSnapshotRecordingIds);
+                serviceSnapshotRecordingIds,
+                snapshotDeltaRecordingIds);
         }
 
         return RecoveryState.allocate(aeron, tempBuffer, leadershipTermId, 0, 0, plan.hasReplay());
@@ -2378,6 +2765,15 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         ++serviceAckId;
     }
 
+    private void cancelPendingSnapshot(final String reason)
+    {
+        ctx.countedErrorHandler().onError(new ClusterException(
+            "pending snapshot not recorded, " + reason + ": logPosition=" + pendingSnapshotLogPosition,
+            AeronException.Category.WARN));
+
+        pendingSnapshotLogPosition = NULL_POSITION;
+    }
+
     private long logPosition()
     {
         return null != logAdapter ? logAdapter.position() : logPublisher.position();
@@ -2434,22 +2830,32 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
             final long leaderPosition = Math.min(appendedPosition, logPublisher.position());
             thisMember.logPosition(leaderPosition).timeOfLastAppendPositionNs(nowNs);
             final long quorumPosition = ClusterMember.quorumPosition(clusterMembers, rankedPositions);
+            sampleAppendPosition();
+
+            final boolean isCommitAdvanced = commitPosition.proposeMaxOrdered(quorumPosition);
+            final long commitPosition = this.commitPosition.getWeak();
+            final boolean isCommitSent = shouldSendCommitPosition(commitPosition, nowNs);
 
-            if (commitPosition.proposeMaxOrdered(quorumPosition) ||
-                nowNs >= (timeOfLastLogUpdateNs + leaderHeartbeatIntervalNs))
+            if (isCommitSent)
             {
-                final long commitPosition = this.commitPosition.getWeak();
                 for (final ClusterMember member : clusterMembers)
                 {
                     if (member != thisMember)
                     {
                         final Publication publication = member.publication();
                         memberStatusPublisher.commitPosition(publication, leadershipTermId, commitPosition, memberId);
+                        commitPositionMessageCounter.incrementOrdered();
                     }
                 }
 
+                recordCommitLatency(commitPosition);
+                lastCommitPositionSent = commitPosition;
                 timeOfLastLogUpdateNs = nowNs;
+                workCount += 1;
+            }
 
+            if (isCommitAdvanced || isCommitSent)
+            {
                 if (pendingMemberRemovals > 0)
                 {
                     handleMemberRemovals(commitPosition);
@@ -2467,7 +2873,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                     uncommittedTimers.pollLong();
                 }
 
-                workCount += 1;
+                workCount += isCommitAdvanced ? 1 : 0;
             }
         }
         else
@@ -2489,9 +2895,124 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         return workCount;
     }
 
+    private boolean shouldSendCommitPosition(final long commitPosition, final long nowNs)
+    {
+        if (nowNs >= (timeOfLastLogUpdateNs + leaderHeartbeatIntervalNs))
+        {
+            return true;
+        }
+
+        if (commitPosition <= lastCommitPositionSent)
+        {
+            return false;
+        }
+
+        return commitPosition >= logPublisher.position() ||
+            nowNs >= (timeOfLastLogUpdateNs + commitPositionIntervalNs) ||
+            (commitPositionDelta > 0 && (commitPosition - lastCommitPositionSent) >= commitPositionDelta);
+    }
+
+    private void sampleAppendPosition()
+    {
+        final long appendPosition = logPublisher.position();
+        if (appendPosition > lastSampledAppendPosition &&
+            commitLatencySamples.size() < (MAX_COMMIT_LATENCY_SAMPLES * 2))
+        {
+            commitLatencySamples.addLong(appendPosition);
+            commitLatencySamples.addLong(System.nanoTime());
+            lastSampledAppendPosition = appendPosition;
+        }
+    }
+
+    private void recordCommitLatency(final long commitPosition)
+    {
+        if (commitLatencySamples.peekLong() <= commitPosition)
+        {
+            final long nowNs = System.nanoTime();
+            while (commitLatencySamples.peekLong() <= commitPosition)
+            {
+                commitLatencySamples.pollLong();
+                commitLatencyHistogram.record(nowNs - commitLatencySamples.pollLong());
+            }
+        }
+    }
+
+    private void handoffLeadership()
+    {
+        final long nowNs = clusterTimeUnit.toNanos(clusterClock.time());
+        final ClusterMember candidate = LeadershipTransfer.handoffCandidate(
+            clusterMembers, thisMember, logPublisher.position(), nowNs, leaderHeartbeatTimeoutNs);
+
+        if (null != candidate)
+        {
+            try
+            {
+                new LeadershipTransfer(memberStatusPublisher, candidate, 0)
+                    .handoff(clusterMembers, thisMember, leadershipTermId, commitPosition.getWeak());
+            }
+            catch (final Exception ex)
+            {
+                ctx.countedErrorHandler().onError(ex);
+            }
+        }
+    }
+
+    private void startLeadershipTransfer(final int memberId, final long nowNs)
+    {
+        final ClusterMember candidate = LeadershipTransfer.candidate(clusterMembers, thisMember, memberId);
+        if (null == candidate)
+        {
+            ctx.countedErrorHandler().onError(new ClusterException(
+                "no follower to transfer leadership to: memberId=" + memberId, AeronException.Category.WARN));
+            return;
+        }
+
+        if (NULL_VALUE != ctx.appointedLeaderId() && candidate.id() != ctx.appointedLeaderId())
+        {
+            ctx.countedErrorHandler().onError(new ClusterException(
+                "cannot transfer leadership away from appointed leader: memberId=" + candidate.id(),
+                AeronException.Category.WARN));
+            return;
+        }
+
+        leadershipTransfer = new LeadershipTransfer(
+            memberStatusPublisher, candidate, nowNs + ctx.leaderHeartbeatTimeoutNs());
+    }
+
+    private int checkLeadershipTransfer(final long nowNs)
+    {
+        final long appendPosition = logPublisher.position();
+
+        if (leadershipTransfer.canHandoff(appendPosition, commitPosition.getWeak()))
+        {
+            final int candidateId = leadershipTransfer.candidate().id();
+
+            leadershipTransfer.handoff(clusterMembers, thisMember, leadershipTermId, appendPosition);
+            leadershipTransfer = null;
+            enterElection(nowNs);
+            election.onLeadershipHandoff(candidateId);
+
+            return 1;
+        }
+        else if (leadershipTransfer.hasTimedOut(nowNs))
+        {
+            ctx.countedErrorHandler().onError(new ClusterException(
+                "leadership transfer timed out: memberId=" + leadershipTransfer.candidate().id(),
+                AeronException.Category.WARN));
+            leadershipTransfer = null;
+
+            return 1;
+        }
+
+        return 0;
+    }
+
     private void enterElection(final long nowNs)
     {
         ingressAdapter.close();
+        handoffCandidateId = NULL_VALUE;
+        commitLatencySamples.clear();
+        lastSampledAppendPosition = 0;
 
         election = new Election(
             false,
@@ -2557,26 +3078,76 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
                 snapshotState(publication, logPosition, leadershipTermId);
                 awaitRecordingComplete(recordingId, publication.position(), counters, counterId);
 
-                for (int serviceId = serviceAcks.length - 1; serviceId >= 0; serviceId--)
+                pendingSnapshotLogPosition = NULL_POSITION;
+                boolean isServiceSnapshotPending = false;
+                final long[] serviceRecordingIds = pendingSnapshotServiceRecordingIds;
+                for (int serviceId = 0; serviceId < serviceAcks.length; serviceId++)
                 {
-                    final long snapshotId = serviceAcks[serviceId].relevantId();
-                    recordingLog.appendSnapshot(
-                        snapshotId, leadershipTermId, termBaseLogPosition, logPosition, timestamp, serviceId);
+                    serviceRecordingIds[serviceId] = serviceAcks[serviceId].relevantId();
+                    isServiceSnapshotPending |= NULL_VALUE == serviceRecordingIds[serviceId];
                 }
 
-                recordingLog.appendSnapshot(
-                    recordingId, leadershipTermId, termBaseLogPosition, logPosition, timestamp, SERVICE_ID);
-
-                recordingLog.force(ctx.fileSyncLevel());
-                recoveryPlan = recordingLog.createRecoveryPlan(archive, ctx.serviceCount());
+                if (isServiceSnapshotPending)
+                {
+                    pendingSnapshotLogPosition = logPosition;
+                    pendingSnapshotLeadershipTermId = leadershipTermId;
+                    pendingSnapshotTermBaseLogPosition = termBaseLogPosition;
+                    pendingSnapshotTimestamp = timestamp;
+                    pendingSnapshotRecordingId = recordingId;
+                    pendingSnapshotDeadlineNs = clusterTimeUnit.toNanos(clusterClock.time()) +
+                        ctx.serviceSnapshotTimeoutNs();
+                    isPendingSnapshotDelta = isSnapshotDelta;
+                }
+                else
+                {
+                    appendSnapshotEntries(
+                        recordingId,
+                        leadershipTermId,
+                        termBaseLogPosition,
+                        logPosition,
+                        timestamp,
+                        serviceRecordingIds,
+                        isSnapshotDelta);
+                }
             }
             finally
             {
                 archive.stopRecording(subscriptionId);
             }
+        }
+    }
 
-            ctx.snapshotCounter().incrementOrdered();
+    private void appendSnapshotEntries(
+        final long recordingId,
+        final long leadershipTermId,
+        final long termBaseLogPosition,
+        final long logPosition,
+        final long timestamp,
+        final long[] serviceRecordingIds,
+        final boolean isDelta)
+    {
+        for (int serviceId = serviceRecordingIds.length - 1; serviceId >= 0; serviceId--)
+        {
+            final long snapshotId = serviceRecordingIds[serviceId];
+            if (isDelta)
+            {
+                recordingLog.appendSnapshotDelta(
+                    snapshotId, leadershipTermId, termBaseLogPosition, logPosition, timestamp, serviceId);
+            }
+            else
+            {
+                recordingLog.appendSnapshot(
+                    snapshotId, leadershipTermId, termBaseLogPosition, logPosition, timestamp, serviceId);
+            }
         }
+
+        recordingLog.appendSnapshot(
+            recordingId, leadershipTermId, termBaseLogPosition, logPosition, timestamp, SERVICE_ID);
+
+        recordingLog.force(ctx.fileSyncLevel());
+        recoveryPlan = recordingLog.createRecoveryPlan(archive, ctx.serviceCount());
+
+        ctx.snapshotCounter().incrementOrdered();
     }
 
     private void awaitRecordingComplete(
@@ -2742,14 +3313,91 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         {
             throw new ClusterException("pending service message buffer capacity: " + pendingServiceMessages.size());
         }
+
+        serviceMessageCounters.onEnqueued();
+    }
+
+    private int appendServiceMessages()
+    {
+        if (!logPublisher.isServiceMessageBatchingEnabled())
+        {
+            return pendingServiceMessages.forEach(
+                pendingServiceMessageHeadOffset, serviceSessionMessageAppender, SERVICE_MESSAGE_LIMIT);
+        }
+
+        pendingServiceMessages.forEach(
+            pendingServiceMessageHeadOffset, serviceSessionMessageBatcher, Integer.MAX_VALUE);
+
+        final int count = logPublisher.serviceBatchCount();
+        if (0 == count)
+        {
+            return pendingServiceMessages.forEach(pendingServiceMessageHeadOffset, serviceSessionMessageAppender, 1);
+        }
+
+        final long appendPosition = logPublisher.appendServiceMessageBatch(leadershipTermId, clusterClock.time());
+        if (appendPosition > 0)
+        {
+            serviceMessageBatchPosition = appendPosition;
+            pendingServiceMessages.forEach(pendingServiceMessageHeadOffset, serviceSessionMessageBatchMarker, count);
+            serviceMessageBatchPosition = NULL_POSITION;
+
+            return count;
+        }
+
+        return 0;
+    }
+
+    @SuppressWarnings("unused")
+    private boolean serviceSessionMessageBatcher(
+        final MutableDirectBuffer buffer, final int offset, final int length, final int headOffset)
+    {
+        final int clusterSessionIdOffset = offset +
+            MessageHeaderDecoder.ENCODED_LENGTH + SessionMessageHeaderDecoder.clusterSessionIdEncodingOffset();
+        final long clusterSessionId = buffer.getLong(clusterSessionIdOffset, SessionMessageHeaderDecoder.BYTE_ORDER);
+
+        return logPublisher.addServiceMessage(
+            clusterSessionId, buffer, offset + SESSION_HEADER_LENGTH, length - SESSION_HEADER_LENGTH);
+    }
+
+    @SuppressWarnings("unused")
+    private boolean serviceSessionMessageBatchMarker(
+        final MutableDirectBuffer buffer, final int offset, final int length, final int headOffset)
+    {
+        final int clusterSessionIdOffset = offset +
+            MessageHeaderDecoder.ENCODED_LENGTH + SessionMessageHeaderDecoder.clusterSessionIdEncodingOffset();
+
+        onServiceMessageAppended(
+            buffer.getLong(clusterSessionIdOffset, SessionMessageHeaderDecoder.BYTE_ORDER),
+            buffer,
+            offset,
+            headOffset,
+            serviceMessageBatchPosition);
+
+        return true;
+    }
+
+    private void onServiceMessageAppended(
+        final long clusterSessionId,
+        final MutableDirectBuffer buffer,
+        final int offset,
+        final int headOffset,
+        final long appendPosition)
+    {
+        final int timestampOffset = offset +
+            MessageHeaderDecoder.ENCODED_LENGTH + SessionMessageHeaderDecoder.timestampEncodingOffset();
+
+        ++uncommittedServiceMessages;
+        logServiceSessionId = clusterSessionId;
+        pendingServiceMessageHeadOffset = headOffset;
+        buffer.putLong(timestampOffset, appendPosition, SessionMessageHeaderEncoder.BYTE_ORDER);
+        serviceMessageCounters.onAppended(1);
     }
 
     private boolean serviceSessionMessageAppender(
         final MutableDirectBuffer buffer, final int offset, final int length, final int headOffset)
     {
-        final int headerOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH;
-        final int clusterSessionIdOffset = headerOffset + SessionMessageHeaderDecoder.clusterSessionIdEncodingOffset();
-        final int timestampOffset = headerOffset + SessionMessageHeaderDecoder.timestampEncodingOffset();
+        final int clusterSessionIdOffset = offset +
+            MessageHeaderDecoder.ENCODED_LENGTH + SessionMessageHeaderDecoder.clusterSessionIdEncodingOffset();
         final long clusterSessionId = buffer.getLong(clusterSessionIdOffset, SessionMessageHeaderDecoder.BYTE_ORDER);
 
         final long appendPosition = logPublisher.appendMessage(
@@ -2762,11 +3410,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
 
         if (appendPosition > 0)
         {
-            ++uncommittedServiceMessages;
-            logServiceSessionId = clusterSessionId;
-            pendingServiceMessageHeadOffset = headOffset;
-            buffer.putLong(timestampOffset, appendPosition, SessionMessageHeaderEncoder.BYTE_ORDER);
-
+            onServiceMessageAppended(clusterSessionId, buffer, offset, headOffset, appendPosition);
             return true;
         }
 
@@ -2801,6 +3445,7 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         if (appendPosition <= commitPosition.getWeak())
         {
             --uncommittedServiceMessages;
+            serviceMessageCounters.onRemoved();
             return true;
         }
 
@@ -2820,6 +3465,12 @@ class ConsensusModuleAgent implements Agent, MemberStatusListener
         final int clusterSessionIdOffset = offset +
             MessageHeaderDecoder.ENCODED_LENGTH + SessionMessageHeaderDecoder.clusterSessionIdEncodingOffset();
 
-        return buffer.getLong(clusterSessionIdOffset, SessionMessageHeaderDecoder.BYTE_ORDER) <= logServiceSessionId;
+        if (buffer.getLong(clusterSessionIdOffset, SessionMessageHeaderDecoder.BYTE_ORDER) <= logServiceSessionId)
+        {
+            serviceMessageCounters.onRemoved();
+            return true;
+        }
+
+        return false;
     }
 }
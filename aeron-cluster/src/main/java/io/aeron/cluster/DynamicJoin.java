@@ -17,27 +17,16 @@ package io.aeron.cluster;
 
 import io.aeron.*;
 import io.aeron.archive.client.AeronArchive;
-import io.aeron.archive.client.ControlResponsePoller;
-import io.aeron.archive.codecs.ControlResponseCode;
-import io.aeron.archive.codecs.SourceLocation;
-import io.aeron.archive.status.RecordingPos;
 import io.aeron.cluster.client.ClusterException;
-import io.aeron.cluster.codecs.MessageHeaderDecoder;
-import io.aeron.cluster.codecs.SnapshotMarkerDecoder;
 import io.aeron.cluster.codecs.SnapshotRecordingsDecoder;
-import io.aeron.cluster.service.ClusteredServiceContainer;
-import io.aeron.logbuffer.ControlledFragmentHandler;
-import io.aeron.logbuffer.Header;
+import io.aeron.cluster.service.RecoveryProgress;
 import org.agrona.CloseHelper;
-import org.agrona.DirectBuffer;
-import org.agrona.concurrent.status.CountersReader;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static io.aeron.Aeron.NULL_VALUE;
 import static io.aeron.CommonContext.ENDPOINT_PARAM_NAME;
-import static io.aeron.archive.client.AeronArchive.NULL_LENGTH;
-import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 
 class DynamicJoin implements AutoCloseable
 {
@@ -69,17 +58,13 @@ class DynamicJoin implements AutoCloseable
     private ClusterMember leaderMember;
     private AeronArchive.AsyncConnect leaderArchiveAsyncConnect;
     private AeronArchive leaderArchive;
-    private Subscription snapshotRetrieveSubscription;
-    private Image snapshotRetrieveImage;
-    private SnapshotReader snapshotReader;
+    private SnapshotRetrieval snapshotRetrieval;
     private Counter recoveryStateCounter;
+    private long timeOfStartNs = NULL_VALUE;
     private long timeOfLastActivityNs = 0;
     private long correlationId = NULL_VALUE;
-    private long snapshotRetrieveSubscriptionId = NULL_VALUE;
     private int memberId = NULL_VALUE;
     private int clusterMembersStatusEndpointsCursor = NULL_VALUE;
-    private int snapshotCursor = 0;
-    private int snapshotReplaySessionId = NULL_VALUE;
 
     DynamicJoin(
         final String clusterMemberStatusEndpoints,
@@ -106,7 +91,7 @@ class DynamicJoin implements AutoCloseable
     public void close()
     {
         CloseHelper.close(memberStatusPublication);
-        CloseHelper.close(snapshotRetrieveSubscription);
+        CloseHelper.close(snapshotRetrieval);
         CloseHelper.close(leaderArchive);
         CloseHelper.close(leaderArchiveAsyncConnect);
     }
@@ -131,6 +116,11 @@ class DynamicJoin implements AutoCloseable
         int workCount = 0;
         workCount += memberStatusAdapter.poll();
 
+        if (NULL_VALUE == timeOfStartNs)
+        {
+            timeOfStartNs = nowNs;
+        }
+
         switch (state)
         {
             case INIT:
@@ -150,7 +140,7 @@ class DynamicJoin implements AutoCloseable
                 break;
 
             case JOIN_CLUSTER:
-                workCount += joinCluster();
+                workCount += joinCluster(nowNs);
                 break;
         }
 
@@ -200,6 +190,14 @@ class DynamicJoin implements AutoCloseable
     {
         if (State.PASSIVE_FOLLOWER == state && correlationId == this.correlationId)
         {
+            final int snapshotDeltaCount = snapshotRecordingsDecoder.snapshotDeltaCount();
+            if (snapshotDeltaCount > 0)
+            {
+                throw new ClusterException(
+                    "snapshot deltas cannot be retrieved when joining, a base snapshot is required: " +
+                    "snapshotDeltaCount=" + snapshotDeltaCount + " leaderMemberId=" + leaderMember.id());
+            }
+
             final SnapshotRecordingsDecoder.SnapshotsDecoder snapshotsDecoder = snapshotRecordingsDecoder.snapshots();
 
             if (snapshotsDecoder.count() > 0)
@@ -220,7 +218,6 @@ class DynamicJoin implements AutoCloseable
             }
 
             timeOfLastActivityNs = 0;
-            snapshotCursor = 0;
             this.correlationId = NULL_VALUE;
 
             if (leaderSnapshots.isEmpty())
@@ -299,84 +296,37 @@ class DynamicJoin implements AutoCloseable
 
     private int snapshotRetrieve()
     {
-        int workCount = 0;
-
         if (null == leaderArchive)
         {
             leaderArchive = leaderArchiveAsyncConnect.poll();
-            return null == leaderArchive ? 0 : 1;
-        }
-
-        if (null != snapshotReader)
-        {
-            if (snapshotReader.poll() == 0)
-            {
-                if (snapshotReader.isDone())
-                {
-                    consensusModuleAgent.retrievedSnapshot(
-                        snapshotReader.recordingId(), leaderSnapshots.get(snapshotCursor));
-
-                    CloseHelper.close(snapshotRetrieveSubscription);
-                    localArchive.stopRecording(snapshotRetrieveSubscriptionId);
-                    snapshotRetrieveSubscription = null;
-                    snapshotRetrieveImage = null;
-                    snapshotReader = null;
-                    correlationId = NULL_VALUE;
-                    snapshotReplaySessionId = NULL_VALUE;
-
-                    if (++snapshotCursor >= leaderSnapshots.size())
-                    {
-                        state(State.SNAPSHOT_LOAD);
-                        workCount++;
-                    }
-                }
-                else if (null != snapshotRetrieveImage && snapshotRetrieveImage.isClosed())
-                {
-                    throw new ClusterException("retrieval of snapshot image ended unexpectedly");
-                }
-            }
-            else
-            {
-                workCount++;
-            }
-        }
-        else if (null == snapshotRetrieveImage && null != snapshotRetrieveSubscription)
-        {
-            snapshotRetrieveImage = snapshotRetrieveSubscription.imageBySessionId(snapshotReplaySessionId);
-            if (null != snapshotRetrieveImage)
+            if (null != leaderArchive)
             {
-                snapshotReader = new SnapshotReader(snapshotRetrieveImage, ctx.aeron().countersReader());
-                workCount++;
+                snapshotRetrieval = new SnapshotRetrieval(
+                    ctx.aeron(),
+                    leaderArchive,
+                    localArchive,
+                    leaderSnapshots,
+                    transferEndpoint,
+                    ctx.replayStreamId(),
+                    new RecoveryProgress(ctx.snapshotRetrievalBytesCounter(), ctx.snapshotRetrievalRateCounter()));
+
+                return 1;
             }
+
+            return 0;
         }
-        else if (NULL_VALUE == correlationId)
+
+        int workCount = snapshotRetrieval.poll();
+        if (snapshotRetrieval.isDone())
         {
-            final long replayId = ctx.aeron().nextCorrelationId();
-            final RecordingLog.Snapshot snapshot = leaderSnapshots.get(snapshotCursor);
-            final String transferChannel = "aeron:udp?endpoint=" + transferEndpoint;
-
-            if (leaderArchive.archiveProxy().replay(
-                snapshot.recordingId,
-                0,
-                NULL_LENGTH,
-                transferChannel,
-                ctx.replayStreamId(),
-                replayId,
-                leaderArchive.controlSessionId()))
+            for (int i = 0, size = leaderSnapshots.size(); i < size; i++)
             {
-                this.correlationId = replayId;
-                workCount++;
+                consensusModuleAgent.retrievedSnapshot(snapshotRetrieval.recordingId(i), leaderSnapshots.get(i));
             }
-        }
-        else if (pollForResponse(leaderArchive, correlationId))
-        {
-            snapshotReplaySessionId = (int)leaderArchive.controlResponsePoller().relevantId();
-            final String replaySubscriptionChannel =
-                "aeron:udp?endpoint=" + transferEndpoint + "|session-id=" + snapshotReplaySessionId;
 
-            snapshotRetrieveSubscription = ctx.aeron().addSubscription(replaySubscriptionChannel, ctx.replayStreamId());
-            snapshotRetrieveSubscriptionId = localArchive.startRecording(
-                replaySubscriptionChannel, ctx.replayStreamId(), SourceLocation.REMOTE);
+            snapshotRetrieval.close();
+            snapshotRetrieval = null;
+            state(State.SNAPSHOT_LOAD);
             workCount++;
         }
 
@@ -403,7 +353,7 @@ class DynamicJoin implements AutoCloseable
         return workCount;
     }
 
-    private int joinCluster()
+    private int joinCluster(final long nowNs)
     {
         int workCount = 0;
         final long leadershipTermId = leaderSnapshots.isEmpty() ? -1 : leaderSnapshots.get(0).leadershipTermId;
@@ -412,6 +362,7 @@ class DynamicJoin implements AutoCloseable
         {
             if (consensusModuleAgent.dynamicJoinComplete())
             {
+                ctx.dynamicJoinTimeCounter().setOrdered(TimeUnit.NANOSECONDS.toMillis(nowNs - timeOfStartNs));
                 state(State.DONE);
                 close();
                 workCount++;
@@ -426,124 +377,4 @@ class DynamicJoin implements AutoCloseable
         //System.out.println("dynamicJoin " + this.state + " -> " + state);
         this.state = state;
     }
-
-    private static boolean pollForResponse(final AeronArchive archive, final long correlationId)
-    {
-        final ControlResponsePoller poller = archive.controlResponsePoller();
-
-        if (poller.poll() > 0 && poller.isPollComplete())
-        {
-            if (poller.controlSessionId() == archive.controlSessionId() && poller.correlationId() == correlationId)
-            {
-                if (poller.code() == ControlResponseCode.ERROR)
-                {
-                    throw new ClusterException(
-                        "archive response for correlationId=" + correlationId + ", error: " + poller.errorMessage());
-                }
-
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    static class SnapshotReader implements ControlledFragmentHandler
-    {
-        private static final int FRAGMENT_LIMIT = 10;
-
-        private boolean inSnapshot = false;
-        private boolean isDone = false;
-        private long endPosition = 0;
-        private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
-        private final SnapshotMarkerDecoder snapshotMarkerDecoder = new SnapshotMarkerDecoder();
-        private final CountersReader countersReader;
-        private final Image image;
-        private long recordingId = RecordingPos.NULL_RECORDING_ID;
-        private long recordingPosition = NULL_POSITION;
-        private int counterId;
-
-        SnapshotReader(final Image image, final CountersReader countersReader)
-        {
-            this.countersReader = countersReader;
-            this.image = image;
-            counterId = RecordingPos.findCounterIdBySession(countersReader, image.sessionId());
-        }
-
-        boolean isDone()
-        {
-            return isDone && (endPosition <= recordingPosition);
-        }
-
-        long recordingId()
-        {
-            return recordingId;
-        }
-
-        void pollRecordingPosition()
-        {
-            if (CountersReader.NULL_COUNTER_ID == counterId)
-            {
-                counterId = RecordingPos.findCounterIdBySession(countersReader, image.sessionId());
-            }
-            else if (RecordingPos.NULL_RECORDING_ID == recordingId)
-            {
-                recordingId = RecordingPos.getRecordingId(countersReader, counterId);
-            }
-            else
-            {
-                recordingPosition = countersReader.getCounterValue(counterId);
-            }
-        }
-
-        int poll()
-        {
-            pollRecordingPosition();
-
-            return image.controlledPoll(this, FRAGMENT_LIMIT);
-        }
-
-        public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
-        {
-            messageHeaderDecoder.wrap(buffer, offset);
-
-            if (messageHeaderDecoder.templateId() == SnapshotMarkerDecoder.TEMPLATE_ID)
-            {
-                snapshotMarkerDecoder.wrap(
-                    buffer,
-                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
-                    messageHeaderDecoder.blockLength(),
-                    messageHeaderDecoder.version());
-
-                final long typeId = snapshotMarkerDecoder.typeId();
-                if (typeId != ConsensusModule.Configuration.SNAPSHOT_TYPE_ID &&
-                    typeId != ClusteredServiceContainer.SNAPSHOT_TYPE_ID)
-                {
-                    throw new ClusterException("unexpected snapshot type: " + typeId);
-                }
-
-                switch (snapshotMarkerDecoder.mark())
-                {
-                    case BEGIN:
-                        if (inSnapshot)
-                        {
-                            throw new ClusterException("already in snapshot");
-                        }
-                        inSnapshot = true;
-                        return Action.CONTINUE;
-
-                    case END:
-                        if (!inSnapshot)
-                        {
-                            throw new ClusterException("missing begin snapshot");
-                        }
-                        isDone = true;
-                        endPosition = header.position();
-                        return Action.BREAK;
-                }
-            }
-
-            return ControlledFragmentHandler.Action.CONTINUE;
-        }
-    }
 }
@@ -52,6 +52,7 @@ public class Election implements AutoCloseable
         LEADER_READY(7),
 
         FOLLOWER_REPLAY(8),
+        FOLLOWER_LOG_REPLICATION(14),
         FOLLOWER_CATCHUP_TRANSITION(9),
         FOLLOWER_CATCHUP(10),
         FOLLOWER_TRANSITION(11),
@@ -109,6 +110,7 @@ public class Election implements AutoCloseable
     private final MemberStatusPublisher memberStatusPublisher;
     private final ConsensusModule.Context ctx;
     private final ConsensusModuleAgent consensusModuleAgent;
+    private final ElectionStateTimes stateTimes;
     private final Random random;
 
     private long timeOfLastStateChangeNs;
@@ -117,9 +119,11 @@ public class Election implements AutoCloseable
     private long nowNs;
     private long logPosition;
     private long catchupLogPosition = NULL_POSITION;
+    private long replicatedLogPosition = NULL_POSITION;
     private long leadershipTermId;
     private long logLeadershipTermId;
     private long candidateTermId = NULL_VALUE;
+    private int handoffCandidateId = NULL_VALUE;
     private int logSessionId = CommonContext.NULL_SESSION_ID;
     private final Counter stateCounter;
     private ClusterMember leaderMember = null;
@@ -127,6 +131,7 @@ public class Election implements AutoCloseable
     private Subscription logSubscription;
     private String liveLogDestination;
     private LogReplay logReplay = null;
+    private LogReplication logReplication = null;
 
     public Election(
         final boolean isStartup,
@@ -152,12 +157,14 @@ public class Election implements AutoCloseable
         this.memberStatusPublisher = memberStatusPublisher;
         this.ctx = ctx;
         this.consensusModuleAgent = consensusModuleAgent;
+        this.stateTimes = ctx.electionStateTimes();
         this.random = ctx.random();
         stateCounter = ctx.aeron().addCounter(ELECTION_STATE_TYPE_ID, "Election State");
     }
 
     public void close()
     {
+        cleanupReplication();
         CloseHelper.close(stateCounter);
     }
 
@@ -233,6 +240,10 @@ public class Election implements AutoCloseable
                     workCount += followerReplay(nowNs);
                     break;
 
+                case FOLLOWER_LOG_REPLICATION:
+                    workCount += followerLogReplication(nowNs);
+                    break;
+
                 case FOLLOWER_CATCHUP_TRANSITION:
                     workCount += followerCatchupTransition(nowNs);
                     break;
@@ -397,6 +408,11 @@ public class Election implements AutoCloseable
         }
     }
 
+    void onLeadershipHandoff(final int candidateMemberId)
+    {
+        handoffCandidateId = candidateMemberId;
+    }
+
     void onAppendedPosition(final long leadershipTermId, final long logPosition, final int followerMemberId)
     {
         final ClusterMember follower = clusterMemberByIdMap.get(followerMemberId);
@@ -440,7 +456,7 @@ public class Election implements AutoCloseable
         final long timestamp,
         final long termBaseLogPosition)
     {
-        if (State.FOLLOWER_CATCHUP == state)
+        if (State.FOLLOWER_CATCHUP == state || State.FOLLOWER_LOG_REPLICATION == state)
         {
             boolean hasUpdates = false;
             final RecordingLog recordingLog = ctx.recordingLog();
@@ -518,6 +534,13 @@ public class Election implements AutoCloseable
             return workCount;
         }
 
+        if (isFastPathCandidate())
+        {
+            nominationDeadlineNs = nowNs;
+            state(State.NOMINATE);
+            return workCount + 1;
+        }
+
         final long canvassDeadlineNs =
             timeOfLastStateChangeNs + (isStartup ? ctx.startupCanvassTimeoutNs() : ctx.electionTimeoutNs());
 
@@ -533,6 +556,19 @@ public class Election implements AutoCloseable
         return workCount;
     }
 
+    private boolean isFastPathCandidate()
+    {
+        if (NULL_VALUE != handoffCandidateId)
+        {
+            return thisMember.id() == handoffCandidateId &&
+                ClusterMember.isQuorumCandidate(clusterMembers, thisMember);
+        }
+
+        return ctx.fastElection() &&
+            ClusterMember.isQuorumCandidate(clusterMembers, thisMember) &&
+            ClusterMember.isPreferredCandidate(clusterMembers, thisMember);
+    }
+
     private int nominate(final long nowNs)
     {
         if (nowNs >= nominationDeadlineNs)
@@ -650,6 +686,11 @@ public class Election implements AutoCloseable
 
     private int leaderTransition(final long nowNs)
     {
+        if (consensusModuleAgent.isServiceSnapshotPending())
+        {
+            return 0;
+        }
+
         consensusModuleAgent.becomeLeader(candidateTermId, logPosition, logSessionId);
 
         final long recordingId = consensusModuleAgent.logRecordingId();
@@ -714,7 +755,7 @@ public class Election implements AutoCloseable
             if (!shouldReplay || (logReplay = consensusModuleAgent.newLogReplay(logPosition)) == null)
             {
                 shouldReplay = false;
-                state(nextState);
+                state(replicateOrNext(nextState, nowNs));
                 workCount = 1;
             }
         }
@@ -724,13 +765,59 @@ public class Election implements AutoCloseable
             if (logReplay.isDone())
             {
                 cleanupReplay();
-                state(nextState);
+                state(replicateOrNext(nextState, nowNs));
             }
         }
 
         return workCount;
     }
 
+    private int followerLogReplication(final long nowNs)
+    {
+        int workCount = 0;
+
+        if (null != logReplication)
+        {
+            workCount += logReplication.doWork(nowNs);
+            if (logReplication.isDone())
+            {
+                replicatedLogPosition = logReplication.position();
+                cleanupReplication();
+
+                logReplay = consensusModuleAgent.newLogReplay(logPosition, replicatedLogPosition, logLeadershipTermId);
+                workCount += 1;
+            }
+        }
+        else
+        {
+            workCount += logReplay.doWork(nowNs);
+            if (logReplay.isDone())
+            {
+                logPosition = replicatedLogPosition;
+                cleanupReplay();
+                state(State.FOLLOWER_CATCHUP_TRANSITION);
+            }
+        }
+
+        return workCount;
+    }
+
+    private State replicateOrNext(final State nextState, final long nowNs)
+    {
+        if (State.FOLLOWER_CATCHUP_TRANSITION == nextState)
+        {
+            logReplication = consensusModuleAgent.newLogReplication(
+                leaderMember, logPosition, catchupLogPosition, nowNs);
+
+            if (null != logReplication)
+            {
+                return State.FOLLOWER_LOG_REPLICATION;
+            }
+        }
+
+        return nextState;
+    }
+
     private int followerCatchupTransition(final long nowNs)
     {
         if (null == logSubscription)
@@ -800,6 +887,11 @@ public class Election implements AutoCloseable
 
     private int followerTransition(final long nowNs)
     {
+        if (consensusModuleAgent.isServiceSnapshotPending())
+        {
+            return 0;
+        }
+
         if (null == logSubscription)
         {
             final ChannelUri logChannelUri = followerLogChannel(
@@ -935,6 +1027,11 @@ public class Election implements AutoCloseable
     {
         stateChange(state, newState, thisMember.id());
 
+        if (null != stateTimes && ElectionStateTimes.isTimed(state))
+        {
+            stateTimes.record(state, nowNs - timeOfLastStateChangeNs);
+        }
+
         if (State.CANVASS == state)
         {
             isStartup = false;
@@ -945,12 +1042,18 @@ public class Election implements AutoCloseable
             resetCatchupAndLogPosition();
         }
 
+        if (State.NOMINATE == newState || State.FOLLOWER_BALLOT == newState)
+        {
+            handoffCandidateId = NULL_VALUE;
+        }
+
         switch (newState)
         {
             case INIT:
             case CANVASS:
             case NOMINATE:
             case FOLLOWER_BALLOT:
+            case FOLLOWER_LOG_REPLICATION:
             case FOLLOWER_CATCHUP_TRANSITION:
             case FOLLOWER_CATCHUP:
             case FOLLOWER_REPLAY:
@@ -976,6 +1079,7 @@ public class Election implements AutoCloseable
 
     private void resetCatchupAndLogPosition()
     {
+        cleanupReplication();
         consensusModuleAgent.stopAllCatchups();
         catchupLogPosition = NULL_POSITION;
 
@@ -993,6 +1097,23 @@ public class Election implements AutoCloseable
         }
     }
 
+    private void cleanupReplication()
+    {
+        if (null != logReplication)
+        {
+            try
+            {
+                logReplication.close();
+            }
+            catch (final Exception ex)
+            {
+                ctx.countedErrorHandler().onError(ex);
+            }
+
+            logReplication = null;
+        }
+    }
+
     @SuppressWarnings("unused")
     void stateChange(final State oldState, final State newState, final int memberId)
     {
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import org.agrona.CloseHelper;
+
+/**
+ * Total time in nanoseconds spent in each {@link Election.State} across all elections of a member so the phases
+ * which dominate failover can be seen with tools such as AeronStat. {@link Election.State#INIT} and
+ * {@link Election.State#CLOSE} are passed through without delay so are not counted.
+ */
+final class ElectionStateTimes implements AutoCloseable
+{
+    private final Counter[] counters;
+
+    ElectionStateTimes(final Counter[] counters)
+    {
+        if (Election.State.STATES.length != counters.length)
+        {
+            throw new IllegalArgumentException(
+                "expected " + Election.State.STATES.length + " counters: length=" + counters.length);
+        }
+
+        this.counters = counters;
+    }
+
+    /**
+     * Allocate a counter for each election state which is timed.
+     *
+     * @param aeron  to allocate the counters.
+     * @param typeId for the counters.
+     * @return a new set of election state times backed by the allocated counters.
+     */
+    static ElectionStateTimes allocate(final Aeron aeron, final int typeId)
+    {
+        final Counter[] counters = new Counter[Election.State.STATES.length];
+        for (final Election.State state : Election.State.STATES)
+        {
+            if (isTimed(state))
+            {
+                counters[state.code()] = aeron.addCounter(typeId, "Election time ns: " + state);
+            }
+        }
+
+        return new ElectionStateTimes(counters);
+    }
+
+    /**
+     * Is the time spent in an election state counted.
+     *
+     * @param state of the election.
+     * @return true if the time spent in the state is counted otherwise false.
+     */
+    static boolean isTimed(final Election.State state)
+    {
+        return Election.State.INIT != state && Election.State.CLOSE != state;
+    }
+
+    /**
+     * Record time spent in a state on leaving it.
+     *
+     * @param state      being left.
+     * @param durationNs spent in the state.
+     */
+    void record(final Election.State state, final long durationNs)
+    {
+        final Counter counter = counters[state.code()];
+        if (null != counter && durationNs > 0)
+        {
+            counter.getAndAddOrdered(durationNs);
+        }
+    }
+
+    /**
+     * Get the total time recorded for a state.
+     *
+     * @param state of the election.
+     * @return the total time in nanoseconds recorded for the state.
+     */
+    long timeNs(final Election.State state)
+    {
+        final Counter counter = counters[state.code()];
+
+        return null == counter ? 0 : counter.get();
+    }
+
+    public void close()
+    {
+        for (final Counter counter : counters)
+        {
+            CloseHelper.close(counter);
+        }
+    }
+}
@@ -24,10 +24,14 @@ import io.aeron.logbuffer.ControlledFragmentHandler;
 import io.aeron.logbuffer.Header;
 import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.ArrayUtil;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
 
-class IngressAdapter implements ControlledFragmentHandler, AutoCloseable
+class IngressAdapter implements ControlledFragmentHandler, MessageHandler, AutoCloseable
 {
     private final int fragmentPollLimit;
     private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
@@ -39,25 +43,66 @@ class IngressAdapter implements ControlledFragmentHandler, AutoCloseable
     private final ControlledFragmentAssembler fragmentAssembler = new ControlledFragmentAssembler(this);
     private final ConsensusModuleAgent consensusModuleAgent;
     private final AtomicCounter invalidRequests;
+    private final IngressPipeline ingressPipeline;
+    private final ExpandableArrayBuffer pendingMessageBuffer;
+    private int pendingMessageLength = 0;
     private Subscription subscription;
 
     IngressAdapter(
         final int fragmentPollLimit,
         final ConsensusModuleAgent consensusModuleAgent,
         final AtomicCounter invalidRequests)
+    {
+        this(fragmentPollLimit, consensusModuleAgent, invalidRequests, null);
+    }
+
+    IngressAdapter(
+        final int fragmentPollLimit,
+        final ConsensusModuleAgent consensusModuleAgent,
+        final AtomicCounter invalidRequests,
+        final IngressPipeline ingressPipeline)
     {
         this.fragmentPollLimit = fragmentPollLimit;
         this.consensusModuleAgent = consensusModuleAgent;
         this.invalidRequests = invalidRequests;
+        this.ingressPipeline = ingressPipeline;
+        this.pendingMessageBuffer = null != ingressPipeline ? new ExpandableArrayBuffer() : null;
     }
 
     public void close()
     {
+        if (null != ingressPipeline)
+        {
+            ingressPipeline.subscription(null);
+        }
+
         CloseHelper.close(subscription);
         subscription = null;
         fragmentAssembler.clear();
     }
 
+    public void onMessage(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length)
+    {
+        if (IngressPipeline.LARGE_MESSAGE_MSG_TYPE_ID == msgTypeId)
+        {
+            final DirectBuffer largeMessageBuffer = ingressPipeline.largeMessageBuffer();
+            final int largeMessageLength = ingressPipeline.largeMessageLength();
+
+            if (Action.ABORT == onFragment(largeMessageBuffer, 0, largeMessageLength, null))
+            {
+                pendingMessageBuffer.putBytes(0, largeMessageBuffer, 0, largeMessageLength);
+                pendingMessageLength = largeMessageLength;
+            }
+
+            ingressPipeline.releaseLargeMessage();
+        }
+        else if (Action.ABORT == onFragment(buffer, index, length, null))
+        {
+            pendingMessageBuffer.putBytes(0, buffer, index, length);
+            pendingMessageLength = length;
+        }
+    }
+
     @SuppressWarnings("MethodLength")
     public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
     {
@@ -175,10 +220,20 @@ class IngressAdapter implements ControlledFragmentHandler, AutoCloseable
     void connect(final Subscription subscription)
     {
         this.subscription = subscription;
+
+        if (null != ingressPipeline)
+        {
+            ingressPipeline.subscription(subscription);
+        }
     }
 
     int poll()
     {
+        if (null != ingressPipeline)
+        {
+            return pollPipeline();
+        }
+
         if (null != subscription)
         {
             return subscription.controlledPoll(fragmentAssembler, fragmentPollLimit);
@@ -187,8 +242,37 @@ class IngressAdapter implements ControlledFragmentHandler, AutoCloseable
         return 0;
     }
 
+    private int pollPipeline()
+    {
+        if (pendingMessageLength > 0)
+        {
+            if (Action.ABORT == onFragment(pendingMessageBuffer, 0, pendingMessageLength, null))
+            {
+                return 0;
+            }
+
+            pendingMessageLength = 0;
+        }
+
+        int workCount = 0;
+        final RingBuffer ringBuffer = ingressPipeline.ringBuffer();
+        while (workCount < fragmentPollLimit && 0 == pendingMessageLength && ringBuffer.read(this, 1) > 0)
+        {
+            workCount++;
+        }
+
+        return workCount;
+    }
+
     void freeSessionBuffer(final int imageSessionId)
     {
-        fragmentAssembler.freeSessionBuffer(imageSessionId);
+        if (null != ingressPipeline)
+        {
+            ingressPipeline.freeSessionBuffer(imageSessionId);
+        }
+        else
+        {
+            fragmentAssembler.freeSessionBuffer(imageSessionId);
+        }
     }
 }
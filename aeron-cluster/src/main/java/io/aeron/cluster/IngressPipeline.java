@@ -0,0 +1,309 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.ControlledFragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.codecs.*;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.ManyToOneConcurrentArrayQueue;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import static io.aeron.Aeron.NULL_VALUE;
+
+/**
+ * Stage for ingress which runs on its own thread so the consensus module thread only needs to sequence and append
+ * messages to the log.
+ * <p>
+ * Fragments are assembled and messages validated before being handed over to the consensus module via a ring
+ * buffer. Messages which are malformed are counted as invalid requests and messages for a leadership term which has
+ * passed or for a cluster session which has not yet been allocated are dropped. The consensus module checks the
+ * messages it reads from the ring buffer against the current state of the sessions so the limits published here only
+ * need to be conservative.
+ * <p>
+ * Messages which are longer than the ring buffer can hold, which ingress allows up to the max message length of its
+ * term, are handed over one at a time in a separate buffer with a marker written to the ring buffer in their place so
+ * they are read in order with the other messages. The pipeline aborts the fragment until the consensus module has
+ * released the previous large message.
+ * <p>
+ * The subscription is added and closed by the consensus module, which owns the Aeron client, and handed over to the
+ * pipeline for polling. Closed images are lingered by the client so it is safe to close while being polled.
+ */
+final class IngressPipeline implements Agent, ControlledFragmentHandler
+{
+    /**
+     * Type id of the marker in the ring buffer for a message which has been handed over in the large message buffer.
+     */
+    static final int LARGE_MESSAGE_MSG_TYPE_ID = Integer.MAX_VALUE;
+
+    private static final int UNAVAILABLE_IMAGE_QUEUE_CAPACITY = 1024;
+
+    private final int fragmentPollLimit;
+    private final AtomicCounter invalidRequests;
+    private final RingBuffer ringBuffer;
+    private final ControlledFragmentAssembler fragmentAssembler = new ControlledFragmentAssembler(this);
+    private final ManyToOneConcurrentArrayQueue<Integer> unavailableImageSessionIds =
+        new ManyToOneConcurrentArrayQueue<>(UNAVAILABLE_IMAGE_QUEUE_CAPACITY);
+    private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+    private final SessionMessageHeaderDecoder sessionMessageHeaderDecoder = new SessionMessageHeaderDecoder();
+    private final SessionKeepAliveDecoder sessionKeepAliveDecoder = new SessionKeepAliveDecoder();
+    private final SessionCloseRequestDecoder closeRequestDecoder = new SessionCloseRequestDecoder();
+    private final ExpandableArrayBuffer largeMessageBuffer = new ExpandableArrayBuffer();
+    private Subscription polledSubscription;
+
+    private volatile Subscription subscription;
+    private volatile int largeMessageLength = 0;
+    private volatile long leadershipTermIdFloor = NULL_VALUE;
+    private volatile long sessionIdLimit = 1;
+
+    IngressPipeline(
+        final int fragmentPollLimit,
+        final AtomicCounter invalidRequests,
+        final AtomicBuffer ringBufferStorage)
+    {
+        this.fragmentPollLimit = fragmentPollLimit;
+        this.invalidRequests = invalidRequests;
+        this.ringBuffer = new OneToOneRingBuffer(ringBufferStorage);
+    }
+
+    public String roleName()
+    {
+        return "ingress-pipeline";
+    }
+
+    public int doWork()
+    {
+        int workCount = 0;
+
+        final Subscription subscription = this.subscription;
+        if (subscription != polledSubscription)
+        {
+            polledSubscription = subscription;
+            fragmentAssembler.clear();
+            workCount++;
+        }
+
+        Integer imageSessionId;
+        while (null != (imageSessionId = unavailableImageSessionIds.poll()))
+        {
+            fragmentAssembler.freeSessionBuffer(imageSessionId);
+            workCount++;
+        }
+
+        if (null != subscription)
+        {
+            workCount += subscription.controlledPoll(fragmentAssembler, fragmentPollLimit);
+        }
+
+        return workCount;
+    }
+
+    @SuppressWarnings("MethodLength")
+    public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        if (length < MessageHeaderDecoder.ENCODED_LENGTH)
+        {
+            invalidRequests.incrementOrdered();
+            return Action.CONTINUE;
+        }
+
+        messageHeaderDecoder.wrap(buffer, offset);
+        if (messageHeaderDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID)
+        {
+            invalidRequests.incrementOrdered();
+            return Action.CONTINUE;
+        }
+
+        final int templateId = messageHeaderDecoder.templateId();
+        final int blockLength = messageHeaderDecoder.blockLength();
+        final int version = messageHeaderDecoder.version();
+        final int bodyOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH;
+        final int bodyLength = length - MessageHeaderDecoder.ENCODED_LENGTH;
+
+        switch (templateId)
+        {
+            case SessionMessageHeaderDecoder.TEMPLATE_ID:
+            {
+                if (length < AeronCluster.SESSION_HEADER_LENGTH)
+                {
+                    invalidRequests.incrementOrdered();
+                    return Action.CONTINUE;
+                }
+
+                sessionMessageHeaderDecoder.wrap(buffer, bodyOffset, blockLength, version);
+                if (!isAdmitted(
+                    sessionMessageHeaderDecoder.leadershipTermId(), sessionMessageHeaderDecoder.clusterSessionId()))
+                {
+                    return Action.CONTINUE;
+                }
+                break;
+            }
+
+            case SessionKeepAliveDecoder.TEMPLATE_ID:
+            {
+                if (bodyLength < SessionKeepAliveDecoder.BLOCK_LENGTH)
+                {
+                    invalidRequests.incrementOrdered();
+                    return Action.CONTINUE;
+                }
+
+                sessionKeepAliveDecoder.wrap(buffer, bodyOffset, blockLength, version);
+                if (!isAdmitted(sessionKeepAliveDecoder.leadershipTermId(), sessionKeepAliveDecoder.clusterSessionId()))
+                {
+                    return Action.CONTINUE;
+                }
+                break;
+            }
+
+            case SessionCloseRequestDecoder.TEMPLATE_ID:
+            {
+                if (bodyLength < SessionCloseRequestDecoder.BLOCK_LENGTH)
+                {
+                    invalidRequests.incrementOrdered();
+                    return Action.CONTINUE;
+                }
+
+                closeRequestDecoder.wrap(buffer, bodyOffset, blockLength, version);
+                if (!isAdmitted(closeRequestDecoder.leadershipTermId(), closeRequestDecoder.clusterSessionId()))
+                {
+                    return Action.CONTINUE;
+                }
+                break;
+            }
+
+            case SessionConnectRequestDecoder.TEMPLATE_ID:
+            case ChallengeResponseDecoder.TEMPLATE_ID:
+                break;
+
+            default:
+                invalidRequests.incrementOrdered();
+                return Action.CONTINUE;
+        }
+
+        if (length > ringBuffer.maxMsgLength())
+        {
+            return handOverLargeMessage(buffer, offset, length);
+        }
+
+        return ringBuffer.write(templateId, buffer, offset, length) ? Action.CONTINUE : Action.ABORT;
+    }
+
+    /**
+     * Hand over the ingress subscription to be polled by the pipeline.
+     *
+     * @param subscription to be polled or null to stop polling.
+     */
+    void subscription(final Subscription subscription)
+    {
+        this.subscription = subscription;
+    }
+
+    /**
+     * Free the buffer used to assemble fragments from an image which is no longer available.
+     *
+     * @param imageSessionId of the image which is no longer available.
+     */
+    void freeSessionBuffer(final int imageSessionId)
+    {
+        unavailableImageSessionIds.offer(imageSessionId);
+    }
+
+    /**
+     * Publish the limits for messages to be admitted to the ring buffer.
+     *
+     * @param leadershipTermId for the current term below which messages are dropped.
+     * @param nextSessionId    to be allocated at and above which messages are dropped.
+     */
+    void admit(final long leadershipTermId, final long nextSessionId)
+    {
+        if (leadershipTermId > leadershipTermIdFloor)
+        {
+            leadershipTermIdFloor = leadershipTermId;
+        }
+
+        if (nextSessionId != sessionIdLimit)
+        {
+            sessionIdLimit = nextSessionId;
+        }
+    }
+
+    RingBuffer ringBuffer()
+    {
+        return ringBuffer;
+    }
+
+    /**
+     * Buffer holding the large message for the latest {@link #LARGE_MESSAGE_MSG_TYPE_ID} marker read from the ring
+     * buffer.
+     *
+     * @return buffer holding the large message which begins at index 0.
+     */
+    DirectBuffer largeMessageBuffer()
+    {
+        return largeMessageBuffer;
+    }
+
+    /**
+     * Length of the large message which has been handed over or 0 if there is none.
+     *
+     * @return length of the large message which has been handed over or 0 if there is none.
+     */
+    int largeMessageLength()
+    {
+        return largeMessageLength;
+    }
+
+    /**
+     * Release the large message buffer once the consensus module is done with the message so the next can be handed
+     * over.
+     */
+    void releaseLargeMessage()
+    {
+        largeMessageLength = 0;
+    }
+
+    private Action handOverLargeMessage(final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (0 != largeMessageLength)
+        {
+            return Action.ABORT;
+        }
+
+        largeMessageBuffer.putBytes(0, buffer, offset, length);
+        largeMessageLength = length;
+
+        if (!ringBuffer.write(LARGE_MESSAGE_MSG_TYPE_ID, largeMessageBuffer, 0, 0))
+        {
+            largeMessageLength = 0;
+            return Action.ABORT;
+        }
+
+        return Action.CONTINUE;
+    }
+
+    private boolean isAdmitted(final long leadershipTermId, final long clusterSessionId)
+    {
+        return leadershipTermId >= leadershipTermIdFloor && clusterSessionId < sessionIdLimit;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import static io.aeron.Aeron.NULL_VALUE;
+
+/**
+ * Graceful transfer of leadership from the leader to a follower. While in progress the leader appends nothing more to
+ * the log so the follower can reach the end of it, then the followers are told to hold an election in which the
+ * follower stands as candidate without waiting for the leader heartbeat timeout.
+ */
+class LeadershipTransfer
+{
+    private final MemberStatusPublisher memberStatusPublisher;
+    private final ClusterMember candidate;
+    private final long deadlineNs;
+
+    LeadershipTransfer(
+        final MemberStatusPublisher memberStatusPublisher, final ClusterMember candidate, final long deadlineNs)
+    {
+        this.memberStatusPublisher = memberStatusPublisher;
+        this.candidate = candidate;
+        this.deadlineNs = deadlineNs;
+    }
+
+    /**
+     * Choose the follower to transfer leadership to.
+     *
+     * @param members    of the cluster.
+     * @param thisMember which is the leader.
+     * @param memberId   of the follower requested or {@link io.aeron.Aeron#NULL_VALUE} for the most up to date.
+     * @return the follower to transfer leadership to or null if there is no such follower.
+     */
+    static ClusterMember candidate(final ClusterMember[] members, final ClusterMember thisMember, final int memberId)
+    {
+        ClusterMember candidate = null;
+
+        for (final ClusterMember member : members)
+        {
+            if (member == thisMember)
+            {
+                continue;
+            }
+
+            if (NULL_VALUE == memberId)
+            {
+                if (null == candidate || member.logPosition() > candidate.logPosition())
+                {
+                    candidate = member;
+                }
+            }
+            else if (member.id() == memberId)
+            {
+                candidate = member;
+                break;
+            }
+        }
+
+        return candidate;
+    }
+
+    /**
+     * Choose the follower to hand leadership to when the leader is closed without a transfer having been requested.
+     * Only followers which have been heard from within the timeout and have appended the log to the leader's
+     * position are considered, as the position of any other follower may be stale or never have been known.
+     *
+     * @param members        of the cluster.
+     * @param thisMember     which is the leader.
+     * @param appendPosition of the leader.
+     * @param nowNs          for the current time.
+     * @param timeoutNs      after which the appended position of a follower is not considered current.
+     * @return the follower to hand leadership to or null if no follower is known to be up to date.
+     */
+    static ClusterMember handoffCandidate(
+        final ClusterMember[] members,
+        final ClusterMember thisMember,
+        final long appendPosition,
+        final long nowNs,
+        final long timeoutNs)
+    {
+        ClusterMember candidate = null;
+
+        for (final ClusterMember member : members)
+        {
+            if (member != thisMember &&
+                NULL_VALUE != member.timeOfLastAppendPositionNs() &&
+                nowNs <= (member.timeOfLastAppendPositionNs() + timeoutNs) &&
+                member.logPosition() >= appendPosition &&
+                (null == candidate || member.logPosition() > candidate.logPosition()))
+            {
+                candidate = member;
+            }
+        }
+
+        return candidate;
+    }
+
+    ClusterMember candidate()
+    {
+        return candidate;
+    }
+
+    boolean hasTimedOut(final long nowNs)
+    {
+        return nowNs >= deadlineNs;
+    }
+
+    /**
+     * Can leadership be handed over because the candidate has appended the log to the leader's position and it is
+     * committed so all members will canvass from it.
+     *
+     * @param appendPosition of the leader.
+     * @param commitPosition of the cluster.
+     * @return true if leadership can be handed over.
+     */
+    boolean canHandoff(final long appendPosition, final long commitPosition)
+    {
+        return candidate.logPosition() >= appendPosition && commitPosition >= appendPosition;
+    }
+
+    /**
+     * Tell the followers to hold an election in which the candidate stands without delay.
+     *
+     * @param members          of the cluster.
+     * @param thisMember       which is the leader.
+     * @param leadershipTermId being handed over.
+     * @param logPosition      at which leadership is handed over.
+     */
+    void handoff(
+        final ClusterMember[] members,
+        final ClusterMember thisMember,
+        final long leadershipTermId,
+        final long logPosition)
+    {
+        for (final ClusterMember member : members)
+        {
+            if (member != thisMember)
+            {
+                memberStatusPublisher.leadershipHandoff(
+                    member.publication(), leadershipTermId, logPosition, thisMember.id(), candidate.id());
+            }
+        }
+    }
+}
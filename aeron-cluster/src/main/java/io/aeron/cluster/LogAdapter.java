@@ -38,9 +38,11 @@ final class LogAdapter implements ControlledFragmentHandler, AutoCloseable
     private final SessionCloseEventDecoder sessionCloseEventDecoder = new SessionCloseEventDecoder();
     private final SessionMessageHeaderDecoder sessionHeaderDecoder = new SessionMessageHeaderDecoder();
     private final TimerEventDecoder timerEventDecoder = new TimerEventDecoder();
+    private final TimerEventBatchDecoder timerEventBatchDecoder = new TimerEventBatchDecoder();
     private final ClusterActionRequestDecoder clusterActionRequestDecoder = new ClusterActionRequestDecoder();
     private final NewLeadershipTermEventDecoder newLeadershipTermEventDecoder = new NewLeadershipTermEventDecoder();
     private final MembershipChangeEventDecoder membershipChangeEventDecoder = new MembershipChangeEventDecoder();
+    private final SessionMessageBatchDecoder sessionMessageBatchDecoder = new SessionMessageBatchDecoder();
 
     LogAdapter(final Image image, final ConsensusModuleAgent consensusModuleAgent)
     {
@@ -114,6 +116,16 @@ final class LogAdapter implements ControlledFragmentHandler, AutoCloseable
 
         switch (templateId)
         {
+            case SessionMessageBatchDecoder.TEMPLATE_ID:
+                sessionMessageBatchDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                onSessionMessageBatch(buffer, header);
+                break;
+
             case TimerEventDecoder.TEMPLATE_ID:
                 timerEventDecoder.wrap(
                     buffer,
@@ -126,6 +138,16 @@ final class LogAdapter implements ControlledFragmentHandler, AutoCloseable
                     timerEventDecoder.timestamp());
                 break;
 
+            case TimerEventBatchDecoder.TEMPLATE_ID:
+                timerEventBatchDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                onTimerEventBatch();
+                break;
+
             case SessionOpenEventDecoder.TEMPLATE_ID:
                 sessionOpenEventDecoder.wrap(
                     buffer,
@@ -208,4 +230,36 @@ final class LogAdapter implements ControlledFragmentHandler, AutoCloseable
 
         return Action.CONTINUE;
     }
+
+    private void onSessionMessageBatch(final DirectBuffer buffer, final Header header)
+    {
+        final long timestamp = sessionMessageBatchDecoder.timestamp();
+
+        for (final SessionMessageBatchDecoder.SessionMessagesDecoder sessionMessage :
+            sessionMessageBatchDecoder.sessionMessages())
+        {
+            final int messageOffset = sessionMessageBatchDecoder.limit() +
+                SessionMessageBatchDecoder.SessionMessagesDecoder.messageHeaderLength();
+            final int messageLength = sessionMessage.messageLength();
+            sessionMessageBatchDecoder.limit(messageOffset + messageLength);
+
+            consensusModuleAgent.onReplaySessionMessage(
+                sessionMessage.clusterSessionId(),
+                timestamp,
+                buffer,
+                messageOffset,
+                messageLength,
+                header);
+        }
+    }
+
+    private void onTimerEventBatch()
+    {
+        final long timestamp = timerEventBatchDecoder.timestamp();
+
+        for (final TimerEventBatchDecoder.TimersDecoder timer : timerEventBatchDecoder.timers())
+        {
+            consensusModuleAgent.onReplayTimerEvent(timer.correlationId(), timestamp);
+        }
+    }
 }
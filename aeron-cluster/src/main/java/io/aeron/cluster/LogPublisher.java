@@ -36,23 +36,63 @@ import static org.agrona.BitUtil.align;
 class LogPublisher
 {
     private static final int SEND_ATTEMPTS = 3;
+    private static final int MAX_BATCH_COUNT = 65534;
+
+    /**
+     * Length of a {@link SessionMessageBatchEncoder} up to and including the dimensions of its session messages.
+     */
+    static final int BATCH_HEADER_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
+        SessionMessageBatchEncoder.BLOCK_LENGTH +
+        SessionMessageBatchEncoder.SessionMessagesEncoder.sbeHeaderSize();
+
+    /**
+     * Length of the fields and message length header which precede each message in a batch.
+     */
+    static final int BATCH_ENTRY_HEADER_LENGTH = SessionMessageBatchEncoder.SessionMessagesEncoder.sbeBlockLength() +
+        SessionMessageBatchEncoder.SessionMessagesEncoder.messageHeaderLength();
+
+    /**
+     * Length of a {@link TimerEventBatchEncoder} up to and including the dimensions of its timers.
+     */
+    static final int TIMER_BATCH_HEADER_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
+        TimerEventBatchEncoder.BLOCK_LENGTH +
+        TimerEventBatchEncoder.TimersEncoder.sbeHeaderSize();
 
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
     private final SessionMessageHeaderEncoder sessionHeaderEncoder = new SessionMessageHeaderEncoder();
     private final SessionOpenEventEncoder sessionOpenEventEncoder = new SessionOpenEventEncoder();
     private final SessionCloseEventEncoder sessionCloseEventEncoder = new SessionCloseEventEncoder();
     private final TimerEventEncoder timerEventEncoder = new TimerEventEncoder();
+    private final TimerEventBatchEncoder timerEventBatchEncoder = new TimerEventBatchEncoder();
     private final ClusterActionRequestEncoder clusterActionRequestEncoder = new ClusterActionRequestEncoder();
     private final NewLeadershipTermEventEncoder newLeadershipTermEventEncoder = new NewLeadershipTermEventEncoder();
     private final MembershipChangeEventEncoder membershipChangeEventEncoder = new MembershipChangeEventEncoder();
+    private final SessionMessageBatchEncoder sessionMessageBatchEncoder = new SessionMessageBatchEncoder();
     private final UnsafeBuffer sessionHeaderBuffer = new UnsafeBuffer(new byte[SESSION_HEADER_LENGTH]);
     private final ExpandableArrayBuffer expandableArrayBuffer = new ExpandableArrayBuffer();
+    private final ExpandableArrayBuffer batchBuffer = new ExpandableArrayBuffer();
+    private final ExpandableArrayBuffer serviceBatchBuffer = new ExpandableArrayBuffer();
     private final BufferClaim bufferClaim = new BufferClaim();
+    private final int ingressBatchLength;
+    private final int serviceMessageBatchLength;
+    private int batchCount;
+    private int batchLimit;
+    private long batchLeadershipTermId;
+    private long batchTimestamp;
+    private int serviceBatchCount;
+    private int serviceBatchLimit;
 
     private Publication publication;
 
     LogPublisher()
     {
+        this(0, 0);
+    }
+
+    LogPublisher(final int ingressBatchLength, final int serviceMessageBatchLength)
+    {
+        this.ingressBatchLength = ingressBatchLength;
+        this.serviceMessageBatchLength = serviceMessageBatchLength;
         sessionHeaderEncoder.wrapAndApplyHeader(sessionHeaderBuffer, 0, new MessageHeaderEncoder());
     }
 
@@ -63,6 +103,8 @@ class LogPublisher
 
     void disconnect()
     {
+        batchCount = 0;
+
         if (null != publication)
         {
             publication.close();
@@ -101,6 +143,151 @@ class LogPublisher
         }
     }
 
+    /**
+     * Append an ingress message to the log, batching it with other ingress messages into a single
+     * {@link SessionMessageBatchEncoder} when batching is enabled. A batch is appended when it is full, before any
+     * other append so the order of the log is preserved, or when {@link #flushIngressBatch()} is called.
+     *
+     * @param leadershipTermId for the current term.
+     * @param clusterSessionId of the session which sent the message.
+     * @param timestamp        of the cluster when the message was received.
+     * @param buffer           containing the message.
+     * @param offset           in the buffer at which the message begins.
+     * @param length           of the message.
+     * @return true if the message has been appended or batched to be appended.
+     */
+    boolean appendIngressMessage(
+        final long leadershipTermId,
+        final long clusterSessionId,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        final int entryLength = BATCH_ENTRY_HEADER_LENGTH + length;
+        final int maxBatchLength = Math.min(ingressBatchLength, publication.maxMessageLength());
+
+        if (BATCH_HEADER_LENGTH + entryLength > maxBatchLength)
+        {
+            return appendMessage(leadershipTermId, clusterSessionId, timestamp, buffer, offset, length) > 0;
+        }
+
+        if (batchCount > 0 &&
+            (batchLimit + entryLength > maxBatchLength || batchCount == MAX_BATCH_COUNT ||
+            leadershipTermId != batchLeadershipTermId) &&
+            !flushIngressBatch())
+        {
+            return false;
+        }
+
+        if (0 == batchCount)
+        {
+            batchLimit = BATCH_HEADER_LENGTH;
+            batchLeadershipTermId = leadershipTermId;
+            batchTimestamp = timestamp;
+        }
+
+        putBatchEntry(batchBuffer, batchLimit, clusterSessionId, buffer, offset, length);
+
+        batchLimit += entryLength;
+        batchCount++;
+
+        return true;
+    }
+
+    /**
+     * Append any batched ingress messages to the log.
+     *
+     * @return true if there are no batched messages remaining to be appended.
+     */
+    boolean flushIngressBatch()
+    {
+        if (0 == batchCount)
+        {
+            return true;
+        }
+
+        if (offerBatch(batchBuffer, batchLimit, batchLeadershipTermId, batchTimestamp, batchCount) > 0)
+        {
+            batchCount = 0;
+            return true;
+        }
+
+        return false;
+    }
+
+    int ingressBatchCount()
+    {
+        return batchCount;
+    }
+
+    /**
+     * Add a service message to the batch of service messages to be appended to the log as a single
+     * {@link SessionMessageBatchEncoder} by {@link #appendServiceMessageBatch(long, long)}.
+     *
+     * @param clusterSessionId of the service session which sent the message.
+     * @param buffer           containing the message.
+     * @param offset           in the buffer at which the message begins.
+     * @param length           of the message.
+     * @return true if the message has been added or false if the batch is full or the message is too long to batch.
+     */
+    boolean addServiceMessage(
+        final long clusterSessionId, final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (0 == serviceBatchCount)
+        {
+            serviceBatchLimit = BATCH_HEADER_LENGTH;
+        }
+
+        final int entryLength = BATCH_ENTRY_HEADER_LENGTH + length;
+        final int maxBatchLength = Math.min(serviceMessageBatchLength, publication.maxMessageLength());
+
+        if (serviceBatchLimit + entryLength > maxBatchLength || serviceBatchCount == MAX_BATCH_COUNT)
+        {
+            return false;
+        }
+
+        putBatchEntry(serviceBatchBuffer, serviceBatchLimit, clusterSessionId, buffer, offset, length);
+
+        serviceBatchLimit += entryLength;
+        serviceBatchCount++;
+
+        return true;
+    }
+
+    /**
+     * Append the service messages added by {@link #addServiceMessage(long, DirectBuffer, int, int)} to the log as a
+     * single entry. The batch is cleared whether or not the append succeeds as the messages remain pending to be
+     * gathered into a batch again.
+     *
+     * @param leadershipTermId for the current term.
+     * @param timestamp        of the cluster when the batch is appended.
+     * @return the position of the log after the append or a {@link Publication} error code if it failed.
+     */
+    long appendServiceMessageBatch(final long leadershipTermId, final long timestamp)
+    {
+        if (!flushIngressBatch())
+        {
+            serviceBatchCount = 0;
+            return Publication.BACK_PRESSURED;
+        }
+
+        final int count = serviceBatchCount;
+        serviceBatchCount = 0;
+
+        return offerBatch(serviceBatchBuffer, serviceBatchLimit, leadershipTermId, timestamp, count);
+    }
+
+    int serviceBatchCount()
+    {
+        return serviceBatchCount;
+    }
+
+    boolean isServiceMessageBatchingEnabled()
+    {
+        return serviceMessageBatchLength > 0;
+    }
+
     long appendMessage(
         final long leadershipTermId,
         final long clusterSessionId,
@@ -109,6 +296,11 @@ class LogPublisher
         final int offset,
         final int length)
     {
+        if (!flushIngressBatch())
+        {
+            return Publication.BACK_PRESSURED;
+        }
+
         sessionHeaderEncoder
             .leadershipTermId(leadershipTermId)
             .clusterSessionId(clusterSessionId)
@@ -134,6 +326,11 @@ class LogPublisher
 
     long appendSessionOpen(final ClusterSession session, final long leadershipTermId, final long timestamp)
     {
+        if (!flushIngressBatch())
+        {
+            return Publication.BACK_PRESSURED;
+        }
+
         long result;
         final byte[] encodedPrincipal = session.encodedPrincipal();
         final String channel = session.responseChannel();
@@ -168,6 +365,11 @@ class LogPublisher
 
     boolean appendSessionClose(final ClusterSession session, final long leadershipTermId, final long timestamp)
     {
+        if (!flushIngressBatch())
+        {
+            return false;
+        }
+
         final int length = MessageHeaderEncoder.ENCODED_LENGTH + SessionCloseEventEncoder.BLOCK_LENGTH;
 
         int attempts = SEND_ATTEMPTS;
@@ -194,8 +396,78 @@ class LogPublisher
         return false;
     }
 
+    /**
+     * The maximum number of timers which can be appended in a single {@link TimerEventBatchEncoder}.
+     *
+     * @return the maximum number of timers which can be appended in a single batch.
+     */
+    int maxTimerBatchCount()
+    {
+        final int maxCount = (publication.maxMessageLength() - TIMER_BATCH_HEADER_LENGTH) /
+            TimerEventBatchEncoder.TimersEncoder.sbeBlockLength();
+
+        return Math.min(maxCount, MAX_BATCH_COUNT);
+    }
+
+    /**
+     * Append a batch of expired timers to the log as a single {@link TimerEventBatchEncoder}.
+     *
+     * @param leadershipTermId for the current term.
+     * @param timestamp        of the cluster when the timers expired.
+     * @param correlationIds   of the expired timers.
+     * @param offset           in the array at which the batch begins.
+     * @param count            of timers in the batch which must not exceed {@link #maxTimerBatchCount()}.
+     * @return the position of the log after the append or a negative value if the append failed.
+     */
+    long appendTimers(
+        final long leadershipTermId,
+        final long timestamp,
+        final long[] correlationIds,
+        final int offset,
+        final int count)
+    {
+        if (!flushIngressBatch())
+        {
+            return Publication.BACK_PRESSURED;
+        }
+
+        final TimerEventBatchEncoder.TimersEncoder timersEncoder = timerEventBatchEncoder
+            .wrapAndApplyHeader(expandableArrayBuffer, 0, messageHeaderEncoder)
+            .leadershipTermId(leadershipTermId)
+            .timestamp(timestamp)
+            .timersCount(count);
+
+        for (int i = offset, end = offset + count; i < end; i++)
+        {
+            timersEncoder.next().correlationId(correlationIds[i]);
+        }
+
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + timerEventBatchEncoder.encodedLength();
+
+        int attempts = SEND_ATTEMPTS;
+        long result;
+        do
+        {
+            result = publication.offer(expandableArrayBuffer, 0, length, null);
+            if (result > 0)
+            {
+                break;
+            }
+
+            checkResult(result);
+        }
+        while (--attempts > 0);
+
+        return result;
+    }
+
     long appendTimer(final long correlationId, final long leadershipTermId, final long timestamp)
     {
+        if (!flushIngressBatch())
+        {
+            return Publication.BACK_PRESSURED;
+        }
+
         final int length = MessageHeaderEncoder.ENCODED_LENGTH + TimerEventEncoder.BLOCK_LENGTH;
 
         int attempts = SEND_ATTEMPTS;
@@ -224,6 +496,11 @@ class LogPublisher
 
     boolean appendClusterAction(final long leadershipTermId, final long timestamp, final ClusterAction action)
     {
+        if (!flushIngressBatch())
+        {
+            return false;
+        }
+
         final int length = MessageHeaderEncoder.ENCODED_LENGTH + ClusterActionRequestEncoder.BLOCK_LENGTH;
         final int fragmentLength = DataHeaderFlyweight.HEADER_LENGTH +
             MessageHeaderEncoder.ENCODED_LENGTH +
@@ -264,6 +541,11 @@ class LogPublisher
         final TimeUnit timeUnit,
         final int appVersion)
     {
+        if (!flushIngressBatch())
+        {
+            return false;
+        }
+
         final int length = MessageHeaderEncoder.ENCODED_LENGTH + NewLeadershipTermEventEncoder.BLOCK_LENGTH;
         final int fragmentLength = DataHeaderFlyweight.HEADER_LENGTH +
             MessageHeaderEncoder.ENCODED_LENGTH +
@@ -307,6 +589,11 @@ class LogPublisher
         final int memberId,
         final String clusterMembers)
     {
+        if (!flushIngressBatch())
+        {
+            return Publication.BACK_PRESSURED;
+        }
+
         long result;
         final int fragmentedLength = computeMembershipChangeEventFragmentedLength(clusterMembers);
 
@@ -353,6 +640,55 @@ class LogPublisher
         return (numMaxPayloads * (maxPayloadLength + HEADER_LENGTH)) + lastFrameLength;
     }
 
+    private long offerBatch(
+        final ExpandableArrayBuffer buffer,
+        final int length,
+        final long leadershipTermId,
+        final long timestamp,
+        final int count)
+    {
+        sessionMessageBatchEncoder
+            .wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .leadershipTermId(leadershipTermId)
+            .timestamp(timestamp)
+            .sessionMessagesCount(count);
+
+        int attempts = SEND_ATTEMPTS;
+        long result;
+        do
+        {
+            result = publication.offer(buffer, 0, length, null);
+            if (result > 0)
+            {
+                break;
+            }
+
+            checkResult(result);
+        }
+        while (--attempts > 0);
+
+        return result;
+    }
+
+    private static void putBatchEntry(
+        final ExpandableArrayBuffer batchBuffer,
+        final int entryOffset,
+        final long clusterSessionId,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        batchBuffer.putLong(
+            entryOffset + SessionMessageBatchEncoder.SessionMessagesEncoder.clusterSessionIdEncodingOffset(),
+            clusterSessionId,
+            SessionMessageBatchEncoder.BYTE_ORDER);
+        batchBuffer.putInt(
+            entryOffset + SessionMessageBatchEncoder.SessionMessagesEncoder.sbeBlockLength(),
+            length,
+            SessionMessageBatchEncoder.BYTE_ORDER);
+        batchBuffer.putBytes(entryOffset + BATCH_ENTRY_HEADER_LENGTH, buffer, offset, length);
+    }
+
     private static void checkResult(final long result)
     {
         if (result == Publication.NOT_CONNECTED ||
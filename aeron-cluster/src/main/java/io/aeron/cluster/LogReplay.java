@@ -17,8 +17,11 @@ package io.aeron.cluster;
 
 import io.aeron.*;
 import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.service.RecoveryProgress;
 import org.agrona.CloseHelper;
 
+import static io.aeron.cluster.ConsensusModule.Configuration.LOG_REPLAY_LIMIT_TYPE_ID;
+
 class LogReplay implements AutoCloseable
 {
     enum State
@@ -30,18 +33,21 @@ class LogReplay implements AutoCloseable
 
     private final long recordingId;
     private final long startPosition;
-    private final long stopPosition;
     private final long leadershipTermId;
     private final int logSessionId;
     private final int replayStreamId;
     private final AeronArchive archive;
     private final ConsensusModuleAgent consensusModuleAgent;
+    private final RecoveryProgress progress;
+    private final Aeron aeron;
     private final String channel;
 
+    private long stopPosition;
     private int replaySessionId = Aeron.NULL_VALUE;
     private State state = State.INIT;
     private Subscription logSubscription;
     private LogAdapter logAdapter;
+    private Counter prefetchLimit;
 
     LogReplay(
         final AeronArchive archive,
@@ -61,8 +67,8 @@ class LogReplay implements AutoCloseable
         this.logSessionId = logSessionId;
         this.consensusModuleAgent = consensusModuleAgent;
         this.replayStreamId = ctx.replayStreamId();
-
-        final Aeron aeron = ctx.aeron();
+        this.progress = new RecoveryProgress(ctx.logReplayPositionCounter(), ctx.logReplayRateCounter());
+        this.aeron = ctx.aeron();
 
         final ChannelUri channelUri = ChannelUri.parse(ctx.replayChannel());
         channelUri.put(CommonContext.SESSION_ID_PARAM_NAME, Integer.toString(logSessionId));
@@ -74,6 +80,55 @@ class LogReplay implements AutoCloseable
     public void close()
     {
         CloseHelper.close(logSubscription);
+        CloseHelper.close(prefetchLimit);
+    }
+
+    /**
+     * Start the replay from the archive before the services are ready to consume it. Nothing consumes from the replay
+     * until then so the services can still join from the start position, as long as the replay publication remains
+     * active. The replay is therefore bounded at the last term boundary before the stop position, as the bound must
+     * fall on a frame boundary, and the amount prefetched is further limited by the term window of the replay.
+     *
+     * @param termBufferLength of the log recording.
+     */
+    void prefetch(final int termBufferLength)
+    {
+        final long lastTermBasePosition = (stopPosition - 1) & ~(termBufferLength - 1L);
+
+        prefetchLimit = aeron.addCounter(
+            LOG_REPLAY_LIMIT_TYPE_ID, "Cluster log replay prefetch limit: recordingId=" + recordingId);
+        prefetchLimit.setOrdered(Math.max(startPosition, lastTermBasePosition));
+
+        final long length = stopPosition - startPosition;
+        replaySessionId = (int)archive.startBoundedReplay(
+            recordingId, startPosition, length, prefetchLimit.id(), channel, replayStreamId);
+    }
+
+    /**
+     * Can a prefetched replay be used for a replay of the same recording from the same start position?
+     *
+     * @param recordingId   of the log to be replayed.
+     * @param startPosition from which the log is to be replayed.
+     * @param stopPosition  to which the log is to be replayed.
+     * @return true if this prefetched replay can be used.
+     */
+    boolean canReplay(final long recordingId, final long startPosition, final long stopPosition)
+    {
+        return State.INIT == state &&
+            this.recordingId == recordingId &&
+            this.startPosition == startPosition &&
+            this.stopPosition >= stopPosition &&
+            stopPosition > startPosition;
+    }
+
+    /**
+     * Reduce the position to which the log is replayed when an election has committed less of it than recorded.
+     *
+     * @param stopPosition to which the log is to be replayed.
+     */
+    void stopPosition(final long stopPosition)
+    {
+        this.stopPosition = stopPosition;
     }
 
     int doWork(@SuppressWarnings("unused") final long nowMs)
@@ -85,8 +140,18 @@ class LogReplay implements AutoCloseable
             consensusModuleAgent.awaitServicesReadyForReplay(
                 channel, replayStreamId, logSessionId, leadershipTermId, startPosition, stopPosition);
 
-            final long length = stopPosition - startPosition;
-            replaySessionId = (int)archive.startReplay(recordingId, startPosition, length, channel, replayStreamId);
+            if (null != prefetchLimit)
+            {
+                prefetchLimit.setOrdered(stopPosition);
+            }
+            else
+            {
+                final long length = stopPosition - startPosition;
+                replaySessionId = (int)archive.startReplay(
+                    recordingId, startPosition, length, channel, replayStreamId);
+            }
+
+            progress.start(startPosition, System.nanoTime());
             state = State.REPLAY;
             workCount = 1;
         }
@@ -104,9 +169,11 @@ class LogReplay implements AutoCloseable
             else
             {
                 consensusModuleAgent.replayLogPoll(logAdapter, stopPosition);
+                progress.update(logAdapter.position(), System.nanoTime());
                 if (logAdapter.position() == stopPosition)
                 {
                     consensusModuleAgent.awaitServicesReplayComplete(stopPosition);
+                    progress.complete(stopPosition, System.nanoTime());
 
                     logSubscription.close();
                     logSubscription = null;
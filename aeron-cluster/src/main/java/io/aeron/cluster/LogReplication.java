@@ -0,0 +1,296 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.ChannelUri;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.cluster.service.RecoveryProgress;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.status.CountersReader;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.CommonContext.ENDPOINT_PARAM_NAME;
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+import static org.agrona.concurrent.status.CountersReader.NULL_COUNTER_ID;
+
+/**
+ * Replicates the log from the archive of the leader into the local log recording, so a follower which is far behind
+ * can catch up without the log passing through its consensus module. The local archive extends the log recording with
+ * a replay from the leader archive until it reaches the stop position, and then truncates whatever was replicated
+ * beyond it so the recording can be extended by the live log afterwards.
+ * <p>
+ * Services are then brought up to date with a {@link LogReplay} of the replicated range from local disk.
+ */
+class LogReplication implements AutoCloseable
+{
+    enum State
+    {
+        CONNECT,
+        REPLICATE,
+        AWAIT_STOP,
+        DONE
+    }
+
+    private final long recordingId;
+    private final long startPosition;
+    private final long stopPosition;
+    private final long progressTimeoutNs;
+    private final int logStreamId;
+    private final String leaderArchiveChannel;
+    private final int leaderArchiveStreamId;
+    private final AeronArchive archive;
+    private final CountersReader countersReader;
+    private final RecoveryProgress progress;
+
+    private long replicationId = NULL_VALUE;
+    private long position;
+    private long timeOfLastProgressNs;
+    private int recordingCounterId = NULL_COUNTER_ID;
+    private AeronArchive.AsyncConnect leaderArchiveAsyncConnect;
+    private AeronArchive leaderArchive;
+    private State state = State.CONNECT;
+
+    LogReplication(
+        final AeronArchive archive,
+        final long recordingId,
+        final long startPosition,
+        final long stopPosition,
+        final ClusterMember leaderMember,
+        final ConsensusModule.Context ctx,
+        final long nowNs)
+    {
+        this.archive = archive;
+        this.recordingId = recordingId;
+        this.startPosition = startPosition;
+        this.stopPosition = stopPosition;
+        this.position = startPosition;
+        this.progressTimeoutNs = ctx.leaderHeartbeatTimeoutNs();
+        this.logStreamId = ctx.logStreamId();
+        this.countersReader = ctx.aeron().countersReader();
+        this.progress = new RecoveryProgress(ctx.logReplicationPositionCounter(), ctx.logReplicationRateCounter());
+        this.timeOfLastProgressNs = nowNs;
+
+        final ChannelUri leaderArchiveUri = ChannelUri.parse(ctx.archiveContext().controlRequestChannel());
+        leaderArchiveUri.put(ENDPOINT_PARAM_NAME, leaderMember.archiveEndpoint());
+        leaderArchiveChannel = leaderArchiveUri.toString();
+        leaderArchiveStreamId = ctx.archiveContext().controlRequestStreamId();
+
+        final AeronArchive.Context leaderArchiveCtx = new AeronArchive.Context()
+            .aeron(ctx.aeron())
+            .controlRequestChannel(leaderArchiveChannel)
+            .controlRequestStreamId(leaderArchiveStreamId)
+            .controlResponseChannel(ctx.archiveContext().controlResponseChannel())
+            .controlResponseStreamId(ctx.archiveContext().controlResponseStreamId());
+
+        leaderArchiveAsyncConnect = AeronArchive.asyncConnect(leaderArchiveCtx);
+    }
+
+    public void close()
+    {
+        if (NULL_VALUE != replicationId)
+        {
+            try
+            {
+                archive.stopReplication(replicationId);
+            }
+            finally
+            {
+                replicationId = NULL_VALUE;
+            }
+        }
+
+        CloseHelper.close(leaderArchiveAsyncConnect);
+        CloseHelper.close(leaderArchive);
+    }
+
+    int doWork(final long nowNs)
+    {
+        int workCount = 0;
+
+        switch (state)
+        {
+            case CONNECT:
+                workCount += connect(nowNs);
+                break;
+
+            case REPLICATE:
+                workCount += replicate(nowNs);
+                break;
+
+            case AWAIT_STOP:
+                workCount += awaitStop(nowNs);
+                break;
+        }
+
+        if (State.DONE != state && nowNs > (timeOfLastProgressNs + progressTimeoutNs))
+        {
+            throw new ClusterException("no log replication progress: state=" + state + " position=" + position);
+        }
+
+        return workCount;
+    }
+
+    boolean isDone()
+    {
+        return State.DONE == state;
+    }
+
+    /**
+     * Position the log recording has been replicated to, which is the stop position once done.
+     *
+     * @return position the log recording has been replicated to.
+     */
+    long position()
+    {
+        return position;
+    }
+
+    private int connect(final long nowNs)
+    {
+        leaderArchive = leaderArchiveAsyncConnect.poll();
+        if (null == leaderArchive)
+        {
+            return 0;
+        }
+
+        leaderArchiveAsyncConnect = null;
+        final long srcRecordingId = findLeaderLogRecordingId();
+        CloseHelper.close(leaderArchive);
+        leaderArchive = null;
+
+        replicationId = archive.replicate(
+            srcRecordingId, recordingId, leaderArchiveStreamId, leaderArchiveChannel, null);
+
+        progress.start(startPosition, nowNs);
+        timeOfLastProgressNs = nowNs;
+        state = State.REPLICATE;
+
+        return 1;
+    }
+
+    private int replicate(final long nowNs)
+    {
+        if (NULL_COUNTER_ID == recordingCounterId)
+        {
+            recordingCounterId = RecordingPos.findCounterIdByRecording(countersReader, recordingId);
+            if (NULL_COUNTER_ID == recordingCounterId)
+            {
+                final String errorResponse = archive.pollForErrorResponse();
+                if (null != errorResponse)
+                {
+                    replicationId = NULL_VALUE;
+                    throw new ClusterException("log replication failed: " + errorResponse);
+                }
+
+                return 0;
+            }
+        }
+
+        final long recordedPosition = countersReader.getCounterValue(recordingCounterId);
+        if (!RecordingPos.isActive(countersReader, recordingCounterId, recordingId))
+        {
+            replicationId = NULL_VALUE;
+            throw new ClusterException("log replication stopped unexpectedly at position " + position);
+        }
+
+        int workCount = 0;
+        if (recordedPosition > position)
+        {
+            position = recordedPosition;
+            progress.update(position, nowNs);
+            timeOfLastProgressNs = nowNs;
+            workCount += 1;
+        }
+
+        if (position >= stopPosition)
+        {
+            archive.stopReplication(replicationId);
+            replicationId = NULL_VALUE;
+            state = State.AWAIT_STOP;
+            workCount += 1;
+        }
+
+        return workCount;
+    }
+
+    private int awaitStop(final long nowNs)
+    {
+        if (RecordingPos.isActive(countersReader, recordingCounterId, recordingId))
+        {
+            return 0;
+        }
+
+        final long recordedStopPosition = archive.getStopPosition(recordingId);
+        if (NULL_POSITION == recordedStopPosition)
+        {
+            return 0;
+        }
+
+        if (recordedStopPosition > stopPosition)
+        {
+            archive.truncateRecording(recordingId, stopPosition);
+        }
+
+        position = Math.min(recordedStopPosition, stopPosition);
+        progress.complete(position, nowNs);
+        timeOfLastProgressNs = nowNs;
+        state = State.DONE;
+
+        return 1;
+    }
+
+    private long findLeaderLogRecordingId()
+    {
+        final long[] srcRecordingId = { NULL_VALUE };
+
+        leaderArchive.listRecordingsForUri(
+            0,
+            Integer.MAX_VALUE,
+            "",
+            logStreamId,
+            (controlSessionId,
+            correlationId,
+            recordingId,
+            startTimestamp,
+            stopTimestamp,
+            startPosition,
+            stopPosition,
+            initialTermId,
+            segmentFileLength,
+            termBufferLength,
+            mtuLength,
+            sessionId,
+            streamId,
+            strippedChannel,
+            originalChannel,
+            sourceIdentity) ->
+            {
+                if (NULL_POSITION == stopPosition && startPosition <= this.startPosition)
+                {
+                    srcRecordingId[0] = Math.max(srcRecordingId[0], recordingId);
+                }
+            });
+
+        if (NULL_VALUE == srcRecordingId[0])
+        {
+            throw new ClusterException("no active log recording on leader archive from position " + startPosition);
+        }
+
+        return srcRecordingId[0];
+    }
+}
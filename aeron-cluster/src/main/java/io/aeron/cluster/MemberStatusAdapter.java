@@ -46,6 +46,7 @@ class MemberStatusAdapter implements FragmentHandler, AutoCloseable
     private final TerminationPositionDecoder terminationPositionDecoder = new TerminationPositionDecoder();
     private final TerminationAckDecoder terminationAckDecoder = new TerminationAckDecoder();
     private final BackupQueryDecoder backupQueryDecoder = new BackupQueryDecoder();
+    private final LeadershipHandoffDecoder leadershipHandoffDecoder = new LeadershipHandoffDecoder();
 
     private final FragmentAssembler fragmentAssembler = new FragmentAssembler(this);
     private final Subscription subscription;
@@ -294,6 +295,20 @@ class MemberStatusAdapter implements FragmentHandler, AutoCloseable
                     responseChannel,
                     credentials);
                 break;
+
+            case LeadershipHandoffDecoder.TEMPLATE_ID:
+                leadershipHandoffDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                memberStatusListener.onLeadershipHandoff(
+                    leadershipHandoffDecoder.leadershipTermId(),
+                    leadershipHandoffDecoder.logPosition(),
+                    leadershipHandoffDecoder.leaderMemberId(),
+                    leadershipHandoffDecoder.candidateMemberId());
+                break;
         }
     }
 }
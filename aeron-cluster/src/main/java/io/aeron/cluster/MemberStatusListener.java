@@ -63,4 +63,6 @@ interface MemberStatusListener
 
     void onBackupQuery(
         long correlationId, int responseStreamId, int version, String responseChannel, byte[] credentials);
+
+    void onLeadershipHandoff(long leadershipTermId, long logPosition, int leaderMemberId, int candidateMemberId);
 }
@@ -45,6 +45,7 @@ class MemberStatusPublisher
     private final TerminationAckEncoder terminationAckEncoder = new TerminationAckEncoder();
     private final BackupQueryEncoder backupQueryEncoder = new BackupQueryEncoder();
     private final BackupResponseEncoder backupResponseEncoder = new BackupResponseEncoder();
+    private final LeadershipHandoffEncoder leadershipHandoffEncoder = new LeadershipHandoffEncoder();
 
     void canvassPosition(
         final Publication publication,
@@ -401,7 +402,8 @@ class MemberStatusPublisher
         final String memberEndpoints)
     {
         snapshotRecordingsEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
-            .correlationId(correlationId);
+            .correlationId(correlationId)
+            .snapshotDeltaCount(recoveryPlan.snapshotDeltaCount());
 
         final SnapshotRecordingsEncoder.SnapshotsEncoder snapshotsEncoder =
             snapshotRecordingsEncoder.snapshotsCount(recoveryPlan.snapshots.size());
@@ -577,7 +579,8 @@ class MemberStatusPublisher
             .lastLeadershipTermId(lastLeadershipTermId)
             .lastTermBaseLogPosition(lastTermBaseLogPosition)
             .commitPositionCounterId(commitPositionCounterId)
-            .leaderMemberId(leaderMemberId);
+            .leaderMemberId(leaderMemberId)
+            .snapshotDeltaCount(recoveryPlan.snapshotDeltaCount());
 
         final BackupResponseEncoder.SnapshotsEncoder snapshotsEncoder =
             backupResponseEncoder.snapshotsCount(recoveryPlan.snapshots.size());
@@ -614,6 +617,40 @@ class MemberStatusPublisher
         return false;
     }
 
+    boolean leadershipHandoff(
+        final Publication publication,
+        final long leadershipTermId,
+        final long logPosition,
+        final int leaderMemberId,
+        final int candidateMemberId)
+    {
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + LeadershipHandoffEncoder.BLOCK_LENGTH;
+
+        int attempts = SEND_ATTEMPTS;
+        do
+        {
+            final long result = publication.tryClaim(length, bufferClaim);
+            if (result > 0)
+            {
+                leadershipHandoffEncoder
+                    .wrapAndApplyHeader(bufferClaim.buffer(), bufferClaim.offset(), messageHeaderEncoder)
+                    .leadershipTermId(leadershipTermId)
+                    .logPosition(logPosition)
+                    .leaderMemberId(leaderMemberId)
+                    .candidateMemberId(candidateMemberId);
+
+                bufferClaim.commit();
+
+                return true;
+            }
+
+            checkResult(result);
+        }
+        while (--attempts > 0);
+
+        return false;
+    }
+
     private static void checkResult(final long result)
     {
         if (result == Publication.CLOSED || result == Publication.MAX_POSITION_EXCEEDED)
@@ -21,6 +21,7 @@ import io.aeron.cluster.client.ClusterException;
 import org.agrona.BitUtil;
 import org.agrona.CloseHelper;
 import org.agrona.LangUtil;
+import org.agrona.IoUtil;
 import org.agrona.collections.Long2LongHashMap;
 import org.agrona.collections.MutableReference;
 import org.agrona.concurrent.UnsafeBuffer;
@@ -28,13 +29,17 @@ import org.agrona.concurrent.UnsafeBuffer;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 import static io.aeron.Aeron.NULL_VALUE;
 import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardOpenOption.*;
 import static org.agrona.BitUtil.*;
 
@@ -48,6 +53,18 @@ import static org.agrona.BitUtil.*;
  * possible that a snapshot is taken mid term and therefore the latest state is the snapshot plus the log of messages
  * which got appended to the log after the snapshot was taken.
  * <p>
+ * Services may take snapshot deltas which contain only the state changed since their previous snapshot. The state
+ * of a service is then a chain of its latest base snapshot followed by each of the snapshot deltas taken since.
+ * <p>
+ * The file is memory-mapped and entries are only ever appended, then updated in place when a term is committed or an
+ * entry is tombstoned. The mapping is extended in chunks of entries so appends only remap the file when a chunk is
+ * full. The unused remainder of the last chunk is zeros, which is not a valid entry as terms have a service id of
+ * {@link io.aeron.Aeron#NULL_VALUE}, and is truncated from the file when the log is closed.
+ * <p>
+ * Terms are indexed by leadership term id and the latest consensus module snapshot is indexed so the snapshots of the
+ * services, which are appended immediately before it, are found without a scan. Tombstoned entries keep their slot in
+ * the file, and are parsed on every {@link #reload()}, until it is compacted with {@link #compact()}.
+ * <p>
  * Record layout as follows:
  * <pre>
  *   0                   1                   2                   3
@@ -70,7 +87,7 @@ import static org.agrona.BitUtil.*;
  *  +---------------------------------------------------------------+
  *  |                  Service ID when a Snapshot                   |
  *  +---------------------------------------------------------------+
- *  |                 Entry Type (Log or Snapshot)                  |
+ *  |         Entry Type (Log, Snapshot, or Snapshot Delta)         |
  *  +---------------------------------------------------------------+
  *  |                                                               |
  *  |                                                              ...
@@ -260,6 +277,7 @@ public class RecordingLog implements AutoCloseable
         public final long appendedLogPosition;
         public final long committedLogPosition;
         public final ArrayList<Snapshot> snapshots;
+        public final ArrayList<Snapshot> snapshotDeltas;
         public final Log log;
 
         public RecoveryPlan(
@@ -269,15 +287,58 @@ public class RecordingLog implements AutoCloseable
             final long committedLogPosition,
             final ArrayList<Snapshot> snapshots,
             final Log log)
+        {
+            this(
+                lastLeadershipTermId,
+                lastTermBaseLogPosition,
+                appendedLogPosition,
+                committedLogPosition,
+                snapshots,
+                new ArrayList<>(),
+                log);
+        }
+
+        /**
+         * A recovery plan in which the services have snapshot deltas to be loaded after their base snapshots.
+         *
+         * @param lastLeadershipTermId    for the last leadership term in the log.
+         * @param lastTermBaseLogPosition at the beginning of the last leadership term.
+         * @param appendedLogPosition     reached in the log.
+         * @param committedLogPosition    reached in the log.
+         * @param snapshots               for the consensus module followed by the base snapshot for each service.
+         * @param snapshotDeltas          to be loaded in order after the base snapshots.
+         * @param log                     to be replayed after the snapshots.
+         */
+        public RecoveryPlan(
+            final long lastLeadershipTermId,
+            final long lastTermBaseLogPosition,
+            final long appendedLogPosition,
+            final long committedLogPosition,
+            final ArrayList<Snapshot> snapshots,
+            final ArrayList<Snapshot> snapshotDeltas,
+            final Log log)
         {
             this.lastLeadershipTermId = lastLeadershipTermId;
             this.lastTermBaseLogPosition = lastTermBaseLogPosition;
             this.appendedLogPosition = appendedLogPosition;
             this.committedLogPosition = committedLogPosition;
             this.snapshots = snapshots;
+            this.snapshotDeltas = snapshotDeltas;
             this.log = log;
         }
 
+        /**
+         * The count of snapshot deltas to be loaded by each service after its base snapshot.
+         *
+         * @return count of snapshot deltas to be loaded by each service after its base snapshot.
+         */
+        public int snapshotDeltaCount()
+        {
+            final int serviceCount = snapshots.size() - 1;
+
+            return serviceCount > 0 ? snapshotDeltas.size() / serviceCount : 0;
+        }
+
         /**
          * Has the log to be replayed as part of the recovery plan?
          *
@@ -302,6 +363,7 @@ public class RecordingLog implements AutoCloseable
                 ", appendedLogPosition=" + appendedLogPosition +
                 ", committedLogPosition=" + committedLogPosition +
                 ", snapshots=" + snapshots +
+                ", snapshotDeltas=" + snapshotDeltas +
                 ", logs" + log +
                 '}';
         }
@@ -312,6 +374,11 @@ public class RecordingLog implements AutoCloseable
      */
     public static final String RECORDING_LOG_FILE_NAME = "recording.log";
 
+    /**
+     * Filename to which the recording log is written when compacted before replacing the original.
+     */
+    public static final String RECORDING_LOG_COMPACTION_FILE_NAME = "recording.log.compact";
+
     /**
      * The log entry is for a recording of messages within a leadership term to the log.
      */
@@ -322,6 +389,12 @@ public class RecordingLog implements AutoCloseable
      */
     public static final int ENTRY_TYPE_SNAPSHOT = 1;
 
+    /**
+     * The log entry is for a recording of a snapshot delta of the state changed since the previous snapshot taken
+     * by a service.
+     */
+    public static final int ENTRY_TYPE_SNAPSHOT_DELTA = 2;
+
     /**
      * The offset at which the recording id for the entry is stored.
      */
@@ -360,14 +433,25 @@ public class RecordingLog implements AutoCloseable
     /**
      * The length of each entry in the recording log (not the recordings in the archive).
      */
-    private static final int ENTRY_LENGTH = BitUtil.align(ENTRY_TYPE_OFFSET + SIZE_OF_INT, CACHE_LINE_LENGTH);
+    static final int ENTRY_LENGTH = BitUtil.align(ENTRY_TYPE_OFFSET + SIZE_OF_INT, CACHE_LINE_LENGTH);
+
+    /**
+     * The number of entries by which the mapping of the file is extended when an append finds it full.
+     */
+    private static final int MAPPING_CHUNK_ENTRY_COUNT = 1024;
 
     private int nextEntryIndex;
-    private final FileChannel fileChannel;
-    private final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(4096).order(LITTLE_ENDIAN);
+    private int mappedEntryCount;
+    private boolean isFileExtended;
+    private final File parentDir;
+    private FileChannel fileChannel;
+    private MappedByteBuffer mappedByteBuffer;
+    private final UnsafeBuffer mappedBuffer = new UnsafeBuffer(0, 0);
+    private final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(ENTRY_LENGTH).order(LITTLE_ENDIAN);
     private final UnsafeBuffer buffer = new UnsafeBuffer(byteBuffer);
     private final ArrayList<Entry> entriesCache = new ArrayList<>();
     private final Long2LongHashMap cacheIndexByLeadershipTermIdMap = new Long2LongHashMap(NULL_VALUE);
+    private int cacheIndexOfLatestSnapshot = NULL_VALUE;
 
     /**
      * Create a log that appends to an existing log or creates a new one.
@@ -378,6 +462,7 @@ public class RecordingLog implements AutoCloseable
     {
         final File logFile = new File(parentDir, RECORDING_LOG_FILE_NAME);
         final boolean newFile = !logFile.exists();
+        this.parentDir = parentDir;
 
         try
         {
@@ -387,10 +472,8 @@ public class RecordingLog implements AutoCloseable
             {
                 syncDirectory(parentDir);
             }
-            else
-            {
-                reload();
-            }
+
+            reload();
         }
         catch (final IOException ex)
         {
@@ -400,6 +483,20 @@ public class RecordingLog implements AutoCloseable
 
     public void close()
     {
+        unmap();
+
+        if (isFileExtended && null != fileChannel && fileChannel.isOpen())
+        {
+            try
+            {
+                fileChannel.truncate(nextEntryIndex * (long)ENTRY_LENGTH);
+            }
+            catch (final IOException ex)
+            {
+                LangUtil.rethrowUnchecked(ex);
+            }
+        }
+
         CloseHelper.close(fileChannel);
     }
 
@@ -414,6 +511,11 @@ public class RecordingLog implements AutoCloseable
         {
             try
             {
+                if (null != mappedByteBuffer)
+                {
+                    mappedByteBuffer.force();
+                }
+
                 fileChannel.force(fileSyncLevel > 1);
             }
             catch (final IOException ex)
@@ -445,45 +547,90 @@ public class RecordingLog implements AutoCloseable
 
     /**
      * Reload the recording log from disk.
+     * <p>
+     * Every entry in the file is parsed, including those which have been tombstoned, so the cost of a reload grows
+     * with all the entries appended since the log was last compacted with {@link #compact()}.
      */
     public void reload()
     {
         entriesCache.clear();
-        cacheIndexByLeadershipTermIdMap.clear();
-        cacheIndexByLeadershipTermIdMap.compact();
-
         nextEntryIndex = 0;
-        byteBuffer.clear();
 
         try
         {
-            while (true)
+            final int entryCount = (int)(fileChannel.size() / ENTRY_LENGTH);
+            map(entryCount);
+
+            for (int i = 0; i < entryCount && !isUnused(i); i++)
             {
-                final int bytes = fileChannel.read(byteBuffer);
-                if (byteBuffer.remaining() == 0)
-                {
-                    byteBuffer.flip();
-                    captureEntriesFromBuffer(byteBuffer, buffer, entriesCache);
-                    byteBuffer.clear();
-                }
+                captureEntry(i);
+            }
+        }
+        catch (final IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        indexEntries();
+    }
+
+    /**
+     * Compact the log by rewriting it without the entries which have been tombstoned so the file, and the cost of
+     * loading it, only grows with the entries which are still valid. The compacted log is written to
+     * {@link #RECORDING_LOG_COMPACTION_FILE_NAME} and then moved over the original so a failure part way through
+     * leaves the original intact.
+     * <p>
+     * The {@link Entry#entryIndex} of entries will change so this should only be done when no cluster component has
+     * the log open.
+     *
+     * @return the number of tombstoned entries removed.
+     */
+    public int compact()
+    {
+        final int removedCount = nextEntryIndex - entriesCache.size();
+        if (0 == removedCount)
+        {
+            return 0;
+        }
+
+        final File compactedFile = new File(parentDir, RECORDING_LOG_COMPACTION_FILE_NAME);
+        final File logFile = new File(parentDir, RECORDING_LOG_FILE_NAME);
 
-                if (-1 == bytes)
+        try
+        {
+            try (FileChannel compactedChannel = FileChannel.open(compactedFile.toPath(), CREATE_NEW, WRITE))
+            {
+                for (final Entry entry : entriesCache)
                 {
-                    if (byteBuffer.position() > 0)
+                    buffer.putBytes(0, mappedBuffer, entry.entryIndex * ENTRY_LENGTH, ENTRY_LENGTH);
+                    byteBuffer.limit(ENTRY_LENGTH).position(0);
+
+                    if (ENTRY_LENGTH != compactedChannel.write(byteBuffer))
                     {
-                        byteBuffer.flip();
-                        captureEntriesFromBuffer(byteBuffer, buffer, entriesCache);
-                        byteBuffer.clear();
+                        throw new ClusterException("failed to write entry atomically");
                     }
-
-                    break;
                 }
+
+                compactedChannel.force(true);
             }
+
+            unmap();
+            fileChannel.close();
+
+            Files.move(compactedFile.toPath(), logFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+            syncDirectory(parentDir);
+
+            fileChannel = FileChannel.open(logFile.toPath(), READ, WRITE);
+            isFileExtended = false;
         }
         catch (final IOException ex)
         {
             LangUtil.rethrowUnchecked(ex);
         }
+
+        reload();
+
+        return removedCount;
     }
 
     /**
@@ -549,21 +696,27 @@ public class RecordingLog implements AutoCloseable
      */
     public Entry getLatestSnapshot(final int serviceId)
     {
-        for (int i = entriesCache.size() - 1; i >= 0; i--)
+        final int index = cacheIndexOfLatestSnapshot;
+        if (NULL_VALUE == index)
+        {
+            return null;
+        }
+
+        if (ConsensusModule.Configuration.SERVICE_ID == serviceId)
+        {
+            return entriesCache.get(index);
+        }
+
+        for (int i = index; i >= 0; i--)
         {
             final Entry entry = entriesCache.get(i);
             if (ENTRY_TYPE_SNAPSHOT == entry.type && ConsensusModule.Configuration.SERVICE_ID == entry.serviceId)
             {
-                if (ConsensusModule.Configuration.SERVICE_ID == serviceId)
-                {
-                    return entry;
-                }
-
                 final int serviceSnapshotIndex = i - (serviceId + 1);
                 if (serviceSnapshotIndex > 0)
                 {
                     final Entry snapshot = entriesCache.get(serviceSnapshotIndex);
-                    if (ENTRY_TYPE_SNAPSHOT == snapshot.type && serviceId == snapshot.serviceId)
+                    if (isSnapshot(snapshot.type) && serviceId == snapshot.serviceId)
                     {
                         return snapshot;
                     }
@@ -581,24 +734,14 @@ public class RecordingLog implements AutoCloseable
      */
     public boolean tombstoneLatestSnapshot()
     {
-        int index = -1;
-        for (int i = entriesCache.size() - 1; i >= 0; i--)
-        {
-            final Entry entry = entriesCache.get(i);
-            if (ENTRY_TYPE_SNAPSHOT == entry.type && ConsensusModule.Configuration.SERVICE_ID == entry.serviceId)
-            {
-                index = i;
-                break;
-            }
-        }
-
-        if (index >= 0)
+        final int index = cacheIndexOfLatestSnapshot;
+        if (NULL_VALUE != index)
         {
             int serviceId = ConsensusModule.Configuration.SERVICE_ID;
             for (int i = index; i >= 0; i--)
             {
                 final Entry entry = entriesCache.get(i);
-                if (ENTRY_TYPE_SNAPSHOT == entry.type && entry.serviceId == serviceId)
+                if (isSnapshot(entry.type) && entry.serviceId == serviceId)
                 {
                     tombstoneEntry(entry.leadershipTermId, entry.entryIndex);
                     serviceId++;
@@ -615,6 +758,34 @@ public class RecordingLog implements AutoCloseable
         return false;
     }
 
+    /**
+     * Get the count of snapshot deltas taken by the services since their latest base snapshot.
+     *
+     * @return count of snapshot deltas taken since the latest base snapshot or {@link io.aeron.Aeron#NULL_VALUE} if
+     * the services have no base snapshot.
+     */
+    public int snapshotDeltaCount()
+    {
+        int count = 0;
+        for (int i = entriesCache.size() - 1; i >= 0; i--)
+        {
+            final Entry entry = entriesCache.get(i);
+            if (0 == entry.serviceId)
+            {
+                if (ENTRY_TYPE_SNAPSHOT_DELTA == entry.type)
+                {
+                    ++count;
+                }
+                else if (ENTRY_TYPE_SNAPSHOT == entry.type)
+                {
+                    return count;
+                }
+            }
+        }
+
+        return NULL_VALUE;
+    }
+
     /**
      * Get the {@link Entry#timestamp} for a term.
      *
@@ -643,8 +814,9 @@ public class RecordingLog implements AutoCloseable
     public RecoveryPlan createRecoveryPlan(final AeronArchive archive, final int serviceCount)
     {
         final ArrayList<Snapshot> snapshots = new ArrayList<>();
+        final ArrayList<Snapshot> snapshotDeltas = new ArrayList<>();
         final MutableReference<Log> logRef = new MutableReference<>();
-        planRecovery(snapshots, logRef, entriesCache, archive, serviceCount);
+        planRecovery(snapshots, snapshotDeltas, logRef, entriesCache, archive, serviceCount);
 
         long lastLeadershipTermId = NULL_VALUE;
         long lastTermBaseLogPosition = 0;
@@ -678,6 +850,7 @@ public class RecordingLog implements AutoCloseable
             appendedLogPosition,
             committedLogPosition,
             snapshots,
+            snapshotDeltas,
             logRef.get());
     }
 
@@ -782,6 +955,48 @@ public class RecordingLog implements AutoCloseable
         final long logPosition,
         final long timestamp,
         final int serviceId)
+    {
+        appendSnapshot(
+            ENTRY_TYPE_SNAPSHOT, recordingId, leadershipTermId, termBaseLogPosition, logPosition, timestamp, serviceId);
+    }
+
+    /**
+     * Append a log entry for a snapshot delta taken by a service which contains the state changed since its
+     * previous snapshot.
+     *
+     * @param recordingId         in the archive for the snapshot delta.
+     * @param leadershipTermId    for the current term
+     * @param termBaseLogPosition at the beginning of the leadership term.
+     * @param logPosition         for the position in the current term or length so far for that term.
+     * @param timestamp           at which the snapshot delta was taken.
+     * @param serviceId           for which the snapshot delta is recorded.
+     */
+    public void appendSnapshotDelta(
+        final long recordingId,
+        final long leadershipTermId,
+        final long termBaseLogPosition,
+        final long logPosition,
+        final long timestamp,
+        final int serviceId)
+    {
+        appendSnapshot(
+            ENTRY_TYPE_SNAPSHOT_DELTA,
+            recordingId,
+            leadershipTermId,
+            termBaseLogPosition,
+            logPosition,
+            timestamp,
+            serviceId);
+    }
+
+    private void appendSnapshot(
+        final int entryType,
+        final long recordingId,
+        final long leadershipTermId,
+        final long termBaseLogPosition,
+        final long logPosition,
+        final long timestamp,
+        final int serviceId)
     {
         final int size = entriesCache.size();
         if (size > 0)
@@ -796,13 +1011,18 @@ public class RecordingLog implements AutoCloseable
         }
 
         append(
-            ENTRY_TYPE_SNAPSHOT,
+            entryType,
             recordingId,
             leadershipTermId,
             termBaseLogPosition,
             logPosition,
             timestamp,
             serviceId);
+
+        if (ENTRY_TYPE_SNAPSHOT == entryType && ConsensusModule.Configuration.SERVICE_ID == serviceId)
+        {
+            cacheIndexOfLatestSnapshot = entriesCache.size() - 1;
+        }
     }
 
     /**
@@ -852,21 +1072,6 @@ public class RecordingLog implements AutoCloseable
             {
                 index = entry.entryIndex;
                 entriesCache.remove(i);
-
-                if (ENTRY_TYPE_TERM == entry.type)
-                {
-                    cacheIndexByLeadershipTermIdMap.remove(leadershipTermId);
-                }
-
-                for (int j = i, size = entriesCache.size(); j < size; j++)
-                {
-                    final Entry e = entriesCache.get(j);
-                    if (ENTRY_TYPE_TERM == entry.type)
-                    {
-                        cacheIndexByLeadershipTermIdMap.put(e.leadershipTermId, j);
-                    }
-                }
-
                 break;
             }
         }
@@ -876,21 +1081,8 @@ public class RecordingLog implements AutoCloseable
             throw new ClusterException("unknown entry index: " + entryIndex);
         }
 
-        buffer.putInt(0, NULL_VALUE, LITTLE_ENDIAN);
-        byteBuffer.limit(SIZE_OF_INT).position(0);
-        final long filePosition = (index * (long)ENTRY_LENGTH) + ENTRY_TYPE_OFFSET;
-
-        try
-        {
-            if (SIZE_OF_INT != fileChannel.write(byteBuffer, filePosition))
-            {
-                throw new ClusterException("failed to write field atomically");
-            }
-        }
-        catch (final Exception ex)
-        {
-            LangUtil.rethrowUnchecked(ex);
-        }
+        mappedBuffer.putInt((index * ENTRY_LENGTH) + ENTRY_TYPE_OFFSET, NULL_VALUE, LITTLE_ENDIAN);
+        indexEntries();
     }
 
     public String toString()
@@ -898,6 +1090,7 @@ public class RecordingLog implements AutoCloseable
         return "RecordingLog{" +
             "entries=" + entriesCache +
             ", cacheIndex=" + cacheIndexByLeadershipTermIdMap +
+            ", snapshotCacheIndex=" + cacheIndexOfLatestSnapshot +
             '}';
     }
 
@@ -919,20 +1112,28 @@ public class RecordingLog implements AutoCloseable
         buffer.putInt(ENTRY_TYPE_OFFSET, entryType, LITTLE_ENDIAN);
 
         byteBuffer.limit(ENTRY_LENGTH).position(0);
+        final int entryIndex = nextEntryIndex;
 
         try
         {
-            if (ENTRY_LENGTH != fileChannel.write(byteBuffer))
+            if (entryIndex >= mappedEntryCount)
+            {
+                map(entryIndex + MAPPING_CHUNK_ENTRY_COUNT);
+                isFileExtended = true;
+            }
+
+            if (ENTRY_LENGTH != fileChannel.write(byteBuffer, entryIndex * (long)ENTRY_LENGTH))
             {
                 throw new ClusterException("failed to write entry atomically");
             }
+
+            ++nextEntryIndex;
         }
         catch (final IOException ex)
         {
             LangUtil.rethrowUnchecked(ex);
         }
 
-        final int entryIndex = nextEntryIndex++;
         entriesCache.add(new Entry(
             recordingId,
             leadershipTermId,
@@ -944,34 +1145,74 @@ public class RecordingLog implements AutoCloseable
             entryIndex));
     }
 
-    private void captureEntriesFromBuffer(
-        final ByteBuffer byteBuffer, final UnsafeBuffer buffer, final ArrayList<Entry> entries)
+    private void captureEntry(final int entryIndex)
     {
-        for (int i = 0, length = byteBuffer.limit(); i < length; i += ENTRY_LENGTH)
+        final int offset = entryIndex * ENTRY_LENGTH;
+        final int entryType = mappedBuffer.getInt(offset + ENTRY_TYPE_OFFSET, LITTLE_ENDIAN);
+
+        if (NULL_VALUE != entryType)
         {
-            final int entryType = buffer.getInt(i + ENTRY_TYPE_OFFSET);
+            entriesCache.add(new Entry(
+                mappedBuffer.getLong(offset + RECORDING_ID_OFFSET, LITTLE_ENDIAN),
+                mappedBuffer.getLong(offset + LEADERSHIP_TERM_ID_OFFSET, LITTLE_ENDIAN),
+                mappedBuffer.getLong(offset + TERM_BASE_LOG_POSITION_OFFSET, LITTLE_ENDIAN),
+                mappedBuffer.getLong(offset + LOG_POSITION_OFFSET, LITTLE_ENDIAN),
+                mappedBuffer.getLong(offset + TIMESTAMP_OFFSET, LITTLE_ENDIAN),
+                mappedBuffer.getInt(offset + SERVICE_ID_OFFSET, LITTLE_ENDIAN),
+                entryType,
+                entryIndex));
+        }
+
+        nextEntryIndex = entryIndex + 1;
+    }
+
+    private void indexEntries()
+    {
+        cacheIndexByLeadershipTermIdMap.clear();
+        cacheIndexOfLatestSnapshot = NULL_VALUE;
 
-            if (NULL_VALUE != entryType)
+        for (int i = 0, size = entriesCache.size(); i < size; i++)
+        {
+            final Entry entry = entriesCache.get(i);
+            if (ENTRY_TYPE_TERM == entry.type)
             {
-                final Entry entry = new Entry(
-                    buffer.getLong(i + RECORDING_ID_OFFSET, LITTLE_ENDIAN),
-                    buffer.getLong(i + LEADERSHIP_TERM_ID_OFFSET, LITTLE_ENDIAN),
-                    buffer.getLong(i + TERM_BASE_LOG_POSITION_OFFSET, LITTLE_ENDIAN),
-                    buffer.getLong(i + LOG_POSITION_OFFSET, LITTLE_ENDIAN),
-                    buffer.getLong(i + TIMESTAMP_OFFSET, LITTLE_ENDIAN),
-                    buffer.getInt(i + SERVICE_ID_OFFSET, LITTLE_ENDIAN),
-                    entryType,
-                    nextEntryIndex);
-
-                entries.add(entry);
-
-                if (ENTRY_TYPE_TERM == entryType)
-                {
-                    cacheIndexByLeadershipTermIdMap.put(entry.leadershipTermId, entries.size() - 1);
-                }
+                cacheIndexByLeadershipTermIdMap.put(entry.leadershipTermId, i);
+            }
+            else if (ENTRY_TYPE_SNAPSHOT == entry.type && ConsensusModule.Configuration.SERVICE_ID == entry.serviceId)
+            {
+                cacheIndexOfLatestSnapshot = i;
             }
+        }
+    }
 
-            ++nextEntryIndex;
+    private boolean isUnused(final int entryIndex)
+    {
+        final int offset = entryIndex * ENTRY_LENGTH;
+
+        return ENTRY_TYPE_TERM == mappedBuffer.getInt(offset + ENTRY_TYPE_OFFSET, LITTLE_ENDIAN) &&
+            0 == mappedBuffer.getInt(offset + SERVICE_ID_OFFSET, LITTLE_ENDIAN);
+    }
+
+    private void map(final int entryCount) throws IOException
+    {
+        unmap();
+
+        if (entryCount > 0)
+        {
+            mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, entryCount * (long)ENTRY_LENGTH);
+            mappedBuffer.wrap(mappedByteBuffer);
+        }
+
+        mappedEntryCount = entryCount;
+    }
+
+    private void unmap()
+    {
+        if (null != mappedByteBuffer)
+        {
+            mappedBuffer.wrap(0, 0);
+            IoUtil.unmap(mappedByteBuffer);
+            mappedByteBuffer = null;
         }
     }
 
@@ -988,25 +1229,12 @@ public class RecordingLog implements AutoCloseable
 
     private void commitEntryValue(final int entryIndex, final long value, final int fieldOffset)
     {
-        buffer.putLong(0, value, LITTLE_ENDIAN);
-        byteBuffer.limit(SIZE_OF_LONG).position(0);
-        final long filePosition = (entryIndex * (long)ENTRY_LENGTH) + fieldOffset;
-
-        try
-        {
-            if (SIZE_OF_LONG != fileChannel.write(byteBuffer, filePosition))
-            {
-                throw new ClusterException("failed to write field atomically");
-            }
-        }
-        catch (final IOException ex)
-        {
-            LangUtil.rethrowUnchecked(ex);
-        }
+        mappedBuffer.putLong((entryIndex * ENTRY_LENGTH) + fieldOffset, value, LITTLE_ENDIAN);
     }
 
     private static void planRecovery(
         final ArrayList<Snapshot> snapshots,
+        final ArrayList<Snapshot> snapshotDeltas,
         final MutableReference<Log> logRef,
         final ArrayList<Entry> entries,
         final AeronArchive archive,
@@ -1039,7 +1267,7 @@ public class RecordingLog implements AutoCloseable
 
         if (-1 != snapshotIndex)
         {
-            addSnapshots(snapshots, entries, serviceCount, snapshotIndex);
+            addSnapshots(snapshots, snapshotDeltas, entries, serviceCount, snapshotIndex);
         }
 
         if (-1 != logIndex)
@@ -1073,15 +1301,25 @@ public class RecordingLog implements AutoCloseable
         final ArrayList<Entry> entries,
         final int serviceCount,
         final int snapshotIndex)
+    {
+        final ArrayList<Snapshot> snapshotDeltas = new ArrayList<>();
+        addSnapshots(snapshots, snapshotDeltas, entries, serviceCount, snapshotIndex);
+
+        if (!snapshotDeltas.isEmpty())
+        {
+            throw new ClusterException("snapshot deltas would be dropped: snapshotDeltas=" + snapshotDeltas);
+        }
+    }
+
+    static void addSnapshots(
+        final ArrayList<Snapshot> snapshots,
+        final ArrayList<Snapshot> snapshotDeltas,
+        final ArrayList<Entry> entries,
+        final int serviceCount,
+        final int snapshotIndex)
     {
         final Entry snapshot = entries.get(snapshotIndex);
-        snapshots.add(new Snapshot(
-            snapshot.recordingId,
-            snapshot.leadershipTermId,
-            snapshot.termBaseLogPosition,
-            snapshot.logPosition,
-            snapshot.timestamp,
-            snapshot.serviceId));
+        snapshots.add(snapshot(snapshot));
 
         for (int i = 1; i <= serviceCount; i++)
         {
@@ -1092,18 +1330,67 @@ public class RecordingLog implements AutoCloseable
 
             final Entry entry = entries.get(snapshotIndex - i);
 
-            if (ENTRY_TYPE_SNAPSHOT == entry.type &&
+            if (isSnapshot(entry.type) &&
                 entry.leadershipTermId == snapshot.leadershipTermId &&
                 entry.logPosition == snapshot.logPosition)
             {
-                snapshots.add(entry.serviceId + 1, new Snapshot(
-                    entry.recordingId,
-                    entry.leadershipTermId,
-                    entry.termBaseLogPosition,
-                    entry.logPosition,
-                    entry.timestamp,
-                    entry.serviceId));
+                final Entry baseEntry = ENTRY_TYPE_SNAPSHOT_DELTA == entry.type ?
+                    addSnapshotDeltas(snapshotDeltas, entries, snapshotIndex - i) : entry;
+
+                snapshots.add(entry.serviceId + 1, snapshot(baseEntry));
+            }
+        }
+
+        snapshotDeltas.sort(RecordingLog::compareSnapshotDeltas);
+    }
+
+    private static Entry addSnapshotDeltas(
+        final ArrayList<Snapshot> snapshotDeltas, final ArrayList<Entry> entries, final int deltaIndex)
+    {
+        final int serviceId = entries.get(deltaIndex).serviceId;
+
+        for (int i = deltaIndex; i >= 0; i--)
+        {
+            final Entry entry = entries.get(i);
+            if (serviceId == entry.serviceId)
+            {
+                if (ENTRY_TYPE_SNAPSHOT_DELTA == entry.type)
+                {
+                    snapshotDeltas.add(snapshot(entry));
+                }
+                else if (ENTRY_TYPE_SNAPSHOT == entry.type)
+                {
+                    return entry;
+                }
             }
         }
+
+        throw new ClusterException("base snapshot missing for snapshot deltas of serviceId=" + serviceId);
+    }
+
+    private static int compareSnapshotDeltas(final Snapshot a, final Snapshot b)
+    {
+        if (a.logPosition != b.logPosition)
+        {
+            return Long.compare(a.logPosition, b.logPosition);
+        }
+
+        return Integer.compare(a.serviceId, b.serviceId);
+    }
+
+    private static Snapshot snapshot(final Entry entry)
+    {
+        return new Snapshot(
+            entry.recordingId,
+            entry.leadershipTermId,
+            entry.termBaseLogPosition,
+            entry.logPosition,
+            entry.timestamp,
+            entry.serviceId);
+    }
+
+    private static boolean isSnapshot(final int entryType)
+    {
+        return ENTRY_TYPE_SNAPSHOT == entryType || ENTRY_TYPE_SNAPSHOT_DELTA == entryType;
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Aeron;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters for the messages sent by clustered services which are pending in the consensus module until committed to
+ * the log, and the rate in messages per second at which the leader appends them to the log, so a service which fans
+ * out more messages than can be appended can be seen with tools such as AeronStat.
+ * <p>
+ * The counts are kept in fields by the consensus module agent and published to the counters on {@link #update(long)}
+ * so the counters are not written for every message.
+ */
+final class ServiceMessageCounters implements AutoCloseable
+{
+    /**
+     * Interval over which the append rate is sampled.
+     */
+    static final long RATE_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicCounter pendingCount;
+    private final AtomicCounter appendRate;
+    private long pending;
+    private long appended;
+    private long lastSampleAppended;
+    private long lastSampleNs;
+
+    ServiceMessageCounters(final AtomicCounter pendingCount, final AtomicCounter appendRate)
+    {
+        this.pendingCount = pendingCount;
+        this.appendRate = appendRate;
+    }
+
+    /**
+     * Allocate the counters for service messages.
+     *
+     * @param aeron            to allocate the counters.
+     * @param pendingTypeId    for the count of pending service messages.
+     * @param appendRateTypeId for the rate at which service messages are appended to the log.
+     * @return a new set of service message counters.
+     */
+    static ServiceMessageCounters allocate(final Aeron aeron, final int pendingTypeId, final int appendRateTypeId)
+    {
+        return new ServiceMessageCounters(
+            aeron.addCounter(pendingTypeId, "Cluster pending service messages"),
+            aeron.addCounter(appendRateTypeId, "Cluster service message append rate msgs/s"));
+    }
+
+    void onEnqueued()
+    {
+        pending++;
+    }
+
+    void onRemoved()
+    {
+        pending--;
+    }
+
+    void onAppended(final int count)
+    {
+        appended += count;
+    }
+
+    void resetPending()
+    {
+        pending = 0;
+    }
+
+    long pending()
+    {
+        return pending;
+    }
+
+    long appended()
+    {
+        return appended;
+    }
+
+    /**
+     * Publish the pending count and sample the append rate if the interval has elapsed.
+     *
+     * @param nowNs current time.
+     */
+    void update(final long nowNs)
+    {
+        pendingCount.setOrdered(pending);
+
+        final long elapsedNs = nowNs - lastSampleNs;
+        if (elapsedNs >= RATE_INTERVAL_NS)
+        {
+            appendRate.setOrdered(
+                (long)((appended - lastSampleAppended) * ((double)TimeUnit.SECONDS.toNanos(1) / elapsedNs)));
+            lastSampleAppended = appended;
+            lastSampleNs = nowNs;
+        }
+    }
+
+    public void close()
+    {
+        CloseHelper.close(pendingCount);
+        CloseHelper.close(appendRate);
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Aeron;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.ControlResponsePoller;
+import io.aeron.archive.codecs.ControlResponseCode;
+import io.aeron.archive.codecs.SourceLocation;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.SnapshotMarkerDecoder;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.cluster.service.RecoveryProgress;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.status.CountersReader;
+
+import java.util.List;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.archive.client.AeronArchive.NULL_LENGTH;
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+
+/**
+ * Retrieves snapshots from the archive of a cluster member into the local archive with all of them in flight at once,
+ * rather than one after another, so the time taken is bound by the largest snapshot and the bandwidth available
+ * rather than the sum of their sizes.
+ * <p>
+ * Replays are requested one at a time as they share the control session to the source archive, but each is
+ * recorded from its own session on the transfer endpoint as soon as it has started.
+ */
+class SnapshotRetrieval implements AutoCloseable
+{
+    private final Aeron aeron;
+    private final AeronArchive srcArchive;
+    private final AeronArchive localArchive;
+    private final String transferEndpoint;
+    private final int replayStreamId;
+    private final RecoveryProgress progress;
+    private final Transfer[] transfers;
+    private long correlationId = NULL_VALUE;
+    private long bytesRetrieved = 0;
+    private int requestCursor = 0;
+    private int completedCount = 0;
+
+    SnapshotRetrieval(
+        final Aeron aeron,
+        final AeronArchive srcArchive,
+        final AeronArchive localArchive,
+        final List<RecordingLog.Snapshot> snapshots,
+        final String transferEndpoint,
+        final int replayStreamId,
+        final RecoveryProgress progress)
+    {
+        this.aeron = aeron;
+        this.srcArchive = srcArchive;
+        this.localArchive = localArchive;
+        this.transferEndpoint = transferEndpoint;
+        this.replayStreamId = replayStreamId;
+        this.progress = progress;
+
+        transfers = new Transfer[snapshots.size()];
+        for (int i = 0; i < transfers.length; i++)
+        {
+            transfers[i] = new Transfer(snapshots.get(i).recordingId);
+        }
+
+        progress.start(0, System.nanoTime());
+    }
+
+    public void close()
+    {
+        for (final Transfer transfer : transfers)
+        {
+            CloseHelper.close(transfer.subscription);
+        }
+    }
+
+    boolean isDone()
+    {
+        return completedCount == transfers.length;
+    }
+
+    /**
+     * Total bytes of the snapshots retrieved so far.
+     *
+     * @return total bytes of the snapshots retrieved so far.
+     */
+    long bytesRetrieved()
+    {
+        return bytesRetrieved;
+    }
+
+    /**
+     * Recording id in the local archive of a snapshot which has been retrieved.
+     *
+     * @param index of the snapshot in the list the retrieval was created with.
+     * @return recording id in the local archive of the snapshot.
+     */
+    long recordingId(final int index)
+    {
+        return transfers[index].reader.recordingId();
+    }
+
+    int poll()
+    {
+        int workCount = 0;
+
+        if (requestCursor < transfers.length)
+        {
+            workCount += requestReplay();
+        }
+
+        long bytesRetrieved = 0;
+        for (final Transfer transfer : transfers)
+        {
+            if (!transfer.isDone)
+            {
+                workCount += transfer.poll();
+                if (transfer.isDone)
+                {
+                    completedCount++;
+                }
+            }
+
+            bytesRetrieved += transfer.position;
+        }
+
+        if (bytesRetrieved != this.bytesRetrieved)
+        {
+            this.bytesRetrieved = bytesRetrieved;
+            progress.update(bytesRetrieved, System.nanoTime());
+        }
+
+        if (isDone())
+        {
+            progress.complete(bytesRetrieved, System.nanoTime());
+        }
+
+        return workCount;
+    }
+
+    private int requestReplay()
+    {
+        if (NULL_VALUE == correlationId)
+        {
+            final long replayId = aeron.nextCorrelationId();
+
+            if (srcArchive.archiveProxy().replay(
+                transfers[requestCursor].srcRecordingId,
+                0,
+                NULL_LENGTH,
+                "aeron:udp?endpoint=" + transferEndpoint,
+                replayStreamId,
+                replayId,
+                srcArchive.controlSessionId()))
+            {
+                correlationId = replayId;
+                return 1;
+            }
+        }
+        else if (pollForResponse(srcArchive, correlationId))
+        {
+            final int replaySessionId = (int)srcArchive.controlResponsePoller().relevantId();
+            transfers[requestCursor++].start(replaySessionId);
+            correlationId = NULL_VALUE;
+            return 1;
+        }
+
+        return 0;
+    }
+
+    private static boolean pollForResponse(final AeronArchive archive, final long correlationId)
+    {
+        final ControlResponsePoller poller = archive.controlResponsePoller();
+
+        if (poller.poll() > 0 && poller.isPollComplete())
+        {
+            if (poller.controlSessionId() == archive.controlSessionId() && poller.correlationId() == correlationId)
+            {
+                if (poller.code() == ControlResponseCode.ERROR)
+                {
+                    throw new ClusterException(
+                        "archive response for correlationId=" + correlationId + ", error: " + poller.errorMessage());
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    final class Transfer
+    {
+        final long srcRecordingId;
+        int replaySessionId = NULL_VALUE;
+        long recordingSubscriptionId = NULL_VALUE;
+        long position = 0;
+        boolean isDone = false;
+        Subscription subscription;
+        Image image;
+        SnapshotReader reader;
+
+        Transfer(final long srcRecordingId)
+        {
+            this.srcRecordingId = srcRecordingId;
+        }
+
+        void start(final int replaySessionId)
+        {
+            final String channel = "aeron:udp?endpoint=" + transferEndpoint + "|session-id=" + replaySessionId;
+
+            this.replaySessionId = replaySessionId;
+            subscription = aeron.addSubscription(channel, replayStreamId);
+            recordingSubscriptionId = localArchive.startRecording(channel, replayStreamId, SourceLocation.REMOTE);
+        }
+
+        int poll()
+        {
+            if (null == subscription)
+            {
+                return 0;
+            }
+
+            if (null == reader)
+            {
+                image = subscription.imageBySessionId(replaySessionId);
+                if (null != image)
+                {
+                    reader = new SnapshotReader(image, aeron.countersReader());
+                    return 1;
+                }
+
+                return 0;
+            }
+
+            final int fragments = reader.poll();
+            position = image.position();
+
+            if (0 == fragments)
+            {
+                if (reader.isDone())
+                {
+                    CloseHelper.close(subscription);
+                    localArchive.stopRecording(recordingSubscriptionId);
+                    subscription = null;
+                    recordingSubscriptionId = NULL_VALUE;
+                    isDone = true;
+                    return 1;
+                }
+                else if (image.isClosed())
+                {
+                    throw new ClusterException("retrieval of snapshot image ended unexpectedly");
+                }
+            }
+
+            return fragments;
+        }
+    }
+
+    static class SnapshotReader implements ControlledFragmentHandler
+    {
+        private static final int FRAGMENT_LIMIT = 10;
+
+        private boolean inSnapshot = false;
+        private boolean isDone = false;
+        private long endPosition = 0;
+        private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+        private final SnapshotMarkerDecoder snapshotMarkerDecoder = new SnapshotMarkerDecoder();
+        private final CountersReader countersReader;
+        private final Image image;
+        private long recordingId = RecordingPos.NULL_RECORDING_ID;
+        private long recordingPosition = NULL_POSITION;
+        private int counterId;
+
+        SnapshotReader(final Image image, final CountersReader countersReader)
+        {
+            this.countersReader = countersReader;
+            this.image = image;
+            counterId = RecordingPos.findCounterIdBySession(countersReader, image.sessionId());
+        }
+
+        boolean isDone()
+        {
+            return isDone && (endPosition <= recordingPosition);
+        }
+
+        long recordingId()
+        {
+            return recordingId;
+        }
+
+        void pollRecordingPosition()
+        {
+            if (CountersReader.NULL_COUNTER_ID == counterId)
+            {
+                counterId = RecordingPos.findCounterIdBySession(countersReader, image.sessionId());
+            }
+            else if (RecordingPos.NULL_RECORDING_ID == recordingId)
+            {
+                recordingId = RecordingPos.getRecordingId(countersReader, counterId);
+            }
+            else
+            {
+                recordingPosition = countersReader.getCounterValue(counterId);
+            }
+        }
+
+        int poll()
+        {
+            pollRecordingPosition();
+
+            return image.controlledPoll(this, FRAGMENT_LIMIT);
+        }
+
+        public Action onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+        {
+            messageHeaderDecoder.wrap(buffer, offset);
+
+            if (messageHeaderDecoder.templateId() == SnapshotMarkerDecoder.TEMPLATE_ID)
+            {
+                snapshotMarkerDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                final long typeId = snapshotMarkerDecoder.typeId();
+                if (typeId != ConsensusModule.Configuration.SNAPSHOT_TYPE_ID &&
+                    typeId != ClusteredServiceContainer.SNAPSHOT_TYPE_ID)
+                {
+                    throw new ClusterException("unexpected snapshot type: " + typeId);
+                }
+
+                switch (snapshotMarkerDecoder.mark())
+                {
+                    case BEGIN:
+                        if (inSnapshot)
+                        {
+                            throw new ClusterException("already in snapshot");
+                        }
+                        inSnapshot = true;
+                        return Action.CONTINUE;
+
+                    case END:
+                        if (!inSnapshot)
+                        {
+                            throw new ClusterException("missing begin snapshot");
+                        }
+                        isDone = true;
+                        endPosition = header.position();
+                        return Action.BREAK;
+                }
+            }
+
+            return ControlledFragmentHandler.Action.CONTINUE;
+        }
+    }
+}
@@ -15,115 +15,567 @@
  */
 package io.aeron.cluster;
 
-import org.agrona.DeadlineTimerWheel;
-import org.agrona.collections.Long2LongHashMap;
+import org.agrona.BitUtil;
+import org.agrona.collections.Hashing;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Arrays;
 
-class TimerService implements DeadlineTimerWheel.TimerHandler
+/**
+ * Timers for the cluster scheduled by correlation id on a hierarchy of timer wheels.
+ * <p>
+ * The first wheel has a slot for each tick. Each subsequent wheel has slots which span a full rotation of the wheel
+ * below it, and timers are cascaded down to the wheel below as the current tick reaches their slot. Timers beyond the
+ * span of the top wheel are held in an overflow bucket which is re-examined each rotation of the top wheel. Each slot
+ * is a doubly linked list of timers, so scheduling and cancelling are constant time and only due timers are visited
+ * on expiry regardless of how many are scheduled.
+ * <p>
+ * Timers are held in parallel arrays indexed by an open-addressed table keyed on correlation id, so there is a single
+ * index to maintain and no allocation once capacity has been reached.
+ * <p>
+ * When an expiry batch limit is set, expired timers are passed to {@link TimerHandler#onTimerEvents(long[], int)}
+ * together. Timers which could not be handled remain pending and are retried, ahead of any other expiry, on the
+ * next poll.
+ */
+class TimerService
 {
-    private static final int POLL_LIMIT = 20;
+    /**
+     * Handler for timers which have expired.
+     */
+    interface TimerHandler
+    {
+        /**
+         * A timer has expired.
+         *
+         * @param correlationId of the timer.
+         * @return true if the timer was handled or false if it should be retried.
+         */
+        boolean onTimerEvent(long correlationId);
+
+        /**
+         * A batch of timers have expired in deadline order.
+         *
+         * @param correlationIds of the timers.
+         * @param count          of the timers in the array.
+         * @return the number of timers from the start of the batch which were handled. The remainder are retried.
+         */
+        int onTimerEvents(long[] correlationIds, int count);
+    }
+
+    static final int POLL_LIMIT = 20;
+    static final int MAX_LEVELS = 4;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NULL_NODE = -1;
+    private static final int PENDING_SLOT = -1;
+    private static final int FREE_SLOT = -2;
+
+    private final TimerHandler timerHandler;
+    private final long startTime;
+    private final int resolutionBitsToShift;
+    private final int wheelBits;
+    private final int tickMask;
+    private final int levels;
+    private final int overflowSlot;
+    private final int[] slotHeads;
+    private long currentTick;
 
-    private boolean isAbort;
-    private final ConsensusModuleAgent consensusModuleAgent;
-    private final DeadlineTimerWheel timerWheel;
-    private final Long2LongHashMap timerIdByCorrelationIdMap = new Long2LongHashMap(Long.MAX_VALUE);
-    private final Long2LongHashMap correlationIdByTimerIdMap = new Long2LongHashMap(Long.MAX_VALUE);
+    private long[] correlationIds;
+    private long[] deadlines;
+    private int[] nextNodes;
+    private int[] prevNodes;
+    private int[] nodeSlots;
+    private int nodeLimit;
+    private int freeNode = NULL_NODE;
+    private int timerCount;
+
+    private int[] index;
+    private int indexMask;
+
+    private final int expiryBatchLimit;
+    private final int[] pendingNodes;
+    private final long[] pendingCorrelationIds;
+    private int pendingCount;
 
     TimerService(
-        final ConsensusModuleAgent consensusModuleAgent,
-        final TimeUnit timeUnit,
+        final TimerHandler timerHandler,
         final long startTime,
         final long tickResolution,
         final int ticksPerWheel)
     {
-        this.consensusModuleAgent = consensusModuleAgent;
-        timerWheel = new DeadlineTimerWheel(timeUnit, startTime, tickResolution, ticksPerWheel);
+        this(timerHandler, startTime, tickResolution, ticksPerWheel, 0);
+    }
+
+    TimerService(
+        final TimerHandler timerHandler,
+        final long startTime,
+        final long tickResolution,
+        final int ticksPerWheel,
+        final int expiryBatchLimit)
+    {
+        if (!BitUtil.isPowerOfTwo(tickResolution))
+        {
+            throw new IllegalArgumentException("tick resolution must be a power of two: " + tickResolution);
+        }
+
+        if (!BitUtil.isPowerOfTwo(ticksPerWheel))
+        {
+            throw new IllegalArgumentException("ticks per wheel must be a power of two: " + ticksPerWheel);
+        }
+
+        if (expiryBatchLimit < 0)
+        {
+            throw new IllegalArgumentException("expiry batch limit must not be negative: " + expiryBatchLimit);
+        }
+
+        this.timerHandler = timerHandler;
+        this.startTime = startTime;
+        this.resolutionBitsToShift = Long.numberOfTrailingZeros(tickResolution);
+        this.wheelBits = Integer.numberOfTrailingZeros(ticksPerWheel);
+        this.tickMask = ticksPerWheel - 1;
+        this.levels = 0 == wheelBits ? 1 : Math.min(MAX_LEVELS, (Long.SIZE - 2) / wheelBits);
+        this.overflowSlot = levels * ticksPerWheel;
+        this.slotHeads = new int[overflowSlot + 1];
+        Arrays.fill(slotHeads, NULL_NODE);
+
+        correlationIds = new long[INITIAL_CAPACITY];
+        deadlines = new long[INITIAL_CAPACITY];
+        nextNodes = new int[INITIAL_CAPACITY];
+        prevNodes = new int[INITIAL_CAPACITY];
+        nodeSlots = new int[INITIAL_CAPACITY];
+        index = new int[INITIAL_CAPACITY * 2];
+        indexMask = index.length - 1;
+        Arrays.fill(index, NULL_NODE);
+
+        this.expiryBatchLimit = expiryBatchLimit;
+        this.pendingNodes = new int[expiryBatchLimit];
+        this.pendingCorrelationIds = new long[expiryBatchLimit];
+    }
+
+    /**
+     * Number of timers which are scheduled, including any which have expired and are pending being handled.
+     *
+     * @return number of timers which are scheduled.
+     */
+    int timerCount()
+    {
+        return timerCount;
     }
 
     int poll(final long now)
     {
+        if (expiryBatchLimit > 0)
+        {
+            return pollBatch(now);
+        }
+
+        final long targetTick = tick(now);
         int expired = 0;
-        isAbort = false;
 
-        do
+        while (true)
         {
-            expired += timerWheel.poll(now, this, POLL_LIMIT);
+            int node = slotHeads[(int)(currentTick & tickMask)];
+            while (NULL_NODE != node && expired < POLL_LIMIT)
+            {
+                final int nextNode = nextNodes[node];
 
-            if (isAbort)
+                if (deadlines[node] <= now)
+                {
+                    if (!timerHandler.onTimerEvent(correlationIds[node]))
+                    {
+                        return expired;
+                    }
+
+                    unlink(node);
+                    removeFromIndex(node);
+                    freeNode(node);
+                    expired++;
+                }
+
+                node = nextNode;
+            }
+
+            if (expired >= POLL_LIMIT || !advance(targetTick))
             {
                 break;
             }
         }
-        while (expired < POLL_LIMIT && timerWheel.currentTickTime() < now);
 
         return expired;
     }
 
     long currentTickTime()
     {
-        return timerWheel.currentTickTime();
+        return ((currentTick + 1) << resolutionBitsToShift) + startTime;
     }
 
     void currentTickTime(final long timestamp)
     {
-        timerWheel.currentTickTime(timestamp);
+        final long tick = tick(timestamp);
+        if (tick > currentTick)
+        {
+            currentTick = tick;
+            relinkAll();
+        }
     }
 
-    public boolean onTimerExpiry(final TimeUnit timeUnit, final long now, final long timerId)
+    void scheduleTimer(final long correlationId, final long deadline)
     {
-        final long correlationId = correlationIdByTimerIdMap.get(timerId);
-
-        if (consensusModuleAgent.onTimerEvent(correlationId))
+        int node = findNode(correlationId);
+        if (NULL_NODE != node)
         {
-            correlationIdByTimerIdMap.remove(timerId);
-            timerIdByCorrelationIdMap.remove(correlationId);
+            removeTimer(node);
+        }
 
+        node = allocateNode();
+        correlationIds[node] = correlationId;
+        deadlines[node] = deadline;
+        addToIndex(node);
+        link(node);
+        timerCount++;
+    }
+
+    boolean cancelTimer(final long correlationId)
+    {
+        final int node = findNode(correlationId);
+        if (NULL_NODE != node)
+        {
+            removeTimer(node);
             return true;
         }
-        else
+
+        return false;
+    }
+
+    void snapshot(final ConsensusModuleSnapshotTaker snapshotTaker)
+    {
+        for (int node = 0; node < nodeLimit; node++)
+        {
+            if (FREE_SLOT != nodeSlots[node])
+            {
+                snapshotTaker.snapshotTimer(correlationIds[node], deadlines[node]);
+            }
+        }
+    }
+
+    private int pollBatch(final long now)
+    {
+        int handled = 0;
+        if (pendingCount > 0)
+        {
+            handled = handlePending();
+            if (pendingCount > 0)
+            {
+                return handled;
+            }
+        }
+
+        final long targetTick = tick(now);
+
+        while (true)
+        {
+            int node = slotHeads[(int)(currentTick & tickMask)];
+            while (NULL_NODE != node && pendingCount < expiryBatchLimit)
+            {
+                final int nextNode = nextNodes[node];
+
+                if (deadlines[node] <= now)
+                {
+                    unlink(node);
+                    nodeSlots[node] = PENDING_SLOT;
+                    pendingNodes[pendingCount] = node;
+                    pendingCorrelationIds[pendingCount] = correlationIds[node];
+                    pendingCount++;
+                }
+
+                node = nextNode;
+            }
+
+            if (pendingCount >= expiryBatchLimit || !advance(targetTick))
+            {
+                break;
+            }
+        }
+
+        if (pendingCount > 0)
         {
-            isAbort = true;
+            handled += handlePending();
+        }
+
+        return handled;
+    }
+
+    private int handlePending()
+    {
+        final int handled = timerHandler.onTimerEvents(pendingCorrelationIds, pendingCount);
+
+        for (int i = 0; i < handled; i++)
+        {
+            final int node = pendingNodes[i];
+            removeFromIndex(node);
+            freeNode(node);
+        }
+
+        final int remaining = pendingCount - handled;
+        if (remaining > 0 && handled > 0)
+        {
+            System.arraycopy(pendingNodes, handled, pendingNodes, 0, remaining);
+            System.arraycopy(pendingCorrelationIds, handled, pendingCorrelationIds, 0, remaining);
+        }
+        pendingCount = remaining;
 
+        return handled;
+    }
+
+    private boolean advance(final long targetTick)
+    {
+        if (currentTick >= targetTick)
+        {
+            return false;
+        }
+
+        if (0 == timerCount - pendingCount)
+        {
+            currentTick = targetTick;
             return false;
         }
+
+        final long tick = ++currentTick;
+
+        if (0 == (tick & ((1L << (wheelBits * levels)) - 1)))
+        {
+            relinkSlot(overflowSlot);
+        }
+
+        for (int level = levels - 1; level > 0; level--)
+        {
+            final int shift = wheelBits * level;
+            if (0 == (tick & ((1L << shift) - 1)))
+            {
+                relinkSlot((level << wheelBits) + (int)((tick >> shift) & tickMask));
+            }
+        }
+
+        return true;
     }
 
-    void scheduleTimer(final long correlationId, final long deadline)
+    private long tick(final long time)
     {
-        cancelTimer(correlationId);
+        return (time - startTime) >> resolutionBitsToShift;
+    }
+
+    private void link(final int node)
+    {
+        final long deadlineTick = Math.max(tick(deadlines[node]), currentTick);
+        final long delta = deadlineTick - currentTick;
+
+        int slot = overflowSlot;
+        for (int level = 0; level < levels; level++)
+        {
+            final int shift = wheelBits * level;
+            if (delta < (1L << (shift + wheelBits)))
+            {
+                slot = (level << wheelBits) + (int)((deadlineTick >> shift) & tickMask);
+                break;
+            }
+        }
 
-        final long timerId = timerWheel.scheduleTimer(deadline);
-        timerIdByCorrelationIdMap.put(correlationId, timerId);
-        correlationIdByTimerIdMap.put(timerId, correlationId);
+        final int head = slotHeads[slot];
+        nextNodes[node] = head;
+        prevNodes[node] = NULL_NODE;
+        nodeSlots[node] = slot;
+        if (NULL_NODE != head)
+        {
+            prevNodes[head] = node;
+        }
+        slotHeads[slot] = node;
     }
 
-    boolean cancelTimer(final long correlationId)
+    private void unlink(final int node)
     {
-        final long timerId = timerIdByCorrelationIdMap.remove(correlationId);
-        if (Long.MAX_VALUE != timerId)
+        final int nextNode = nextNodes[node];
+        final int prevNode = prevNodes[node];
+
+        if (NULL_NODE != prevNode)
         {
-            timerWheel.cancelTimer(timerId);
-            correlationIdByTimerIdMap.remove(timerId);
+            nextNodes[prevNode] = nextNode;
+        }
+        else
+        {
+            slotHeads[nodeSlots[node]] = nextNode;
+        }
 
-            return true;
+        if (NULL_NODE != nextNode)
+        {
+            prevNodes[nextNode] = prevNode;
         }
+    }
 
-        return false;
+    private void relinkSlot(final int slot)
+    {
+        int node = slotHeads[slot];
+        slotHeads[slot] = NULL_NODE;
+
+        while (NULL_NODE != node)
+        {
+            final int nextNode = nextNodes[node];
+            link(node);
+            node = nextNode;
+        }
     }
 
-    void snapshot(final ConsensusModuleSnapshotTaker snapshotTaker)
+    private void relinkAll()
     {
-        final Long2LongHashMap.EntryIterator iter = timerIdByCorrelationIdMap.entrySet().iterator();
+        Arrays.fill(slotHeads, NULL_NODE);
 
-        while (iter.hasNext())
+        for (int node = 0; node < nodeLimit; node++)
         {
-            iter.next();
+            if (nodeSlots[node] >= 0)
+            {
+                link(node);
+            }
+        }
+    }
 
-            final long correlationId = iter.getLongKey();
-            final long deadline = timerWheel.deadline(iter.getLongValue());
+    private void removeTimer(final int node)
+    {
+        if (PENDING_SLOT == nodeSlots[node])
+        {
+            for (int i = 0; i < pendingCount; i++)
+            {
+                if (pendingNodes[i] == node)
+                {
+                    final int remaining = pendingCount - i - 1;
+                    System.arraycopy(pendingNodes, i + 1, pendingNodes, i, remaining);
+                    System.arraycopy(pendingCorrelationIds, i + 1, pendingCorrelationIds, i, remaining);
+                    pendingCount--;
+                    break;
+                }
+            }
+        }
+        else
+        {
+            unlink(node);
+        }
+
+        removeFromIndex(node);
+        freeNode(node);
+    }
+
+    private int allocateNode()
+    {
+        if (NULL_NODE != freeNode)
+        {
+            final int node = freeNode;
+            freeNode = nextNodes[node];
+            return node;
+        }
 
-            snapshotTaker.snapshotTimer(correlationId, deadline);
+        if (nodeLimit == correlationIds.length)
+        {
+            increaseCapacity();
+        }
+
+        return nodeLimit++;
+    }
+
+    private void freeNode(final int node)
+    {
+        nodeSlots[node] = FREE_SLOT;
+        nextNodes[node] = freeNode;
+        freeNode = node;
+        timerCount--;
+    }
+
+    private void increaseCapacity()
+    {
+        final int capacity = correlationIds.length << 1;
+        if (capacity < 0)
+        {
+            throw new IllegalStateException("max capacity reached: " + correlationIds.length);
+        }
+
+        correlationIds = Arrays.copyOf(correlationIds, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        nextNodes = Arrays.copyOf(nextNodes, capacity);
+        prevNodes = Arrays.copyOf(prevNodes, capacity);
+        nodeSlots = Arrays.copyOf(nodeSlots, capacity);
+
+        index = new int[capacity << 1];
+        indexMask = index.length - 1;
+        Arrays.fill(index, NULL_NODE);
+
+        for (int node = 0; node < nodeLimit; node++)
+        {
+            if (FREE_SLOT != nodeSlots[node])
+            {
+                addToIndex(node);
+            }
+        }
+    }
+
+    private int findNode(final long correlationId)
+    {
+        final int[] index = this.index;
+        final int mask = indexMask;
+        int i = Hashing.hash(correlationId, mask);
+
+        int node;
+        while (NULL_NODE != (node = index[i]))
+        {
+            if (correlationIds[node] == correlationId)
+            {
+                return node;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        return NULL_NODE;
+    }
+
+    private void addToIndex(final int node)
+    {
+        final int mask = indexMask;
+        int i = Hashing.hash(correlationIds[node], mask);
+
+        while (NULL_NODE != index[i])
+        {
+            i = (i + 1) & mask;
+        }
+
+        index[i] = node;
+    }
+
+    private void removeFromIndex(final int node)
+    {
+        final int[] index = this.index;
+        final int mask = indexMask;
+        int deleteIndex = Hashing.hash(correlationIds[node], mask);
+
+        while (index[deleteIndex] != node)
+        {
+            deleteIndex = (deleteIndex + 1) & mask;
+        }
+
+        index[deleteIndex] = NULL_NODE;
+
+        int i = deleteIndex;
+        while (true)
+        {
+            i = (i + 1) & mask;
+            final int candidate = index[i];
+            if (NULL_NODE == candidate)
+            {
+                break;
+            }
+
+            final int hash = Hashing.hash(correlationIds[candidate], mask);
+            if ((i < hash && (hash <= deleteIndex || deleteIndex <= i)) || (hash <= deleteIndex && deleteIndex <= i))
+            {
+                index[deleteIndex] = candidate;
+                index[i] = NULL_NODE;
+                deleteIndex = i;
+            }
         }
     }
 }
@@ -79,6 +79,7 @@ public final class AeronCluster implements AutoCloseable
     private final EgressListener egressListener;
     private final ControlledFragmentAssembler controlledFragmentAssembler;
     private final ControlledEgressListener controlledEgressListener;
+    private final EgressDemultiplexer egressDemultiplexer;
     private Int2ObjectHashMap<MemberEndpoint> endpointByMemberIdMap;
 
     /**
@@ -211,6 +212,7 @@ public final class AeronCluster implements AutoCloseable
         this.controlledEgressListener = ctx.controlledEgressListener();
         this.controlledFragmentAssembler = new ControlledFragmentAssembler(
             this::onControlledFragment, 0, ctx.isDirectAssemblers());
+        this.egressDemultiplexer = ctx.egressDemultiplexer();
 
         sessionMessageHeaderEncoder
             .wrapAndApplyHeader(headerBuffer, 0, messageHeaderEncoder)
@@ -236,9 +238,17 @@ public final class AeronCluster implements AutoCloseable
             closeSession();
         }
 
+        if (null != egressDemultiplexer)
+        {
+            egressDemultiplexer.remove(this);
+        }
+
         if (!ctx.ownsAeronClient())
         {
-            CloseHelper.close(subscription);
+            if (null == egressDemultiplexer)
+            {
+                CloseHelper.close(subscription);
+            }
             CloseHelper.close(publication);
         }
 
@@ -434,11 +444,17 @@ public final class AeronCluster implements AutoCloseable
      * {@link Context#egressListener()}.
      * <p>
      * <b>Note:</b> if {@link Context#egressListener()} is not set then a {@link ConfigurationException} could result.
+     * If an {@link EgressDemultiplexer} is shared then egress is polled for all the clients sharing it.
      *
      * @return the number of fragments processed.
      */
     public int pollEgress()
     {
+        if (null != egressDemultiplexer)
+        {
+            return egressDemultiplexer.poll();
+        }
+
         return subscription.poll(fragmentAssembler, FRAGMENT_LIMIT);
     }
 
@@ -447,12 +463,17 @@ public final class AeronCluster implements AutoCloseable
      * {@link Context#controlledEgressListener()}.
      * <p>
      * <b>Note:</b> if {@link Context#controlledEgressListener()} is not set then a {@link ConfigurationException}
-     * could result.
+     * could result. If an {@link EgressDemultiplexer} is shared then egress is polled for all the clients sharing it.
      *
      * @return the number of fragments processed.
      */
     public int controlledPollEgress()
     {
+        if (null != egressDemultiplexer)
+        {
+            return egressDemultiplexer.controlledPoll();
+        }
+
         return subscription.controlledPoll(controlledFragmentAssembler, FRAGMENT_LIMIT);
     }
 
@@ -543,7 +564,7 @@ public final class AeronCluster implements AutoCloseable
         endpointByMemberIdMap = tempMap;
     }
 
-    private void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
     {
         messageHeaderDecoder.wrap(buffer, offset);
 
@@ -608,7 +629,7 @@ public final class AeronCluster implements AutoCloseable
         }
     }
 
-    private ControlledFragmentHandler.Action onControlledFragment(
+    ControlledFragmentHandler.Action onControlledFragment(
         final DirectBuffer buffer, final int offset, final int length, final Header header)
     {
         messageHeaderDecoder.wrap(buffer, offset);
@@ -810,6 +831,16 @@ public final class AeronCluster implements AutoCloseable
          */
         public static final int EGRESS_STREAM_ID_DEFAULT = 102;
 
+        /**
+         * Maximum number of requests which can be in flight awaiting a response when using a {@link RequestCorrelator}.
+         */
+        public static final String REQUEST_WINDOW_PROP_NAME = "aeron.cluster.request.window";
+
+        /**
+         * Default maximum number of requests which can be in flight awaiting a response.
+         */
+        public static final int REQUEST_WINDOW_DEFAULT = 64;
+
         /**
          * The timeout in nanoseconds to wait for a message.
          *
@@ -880,6 +911,16 @@ public final class AeronCluster implements AutoCloseable
         {
             return Integer.getInteger(EGRESS_STREAM_ID_PROP_NAME, EGRESS_STREAM_ID_DEFAULT);
         }
+
+        /**
+         * The value {@link #REQUEST_WINDOW_DEFAULT} or system property {@link #REQUEST_WINDOW_PROP_NAME} if set.
+         *
+         * @return {@link #REQUEST_WINDOW_DEFAULT} or system property {@link #REQUEST_WINDOW_PROP_NAME} if set.
+         */
+        public static int requestWindow()
+        {
+            return Integer.getInteger(REQUEST_WINDOW_PROP_NAME, REQUEST_WINDOW_DEFAULT);
+        }
     }
 
     /**
@@ -910,6 +951,7 @@ public final class AeronCluster implements AutoCloseable
         private boolean isDirectAssemblers = false;
         private EgressListener egressListener;
         private ControlledEgressListener controlledEgressListener;
+        private EgressDemultiplexer egressDemultiplexer;
 
         /**
          * Perform a shallow copy of the object.
@@ -974,6 +1016,12 @@ public final class AeronCluster implements AutoCloseable
                             "controlledEgressListener must be specified on AeronCluster.Context");
                     };
             }
+
+            if (null != egressDemultiplexer && egressDemultiplexer.subscription().streamId() != egressStreamId)
+            {
+                throw new ConfigurationException(
+                    "egressDemultiplexer must subscribe to the egressStreamId=" + egressStreamId);
+            }
         }
 
         /**
@@ -1343,6 +1391,30 @@ public final class AeronCluster implements AutoCloseable
             return egressListener;
         }
 
+        /**
+         * Set the {@link EgressDemultiplexer} which shares its egress subscription with other clients once connected.
+         * The demultiplexer must subscribe to the {@link #egressChannel()} and {@link #egressStreamId()} before
+         * connecting so no egress for the session is missed. The cluster should multiplex egress to benefit.
+         *
+         * @param egressDemultiplexer to share once connected or null for a subscription of its own.
+         * @return this for a fluent API.
+         */
+        public Context egressDemultiplexer(final EgressDemultiplexer egressDemultiplexer)
+        {
+            this.egressDemultiplexer = egressDemultiplexer;
+            return this;
+        }
+
+        /**
+         * Get the {@link EgressDemultiplexer} which shares its egress subscription with other clients once connected.
+         *
+         * @return the {@link EgressDemultiplexer} which shares its egress subscription or null if not shared.
+         */
+        public EgressDemultiplexer egressDemultiplexer()
+        {
+            return egressDemultiplexer;
+        }
+
         /**
          * Set the {@link ControlledEgressListener} function that will be called when polling for egress via
          * {@link AeronCluster#controlledPollEgress()}.
@@ -1654,15 +1726,30 @@ public final class AeronCluster implements AutoCloseable
 
         private AeronCluster newInstance()
         {
-            return new AeronCluster(
+            final EgressDemultiplexer egressDemultiplexer = ctx.egressDemultiplexer();
+            Subscription subscription = egressSubscription;
+            if (null != egressDemultiplexer)
+            {
+                CloseHelper.close(egressSubscription);
+                subscription = egressDemultiplexer.subscription();
+            }
+
+            final AeronCluster aeronCluster = new AeronCluster(
                 ctx,
                 messageHeaderEncoder,
                 ingressPublication,
-                egressSubscription,
+                subscription,
                 endpointByMemberIdMap,
                 clusterSessionId,
                 leadershipTermId,
                 leaderMemberId);
+
+            if (null != egressDemultiplexer)
+            {
+                egressDemultiplexer.add(aeronCluster);
+            }
+
+            return aeronCluster;
         }
     }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.client;
+
+import io.aeron.Aeron;
+import io.aeron.ControlledFragmentAssembler;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.cluster.codecs.*;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+
+/**
+ * Shares a single egress {@link Subscription} between many {@link AeronCluster} clients in the same process by
+ * dispatching each egress message to the client with the matching cluster session id.
+ * <p>
+ * Used with a cluster which multiplexes egress so sessions with the same response channel share a publication. The
+ * subscription should be added before the clients connect on the same egress channel and stream id, and the clients
+ * are then added automatically when connected with {@link AeronCluster.Context#egressDemultiplexer(EgressDemultiplexer)}
+ * set. Polling the egress of any of the clients polls for all of them.
+ * <p>
+ * <b>Note:</b> Instances of this class are not threadsafe and the clients sharing it should be used from one thread.
+ */
+public final class EgressDemultiplexer implements AutoCloseable
+{
+    /**
+     * Default limit for the number of fragments to be consumed in a single poll.
+     */
+    public static final int FRAGMENT_LIMIT = 10;
+
+    private final int fragmentLimit;
+    private final Subscription subscription;
+    private final Long2ObjectHashMap<AeronCluster> clusterBySessionIdMap = new Long2ObjectHashMap<>();
+    private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+    private final SessionMessageHeaderDecoder sessionMessageHeaderDecoder = new SessionMessageHeaderDecoder();
+    private final NewLeaderEventDecoder newLeaderEventDecoder = new NewLeaderEventDecoder();
+    private final SessionEventDecoder sessionEventDecoder = new SessionEventDecoder();
+    private final FragmentAssembler fragmentAssembler = new FragmentAssembler(this::onFragment);
+    private final ControlledFragmentAssembler controlledFragmentAssembler =
+        new ControlledFragmentAssembler(this::onControlledFragment);
+
+    /**
+     * Construct a demultiplexer for a subscription to the egress channel.
+     *
+     * @param subscription to the egress channel which is owned by the demultiplexer.
+     */
+    public EgressDemultiplexer(final Subscription subscription)
+    {
+        this(subscription, FRAGMENT_LIMIT);
+    }
+
+    /**
+     * Construct a demultiplexer for a subscription to the egress channel.
+     *
+     * @param subscription  to the egress channel which is owned by the demultiplexer.
+     * @param fragmentLimit for the number of fragments to be consumed in a single poll.
+     */
+    public EgressDemultiplexer(final Subscription subscription, final int fragmentLimit)
+    {
+        this.subscription = subscription;
+        this.fragmentLimit = fragmentLimit;
+    }
+
+    /**
+     * Get the {@link Subscription} to the egress channel shared by the clients.
+     *
+     * @return the {@link Subscription} to the egress channel shared by the clients.
+     */
+    public Subscription subscription()
+    {
+        return subscription;
+    }
+
+    /**
+     * Number of clients which have egress dispatched by this demultiplexer.
+     *
+     * @return number of clients which have egress dispatched by this demultiplexer.
+     */
+    public int clientCount()
+    {
+        return clusterBySessionIdMap.size();
+    }
+
+    /**
+     * Poll the subscription for egress which is dispatched to the {@link AeronCluster.Context#egressListener()}
+     * of the client with the matching cluster session id.
+     *
+     * @return the number of fragments processed.
+     */
+    public int poll()
+    {
+        return subscription.poll(fragmentAssembler, fragmentLimit);
+    }
+
+    /**
+     * Poll the subscription for egress which is dispatched to the
+     * {@link AeronCluster.Context#controlledEgressListener()} of the client with the matching cluster session id.
+     *
+     * @return the number of fragments processed.
+     */
+    public int controlledPoll()
+    {
+        return subscription.controlledPoll(controlledFragmentAssembler, fragmentLimit);
+    }
+
+    /**
+     * Close the subscription. The clients should be closed first.
+     */
+    public void close()
+    {
+        CloseHelper.close(subscription);
+        clusterBySessionIdMap.clear();
+    }
+
+    void add(final AeronCluster aeronCluster)
+    {
+        clusterBySessionIdMap.put(aeronCluster.clusterSessionId(), aeronCluster);
+    }
+
+    void remove(final AeronCluster aeronCluster)
+    {
+        clusterBySessionIdMap.remove(aeronCluster.clusterSessionId());
+    }
+
+    private void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        final AeronCluster aeronCluster = clusterBySessionIdMap.get(clusterSessionId(buffer, offset));
+        if (null != aeronCluster)
+        {
+            aeronCluster.onFragment(buffer, offset, length, header);
+        }
+    }
+
+    private ControlledFragmentHandler.Action onControlledFragment(
+        final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        final AeronCluster aeronCluster = clusterBySessionIdMap.get(clusterSessionId(buffer, offset));
+        if (null != aeronCluster)
+        {
+            return aeronCluster.onControlledFragment(buffer, offset, length, header);
+        }
+
+        return ControlledFragmentHandler.Action.CONTINUE;
+    }
+
+    private long clusterSessionId(final DirectBuffer buffer, final int offset)
+    {
+        messageHeaderDecoder.wrap(buffer, offset);
+
+        final int templateId = messageHeaderDecoder.templateId();
+        final int blockLength = messageHeaderDecoder.blockLength();
+        final int version = messageHeaderDecoder.version();
+        final int bodyOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH;
+
+        switch (templateId)
+        {
+            case SessionMessageHeaderDecoder.TEMPLATE_ID:
+                return sessionMessageHeaderDecoder.wrap(buffer, bodyOffset, blockLength, version).clusterSessionId();
+
+            case NewLeaderEventDecoder.TEMPLATE_ID:
+                return newLeaderEventDecoder.wrap(buffer, bodyOffset, blockLength, version).clusterSessionId();
+
+            case SessionEventDecoder.TEMPLATE_ID:
+                sessionEventDecoder.wrap(buffer, bodyOffset, blockLength, version);
+                if (EventCode.OK == sessionEventDecoder.code())
+                {
+                    // The connect response has already been consumed by the client while connecting.
+                    return Aeron.NULL_VALUE;
+                }
+
+                return sessionEventDecoder.clusterSessionId();
+        }
+
+        return Aeron.NULL_VALUE;
+    }
+}
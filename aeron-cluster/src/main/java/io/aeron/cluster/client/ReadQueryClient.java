@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.client;
+
+import io.aeron.Aeron;
+import io.aeron.FragmentAssembler;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.MessageHeaderEncoder;
+import io.aeron.cluster.codecs.ReadQueryEncoder;
+import io.aeron.cluster.codecs.ReadQueryResponseDecoder;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+
+/**
+ * Client for sending read only queries directly to a member of the cluster, which can be a follower, rather than
+ * through the log. Each query carries the log position the member must have applied before it is served so a client
+ * can read its own writes, e.g. by querying at a position it has previously been given in a response.
+ * <p>
+ * Responses are delivered to the {@link ResponseListener} during {@link #poll()}.
+ * <p>
+ * <b>Note:</b> Instances of this class are not threadsafe.
+ */
+public final class ReadQueryClient implements FragmentHandler, AutoCloseable
+{
+    /**
+     * Listener for the responses to read only queries.
+     */
+    @FunctionalInterface
+    public interface ResponseListener
+    {
+        /**
+         * Response to a read only query.
+         *
+         * @param correlationId returned from {@link #offer(long, DirectBuffer, int, int)} for the query.
+         * @param logPosition   the member had applied the log to when the query was served.
+         * @param buffer        containing the response.
+         * @param offset        at which the response begins.
+         * @param length        of the response in bytes.
+         */
+        void onResponse(long correlationId, long logPosition, DirectBuffer buffer, int offset, int length);
+    }
+
+    private static final int FRAGMENT_LIMIT = 10;
+
+    private final int headerLength;
+    private final Aeron aeron;
+    private final Publication publication;
+    private final Subscription subscription;
+    private final ResponseListener listener;
+    private final ExpandableArrayBuffer headerBuffer = new ExpandableArrayBuffer();
+    private final ReadQueryEncoder readQueryEncoder = new ReadQueryEncoder();
+    private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+    private final ReadQueryResponseDecoder responseDecoder = new ReadQueryResponseDecoder();
+    private final FragmentAssembler fragmentAssembler = new FragmentAssembler(this);
+
+    /**
+     * Create a client which sends queries to a member and receives the responses on the given channel and stream id.
+     *
+     * @param aeron            client to add the publication and subscription with.
+     * @param queryChannel     on which the member receives queries.
+     * @param queryStreamId    on which the member receives queries.
+     * @param responseChannel  on which this client receives responses.
+     * @param responseStreamId on which this client receives responses.
+     * @param listener         for the responses.
+     */
+    public ReadQueryClient(
+        final Aeron aeron,
+        final String queryChannel,
+        final int queryStreamId,
+        final String responseChannel,
+        final int responseStreamId,
+        final ResponseListener listener)
+    {
+        this.aeron = aeron;
+        this.listener = listener;
+
+        readQueryEncoder
+            .wrapAndApplyHeader(headerBuffer, 0, new MessageHeaderEncoder())
+            .correlationId(Aeron.NULL_VALUE)
+            .logPosition(Aeron.NULL_VALUE)
+            .responseStreamId(responseStreamId)
+            .responseChannel(responseChannel);
+        headerLength = MessageHeaderEncoder.ENCODED_LENGTH + readQueryEncoder.encodedLength();
+
+        Subscription subscription = null;
+        Publication publication = null;
+        try
+        {
+            subscription = aeron.addSubscription(responseChannel, responseStreamId);
+            publication = aeron.addExclusivePublication(queryChannel, queryStreamId);
+        }
+        catch (final Exception ex)
+        {
+            CloseHelper.quietClose(subscription);
+            throw ex;
+        }
+
+        this.subscription = subscription;
+        this.publication = publication;
+    }
+
+    public void close()
+    {
+        CloseHelper.close(publication);
+        CloseHelper.close(subscription);
+    }
+
+    /**
+     * Publication on which queries are sent.
+     *
+     * @return publication on which queries are sent.
+     */
+    public Publication publication()
+    {
+        return publication;
+    }
+
+    /**
+     * Subscription on which responses are received.
+     *
+     * @return subscription on which responses are received.
+     */
+    public Subscription subscription()
+    {
+        return subscription;
+    }
+
+    /**
+     * Is the client connected to the member for sending queries.
+     *
+     * @return true if the client is connected to the member for sending queries.
+     */
+    public boolean isConnected()
+    {
+        return publication.isConnected();
+    }
+
+    /**
+     * Send a query to be served once the member has applied the log to at least the given position.
+     *
+     * @param logPosition the member must have applied the log to before serving the query, or 0 for any position.
+     * @param buffer      containing the query.
+     * @param offset      at which the query begins.
+     * @param length      of the query in bytes.
+     * @return the correlation id for the query if successful otherwise the same as
+     * {@link Publication#offer(DirectBuffer, int, int)}.
+     */
+    public long offer(final long logPosition, final DirectBuffer buffer, final int offset, final int length)
+    {
+        final long correlationId = aeron.nextCorrelationId();
+        readQueryEncoder
+            .correlationId(correlationId)
+            .logPosition(logPosition);
+
+        final long result = publication.offer(headerBuffer, 0, headerLength, buffer, offset, length, null);
+
+        return result > 0 ? correlationId : result;
+    }
+
+    /**
+     * Poll for responses to queries.
+     *
+     * @return the number of fragments consumed.
+     */
+    public int poll()
+    {
+        return subscription.poll(fragmentAssembler, FRAGMENT_LIMIT);
+    }
+
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        messageHeaderDecoder.wrap(buffer, offset);
+
+        final int schemaId = messageHeaderDecoder.schemaId();
+        if (schemaId != MessageHeaderDecoder.SCHEMA_ID)
+        {
+            throw new ClusterException("expected schemaId=" + MessageHeaderDecoder.SCHEMA_ID + ", actual=" + schemaId);
+        }
+
+        if (messageHeaderDecoder.templateId() == ReadQueryResponseDecoder.TEMPLATE_ID)
+        {
+            responseDecoder.wrap(
+                buffer,
+                offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                messageHeaderDecoder.blockLength(),
+                messageHeaderDecoder.version());
+
+            final int payloadOffset =
+                offset + MessageHeaderDecoder.ENCODED_LENGTH + messageHeaderDecoder.blockLength();
+
+            listener.onResponse(
+                responseDecoder.correlationId(),
+                responseDecoder.logPosition(),
+                buffer,
+                payloadOffset,
+                offset + length - payloadOffset);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.client;
+
+import io.aeron.DirectBufferVector;
+import io.aeron.Publication;
+import io.aeron.cluster.codecs.EventCode;
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.SystemNanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.util.Arrays;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
+/**
+ * Correlates responses from a cluster with the requests sent by an {@link AeronCluster} client so requests can be
+ * pipelined without waiting for each response in turn.
+ * <p>
+ * Each request is prefixed with a correlation id, encoded as a little endian long of {@link #CORRELATION_ID_LENGTH},
+ * which the clustered service is expected to put at the start of its response. Requests in flight are tracked in an
+ * open addressed table of primitives so no allocation takes place once constructed. The number of requests in flight
+ * is bounded by a window and requests which have not had a response by their deadline are timed out.
+ * <p>
+ * The correlator should be set as the {@link AeronCluster.Context#egressListener(EgressListener)}, or given to an
+ * {@link EgressAdapter}, and then have {@link #aeronCluster(AeronCluster)} set once connected. Egress which does not
+ * match a request in flight is passed on to the delegate {@link EgressListener} if provided.
+ * <p>
+ * <b>Note:</b> Instances of this class are not threadsafe and should be used from the thread polling the egress.
+ */
+public final class RequestCorrelator implements EgressListener
+{
+    /**
+     * Length of the correlation id which prefixes requests and responses.
+     */
+    public static final int CORRELATION_ID_LENGTH = SIZE_OF_LONG;
+
+    /**
+     * Handler for the outcome of requests sent via a {@link RequestCorrelator}.
+     */
+    public interface ResponseHandler
+    {
+        /**
+         * Response received for a request in flight.
+         *
+         * @param correlationId of the request.
+         * @param timestamp     at which the request was sequenced in the cluster.
+         * @param buffer        containing the response.
+         * @param offset        at which the response begins after the correlation id.
+         * @param length        of the response in bytes after the correlation id.
+         */
+        void onResponse(long correlationId, long timestamp, DirectBuffer buffer, int offset, int length);
+
+        /**
+         * No response was received for a request before its deadline and it is no longer in flight.
+         *
+         * @param correlationId of the request.
+         */
+        void onTimeout(long correlationId);
+    }
+
+    private static final long EMPTY = 0;
+
+    private final int window;
+    private final long timeoutNs;
+    private final NanoClock nanoClock;
+    private final ResponseHandler responseHandler;
+    private final EgressListener egressListener;
+    private final int mask;
+    private final long[] correlationIds;
+    private final long[] deadlinesNs;
+    private final long[] expiredCorrelationIds;
+    private final UnsafeBuffer correlationIdBuffer = new UnsafeBuffer(new byte[CORRELATION_ID_LENGTH]);
+    private final DirectBufferVector[] vectors = new DirectBufferVector[]
+    {
+        null, new DirectBufferVector(correlationIdBuffer, 0, CORRELATION_ID_LENGTH), new DirectBufferVector()
+    };
+    private long nextCorrelationId = 1;
+    private long nextDeadlineNs = Long.MAX_VALUE;
+    private int inFlightCount = 0;
+    private AeronCluster aeronCluster;
+
+    /**
+     * Construct a correlator with a window of {@link AeronCluster.Configuration#requestWindow()} and a timeout of
+     * {@link AeronCluster.Configuration#messageTimeoutNs()}.
+     *
+     * @param responseHandler for the outcome of requests.
+     */
+    public RequestCorrelator(final ResponseHandler responseHandler)
+    {
+        this(
+            responseHandler,
+            null,
+            AeronCluster.Configuration.requestWindow(),
+            AeronCluster.Configuration.messageTimeoutNs(),
+            new SystemNanoClock());
+    }
+
+    /**
+     * Construct a correlator for requests to a cluster.
+     *
+     * @param responseHandler for the outcome of requests.
+     * @param egressListener  to which egress not matching a request in flight is passed, or null to drop it.
+     * @param window          for the maximum number of requests in flight.
+     * @param timeoutNs       default time after a request is sent by which a response is expected.
+     * @param nanoClock       for measuring the deadline of requests.
+     */
+    public RequestCorrelator(
+        final ResponseHandler responseHandler,
+        final EgressListener egressListener,
+        final int window,
+        final long timeoutNs,
+        final NanoClock nanoClock)
+    {
+        if (window < 1)
+        {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+
+        this.responseHandler = responseHandler;
+        this.egressListener = egressListener;
+        this.window = window;
+        this.timeoutNs = timeoutNs;
+        this.nanoClock = nanoClock;
+
+        final int capacity = BitUtil.findNextPositivePowerOfTwo(window << 1);
+        mask = capacity - 1;
+        correlationIds = new long[capacity];
+        deadlinesNs = new long[capacity];
+        expiredCorrelationIds = new long[window];
+    }
+
+    /**
+     * Set the client to which requests are offered once it has connected.
+     *
+     * @param aeronCluster to which requests are offered.
+     */
+    public void aeronCluster(final AeronCluster aeronCluster)
+    {
+        this.aeronCluster = aeronCluster;
+    }
+
+    /**
+     * Get the client to which requests are offered.
+     *
+     * @return the client to which requests are offered.
+     */
+    public AeronCluster aeronCluster()
+    {
+        return aeronCluster;
+    }
+
+    /**
+     * Maximum number of requests which can be in flight.
+     *
+     * @return maximum number of requests which can be in flight.
+     */
+    public int window()
+    {
+        return window;
+    }
+
+    /**
+     * Number of requests in flight awaiting a response.
+     *
+     * @return number of requests in flight awaiting a response.
+     */
+    public int inFlightCount()
+    {
+        return inFlightCount;
+    }
+
+    /**
+     * Offer a request to the cluster with the default timeout.
+     *
+     * @param buffer containing the request.
+     * @param offset at which the request begins.
+     * @param length of the request in bytes.
+     * @return the correlation id of the request if sent, {@link Publication#BACK_PRESSURED} if the window is full,
+     * otherwise the negative value returned from {@link AeronCluster#offer(DirectBufferVector[])}.
+     */
+    public long offer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        return offer(buffer, offset, length, timeoutNs);
+    }
+
+    /**
+     * Offer a request to the cluster with a specific timeout.
+     *
+     * @param buffer    containing the request.
+     * @param offset    at which the request begins.
+     * @param length    of the request in bytes.
+     * @param timeoutNs after which the request is timed out if no response has been received.
+     * @return the correlation id of the request if sent, {@link Publication#BACK_PRESSURED} if the window is full,
+     * otherwise the negative value returned from {@link AeronCluster#offer(DirectBufferVector[])}.
+     */
+    public long offer(final DirectBuffer buffer, final int offset, final int length, final long timeoutNs)
+    {
+        if (inFlightCount >= window)
+        {
+            return Publication.BACK_PRESSURED;
+        }
+
+        final long correlationId = nextCorrelationId;
+        correlationIdBuffer.putLong(0, correlationId, LITTLE_ENDIAN);
+        vectors[2].reset(buffer, offset, length);
+
+        final long result = aeronCluster.offer(vectors);
+        if (result > 0)
+        {
+            nextCorrelationId++;
+            track(correlationId, nanoClock.nanoTime() + timeoutNs);
+
+            return correlationId;
+        }
+
+        return result;
+    }
+
+    /**
+     * Poll the egress of the {@link #aeronCluster()} and time out requests which have passed their deadline.
+     *
+     * @return the number of fragments processed and requests timed out.
+     */
+    public int poll()
+    {
+        return aeronCluster.pollEgress() + expireTimedOutRequests(nanoClock.nanoTime());
+    }
+
+    /**
+     * Time out requests which have passed their deadline and notify {@link ResponseHandler#onTimeout(long)}.
+     *
+     * @param nowNs current time of the {@link NanoClock}.
+     * @return the number of requests timed out.
+     */
+    public int expireTimedOutRequests(final long nowNs)
+    {
+        if (nowNs < nextDeadlineNs)
+        {
+            return 0;
+        }
+
+        int expiredCount = 0;
+        long nextDeadlineNs = Long.MAX_VALUE;
+        for (int i = 0, length = correlationIds.length; i < length; i++)
+        {
+            if (EMPTY != correlationIds[i])
+            {
+                final long deadlineNs = deadlinesNs[i];
+                if (nowNs >= deadlineNs)
+                {
+                    expiredCorrelationIds[expiredCount++] = correlationIds[i];
+                }
+                else if (deadlineNs < nextDeadlineNs)
+                {
+                    nextDeadlineNs = deadlineNs;
+                }
+            }
+        }
+
+        this.nextDeadlineNs = nextDeadlineNs;
+
+        for (int i = 0; i < expiredCount; i++)
+        {
+            final long correlationId = expiredCorrelationIds[i];
+            remove(correlationId);
+            responseHandler.onTimeout(correlationId);
+        }
+
+        return expiredCount;
+    }
+
+    public void onMessage(
+        final long clusterSessionId,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        if (length >= CORRELATION_ID_LENGTH)
+        {
+            final long correlationId = buffer.getLong(offset, LITTLE_ENDIAN);
+            if (remove(correlationId))
+            {
+                responseHandler.onResponse(
+                    correlationId,
+                    timestamp,
+                    buffer,
+                    offset + CORRELATION_ID_LENGTH,
+                    length - CORRELATION_ID_LENGTH);
+                return;
+            }
+        }
+
+        if (null != egressListener)
+        {
+            egressListener.onMessage(clusterSessionId, timestamp, buffer, offset, length, header);
+        }
+    }
+
+    public void sessionEvent(
+        final long correlationId,
+        final long clusterSessionId,
+        final long leadershipTermId,
+        final int leaderMemberId,
+        final EventCode code,
+        final String detail)
+    {
+        if (null != egressListener)
+        {
+            egressListener.sessionEvent(
+                correlationId, clusterSessionId, leadershipTermId, leaderMemberId, code, detail);
+        }
+    }
+
+    public void newLeader(
+        final long clusterSessionId,
+        final long leadershipTermId,
+        final int leaderMemberId,
+        final String memberEndpoints)
+    {
+        if (null != egressListener)
+        {
+            egressListener.newLeader(clusterSessionId, leadershipTermId, leaderMemberId, memberEndpoints);
+        }
+    }
+
+    /**
+     * Abandon all requests in flight without notifying the {@link ResponseHandler}, such as after a reconnect.
+     */
+    public void clear()
+    {
+        Arrays.fill(correlationIds, EMPTY);
+        inFlightCount = 0;
+        nextDeadlineNs = Long.MAX_VALUE;
+    }
+
+    boolean track(final long correlationId, final long deadlineNs)
+    {
+        if (inFlightCount >= window)
+        {
+            return false;
+        }
+
+        int index = Hashing.hash(correlationId, mask);
+        while (EMPTY != correlationIds[index])
+        {
+            index = (index + 1) & mask;
+        }
+
+        correlationIds[index] = correlationId;
+        deadlinesNs[index] = deadlineNs;
+        inFlightCount++;
+
+        if (deadlineNs < nextDeadlineNs)
+        {
+            nextDeadlineNs = deadlineNs;
+        }
+
+        return true;
+    }
+
+    boolean isInFlight(final long correlationId)
+    {
+        int index = Hashing.hash(correlationId, mask);
+        long candidate;
+        while (EMPTY != (candidate = correlationIds[index]))
+        {
+            if (correlationId == candidate)
+            {
+                return true;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    private boolean remove(final long correlationId)
+    {
+        if (EMPTY == correlationId)
+        {
+            return false;
+        }
+
+        int index = Hashing.hash(correlationId, mask);
+        long candidate;
+        while (EMPTY != (candidate = correlationIds[index]))
+        {
+            if (correlationId == candidate)
+            {
+                correlationIds[index] = EMPTY;
+                if (--inFlightCount == 0)
+                {
+                    nextDeadlineNs = Long.MAX_VALUE;
+                }
+
+                compactChain(index);
+                return true;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    private void compactChain(final int deleteIndex)
+    {
+        int deleteIdx = deleteIndex;
+        int index = deleteIndex;
+        while (true)
+        {
+            index = (index + 1) & mask;
+            final long correlationId = correlationIds[index];
+            if (EMPTY == correlationId)
+            {
+                break;
+            }
+
+            final int hash = Hashing.hash(correlationId, mask);
+            if ((index < hash && (hash <= deleteIdx || deleteIdx <= index)) ||
+                (hash <= deleteIdx && deleteIdx <= index))
+            {
+                correlationIds[deleteIdx] = correlationId;
+                deadlinesNs[deleteIdx] = deadlinesNs[index];
+                correlationIds[index] = EMPTY;
+                deleteIdx = index;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Aeron;
+import io.aeron.ChannelUri;
+import io.aeron.Publication;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.exceptions.AeronException;
+import io.aeron.exceptions.TimeoutException;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.status.CountersReader;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.archive.codecs.SourceLocation.LOCAL;
+import static io.aeron.cluster.service.ClusteredServiceContainer.SNAPSHOT_TYPE_ID;
+import static org.agrona.concurrent.status.CountersReader.NULL_COUNTER_ID;
+
+/**
+ * Snapshot of a service which is recorded to the archive on its own thread from the sessions and the
+ * {@link SnapshotView} captured at the snapshot position, so the service can continue to process the log.
+ */
+class BackgroundSnapshot implements Runnable, AutoCloseable
+{
+    private final long logPosition;
+    private final long leadershipTermId;
+    private final TimeUnit timeUnit;
+    private final ArrayList<ClientSession> sessions;
+    private final SnapshotView snapshotView;
+    private final ClusteredServiceContainer.Context ctx;
+    private final IdleStrategy idleStrategy;
+    private final Thread thread;
+    private volatile long recordingId = NULL_VALUE;
+    private volatile boolean isDone = false;
+    private volatile Throwable error;
+
+    BackgroundSnapshot(
+        final long logPosition,
+        final long leadershipTermId,
+        final TimeUnit timeUnit,
+        final ArrayList<ClientSession> sessions,
+        final SnapshotView snapshotView,
+        final ClusteredServiceContainer.Context ctx)
+    {
+        this.logPosition = logPosition;
+        this.leadershipTermId = leadershipTermId;
+        this.timeUnit = timeUnit;
+        this.sessions = sessions;
+        this.snapshotView = snapshotView;
+        this.ctx = ctx;
+        this.idleStrategy = ctx.idleStrategy();
+        this.thread = ctx.threadFactory().newThread(this);
+
+        thread.setName(ctx.serviceName() + "-snapshot");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    long logPosition()
+    {
+        return logPosition;
+    }
+
+    /**
+     * Has the background thread finished with the snapshot, either successfully or with an error.
+     *
+     * @return true if the background thread has finished with the snapshot.
+     */
+    boolean isDone()
+    {
+        return isDone;
+    }
+
+    /**
+     * Recording id of the snapshot once it is done.
+     *
+     * @return the recording id of the snapshot once it is done.
+     * @throws ClusterException if the snapshot failed to be recorded.
+     */
+    long recordingId()
+    {
+        final Throwable error = this.error;
+        if (null != error)
+        {
+            throw new ClusterException("background snapshot failed: logPosition=" + logPosition, error);
+        }
+
+        return recordingId;
+    }
+
+    public void close()
+    {
+        thread.interrupt();
+        try
+        {
+            thread.join();
+        }
+        catch (final InterruptedException ignore)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void run()
+    {
+        final Aeron aeron = ctx.aeron();
+
+        try (AeronArchive archive = AeronArchive.connect(ctx.archiveContext().clone());
+            Publication publication = aeron.addExclusivePublication(ctx.snapshotChannel(), ctx.snapshotStreamId()))
+        {
+            final String channel = ChannelUri.addSessionId(ctx.snapshotChannel(), publication.sessionId());
+            final long subscriptionId = archive.startRecording(channel, ctx.snapshotStreamId(), LOCAL);
+            try
+            {
+                final CountersReader counters = aeron.countersReader();
+                final int counterId = awaitRecordingCounter(publication.sessionId(), counters);
+                final long recordingId = RecordingPos.getRecordingId(counters, counterId);
+
+                final ServiceSnapshotTaker snapshotTaker = new ServiceSnapshotTaker(publication, idleStrategy, null);
+                snapshotTaker.markBegin(SNAPSHOT_TYPE_ID, logPosition, leadershipTermId, 0, timeUnit, ctx.appVersion());
+                for (final ClientSession session : sessions)
+                {
+                    snapshotTaker.snapshotSession(session);
+                }
+                snapshotTaker.markEnd(SNAPSHOT_TYPE_ID, logPosition, leadershipTermId, 0, timeUnit, ctx.appVersion());
+
+                snapshotView.writeTo(publication, idleStrategy);
+
+                awaitRecordingComplete(recordingId, publication.position(), counters, counterId, archive);
+                this.recordingId = recordingId;
+            }
+            finally
+            {
+                archive.stopRecording(subscriptionId);
+            }
+        }
+        catch (final Throwable ex)
+        {
+            error = ex;
+        }
+        finally
+        {
+            isDone = true;
+        }
+    }
+
+    private int awaitRecordingCounter(final int sessionId, final CountersReader counters)
+    {
+        idleStrategy.reset();
+        int counterId = RecordingPos.findCounterIdBySession(counters, sessionId);
+        while (NULL_COUNTER_ID == counterId)
+        {
+            idle();
+            counterId = RecordingPos.findCounterIdBySession(counters, sessionId);
+        }
+
+        return counterId;
+    }
+
+    private void awaitRecordingComplete(
+        final long recordingId,
+        final long position,
+        final CountersReader counters,
+        final int counterId,
+        final AeronArchive archive)
+    {
+        idleStrategy.reset();
+        do
+        {
+            idle();
+
+            if (!RecordingPos.isActive(counters, counterId, recordingId))
+            {
+                throw new ClusterException("recording has stopped unexpectedly: " + recordingId);
+            }
+
+            archive.checkForErrorResponse();
+        }
+        while (counters.getCounterValue(counterId) < position);
+    }
+
+    private void idle()
+    {
+        if (Thread.currentThread().isInterrupted())
+        {
+            throw new TimeoutException("unexpected interrupt", AeronException.Category.ERROR);
+        }
+
+        idleStrategy.idle();
+    }
+}
@@ -38,9 +38,11 @@ final class BoundedLogAdapter implements ControlledFragmentHandler, AutoCloseabl
     private final SessionCloseEventDecoder closeEventDecoder = new SessionCloseEventDecoder();
     private final SessionMessageHeaderDecoder sessionHeaderDecoder = new SessionMessageHeaderDecoder();
     private final TimerEventDecoder timerEventDecoder = new TimerEventDecoder();
+    private final TimerEventBatchDecoder timerEventBatchDecoder = new TimerEventBatchDecoder();
     private final ClusterActionRequestDecoder actionRequestDecoder = new ClusterActionRequestDecoder();
     private final NewLeadershipTermEventDecoder newLeadershipTermEventDecoder = new NewLeadershipTermEventDecoder();
     private final MembershipChangeEventDecoder membershipChangeEventDecoder = new MembershipChangeEventDecoder();
+    private final SessionMessageBatchDecoder sessionMessageBatchDecoder = new SessionMessageBatchDecoder();
 
     private final Image image;
     private final ReadableCounter upperBound;
@@ -107,6 +109,16 @@ final class BoundedLogAdapter implements ControlledFragmentHandler, AutoCloseabl
 
         switch (templateId)
         {
+            case SessionMessageBatchDecoder.TEMPLATE_ID:
+                sessionMessageBatchDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                onSessionMessageBatch(buffer, header);
+                break;
+
             case TimerEventDecoder.TEMPLATE_ID:
                 timerEventDecoder.wrap(
                     buffer,
@@ -120,6 +132,16 @@ final class BoundedLogAdapter implements ControlledFragmentHandler, AutoCloseabl
                     timerEventDecoder.timestamp());
                 break;
 
+            case TimerEventBatchDecoder.TEMPLATE_ID:
+                timerEventBatchDecoder.wrap(
+                    buffer,
+                    offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                    messageHeaderDecoder.blockLength(),
+                    messageHeaderDecoder.version());
+
+                onTimerEventBatch(header);
+                break;
+
             case SessionOpenEventDecoder.TEMPLATE_ID:
                 openEventDecoder.wrap(
                     buffer,
@@ -209,4 +231,39 @@ final class BoundedLogAdapter implements ControlledFragmentHandler, AutoCloseabl
 
         return Action.CONTINUE;
     }
+
+    private void onSessionMessageBatch(final DirectBuffer buffer, final Header header)
+    {
+        final long logPosition = header.position();
+        final long timestamp = sessionMessageBatchDecoder.timestamp();
+
+        for (final SessionMessageBatchDecoder.SessionMessagesDecoder sessionMessage :
+            sessionMessageBatchDecoder.sessionMessages())
+        {
+            final int messageOffset = sessionMessageBatchDecoder.limit() +
+                SessionMessageBatchDecoder.SessionMessagesDecoder.messageHeaderLength();
+            final int messageLength = sessionMessage.messageLength();
+            sessionMessageBatchDecoder.limit(messageOffset + messageLength);
+
+            agent.onSessionMessage(
+                logPosition,
+                sessionMessage.clusterSessionId(),
+                timestamp,
+                buffer,
+                messageOffset,
+                messageLength,
+                header);
+        }
+    }
+
+    private void onTimerEventBatch(final Header header)
+    {
+        final long logPosition = header.position();
+        final long timestamp = timerEventBatchDecoder.timestamp();
+
+        for (final TimerEventBatchDecoder.TimersDecoder timer : timerEventBatchDecoder.timers())
+        {
+            agent.onTimerEvent(logPosition, timer.correlationId(), timestamp);
+        }
+    }
 }
@@ -15,13 +15,11 @@
  */
 package io.aeron.cluster.service;
 
-import io.aeron.Aeron;
 import io.aeron.DirectBufferVector;
 import io.aeron.Publication;
 import io.aeron.cluster.client.AeronCluster;
 import io.aeron.exceptions.RegistrationException;
 import io.aeron.logbuffer.BufferClaim;
-import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 
 /**
@@ -41,6 +39,7 @@ public class ClientSession
 
     private final ClusteredServiceAgent clusteredServiceAgent;
     private Publication responsePublication;
+    private ResponsePublicationPool responsePublicationPool;
     private boolean isClosing;
 
     ClientSession(
@@ -187,13 +186,32 @@ public class ClientSession
         return clusteredServiceAgent.tryClaim(id, responsePublication, length, bufferClaim);
     }
 
-    void connect(final Aeron aeron)
+    /**
+     * Try to claim a range in the egress of the session into which a response can be encoded in place. The cluster
+     * egress header is written to the claim so the response is encoded from {@link EgressClaim#offset()}. Once the
+     * response has been encoded then {@link EgressClaim#commit()} should be called thus making it available.
+     *
+     * @param length      of the response, in bytes, not including the cluster egress header.
+     * @param egressClaim to be populated if the claim succeeds.
+     * @return The new stream position, otherwise a negative error value as specified in
+     *         {@link io.aeron.Publication#tryClaim(int, BufferClaim)}, or {@link #MOCKED_OFFER} when not the leader.
+     * @throws IllegalArgumentException if the length plus the cluster egress header is greater than
+     *                                  {@link io.aeron.Publication#maxPayloadLength()}.
+     * @see EgressClaim
+     */
+    public long tryClaim(final int length, final EgressClaim egressClaim)
+    {
+        return clusteredServiceAgent.tryClaim(id, responsePublication, length, egressClaim);
+    }
+
+    void connect(final ResponsePublicationPool responsePublicationPool)
     {
         if (null == responsePublication)
         {
             try
             {
-                responsePublication = aeron.addPublication(responseChannel, responseStreamId);
+                responsePublication = responsePublicationPool.acquire(responseChannel, responseStreamId);
+                this.responsePublicationPool = responsePublicationPool;
             }
             catch (final RegistrationException ex)
             {
@@ -214,7 +232,10 @@ public class ClientSession
 
     void disconnect()
     {
-        CloseHelper.close(responsePublication);
-        responsePublication = null;
+        if (null != responsePublication)
+        {
+            responsePublicationPool.release(responsePublication);
+            responsePublication = null;
+        }
     }
 }
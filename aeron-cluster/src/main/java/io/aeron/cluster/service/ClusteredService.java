@@ -17,6 +17,7 @@ package io.aeron.cluster.service;
 
 import io.aeron.Image;
 import io.aeron.Publication;
+import io.aeron.cluster.client.ClusterException;
 import io.aeron.cluster.codecs.CloseReason;
 import io.aeron.logbuffer.Header;
 import org.agrona.DirectBuffer;
@@ -94,6 +95,52 @@ public interface ClusteredService
      */
     void onTakeSnapshot(Publication snapshotPublication);
 
+    /**
+     * The service should take a snapshot delta and store only its state changed since its previous snapshot, base or
+     * delta, to the provided archive {@link Publication}. Snapshot deltas are only requested when enabled for the
+     * consensus module with {@code aeron.cluster.snapshot.delta.limit}.
+     * <p>
+     * <b>Note:</b> As this is a potentially long running operation the implementation should occasional call
+     * {@link Cluster#idle()} or {@link Cluster#idle(int)}, especially in the event of back pressure.
+     *
+     * @param snapshotPublication to which the changed state should be recorded.
+     */
+    default void onTakeSnapshotDelta(Publication snapshotPublication)
+    {
+        throw new ClusterException("snapshot deltas not supported by service");
+    }
+
+    /**
+     * Load a snapshot delta on start. Deltas are loaded in the order they were taken after the base snapshot has
+     * been loaded in {@link #onStart(Cluster, Image)}.
+     * <p>
+     * <b>Note:</b> As this is a potentially long running operation the implementation should occasional call
+     * {@link Cluster#idle()} or {@link Cluster#idle(int)}, especially when polling the snapshot {@link Image}
+     * returns 0.
+     *
+     * @param snapshotImage from which the service can load its changed state.
+     */
+    default void onLoadSnapshotDelta(Image snapshotImage)
+    {
+        throw new ClusterException("snapshot deltas not supported by service");
+    }
+
+    /**
+     * Capture an immutable view of the service state for a snapshot which is written on a background thread while
+     * the service continues to process the log. Only called when the container is configured with
+     * {@link ClusteredServiceContainer.Context#isBackgroundSnapshot()}.
+     * <p>
+     * The view should be cheap to capture, e.g. by copy-on-write of persistent data structures, as the service is
+     * paused until this returns.
+     *
+     * @return view of the state to be written to the snapshot or null to take the snapshot with
+     * {@link #onTakeSnapshot(Publication)} on the service thread.
+     */
+    default SnapshotView onTakeSnapshotView()
+    {
+        return null;
+    }
+
     /**
      * Notify that the cluster node has changed role.
      *
@@ -108,6 +155,34 @@ public interface ClusteredService
      */
     void onTerminate(Cluster cluster);
 
+    /**
+     * Background work which is performed on the container thread each duty cycle, such as passing on the results of
+     * work done on other threads. Should not change state which is derived from the log.
+     *
+     * @return 0 to indicate no work was currently available, a positive value otherwise.
+     */
+    default int doBackgroundWork()
+    {
+        return 0;
+    }
+
+    /**
+     * A read only query has been received outside of the log and the log has been applied to at least the position
+     * requested. Only called when the container is configured with a
+     * {@link ClusteredServiceContainer.Context#queryChannel()}, on followers as well as the leader.
+     * <p>
+     * The query should be answered from the current state with {@link ReadQuery#respond(DirectBuffer, int, int)} and
+     * must not change state which is derived from the log.
+     *
+     * @param query  to respond to.
+     * @param buffer containing the query.
+     * @param offset at which the query begins.
+     * @param length of the query in bytes.
+     */
+    default void onReadQuery(ReadQuery query, DirectBuffer buffer, int offset, int length)
+    {
+    }
+
     /**
      * An election has been successful and a leader has entered a new term.
      *
@@ -32,8 +32,10 @@ import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.*;
 import org.agrona.concurrent.status.CountersReader;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static io.aeron.Aeron.NULL_VALUE;
 import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
@@ -63,6 +65,7 @@ class ClusteredServiceAgent implements Agent, Cluster
     private final AeronArchive.Context archiveCtx;
     private final ClusteredServiceContainer.Context ctx;
     private final Aeron aeron;
+    private final ResponsePublicationPool responsePublicationPool;
     private final AgentInvoker aeronAgentInvoker;
     private final Long2ObjectHashMap<ClientSession> sessionByIdMap = new Long2ObjectHashMap<>();
     private final Collection<ClientSession> readOnlyClientSessions = unmodifiableCollection(sessionByIdMap.values());
@@ -77,11 +80,16 @@ class ClusteredServiceAgent implements Agent, Cluster
     private final DirectBufferVector headerVector = new DirectBufferVector(headerBuffer, 0, SESSION_HEADER_LENGTH);
     private final SessionMessageHeaderEncoder sessionMessageHeaderEncoder = new SessionMessageHeaderEncoder();
     private final Runnable abortHandler = this::abort;
+    private final RecoveryProgress snapshotLoadProgress;
+    private final QueryAdapter queryAdapter;
 
     private BoundedLogAdapter logAdapter;
     private ReadableCounter roleCounter;
     private ReadableCounter commitPosition;
     private ActiveLogEvent activeLogEvent;
+    private BackgroundSnapshot backgroundSnapshot;
+    private Image loadingSnapshotImage;
+    private long snapshotBytesLoaded = 0;
     private Role role = Role.FOLLOWER;
     private String logChannel = null;
     private TimeUnit timeUnit = null;
@@ -92,16 +100,28 @@ class ClusteredServiceAgent implements Agent, Cluster
 
         archiveCtx = ctx.archiveContext();
         aeron = ctx.aeron();
+        responsePublicationPool = new ResponsePublicationPool(aeron, ctx.egressMultiplex());
         aeronAgentInvoker = ctx.aeron().conductorAgentInvoker();
         service = ctx.clusteredService();
         idleStrategy = ctx.idleStrategy();
         serviceId = ctx.serviceId();
         epochClock = ctx.epochClock();
         markFile = ctx.clusterMarkFile();
+        snapshotLoadProgress = new RecoveryProgress(
+            ctx.snapshotLoadPositionCounter(), ctx.snapshotLoadRateCounter());
 
         final String channel = ctx.serviceControlChannel();
         consensusModuleProxy = new ConsensusModuleProxy(aeron.addPublication(channel, ctx.consensusModuleStreamId()));
         serviceAdapter = new ServiceAdapter(aeron.addSubscription(channel, ctx.serviceStreamId()), this);
+
+        final String queryChannel = ctx.queryChannel();
+        queryAdapter = null == queryChannel ? null : new QueryAdapter(
+            aeron,
+            aeron.addSubscription(queryChannel, ctx.queryStreamId()),
+            service,
+            ctx.queryTimeoutNs(),
+            ctx.queryPublicationLingerTimeoutNs(),
+            ctx.droppedQueriesCounter());
         sessionMessageHeaderEncoder.wrapAndApplyHeader(headerBuffer, 0, new MessageHeaderEncoder());
         aeron.addCloseHandler(abortHandler);
     }
@@ -128,6 +148,7 @@ class ClusteredServiceAgent implements Agent, Cluster
         else
         {
             aeron.removeCloseHandler(abortHandler);
+            CloseHelper.close(backgroundSnapshot);
 
             if (isServiceActive)
             {
@@ -149,6 +170,8 @@ class ClusteredServiceAgent implements Agent, Cluster
                     session.disconnect();
                 }
 
+                CloseHelper.close(responsePublicationPool);
+                CloseHelper.close(queryAdapter);
                 CloseHelper.close(logAdapter);
                 CloseHelper.close(serviceAdapter);
                 CloseHelper.close(consensusModuleProxy);
@@ -168,6 +191,12 @@ class ClusteredServiceAgent implements Agent, Cluster
             workCount += 1;
         }
 
+        if (null != backgroundSnapshot && backgroundSnapshot.isDone())
+        {
+            completeBackgroundSnapshot();
+            workCount += 1;
+        }
+
         if (null != logAdapter)
         {
             final int polled = logAdapter.poll();
@@ -184,6 +213,13 @@ class ClusteredServiceAgent implements Agent, Cluster
             workCount += polled;
         }
 
+        if (null != queryAdapter)
+        {
+            workCount += queryAdapter.poll(appliedLogPosition(), System.nanoTime());
+        }
+
+        workCount += service.doBackgroundWork();
+
         return workCount;
     }
 
@@ -393,7 +429,7 @@ class ClusteredServiceAgent implements Agent, Cluster
 
         if (Role.LEADER == role && ctx.isRespondingService())
         {
-            session.connect(aeron);
+            session.connect(responsePublicationPool);
         }
 
         sessionByIdMap.put(clusterSessionId, session);
@@ -576,6 +612,41 @@ class ClusteredServiceAgent implements Agent, Cluster
         return offset;
     }
 
+    long tryClaim(
+        final long clusterSessionId,
+        final Publication publication,
+        final int length,
+        final EgressClaim egressClaim)
+    {
+        if (role != Cluster.Role.LEADER)
+        {
+            egressClaim.mocked(length);
+            return ClientSession.MOCKED_OFFER;
+        }
+
+        if (null == publication)
+        {
+            return Publication.NOT_CONNECTED;
+        }
+
+        final long position = publication.tryClaim(length + SESSION_HEADER_LENGTH, egressClaim.bufferClaim());
+        if (position > 0)
+        {
+            sessionMessageHeaderEncoder
+                .clusterSessionId(clusterSessionId)
+                .timestamp(clusterTime);
+
+            egressClaim.claimed(length, headerBuffer);
+        }
+
+        return position;
+    }
+
+    private long appliedLogPosition()
+    {
+        return null != logAdapter ? Math.max(clusterLogPosition, logAdapter.position()) : clusterLogPosition;
+    }
+
     private void role(final Role newRole)
     {
         if (newRole != role)
@@ -593,7 +664,18 @@ class ClusteredServiceAgent implements Agent, Cluster
 
         if (NULL_VALUE != leadershipTermId)
         {
+            snapshotLoadProgress.start(0, System.nanoTime());
             loadSnapshot(RecoveryState.getSnapshotRecordingId(counters, recoveryCounterId, serviceId));
+
+            for (int i = 0, deltaCount = RecoveryState.getSnapshotDeltaCount(counters, recoveryCounterId);
+                i < deltaCount;
+                i++)
+            {
+                loadSnapshotDelta(
+                    RecoveryState.getSnapshotDeltaRecordingId(counters, recoveryCounterId, serviceId, i));
+            }
+
+            snapshotLoadProgress.complete(snapshotBytesLoaded, System.nanoTime());
         }
         else
         {
@@ -613,23 +695,28 @@ class ClusteredServiceAgent implements Agent, Cluster
         if (RecoveryState.hasReplay(counters, recoveryCounterId))
         {
             awaitActiveLog();
+            replayActiveLog();
+        }
+    }
 
-            try (Subscription subscription = aeron.addSubscription(activeLogEvent.channel, activeLogEvent.streamId))
+    private void replayActiveLog()
+    {
+        try (Subscription subscription = aeron.addSubscription(activeLogEvent.channel, activeLogEvent.streamId))
+        {
+            awaitBackgroundSnapshot();
+            final long id = ackId++;
+            idleStrategy.reset();
+            while (!consensusModuleProxy.ack(activeLogEvent.logPosition, clusterTime, id, NULL_VALUE, serviceId))
             {
-                final long id = ackId++;
-                idleStrategy.reset();
-                while (!consensusModuleProxy.ack(activeLogEvent.logPosition, clusterTime, id, NULL_VALUE, serviceId))
-                {
-                    idle();
-                }
-
-                final Image image = awaitImage(activeLogEvent.sessionId, subscription);
-                final BoundedLogAdapter adapter = new BoundedLogAdapter(image, commitPosition, this);
-                consumeImage(image, adapter, activeLogEvent.maxLogPosition);
+                idle();
             }
 
-            activeLogEvent = null;
+            final Image image = awaitImage(activeLogEvent.sessionId, subscription);
+            final BoundedLogAdapter adapter = new BoundedLogAdapter(image, commitPosition, this);
+            consumeImage(image, adapter, activeLogEvent.maxLogPosition);
         }
+
+        activeLogEvent = null;
     }
 
     private void awaitActiveLog()
@@ -651,6 +738,7 @@ class ClusteredServiceAgent implements Agent, Cluster
             {
                 if (adapter.position() >= maxLogPosition)
                 {
+                    awaitBackgroundSnapshot();
                     final long id = ackId++;
                     while (!consensusModuleProxy.ack(image.position(), clusterTime, id, NULL_VALUE, serviceId))
                     {
@@ -687,6 +775,7 @@ class ClusteredServiceAgent implements Agent, Cluster
     {
         final Subscription logSubscription = aeron.addSubscription(activeLogEvent.channel, activeLogEvent.streamId);
 
+        awaitBackgroundSnapshot();
         final long id = ackId++;
         idleStrategy.reset();
         while (!consensusModuleProxy.ack(activeLogEvent.logPosition, clusterTime, id, NULL_VALUE, serviceId))
@@ -711,7 +800,7 @@ class ClusteredServiceAgent implements Agent, Cluster
             {
                 if (ctx.isRespondingService())
                 {
-                    session.connect(aeron);
+                    session.connect(responsePublicationPool);
                 }
 
                 session.resetClosing();
@@ -762,6 +851,40 @@ class ClusteredServiceAgent implements Agent, Cluster
     }
 
     private void loadSnapshot(final long recordingId)
+    {
+        replaySnapshot(
+            recordingId,
+            (image) ->
+            {
+                loadState(image);
+                service.onStart(this, image);
+            });
+    }
+
+    private void loadSnapshotDelta(final long recordingId)
+    {
+        final ArrayList<ClientSession> previousSessions = new ArrayList<>(sessionByIdMap.values());
+        sessionByIdMap.clear();
+
+        replaySnapshot(
+            recordingId,
+            (image) ->
+            {
+                loadState(image);
+
+                for (final ClientSession session : previousSessions)
+                {
+                    if (sessionByIdMap.containsKey(session.id()))
+                    {
+                        sessionByIdMap.put(session.id(), session);
+                    }
+                }
+
+                service.onLoadSnapshotDelta(image);
+            });
+    }
+
+    private void replaySnapshot(final long recordingId, final Consumer<Image> loader)
     {
         try (AeronArchive archive = AeronArchive.connect(archiveCtx.clone()))
         {
@@ -773,8 +896,16 @@ class ClusteredServiceAgent implements Agent, Cluster
             try (Subscription subscription = aeron.addSubscription(replaySessionChannel, streamId))
             {
                 final Image image = awaitImage(sessionId, subscription);
-                loadState(image);
-                service.onStart(this, image);
+                loadingSnapshotImage = image;
+                try
+                {
+                    loader.accept(image);
+                }
+                finally
+                {
+                    loadingSnapshotImage = null;
+                    snapshotBytesLoaded += image.position();
+                }
             }
         }
     }
@@ -812,7 +943,7 @@ class ClusteredServiceAgent implements Agent, Cluster
         timeUnit = snapshotLoader.timeUnit();
     }
 
-    private long onTakeSnapshot(final long logPosition, final long leadershipTermId)
+    private long onTakeSnapshot(final long logPosition, final long leadershipTermId, final boolean isDelta)
     {
         final long recordingId;
 
@@ -830,7 +961,14 @@ class ClusteredServiceAgent implements Agent, Cluster
                 snapshotState(publication, logPosition, leadershipTermId);
 
                 checkForClockTick();
-                service.onTakeSnapshot(publication);
+                if (isDelta)
+                {
+                    service.onTakeSnapshotDelta(publication);
+                }
+                else
+                {
+                    service.onTakeSnapshot(publication);
+                }
 
                 awaitRecordingComplete(recordingId, publication.position(), counters, counterId, archive);
             }
@@ -882,15 +1020,70 @@ class ClusteredServiceAgent implements Agent, Cluster
 
     private void executeAction(final ClusterAction action, final long position, final long leadershipTermId)
     {
-        if (ClusterAction.SNAPSHOT == action)
+        if (ClusterAction.SNAPSHOT == action || ClusterAction.SNAPSHOT_DELTA == action)
         {
-            final long recordingId = onTakeSnapshot(position, leadershipTermId);
+            final long startNs = System.nanoTime();
+            final boolean isDelta = ClusterAction.SNAPSHOT_DELTA == action;
+            awaitBackgroundSnapshot();
+
+            final SnapshotView snapshotView = ctx.isBackgroundSnapshot() && !isDelta ?
+                service.onTakeSnapshotView() : null;
+            final long recordingId;
+            if (null != snapshotView)
+            {
+                backgroundSnapshot = new BackgroundSnapshot(
+                    position, leadershipTermId, timeUnit, new ArrayList<>(sessionByIdMap.values()), snapshotView, ctx);
+                recordingId = NULL_VALUE;
+            }
+            else
+            {
+                recordingId = onTakeSnapshot(position, leadershipTermId, isDelta);
+            }
+
             final long id = ackId++;
             idleStrategy.reset();
             while (!consensusModuleProxy.ack(position, clusterTime, id, recordingId, serviceId))
             {
                 idle();
             }
+
+            ctx.snapshotPauseTimeCounter().getAndAdd(System.nanoTime() - startNs);
+        }
+    }
+
+    private void awaitBackgroundSnapshot()
+    {
+        if (null != backgroundSnapshot)
+        {
+            idleStrategy.reset();
+            while (!backgroundSnapshot.isDone())
+            {
+                idle();
+            }
+
+            completeBackgroundSnapshot();
+        }
+    }
+
+    private void completeBackgroundSnapshot()
+    {
+        final BackgroundSnapshot snapshot = backgroundSnapshot;
+        backgroundSnapshot = null;
+
+        long recordingId = NULL_VALUE;
+        try
+        {
+            recordingId = snapshot.recordingId();
+        }
+        catch (final ClusterException ex)
+        {
+            ctx.countedErrorHandler().onError(ex);
+        }
+
+        idleStrategy.reset();
+        while (!consensusModuleProxy.snapshotRecorded(snapshot.logPosition(), recordingId, serviceId))
+        {
+            idle();
         }
     }
 
@@ -933,6 +1126,11 @@ class ClusteredServiceAgent implements Agent, Cluster
                 }
             }
 
+            if (null != loadingSnapshotImage)
+            {
+                snapshotLoadProgress.update(snapshotBytesLoaded + loadingSnapshotImage.position(), System.nanoTime());
+            }
+
             if (nowMs >= (timeOfLastMarkFileUpdateMs + MARK_FILE_UPDATE_INTERVAL_MS))
             {
                 markFile.updateActivityTimestamp(nowMs);
@@ -951,7 +1149,14 @@ class ClusteredServiceAgent implements Agent, Cluster
 
         if (null != activeLogEvent && null == logAdapter)
         {
-            joinActiveLog();
+            if (Long.MAX_VALUE == activeLogEvent.maxLogPosition)
+            {
+                joinActiveLog();
+            }
+            else
+            {
+                replayActiveLog();
+            }
         }
 
         if (NULL_POSITION != terminationPosition)
@@ -996,6 +1201,7 @@ class ClusteredServiceAgent implements Agent, Cluster
             ctx.countedErrorHandler().onError(ex);
         }
 
+        awaitBackgroundSnapshot();
         final long id = ackId++;
         while (!consensusModuleProxy.ack(logPosition, clusterTime, id, NULL_VALUE, serviceId))
         {
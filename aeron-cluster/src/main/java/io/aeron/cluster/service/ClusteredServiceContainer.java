@@ -39,6 +39,7 @@ import java.util.function.Supplier;
 
 import static io.aeron.cluster.service.ClusteredServiceContainer.Configuration.*;
 import static java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater;
+import static org.agrona.SystemUtil.getDurationInNanos;
 import static org.agrona.SystemUtil.getSizeAsInt;
 import static org.agrona.SystemUtil.loadPropertiesFiles;
 
@@ -288,6 +289,91 @@ public final class ClusteredServiceContainer implements AutoCloseable
          */
         public static final int CLUSTERED_SERVICE_ERROR_COUNT_TYPE_ID = 215;
 
+        /**
+         * Counter type id for the time in nanoseconds the clustered service has been paused taking snapshots.
+         */
+        public static final int SNAPSHOT_PAUSE_TIME_TYPE_ID = 218;
+
+        /**
+         * Counter type id for the bytes of snapshots loaded by the clustered service on recovery.
+         */
+        public static final int SNAPSHOT_LOAD_POSITION_TYPE_ID = 222;
+
+        /**
+         * Counter type id for the rate in bytes per second of snapshots loaded by the clustered service on recovery.
+         */
+        public static final int SNAPSHOT_LOAD_RATE_TYPE_ID = 223;
+
+        /**
+         * Counter type id for the read only queries dropped by the clustered service because they could not be served.
+         */
+        public static final int DROPPED_QUERIES_TYPE_ID = 224;
+
+        /**
+         * Should snapshots be streamed to the archive on a background thread from a {@link SnapshotView} the
+         * {@link ClusteredService} returns so log processing can continue while the snapshot is recorded.
+         */
+        public static final String BACKGROUND_SNAPSHOT_PROP_NAME = "aeron.cluster.service.background.snapshot";
+
+        /**
+         * Default to false so snapshots are taken synchronously on the service thread.
+         */
+        public static final boolean BACKGROUND_SNAPSHOT_DEFAULT = false;
+
+        /**
+         * Should client sessions with the same response channel and stream id share a single response publication
+         * for egress. This is the same property as for the consensus module so both are configured together.
+         */
+        public static final String EGRESS_MULTIPLEX_PROP_NAME = "aeron.cluster.egress.multiplex";
+
+        /**
+         * Default to false so each client session has a response publication of its own.
+         */
+        public static final boolean EGRESS_MULTIPLEX_DEFAULT = false;
+
+        /**
+         * Channel on which read only queries are received so they can be served by this member once its service has
+         * applied the log to the position requested. Queries are not served when not set.
+         */
+        public static final String QUERY_CHANNEL_PROP_NAME = "aeron.cluster.service.query.channel";
+
+        /**
+         * Default to not serving read only queries.
+         */
+        public static final String QUERY_CHANNEL_DEFAULT = null;
+
+        /**
+         * Stream id within a channel on which read only queries are received.
+         */
+        public static final String QUERY_STREAM_ID_PROP_NAME = "aeron.cluster.service.query.stream.id";
+
+        /**
+         * Default stream id within a channel on which read only queries are received.
+         */
+        public static final int QUERY_STREAM_ID_DEFAULT = 109;
+
+        /**
+         * Timeout for a read only query to be served after which it is dropped if the log has not been applied to the
+         * position requested or the response channel has not connected.
+         */
+        public static final String QUERY_TIMEOUT_PROP_NAME = "aeron.cluster.service.query.timeout";
+
+        /**
+         * Default timeout for a read only query to be served.
+         */
+        public static final long QUERY_TIMEOUT_DEFAULT_NS = TimeUnit.SECONDS.toNanos(5);
+
+        /**
+         * Timeout after which a response publication for read only queries is closed if no query has used it.
+         */
+        public static final String QUERY_PUBLICATION_LINGER_TIMEOUT_PROP_NAME =
+            "aeron.cluster.service.query.publication.linger.timeout";
+
+        /**
+         * Default timeout after which a response publication for read only queries is closed if no query has used it.
+         */
+        public static final long QUERY_PUBLICATION_LINGER_TIMEOUT_DEFAULT_NS = TimeUnit.SECONDS.toNanos(10);
+
         /**
          * The value {@link #SERVICE_ID_DEFAULT} or system property {@link #SERVICE_ID_PROP_NAME} if set.
          *
@@ -387,6 +473,49 @@ public final class ClusteredServiceContainer implements AutoCloseable
             return Integer.getInteger(SNAPSHOT_STREAM_ID_PROP_NAME, SNAPSHOT_STREAM_ID_DEFAULT);
         }
 
+        /**
+         * The value {@link #QUERY_CHANNEL_DEFAULT} or system property {@link #QUERY_CHANNEL_PROP_NAME} if set.
+         *
+         * @return {@link #QUERY_CHANNEL_DEFAULT} or system property {@link #QUERY_CHANNEL_PROP_NAME} if set.
+         */
+        public static String queryChannel()
+        {
+            return System.getProperty(QUERY_CHANNEL_PROP_NAME, QUERY_CHANNEL_DEFAULT);
+        }
+
+        /**
+         * The value {@link #QUERY_STREAM_ID_DEFAULT} or system property {@link #QUERY_STREAM_ID_PROP_NAME} if set.
+         *
+         * @return {@link #QUERY_STREAM_ID_DEFAULT} or system property {@link #QUERY_STREAM_ID_PROP_NAME} if set.
+         */
+        public static int queryStreamId()
+        {
+            return Integer.getInteger(QUERY_STREAM_ID_PROP_NAME, QUERY_STREAM_ID_DEFAULT);
+        }
+
+        /**
+         * The value {@link #QUERY_TIMEOUT_DEFAULT_NS} or system property {@link #QUERY_TIMEOUT_PROP_NAME} if set.
+         *
+         * @return {@link #QUERY_TIMEOUT_DEFAULT_NS} or system property {@link #QUERY_TIMEOUT_PROP_NAME} if set.
+         */
+        public static long queryTimeoutNs()
+        {
+            return getDurationInNanos(QUERY_TIMEOUT_PROP_NAME, QUERY_TIMEOUT_DEFAULT_NS);
+        }
+
+        /**
+         * The value {@link #QUERY_PUBLICATION_LINGER_TIMEOUT_DEFAULT_NS} or system property
+         * {@link #QUERY_PUBLICATION_LINGER_TIMEOUT_PROP_NAME} if set.
+         *
+         * @return {@link #QUERY_PUBLICATION_LINGER_TIMEOUT_DEFAULT_NS} or system property
+         * {@link #QUERY_PUBLICATION_LINGER_TIMEOUT_PROP_NAME} if set.
+         */
+        public static long queryPublicationLingerTimeoutNs()
+        {
+            return getDurationInNanos(
+                QUERY_PUBLICATION_LINGER_TIMEOUT_PROP_NAME, QUERY_PUBLICATION_LINGER_TIMEOUT_DEFAULT_NS);
+        }
+
         /**
          * Default {@link IdleStrategy} to be employed for cluster agents.
          */
@@ -449,6 +578,40 @@ public final class ClusteredServiceContainer implements AutoCloseable
             return "true".equals(property);
         }
 
+        /**
+         * The value {@link #EGRESS_MULTIPLEX_DEFAULT} or system property {@link #EGRESS_MULTIPLEX_PROP_NAME} if set.
+         *
+         * @return {@link #EGRESS_MULTIPLEX_DEFAULT} or system property {@link #EGRESS_MULTIPLEX_PROP_NAME} if set.
+         */
+        public static boolean egressMultiplex()
+        {
+            final String property = System.getProperty(EGRESS_MULTIPLEX_PROP_NAME);
+            if (null == property)
+            {
+                return EGRESS_MULTIPLEX_DEFAULT;
+            }
+
+            return "true".equals(property);
+        }
+
+        /**
+         * The value {@link #BACKGROUND_SNAPSHOT_DEFAULT} or system property {@link #BACKGROUND_SNAPSHOT_PROP_NAME}
+         * if set.
+         *
+         * @return {@link #BACKGROUND_SNAPSHOT_DEFAULT} or system property {@link #BACKGROUND_SNAPSHOT_PROP_NAME}
+         * if set.
+         */
+        public static boolean isBackgroundSnapshot()
+        {
+            final String property = System.getProperty(BACKGROUND_SNAPSHOT_PROP_NAME);
+            if (null == property)
+            {
+                return BACKGROUND_SNAPSHOT_DEFAULT;
+            }
+
+            return "true".equals(property);
+        }
+
         /**
          * Create a new {@link ClusteredService} based on the configured {@link #SERVICE_CLASS_NAME_PROP_NAME}.
          *
@@ -523,6 +686,12 @@ public final class ClusteredServiceContainer implements AutoCloseable
         private int snapshotStreamId = Configuration.snapshotStreamId();
         private int errorBufferLength = Configuration.errorBufferLength();
         private boolean isRespondingService = Configuration.isRespondingService();
+        private boolean isBackgroundSnapshot = Configuration.isBackgroundSnapshot();
+        private boolean egressMultiplex = Configuration.egressMultiplex();
+        private String queryChannel = Configuration.queryChannel();
+        private int queryStreamId = Configuration.queryStreamId();
+        private long queryTimeoutNs = Configuration.queryTimeoutNs();
+        private long queryPublicationLingerTimeoutNs = Configuration.queryPublicationLingerTimeoutNs();
 
         private CountDownLatch abortLatch;
         private ThreadFactory threadFactory;
@@ -532,6 +701,10 @@ public final class ClusteredServiceContainer implements AutoCloseable
         private ErrorHandler errorHandler;
         private DelegatingErrorHandler delegatingErrorHandler;
         private AtomicCounter errorCounter;
+        private AtomicCounter snapshotPauseTimeCounter;
+        private AtomicCounter snapshotLoadPositionCounter;
+        private AtomicCounter snapshotLoadRateCounter;
+        private AtomicCounter droppedQueriesCounter;
         private CountedErrorHandler countedErrorHandler;
         private AeronArchive.Context archiveContext;
         private String clusterDirectoryName = Configuration.clusterDirName();
@@ -651,6 +824,30 @@ public final class ClusteredServiceContainer implements AutoCloseable
                     aeron.addCounter(CLUSTERED_SERVICE_ERROR_COUNT_TYPE_ID, "Cluster errors - service " + serviceId);
             }
 
+            if (null == snapshotPauseTimeCounter)
+            {
+                snapshotPauseTimeCounter = aeron.addCounter(
+                    SNAPSHOT_PAUSE_TIME_TYPE_ID, "Cluster snapshot pause time ns - service " + serviceId);
+            }
+
+            if (null == snapshotLoadPositionCounter)
+            {
+                snapshotLoadPositionCounter = aeron.addCounter(
+                    SNAPSHOT_LOAD_POSITION_TYPE_ID, "Cluster snapshot load bytes - service " + serviceId);
+            }
+
+            if (null == snapshotLoadRateCounter)
+            {
+                snapshotLoadRateCounter = aeron.addCounter(
+                    SNAPSHOT_LOAD_RATE_TYPE_ID, "Cluster snapshot load rate bytes/s - service " + serviceId);
+            }
+
+            if (null == droppedQueriesCounter && null != queryChannel)
+            {
+                droppedQueriesCounter = aeron.addCounter(
+                    DROPPED_QUERIES_TYPE_ID, "Cluster dropped read queries - service " + serviceId);
+            }
+
             if (null == countedErrorHandler)
             {
                 countedErrorHandler = new CountedErrorHandler(errorHandler, errorCounter);
@@ -961,6 +1158,151 @@ public final class ClusteredServiceContainer implements AutoCloseable
             return isRespondingService;
         }
 
+        /**
+         * Set if snapshots should be streamed to the archive on a background thread from the {@link SnapshotView}
+         * returned by {@link ClusteredService#onTakeSnapshotView()} so log processing can continue.
+         *
+         * @param isBackgroundSnapshot true if snapshots should be taken in the background.
+         * @return this for a fluent API.
+         * @see Configuration#BACKGROUND_SNAPSHOT_PROP_NAME
+         */
+        public Context isBackgroundSnapshot(final boolean isBackgroundSnapshot)
+        {
+            this.isBackgroundSnapshot = isBackgroundSnapshot;
+            return this;
+        }
+
+        /**
+         * Should snapshots be streamed to the archive on a background thread so log processing can continue?
+         *
+         * @return true if snapshots should be taken in the background.
+         * @see Configuration#BACKGROUND_SNAPSHOT_PROP_NAME
+         */
+        public boolean isBackgroundSnapshot()
+        {
+            return isBackgroundSnapshot;
+        }
+
+        /**
+         * Set if client sessions with the same response channel and stream id should share a response publication.
+         *
+         * @param egressMultiplex true if client sessions should share response publications.
+         * @return this for a fluent API.
+         * @see Configuration#EGRESS_MULTIPLEX_PROP_NAME
+         */
+        public Context egressMultiplex(final boolean egressMultiplex)
+        {
+            this.egressMultiplex = egressMultiplex;
+            return this;
+        }
+
+        /**
+         * Should client sessions with the same response channel and stream id share a response publication?
+         *
+         * @return true if client sessions should share response publications.
+         * @see Configuration#EGRESS_MULTIPLEX_PROP_NAME
+         */
+        public boolean egressMultiplex()
+        {
+            return egressMultiplex;
+        }
+
+        /**
+         * Set the channel on which read only queries are received, or null to not serve queries.
+         *
+         * @param channel on which read only queries are received.
+         * @return this for a fluent API.
+         * @see Configuration#QUERY_CHANNEL_PROP_NAME
+         */
+        public Context queryChannel(final String channel)
+        {
+            queryChannel = channel;
+            return this;
+        }
+
+        /**
+         * Get the channel on which read only queries are received.
+         *
+         * @return the channel on which read only queries are received, or null if queries are not served.
+         * @see Configuration#QUERY_CHANNEL_PROP_NAME
+         */
+        public String queryChannel()
+        {
+            return queryChannel;
+        }
+
+        /**
+         * Set the stream id on which read only queries are received.
+         *
+         * @param streamId on which read only queries are received.
+         * @return this for a fluent API.
+         * @see Configuration#QUERY_STREAM_ID_PROP_NAME
+         */
+        public Context queryStreamId(final int streamId)
+        {
+            queryStreamId = streamId;
+            return this;
+        }
+
+        /**
+         * Get the stream id on which read only queries are received.
+         *
+         * @return the stream id on which read only queries are received.
+         * @see Configuration#QUERY_STREAM_ID_PROP_NAME
+         */
+        public int queryStreamId()
+        {
+            return queryStreamId;
+        }
+
+        /**
+         * Set the timeout for a read only query to be served before it is dropped.
+         *
+         * @param timeoutNs for a read only query to be served.
+         * @return this for a fluent API.
+         * @see Configuration#QUERY_TIMEOUT_PROP_NAME
+         */
+        public Context queryTimeoutNs(final long timeoutNs)
+        {
+            queryTimeoutNs = timeoutNs;
+            return this;
+        }
+
+        /**
+         * Get the timeout for a read only query to be served before it is dropped.
+         *
+         * @return the timeout for a read only query to be served.
+         * @see Configuration#QUERY_TIMEOUT_PROP_NAME
+         */
+        public long queryTimeoutNs()
+        {
+            return queryTimeoutNs;
+        }
+
+        /**
+         * Set the timeout after which a response publication for read only queries is closed if no query has used it.
+         *
+         * @param timeoutNs after which an unused response publication for read only queries is closed.
+         * @return this for a fluent API.
+         * @see Configuration#QUERY_PUBLICATION_LINGER_TIMEOUT_PROP_NAME
+         */
+        public Context queryPublicationLingerTimeoutNs(final long timeoutNs)
+        {
+            queryPublicationLingerTimeoutNs = timeoutNs;
+            return this;
+        }
+
+        /**
+         * Get the timeout after which a response publication for read only queries is closed if no query has used it.
+         *
+         * @return the timeout after which an unused response publication for read only queries is closed.
+         * @see Configuration#QUERY_PUBLICATION_LINGER_TIMEOUT_PROP_NAME
+         */
+        public long queryPublicationLingerTimeoutNs()
+        {
+            return queryPublicationLingerTimeoutNs;
+        }
+
         /**
          * Get the thread factory used for creating threads.
          *
@@ -1097,6 +1439,96 @@ public final class ClusteredServiceContainer implements AutoCloseable
             return this;
         }
 
+        /**
+         * Get the counter for the time in nanoseconds the service has been paused from processing the log while
+         * taking snapshots.
+         *
+         * @return the counter for the time in nanoseconds the service has been paused taking snapshots.
+         */
+        public AtomicCounter snapshotPauseTimeCounter()
+        {
+            return snapshotPauseTimeCounter;
+        }
+
+        /**
+         * Set the counter for the time in nanoseconds the service has been paused from processing the log while
+         * taking snapshots.
+         *
+         * @param snapshotPauseTimeCounter for the time in nanoseconds the service has been paused taking snapshots.
+         * @return this for a fluent API.
+         */
+        public Context snapshotPauseTimeCounter(final AtomicCounter snapshotPauseTimeCounter)
+        {
+            this.snapshotPauseTimeCounter = snapshotPauseTimeCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the bytes of snapshots loaded by the service on recovery.
+         *
+         * @return the counter for the bytes of snapshots loaded by the service on recovery.
+         */
+        public AtomicCounter snapshotLoadPositionCounter()
+        {
+            return snapshotLoadPositionCounter;
+        }
+
+        /**
+         * Set the counter for the bytes of snapshots loaded by the service on recovery.
+         *
+         * @param snapshotLoadPositionCounter for the bytes of snapshots loaded by the service on recovery.
+         * @return this for a fluent API.
+         */
+        public Context snapshotLoadPositionCounter(final AtomicCounter snapshotLoadPositionCounter)
+        {
+            this.snapshotLoadPositionCounter = snapshotLoadPositionCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the rate in bytes per second of snapshots loaded by the service on recovery.
+         *
+         * @return the counter for the rate in bytes per second of snapshots loaded by the service on recovery.
+         */
+        public AtomicCounter snapshotLoadRateCounter()
+        {
+            return snapshotLoadRateCounter;
+        }
+
+        /**
+         * Set the counter for the rate in bytes per second of snapshots loaded by the service on recovery.
+         *
+         * @param snapshotLoadRateCounter for the rate in bytes per second of snapshots loaded on recovery.
+         * @return this for a fluent API.
+         */
+        public Context snapshotLoadRateCounter(final AtomicCounter snapshotLoadRateCounter)
+        {
+            this.snapshotLoadRateCounter = snapshotLoadRateCounter;
+            return this;
+        }
+
+        /**
+         * Get the counter for the read only queries dropped because they could not be served.
+         *
+         * @return the counter for the read only queries dropped because they could not be served.
+         */
+        public AtomicCounter droppedQueriesCounter()
+        {
+            return droppedQueriesCounter;
+        }
+
+        /**
+         * Set the counter for the read only queries dropped because they could not be served.
+         *
+         * @param droppedQueriesCounter for the read only queries dropped because they could not be served.
+         * @return this for a fluent API.
+         */
+        public Context droppedQueriesCounter(final AtomicCounter droppedQueriesCounter)
+        {
+            this.droppedQueriesCounter = droppedQueriesCounter;
+            return this;
+        }
+
         /**
          * Non-default for context.
          *
@@ -41,6 +41,9 @@ public final class ConsensusModuleProxy implements AutoCloseable
     private final CloseSessionEncoder closeSessionEncoder = new CloseSessionEncoder();
     private final ClusterMembersQueryEncoder clusterMembersQueryEncoder = new ClusterMembersQueryEncoder();
     private final RemoveMemberEncoder removeMemberEncoder = new RemoveMemberEncoder();
+    private final TransferLeadershipEncoder transferLeadershipEncoder = new TransferLeadershipEncoder();
+    private final ServiceSnapshotRecordedEncoder serviceSnapshotRecordedEncoder =
+        new ServiceSnapshotRecordedEncoder();
     private final Publication publication;
 
     public ConsensusModuleProxy(final Publication publication)
@@ -164,6 +167,34 @@ public final class ConsensusModuleProxy implements AutoCloseable
         return false;
     }
 
+    public boolean snapshotRecorded(final long logPosition, final long recordingId, final int serviceId)
+    {
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + ServiceSnapshotRecordedEncoder.BLOCK_LENGTH;
+
+        int attempts = SEND_ATTEMPTS;
+        do
+        {
+            final long result = publication.tryClaim(length, bufferClaim);
+            if (result > 0)
+            {
+                serviceSnapshotRecordedEncoder
+                    .wrapAndApplyHeader(bufferClaim.buffer(), bufferClaim.offset(), messageHeaderEncoder)
+                    .logPosition(logPosition)
+                    .recordingId(recordingId)
+                    .serviceId(serviceId);
+
+                bufferClaim.commit();
+
+                return true;
+            }
+
+            checkResult(result);
+        }
+        while (--attempts > 0);
+
+        return false;
+    }
+
     public boolean closeSession(final long clusterSessionId)
     {
         final int length = MessageHeaderEncoder.ENCODED_LENGTH + CloseSessionEncoder.BLOCK_LENGTH;
@@ -245,6 +276,33 @@ public final class ConsensusModuleProxy implements AutoCloseable
         return false;
     }
 
+    public boolean transferLeadership(final long correlationId, final int memberId)
+    {
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + TransferLeadershipEncoder.BLOCK_LENGTH;
+
+        int attempts = SEND_ATTEMPTS;
+        do
+        {
+            final long result = publication.tryClaim(length, bufferClaim);
+            if (result > 0)
+            {
+                transferLeadershipEncoder
+                    .wrapAndApplyHeader(bufferClaim.buffer(), bufferClaim.offset(), messageHeaderEncoder)
+                    .correlationId(correlationId)
+                    .memberId(memberId);
+
+                bufferClaim.commit();
+
+                return true;
+            }
+
+            checkResult(result);
+        }
+        while (--attempts > 0);
+
+        return false;
+    }
+
     private static void checkResult(final long result)
     {
         if (result == Publication.NOT_CONNECTED ||
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.logbuffer.BufferClaim;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+
+/**
+ * Claim on the egress of a {@link ClientSession} into which a response, such as an SBE message, can be encoded in
+ * place with the cluster session header already written. Unlike {@link ClientSession#tryClaim(int, BufferClaim)} the
+ * {@link #offset()} is that of the response so an encoder can wrap the claim directly.
+ * <p>
+ * A claim can be reused for any number of responses to any number of sessions without allocation provided each is
+ * committed or aborted before the next is claimed.
+ * <pre>{@code
+ *     if (session.tryClaim(ResponseEncoder.BLOCK_LENGTH + headerLength, egressClaim) > 0)
+ *     {
+ *         responseEncoder
+ *             .wrapAndApplyHeader(egressClaim.buffer(), egressClaim.offset(), messageHeaderEncoder)
+ *             .correlationId(correlationId)
+ *             .result(result);
+ *
+ *         egressClaim.commit();
+ *     }
+ * }</pre>
+ * When the member is not the leader the claim is of a scratch buffer which is discarded on commit so a service can
+ * encode its responses the same regardless of role.
+ * <p>
+ * <b>Note:</b> This class is not threadsafe.
+ */
+public final class EgressClaim
+{
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private ExpandableArrayBuffer mockBuffer;
+    private boolean isMocked;
+    private int length;
+
+    /**
+     * The buffer into which the response is to be encoded.
+     *
+     * @return the buffer into which the response is to be encoded.
+     */
+    public MutableDirectBuffer buffer()
+    {
+        return isMocked ? mockBuffer : bufferClaim.buffer();
+    }
+
+    /**
+     * The offset in the {@link #buffer()} at which the response begins, after the cluster session header.
+     *
+     * @return the offset in the {@link #buffer()} at which the response begins.
+     */
+    public int offset()
+    {
+        return isMocked ? 0 : bufferClaim.offset() + AeronCluster.SESSION_HEADER_LENGTH;
+    }
+
+    /**
+     * The length of the response which was claimed.
+     *
+     * @return the length of the response which was claimed.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Copy bytes into the response at an index relative to {@link #offset()}.
+     *
+     * @param index     relative to the {@link #offset()} at which to copy the bytes.
+     * @param srcBuffer containing the bytes.
+     * @param srcIndex  in the srcBuffer at which the bytes begin.
+     * @param length    of the bytes to copy.
+     * @return this for a fluent API.
+     */
+    public EgressClaim putBytes(final int index, final DirectBuffer srcBuffer, final int srcIndex, final int length)
+    {
+        buffer().putBytes(offset() + index, srcBuffer, srcIndex, length);
+        return this;
+    }
+
+    /**
+     * Commit the response to the egress of the session so it becomes available to the client.
+     */
+    public void commit()
+    {
+        if (!isMocked)
+        {
+            bufferClaim.commit();
+        }
+    }
+
+    /**
+     * Abort the response so it is padded out in the egress and not delivered to the client.
+     */
+    public void abort()
+    {
+        if (!isMocked)
+        {
+            bufferClaim.abort();
+        }
+    }
+
+    BufferClaim bufferClaim()
+    {
+        return bufferClaim;
+    }
+
+    void claimed(final int length, final DirectBuffer headerBuffer)
+    {
+        isMocked = false;
+        this.length = length;
+        bufferClaim.putBytes(headerBuffer, 0, AeronCluster.SESSION_HEADER_LENGTH);
+    }
+
+    void mocked(final int length)
+    {
+        if (null == mockBuffer)
+        {
+            mockBuffer = new ExpandableArrayBuffer(length);
+        }
+
+        mockBuffer.checkLimit(length);
+        isMocked = true;
+        this.length = length;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Aeron;
+import io.aeron.FragmentAssembler;
+import io.aeron.Publication;
+import io.aeron.Subscription;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.ReadQueryDecoder;
+import io.aeron.exceptions.RegistrationException;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Receives read only queries for the service and serves them once the log has been applied to the position requested
+ * and the response publication has connected. Queries which cannot be served yet are copied and kept pending until
+ * they can be, or until they time out.
+ * <p>
+ * Response publications are kept open for reuse by later queries on the same channel and stream id. They are closed
+ * if a query times out without them having connected, or once no query has used them for the linger timeout so the
+ * publications for clients which have gone away do not accumulate.
+ */
+final class QueryAdapter implements FragmentHandler, AutoCloseable
+{
+    static final int FRAGMENT_LIMIT = 10;
+    static final int MAX_PENDING_QUERIES = 1024;
+
+    private final long timeoutNs;
+    private final long lingerTimeoutNs;
+    private final Aeron aeron;
+    private final Subscription subscription;
+    private final ClusteredService service;
+    private final AtomicCounter droppedQueries;
+    private final FragmentAssembler fragmentAssembler = new FragmentAssembler(this);
+    private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+    private final ReadQueryDecoder readQueryDecoder = new ReadQueryDecoder();
+    private final ReadQuery readQuery = new ReadQuery();
+    private final HashMap<String, ResponsePublication> publicationByChannelMap = new HashMap<>();
+    private final ArrayList<PendingQuery> pendingQueries = new ArrayList<>();
+    private final ArrayList<PendingQuery> freeQueries = new ArrayList<>();
+    private long appliedLogPosition;
+    private long nowNs;
+    private long timeOfLastLingerCheckNs;
+
+    QueryAdapter(
+        final Aeron aeron,
+        final Subscription subscription,
+        final ClusteredService service,
+        final long timeoutNs,
+        final long lingerTimeoutNs,
+        final AtomicCounter droppedQueries)
+    {
+        this.aeron = aeron;
+        this.subscription = subscription;
+        this.service = service;
+        this.timeoutNs = timeoutNs;
+        this.lingerTimeoutNs = lingerTimeoutNs;
+        this.droppedQueries = droppedQueries;
+    }
+
+    public void close()
+    {
+        CloseHelper.close(subscription);
+        for (final ResponsePublication responsePublication : publicationByChannelMap.values())
+        {
+            CloseHelper.close(responsePublication.publication);
+        }
+
+        publicationByChannelMap.clear();
+        pendingQueries.clear();
+    }
+
+    int pendingQueryCount()
+    {
+        return pendingQueries.size();
+    }
+
+    int publicationCount()
+    {
+        return publicationByChannelMap.size();
+    }
+
+    int poll(final long appliedLogPosition, final long nowNs)
+    {
+        this.appliedLogPosition = appliedLogPosition;
+        this.nowNs = nowNs;
+
+        int workCount = 0;
+        if (!pendingQueries.isEmpty())
+        {
+            workCount += servePendingQueries();
+        }
+
+        if (nowNs >= (timeOfLastLingerCheckNs + lingerTimeoutNs))
+        {
+            timeOfLastLingerCheckNs = nowNs;
+            workCount += closeLingeringPublications();
+        }
+
+        return workCount + subscription.poll(fragmentAssembler, FRAGMENT_LIMIT);
+    }
+
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        if (length < MessageHeaderDecoder.ENCODED_LENGTH)
+        {
+            return;
+        }
+
+        messageHeaderDecoder.wrap(buffer, offset);
+        if (messageHeaderDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID ||
+            messageHeaderDecoder.templateId() != ReadQueryDecoder.TEMPLATE_ID)
+        {
+            return;
+        }
+
+        readQueryDecoder.wrap(
+            buffer,
+            offset + MessageHeaderDecoder.ENCODED_LENGTH,
+            messageHeaderDecoder.blockLength(),
+            messageHeaderDecoder.version());
+
+        final long correlationId = readQueryDecoder.correlationId();
+        final long logPosition = readQueryDecoder.logPosition();
+        final int responseStreamId = readQueryDecoder.responseStreamId();
+        final String responseChannel = readQueryDecoder.responseChannel();
+        final int payloadOffset = readQueryDecoder.limit();
+        final int payloadLength = offset + length - payloadOffset;
+
+        final ResponsePublication responsePublication = responsePublication(responseChannel, responseStreamId);
+        if (null == responsePublication)
+        {
+            return;
+        }
+
+        responsePublication.timeOfLastUseNs = nowNs;
+        if (logPosition <= appliedLogPosition && responsePublication.publication.isConnected())
+        {
+            serve(correlationId, logPosition, responsePublication.publication, buffer, payloadOffset, payloadLength);
+        }
+        else if (pendingQueries.size() < MAX_PENDING_QUERIES)
+        {
+            final PendingQuery pendingQuery = freeQueries.isEmpty() ?
+                new PendingQuery() : freeQueries.remove(freeQueries.size() - 1);
+
+            pendingQuery.reset(
+                correlationId,
+                logPosition,
+                nowNs + timeoutNs,
+                responsePublication,
+                buffer,
+                payloadOffset,
+                payloadLength);
+            pendingQueries.add(pendingQuery);
+            responsePublication.pendingQueryCount++;
+        }
+        else
+        {
+            droppedQueries.incrementOrdered();
+        }
+    }
+
+    private int servePendingQueries()
+    {
+        int workCount = 0;
+        int retainedCount = 0;
+        final int size = pendingQueries.size();
+
+        for (int i = 0; i < size; i++)
+        {
+            final PendingQuery pendingQuery = pendingQueries.get(i);
+            final ResponsePublication responsePublication = pendingQuery.responsePublication;
+            final Publication publication = responsePublication.publication;
+
+            if (pendingQuery.logPosition <= appliedLogPosition && publication.isConnected())
+            {
+                responsePublication.pendingQueryCount--;
+                responsePublication.timeOfLastUseNs = nowNs;
+                serve(
+                    pendingQuery.correlationId,
+                    pendingQuery.logPosition,
+                    publication,
+                    pendingQuery.buffer,
+                    0,
+                    pendingQuery.length);
+            }
+            else if (nowNs >= pendingQuery.deadlineNs)
+            {
+                droppedQueries.incrementOrdered();
+                if (0 == --responsePublication.pendingQueryCount && !publication.isConnected())
+                {
+                    publicationByChannelMap.remove(responsePublication.key);
+                    publication.close();
+                }
+            }
+            else
+            {
+                pendingQueries.set(retainedCount++, pendingQuery);
+                continue;
+            }
+
+            pendingQuery.responsePublication = null;
+            freeQueries.add(pendingQuery);
+            workCount++;
+        }
+
+        for (int i = size - 1; i >= retainedCount; i--)
+        {
+            pendingQueries.remove(i);
+        }
+
+        return workCount;
+    }
+
+    private void serve(
+        final long correlationId,
+        final long logPosition,
+        final Publication publication,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        readQuery.reset(correlationId, logPosition, appliedLogPosition, publication);
+        service.onReadQuery(readQuery, buffer, offset, length);
+    }
+
+    private int closeLingeringPublications()
+    {
+        int workCount = 0;
+        final Iterator<ResponsePublication> iterator = publicationByChannelMap.values().iterator();
+        while (iterator.hasNext())
+        {
+            final ResponsePublication responsePublication = iterator.next();
+            if (0 == responsePublication.pendingQueryCount &&
+                nowNs >= (responsePublication.timeOfLastUseNs + lingerTimeoutNs))
+            {
+                iterator.remove();
+                responsePublication.publication.close();
+                workCount++;
+            }
+        }
+
+        return workCount;
+    }
+
+    private ResponsePublication responsePublication(final String responseChannel, final int responseStreamId)
+    {
+        final String key = responseStreamId + ":" + responseChannel;
+        ResponsePublication responsePublication = publicationByChannelMap.get(key);
+        if (null == responsePublication)
+        {
+            try
+            {
+                responsePublication = new ResponsePublication(
+                    key, aeron.addPublication(responseChannel, responseStreamId));
+                publicationByChannelMap.put(key, responsePublication);
+            }
+            catch (final RegistrationException ex)
+            {
+                droppedQueries.incrementOrdered();
+            }
+        }
+
+        return responsePublication;
+    }
+
+    static final class ResponsePublication
+    {
+        final String key;
+        final Publication publication;
+        long timeOfLastUseNs;
+        int pendingQueryCount;
+
+        ResponsePublication(final String key, final Publication publication)
+        {
+            this.key = key;
+            this.publication = publication;
+        }
+    }
+
+    static final class PendingQuery
+    {
+        final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+        long correlationId;
+        long logPosition;
+        long deadlineNs;
+        int length;
+        ResponsePublication responsePublication;
+
+        void reset(
+            final long correlationId,
+            final long logPosition,
+            final long deadlineNs,
+            final ResponsePublication responsePublication,
+            final DirectBuffer srcBuffer,
+            final int srcOffset,
+            final int length)
+        {
+            this.correlationId = correlationId;
+            this.logPosition = logPosition;
+            this.deadlineNs = deadlineNs;
+            this.responsePublication = responsePublication;
+            this.length = length;
+            buffer.putBytes(0, srcBuffer, srcOffset, length);
+        }
+    }
+}
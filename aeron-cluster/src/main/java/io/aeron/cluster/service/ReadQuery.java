@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Publication;
+import io.aeron.cluster.codecs.MessageHeaderEncoder;
+import io.aeron.cluster.codecs.ReadQueryResponseEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Read only query received outside of the log which is served by a member once its service has applied the log to
+ * at least the position requested. Can be served by any member, including followers, to take load off the leader.
+ * <p>
+ * The query is only valid for the duration of the {@link ClusteredService#onReadQuery(ReadQuery, DirectBuffer, int, int)}
+ * callback and must not change state which is derived from the log.
+ */
+public final class ReadQuery
+{
+    /**
+     * Length of the header which prefixes the payload of a response to a read only query.
+     */
+    public static final int RESPONSE_HEADER_LENGTH =
+        MessageHeaderEncoder.ENCODED_LENGTH + ReadQueryResponseEncoder.BLOCK_LENGTH;
+
+    private final UnsafeBuffer headerBuffer = new UnsafeBuffer(new byte[RESPONSE_HEADER_LENGTH]);
+    private final ReadQueryResponseEncoder responseEncoder = new ReadQueryResponseEncoder();
+    private long correlationId;
+    private long logPosition;
+    private long appliedLogPosition;
+    private Publication responsePublication;
+
+    ReadQuery()
+    {
+        responseEncoder.wrapAndApplyHeader(headerBuffer, 0, new MessageHeaderEncoder());
+    }
+
+    /**
+     * Correlation id the client assigned to the query.
+     *
+     * @return correlation id the client assigned to the query.
+     */
+    public long correlationId()
+    {
+        return correlationId;
+    }
+
+    /**
+     * Position the client requested the log be applied to before the query is served.
+     *
+     * @return position the client requested the log be applied to before the query is served.
+     */
+    public long logPosition()
+    {
+        return logPosition;
+    }
+
+    /**
+     * Position the log has been applied to by the service which is at least {@link #logPosition()}.
+     *
+     * @return position the log has been applied to by the service.
+     */
+    public long appliedLogPosition()
+    {
+        return appliedLogPosition;
+    }
+
+    /**
+     * Respond to the query with a payload which is prefixed with the correlation id and applied log position.
+     *
+     * @param buffer containing the response.
+     * @param offset at which the response begins.
+     * @param length of the response in bytes.
+     * @return the same as {@link Publication#offer(DirectBuffer, int, int)}.
+     */
+    public long respond(final DirectBuffer buffer, final int offset, final int length)
+    {
+        responseEncoder
+            .correlationId(correlationId)
+            .logPosition(appliedLogPosition);
+
+        return responsePublication.offer(headerBuffer, 0, RESPONSE_HEADER_LENGTH, buffer, offset, length, null);
+    }
+
+    ReadQuery reset(
+        final long correlationId,
+        final long logPosition,
+        final long appliedLogPosition,
+        final Publication responsePublication)
+    {
+        this.correlationId = correlationId;
+        this.logPosition = logPosition;
+        this.appliedLogPosition = appliedLogPosition;
+        this.responsePublication = responsePublication;
+
+        return this;
+    }
+}
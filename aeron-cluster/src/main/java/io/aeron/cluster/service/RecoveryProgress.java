@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the progress of recovery, from a snapshot or a replay of the log, in a pair of counters for the position
+ * reached and the throughput in bytes per second so it can be observed with tools such as AeronStat.
+ * <p>
+ * While in progress the rate is sampled over {@link #RATE_INTERVAL_NS}. On completion it is the average rate over
+ * the whole of the recovery.
+ * <p>
+ * This class is not for public use.
+ */
+public final class RecoveryProgress
+{
+    /**
+     * Interval over which the rate is sampled while recovery is in progress.
+     */
+    public static final long RATE_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicCounter position;
+    private final AtomicCounter rate;
+    private long startPosition;
+    private long startNs;
+    private long lastSamplePosition;
+    private long lastSampleNs;
+
+    public RecoveryProgress(final AtomicCounter position, final AtomicCounter rate)
+    {
+        this.position = position;
+        this.rate = rate;
+    }
+
+    /**
+     * Start tracking a recovery.
+     *
+     * @param startPosition from which the recovery starts.
+     * @param nowNs         current time.
+     */
+    public void start(final long startPosition, final long nowNs)
+    {
+        this.startPosition = startPosition;
+        startNs = nowNs;
+        lastSamplePosition = startPosition;
+        lastSampleNs = nowNs;
+
+        position.setOrdered(startPosition);
+        rate.setOrdered(0);
+    }
+
+    /**
+     * Update the position reached and sample the rate if the interval has elapsed.
+     *
+     * @param position reached by the recovery.
+     * @param nowNs    current time.
+     */
+    public void update(final long position, final long nowNs)
+    {
+        this.position.setOrdered(position);
+
+        final long elapsedNs = nowNs - lastSampleNs;
+        if (elapsedNs >= RATE_INTERVAL_NS)
+        {
+            rate.setOrdered(bytesPerSecond(position - lastSamplePosition, elapsedNs));
+            lastSamplePosition = position;
+            lastSampleNs = nowNs;
+        }
+    }
+
+    /**
+     * Complete the recovery recording the final position and the average rate.
+     *
+     * @param position reached by the recovery.
+     * @param nowNs    current time.
+     */
+    public void complete(final long position, final long nowNs)
+    {
+        this.position.setOrdered(position);
+        rate.setOrdered(bytesPerSecond(position - startPosition, nowNs - startNs));
+    }
+
+    static long bytesPerSecond(final long bytes, final long durationNs)
+    {
+        return durationNs > 0 ? (long)(bytes * ((double)TimeUnit.SECONDS.toNanos(1) / durationNs)) : 0;
+    }
+}
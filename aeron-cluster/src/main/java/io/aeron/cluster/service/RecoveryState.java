@@ -55,7 +55,20 @@ import static org.agrona.concurrent.status.CountersReader.*;
  *  |             Snapshot Recording ID (Service ID n)              |
  *  |                                                               |
  *  +---------------------------------------------------------------+
+ *  |              Count of Snapshot Deltas per Service             |
+ *  +---------------------------------------------------------------+
+ *  |                           Reserved                            |
+ *  +---------------------------------------------------------------+
+ *  |      Snapshot Delta Recording ID (Delta 0, Service ID 0)      |
+ *  |                                                               |
+ *  +---------------------------------------------------------------+
+ *  |      Snapshot Delta Recording ID (Delta m, Service ID n)      |
+ *  |                                                               |
+ *  +---------------------------------------------------------------+
  * </pre>
+ * The snapshot recording ids begin at the same offset as before snapshot deltas were added, with the count of
+ * snapshot deltas following them, so up to {@link #MAX_SERVICE_COUNT} services fit within the key. The count of
+ * snapshot deltas is omitted when it does not fit, in which case there are no snapshot deltas.
  */
 public class RecoveryState
 {
@@ -76,6 +89,11 @@ public class RecoveryState
     public static final int SERVICE_COUNT_OFFSET = REPLAY_FLAG_OFFSET + SIZE_OF_INT;
     public static final int SNAPSHOT_RECORDING_IDS_OFFSET = SERVICE_COUNT_OFFSET + SIZE_OF_INT;
 
+    /**
+     * Maximum count of services for which the snapshot recording ids fit within the key of the counter.
+     */
+    public static final int MAX_SERVICE_COUNT = (MAX_KEY_LENGTH - SNAPSHOT_RECORDING_IDS_OFFSET) / SIZE_OF_LONG;
+
     /**
      * Allocate a counter to represent the snapshot services should load on start.
      *
@@ -96,6 +114,34 @@ public class RecoveryState
         final long timestamp,
         final boolean hasReplay,
         final long... snapshotRecordingIds)
+    {
+        return allocate(
+            aeron, tempBuffer, leadershipTermId, logPosition, timestamp, hasReplay, snapshotRecordingIds, new long[0]);
+    }
+
+    /**
+     * Allocate a counter to represent the base snapshots and snapshot deltas services should load on start.
+     *
+     * @param aeron                     to allocate the counter.
+     * @param tempBuffer                to use for building the key and label without allocation.
+     * @param leadershipTermId          at which the snapshot was taken.
+     * @param logPosition               at which the snapshot was taken.
+     * @param timestamp                 the snapshot was taken.
+     * @param hasReplay                 flag is true if all or part of the log must be replayed.
+     * @param snapshotRecordingIds      of the base snapshots for the services indexed by service id.
+     * @param snapshotDeltaRecordingIds to be loaded in order after the base snapshots indexed by
+     *                                  (delta index * service count) + service id.
+     * @return the {@link Counter} for the recovery state.
+     */
+    public static Counter allocate(
+        final Aeron aeron,
+        final MutableDirectBuffer tempBuffer,
+        final long leadershipTermId,
+        final long logPosition,
+        final long timestamp,
+        final boolean hasReplay,
+        final long[] snapshotRecordingIds,
+        final long[] snapshotDeltaRecordingIds)
     {
         tempBuffer.putLong(LEADERSHIP_TERM_ID_OFFSET, leadershipTermId);
         tempBuffer.putLong(LOG_POSITION_OFFSET, logPosition);
@@ -103,12 +149,24 @@ public class RecoveryState
         tempBuffer.putInt(REPLAY_FLAG_OFFSET, hasReplay ? 1 : 0);
 
         final int serviceCount = snapshotRecordingIds.length;
+        if (serviceCount > MAX_SERVICE_COUNT)
+        {
+            throw new ClusterException(
+                "service count " + serviceCount + " exceeds max for recovery state " + MAX_SERVICE_COUNT);
+        }
         tempBuffer.putInt(SERVICE_COUNT_OFFSET, serviceCount);
 
-        final int keyLength = SNAPSHOT_RECORDING_IDS_OFFSET + (serviceCount * SIZE_OF_LONG);
-        if (keyLength > MAX_KEY_LENGTH)
+        final int deltaCount = serviceCount > 0 ? snapshotDeltaRecordingIds.length / serviceCount : 0;
+        if ((deltaCount * serviceCount) != snapshotDeltaRecordingIds.length)
+        {
+            throw new ClusterException(
+                "snapshot deltas " + snapshotDeltaRecordingIds.length + " not a multiple of services " + serviceCount);
+        }
+
+        if (deltaCount > maxSnapshotDeltaCount(serviceCount))
         {
-            throw new ClusterException(keyLength + " exceeds max key length " + MAX_KEY_LENGTH);
+            throw new ClusterException("snapshot deltas per service " + deltaCount + " exceeds max for " +
+                serviceCount + " services " + maxSnapshotDeltaCount(serviceCount));
         }
 
         for (int i = 0; i < serviceCount; i++)
@@ -116,6 +174,20 @@ public class RecoveryState
             tempBuffer.putLong(SNAPSHOT_RECORDING_IDS_OFFSET + (i * SIZE_OF_LONG), snapshotRecordingIds[i]);
         }
 
+        final int deltaCountOffset = snapshotDeltaCountOffset(serviceCount);
+        if (deltaCountOffset + SIZE_OF_INT <= MAX_KEY_LENGTH)
+        {
+            tempBuffer.putInt(deltaCountOffset, deltaCount);
+            tempBuffer.putInt(deltaCountOffset + SIZE_OF_INT, 0);
+        }
+
+        for (int i = 0, length = snapshotDeltaRecordingIds.length; i < length; i++)
+        {
+            tempBuffer.putLong(snapshotDeltaRecordingIdOffset(serviceCount, i), snapshotDeltaRecordingIds[i]);
+        }
+
+        final int keyLength = keyLength(serviceCount, deltaCount);
+
         final int labelOffset = BitUtil.align(keyLength, SIZE_OF_INT);
         int labelLength = 0;
         labelLength += tempBuffer.putStringWithoutLengthAscii(labelOffset + labelLength, NAME);
@@ -127,6 +199,24 @@ public class RecoveryState
         return aeron.addCounter(RECOVERY_STATE_TYPE_ID, tempBuffer, 0, keyLength, tempBuffer, labelOffset, labelLength);
     }
 
+    /**
+     * The maximum count of snapshot deltas per service which can be represented in the recovery state for a count
+     * of services.
+     *
+     * @param serviceCount in the cluster.
+     * @return the maximum count of snapshot deltas per service which can be represented in the recovery state.
+     */
+    public static int maxSnapshotDeltaCount(final int serviceCount)
+    {
+        if (serviceCount <= 0)
+        {
+            return 0;
+        }
+
+        return Math.max(0, (MAX_KEY_LENGTH - snapshotDeltaRecordingIdOffset(serviceCount, 0)) /
+            (serviceCount * SIZE_OF_LONG));
+    }
+
     /**
      * Find the active counter id for recovery state.
      *
@@ -280,4 +370,103 @@ public class RecoveryState
 
         throw new ClusterException("Active counter not found " + counterId);
     }
+
+    /**
+     * Get the count of snapshot deltas each service should load in order after its base snapshot.
+     *
+     * @param counters  to search within.
+     * @param counterId for the active recovery counter.
+     * @return the count of snapshot deltas per service if found otherwise zero.
+     */
+    public static int getSnapshotDeltaCount(final CountersReader counters, final int counterId)
+    {
+        final DirectBuffer buffer = counters.metaDataBuffer();
+
+        if (counters.getCounterState(counterId) == RECORD_ALLOCATED)
+        {
+            final int recordOffset = CountersReader.metaDataOffset(counterId);
+
+            if (buffer.getInt(recordOffset + TYPE_ID_OFFSET) == RECOVERY_STATE_TYPE_ID)
+            {
+                final int serviceCount = buffer.getInt(recordOffset + KEY_OFFSET + SERVICE_COUNT_OFFSET);
+                return snapshotDeltaCount(buffer, recordOffset, serviceCount);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Get the recording id of a snapshot delta for a service.
+     *
+     * @param counters   to search within.
+     * @param counterId  for the active recovery counter.
+     * @param serviceId  for the snapshot delta required.
+     * @param deltaIndex of the snapshot delta in the order they are to be loaded.
+     * @return the recording id of the snapshot delta.
+     */
+    public static long getSnapshotDeltaRecordingId(
+        final CountersReader counters, final int counterId, final int serviceId, final int deltaIndex)
+    {
+        final DirectBuffer buffer = counters.metaDataBuffer();
+
+        if (counters.getCounterState(counterId) == RECORD_ALLOCATED)
+        {
+            final int recordOffset = CountersReader.metaDataOffset(counterId);
+
+            if (buffer.getInt(recordOffset + TYPE_ID_OFFSET) == RECOVERY_STATE_TYPE_ID)
+            {
+                final int serviceCount = buffer.getInt(recordOffset + KEY_OFFSET + SERVICE_COUNT_OFFSET);
+                if (serviceId < 0 || serviceId >= serviceCount)
+                {
+                    throw new ClusterException("invalid serviceId " + serviceId + " for count of " + serviceCount);
+                }
+
+                final int deltaCount = snapshotDeltaCount(buffer, recordOffset, serviceCount);
+                if (deltaIndex < 0 || deltaIndex >= deltaCount)
+                {
+                    throw new ClusterException("invalid deltaIndex " + deltaIndex + " for count of " + deltaCount);
+                }
+
+                final int recordingIdOffset = snapshotDeltaRecordingIdOffset(
+                    serviceCount, (deltaIndex * serviceCount) + serviceId);
+
+                return buffer.getLong(recordOffset + KEY_OFFSET + recordingIdOffset);
+            }
+        }
+
+        throw new ClusterException("Active counter not found " + counterId);
+    }
+
+    private static int snapshotDeltaCount(final DirectBuffer buffer, final int recordOffset, final int serviceCount)
+    {
+        final int deltaCountOffset = snapshotDeltaCountOffset(serviceCount);
+        if (deltaCountOffset + SIZE_OF_INT > MAX_KEY_LENGTH)
+        {
+            return 0;
+        }
+
+        return buffer.getInt(recordOffset + KEY_OFFSET + deltaCountOffset);
+    }
+
+    private static int snapshotDeltaCountOffset(final int serviceCount)
+    {
+        return SNAPSHOT_RECORDING_IDS_OFFSET + (serviceCount * SIZE_OF_LONG);
+    }
+
+    private static int snapshotDeltaRecordingIdOffset(final int serviceCount, final int index)
+    {
+        return snapshotDeltaCountOffset(serviceCount) + SIZE_OF_LONG + (index * SIZE_OF_LONG);
+    }
+
+    private static int keyLength(final int serviceCount, final int deltaCount)
+    {
+        final int deltaCountOffset = snapshotDeltaCountOffset(serviceCount);
+        if (0 == deltaCount)
+        {
+            return Math.min(deltaCountOffset + SIZE_OF_LONG, MAX_KEY_LENGTH);
+        }
+
+        return snapshotDeltaRecordingIdOffset(serviceCount, serviceCount * deltaCount);
+    }
 }
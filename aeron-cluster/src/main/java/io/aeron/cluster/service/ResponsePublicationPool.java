@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Aeron;
+import io.aeron.Publication;
+import org.agrona.CloseHelper;
+import org.agrona.collections.Long2ObjectHashMap;
+
+import java.util.HashMap;
+
+/**
+ * Source of the response publications used for egress to cluster sessions.
+ * <p>
+ * When multiplexed the sessions which have the same response channel and stream id share a single publication which
+ * is reference counted and closed when the last session releases it. Egress messages carry the cluster session id
+ * so clients sharing the channel can demultiplex them, see {@link io.aeron.cluster.client.EgressDemultiplexer}.
+ * Otherwise each session has a publication of its own.
+ * <p>
+ * This class is not for public use.
+ */
+public final class ResponsePublicationPool implements AutoCloseable
+{
+    private final Aeron aeron;
+    private final boolean isMultiplexed;
+    private final HashMap<String, Entry> entryByChannelMap = new HashMap<>();
+    private final Long2ObjectHashMap<Entry> entryByRegistrationIdMap = new Long2ObjectHashMap<>();
+    private int publicationCount;
+
+    public ResponsePublicationPool(final Aeron aeron, final boolean isMultiplexed)
+    {
+        this.aeron = aeron;
+        this.isMultiplexed = isMultiplexed;
+    }
+
+    /**
+     * Are the response publications shared by sessions with the same response channel and stream id?
+     *
+     * @return true if the response publications are shared by sessions with the same response channel and stream id.
+     */
+    public boolean isMultiplexed()
+    {
+        return isMultiplexed;
+    }
+
+    /**
+     * Number of publications currently open for sessions.
+     *
+     * @return number of publications currently open for sessions.
+     */
+    public int publicationCount()
+    {
+        return publicationCount;
+    }
+
+    /**
+     * Acquire a publication for a session which must be released with {@link #release(Publication)} when the session
+     * is closed or disconnected.
+     *
+     * @param channel  of the session for responses.
+     * @param streamId of the session for responses.
+     * @return the publication for responses to the session.
+     */
+    public Publication acquire(final String channel, final int streamId)
+    {
+        if (!isMultiplexed)
+        {
+            final Publication publication = aeron.addPublication(channel, streamId);
+            publicationCount++;
+
+            return publication;
+        }
+
+        final String key = streamId + ":" + channel;
+        Entry entry = entryByChannelMap.get(key);
+        if (null == entry)
+        {
+            entry = new Entry(key, aeron.addPublication(channel, streamId));
+            entryByChannelMap.put(key, entry);
+            entryByRegistrationIdMap.put(entry.publication.registrationId(), entry);
+            publicationCount++;
+        }
+
+        entry.referenceCount++;
+
+        return entry.publication;
+    }
+
+    /**
+     * Release a publication previously acquired for a session.
+     *
+     * @param publication to be released.
+     */
+    public void release(final Publication publication)
+    {
+        if (!isMultiplexed)
+        {
+            CloseHelper.close(publication);
+            publicationCount--;
+            return;
+        }
+
+        final Entry entry = entryByRegistrationIdMap.get(publication.registrationId());
+        if (null != entry && entry.publication == publication && --entry.referenceCount <= 0)
+        {
+            entryByRegistrationIdMap.remove(publication.registrationId());
+            entryByChannelMap.remove(entry.key);
+            CloseHelper.close(publication);
+            publicationCount--;
+        }
+    }
+
+    /**
+     * Close all the publications which are shared by sessions.
+     */
+    public void close()
+    {
+        for (final Entry entry : entryByChannelMap.values())
+        {
+            CloseHelper.close(entry.publication);
+        }
+
+        publicationCount -= entryByChannelMap.size();
+        entryByChannelMap.clear();
+        entryByRegistrationIdMap.clear();
+    }
+
+    static final class Entry
+    {
+        final String key;
+        final Publication publication;
+        int referenceCount;
+
+        Entry(final String key, final Publication publication)
+        {
+            this.key = key;
+            this.publication = publication;
+        }
+    }
+}
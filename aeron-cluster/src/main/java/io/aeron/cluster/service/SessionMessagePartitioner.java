@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import org.agrona.DirectBuffer;
+
+/**
+ * Function which assigns session messages to the shards of a {@link ShardedClusteredService}.
+ * <p>
+ * The function must be deterministic and only depend on its arguments so that a replay of the log assigns each
+ * message to the same shard as when it was first processed.
+ */
+@FunctionalInterface
+public interface SessionMessagePartitioner
+{
+    /**
+     * Select the partition for a session message.
+     *
+     * @param session for the client which sent the message. This can be null if the client was a service.
+     * @param buffer  containing the message.
+     * @param offset  in the buffer at which the message is encoded.
+     * @param length  of the encoded message.
+     * @return the partition for the message which will be taken modulo the number of shards.
+     */
+    int partition(ClientSession session, DirectBuffer buffer, int offset, int length);
+}
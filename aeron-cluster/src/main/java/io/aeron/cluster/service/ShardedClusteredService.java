@@ -0,0 +1,589 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.DirectBufferVector;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.cluster.codecs.CloseReason;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongHashSet;
+import org.agrona.concurrent.*;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClusteredService} which partitions its state over a number of shards so that session messages can be
+ * processed on multiple threads.
+ * <p>
+ * Each shard is a {@link ClusteredService} which runs on its own worker thread for
+ * {@link ClusteredService#onSessionMessage(ClientSession, long, DirectBuffer, int, int, Header)}. Messages are
+ * assigned to shards by a {@link SessionMessagePartitioner} and are processed in log order within a shard, so a
+ * replay of the log will rebuild the same state in each shard.
+ * <p>
+ * All other events are delivered on the container thread, to each shard in turn, once the workers have processed
+ * all preceding messages. Therefore snapshots of all shards are taken at the same log position, and are written to
+ * the snapshot publication in shard order. When loading a snapshot each shard must consume exactly what it wrote,
+ * in the same order. Timers are delivered to every shard so a shard should ignore correlation ids it did not
+ * schedule.
+ * <p>
+ * Within {@code onSessionMessage} a shard should only use the {@link ClientSession} it is given. Offers to the
+ * session are queued and sent from the container thread, and the header is null as the log may have moved on.
+ * The {@link Cluster} is not thread safe and must only be used from the events delivered on the container thread.
+ */
+public final class ShardedClusteredService implements ClusteredService
+{
+    /**
+     * Default capacity in bytes of the buffers to and from each worker.
+     */
+    public static final int WORKER_BUFFER_CAPACITY_DEFAULT = 4 * 1024 * 1024;
+
+    static final int ANNOUNCED_SESSION_QUEUE_CAPACITY = 1024;
+    static final long NULL_SESSION_ID = Long.MIN_VALUE;
+    static final int MESSAGE_TYPE_ID = 1;
+    static final int CLOSE_SESSION_TYPE_ID = 2;
+    static final int SESSION_ID_OFFSET = 0;
+    static final int TIMESTAMP_OFFSET = SESSION_ID_OFFSET + 8;
+    static final int MESSAGE_OFFSET = TIMESTAMP_OFFSET + 8;
+
+    private final ClusteredService[] shards;
+    private final SessionMessagePartitioner partitioner;
+    private final Worker[] workers;
+    private final AgentRunner[] workerRunners;
+    private final MessageHandler egressHandler = this::onEgress;
+    private Cluster cluster;
+
+    /**
+     * Construct a sharded service with buffers to and from each worker of {@link #WORKER_BUFFER_CAPACITY_DEFAULT}.
+     *
+     * @param partitioner to assign session messages to shards.
+     * @param shards      of the service state, each of which will have its own worker thread.
+     */
+    public ShardedClusteredService(final SessionMessagePartitioner partitioner, final ClusteredService... shards)
+    {
+        this(WORKER_BUFFER_CAPACITY_DEFAULT, partitioner, shards);
+    }
+
+    /**
+     * Construct a sharded service.
+     *
+     * @param workerBufferCapacity in bytes of the buffers to and from each worker which must be a power of two and
+     *                             at least 8 times the length of the largest session message.
+     * @param partitioner          to assign session messages to shards.
+     * @param shards               of the service state, each of which will have its own worker thread.
+     */
+    public ShardedClusteredService(
+        final int workerBufferCapacity, final SessionMessagePartitioner partitioner, final ClusteredService... shards)
+    {
+        if (shards.length < 1)
+        {
+            throw new ClusterException("at least one shard is required");
+        }
+
+        this.partitioner = partitioner;
+        this.shards = shards.clone();
+
+        workers = new Worker[shards.length];
+        workerRunners = new AgentRunner[shards.length];
+        for (int i = 0; i < shards.length; i++)
+        {
+            workers[i] = new Worker(i, shards[i], workerBufferCapacity);
+        }
+    }
+
+    /**
+     * Number of shards over which the service state is partitioned.
+     *
+     * @return number of shards over which the service state is partitioned.
+     */
+    public int shardCount()
+    {
+        return shards.length;
+    }
+
+    public void onStart(final Cluster cluster, final Image snapshotImage)
+    {
+        this.cluster = cluster;
+
+        for (final ClusteredService shard : shards)
+        {
+            shard.onStart(cluster, snapshotImage);
+        }
+
+        final ClusteredServiceContainer.Context ctx = cluster.context();
+        for (int i = 0; i < workers.length; i++)
+        {
+            final AgentRunner runner = new AgentRunner(
+                ctx.idleStrategy(), ctx.countedErrorHandler(), ctx.errorCounter(), workers[i]);
+            workerRunners[i] = runner;
+            AgentRunner.startOnThread(runner, ctx.threadFactory());
+        }
+    }
+
+    public void onSessionOpen(final ClientSession session, final long timestamp)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onSessionOpen(session, timestamp);
+        }
+    }
+
+    public void onSessionClose(final ClientSession session, final long timestamp, final CloseReason closeReason)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onSessionClose(session, timestamp, closeReason);
+        }
+
+        for (final Worker worker : workers)
+        {
+            worker.sessionClosed(session.id());
+        }
+    }
+
+    public void onSessionMessage(
+        final ClientSession session,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        final int partition = partitioner.partition(session, buffer, offset, length);
+        final Worker worker = workers[Math.abs(partition % workers.length)];
+
+        while (!worker.dispatch(session, timestamp, buffer, offset, length))
+        {
+            if (0 == drainEgress())
+            {
+                cluster.idle();
+            }
+        }
+    }
+
+    public void onTimerEvent(final long correlationId, final long timestamp)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onTimerEvent(correlationId, timestamp);
+        }
+    }
+
+    public void onTakeSnapshot(final Publication snapshotPublication)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onTakeSnapshot(snapshotPublication);
+        }
+    }
+
+    public void onTakeSnapshotDelta(final Publication snapshotPublication)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onTakeSnapshotDelta(snapshotPublication);
+        }
+    }
+
+    public void onLoadSnapshotDelta(final Image snapshotImage)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onLoadSnapshotDelta(snapshotImage);
+        }
+    }
+
+    public SnapshotView onTakeSnapshotView()
+    {
+        awaitWorkersIdle();
+        final SnapshotView[] views = new SnapshotView[shards.length];
+        for (int i = 0; i < shards.length; i++)
+        {
+            views[i] = shards[i].onTakeSnapshotView();
+            if (null == views[i])
+            {
+                return null;
+            }
+        }
+
+        return (snapshotPublication, idleStrategy) ->
+        {
+            for (final SnapshotView view : views)
+            {
+                view.writeTo(snapshotPublication, idleStrategy);
+            }
+        };
+    }
+
+    public void onRoleChange(final Cluster.Role newRole)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onRoleChange(newRole);
+        }
+    }
+
+    public void onTerminate(final Cluster cluster)
+    {
+        try
+        {
+            awaitWorkersIdle();
+        }
+        finally
+        {
+            CloseHelper.closeAll(workerRunners);
+        }
+
+        for (final ClusteredService shard : shards)
+        {
+            shard.onTerminate(cluster);
+        }
+    }
+
+    public void onNewLeadershipTermEvent(
+        final long leadershipTermId,
+        final long logPosition,
+        final long timestamp,
+        final long termBaseLogPosition,
+        final int leaderMemberId,
+        final int logSessionId,
+        final TimeUnit timeUnit,
+        final int appVersion)
+    {
+        awaitWorkersIdle();
+        for (final ClusteredService shard : shards)
+        {
+            shard.onNewLeadershipTermEvent(
+                leadershipTermId,
+                logPosition,
+                timestamp,
+                termBaseLogPosition,
+                leaderMemberId,
+                logSessionId,
+                timeUnit,
+                appVersion);
+        }
+    }
+
+    public int doBackgroundWork()
+    {
+        return drainEgress();
+    }
+
+    private void awaitWorkersIdle()
+    {
+        for (final Worker worker : workers)
+        {
+            while (!worker.isIdle())
+            {
+                if (0 == drainEgress())
+                {
+                    cluster.idle();
+                }
+            }
+        }
+
+        drainEgress();
+    }
+
+    private int drainEgress()
+    {
+        int workCount = 0;
+        for (final Worker worker : workers)
+        {
+            workCount += worker.egressBuffer.read(egressHandler);
+        }
+
+        return workCount;
+    }
+
+    private void onEgress(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length)
+    {
+        final ClientSession session = cluster.getClientSession(buffer.getLong(index + SESSION_ID_OFFSET));
+        if (null == session || session.isClosing())
+        {
+            return;
+        }
+
+        if (CLOSE_SESSION_TYPE_ID == msgTypeId)
+        {
+            session.close();
+            return;
+        }
+
+        final int messageOffset = index + TIMESTAMP_OFFSET;
+        final int messageLength = length - TIMESTAMP_OFFSET;
+        long result;
+        while ((result = session.offer(buffer, messageOffset, messageLength)) < 0)
+        {
+            if (Publication.NOT_CONNECTED == result || Publication.CLOSED == result ||
+                Publication.MAX_POSITION_EXCEEDED == result)
+            {
+                break;
+            }
+
+            cluster.idle();
+        }
+    }
+
+    static RingBuffer newRingBuffer(final int capacity)
+    {
+        return new OneToOneRingBuffer(new UnsafeBuffer(
+            ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+    }
+
+    final class Worker implements Agent
+    {
+        private final String roleName;
+        private final ClusteredService shard;
+        private final RingBuffer ingressBuffer;
+        private final RingBuffer egressBuffer;
+        private final MessageHandler ingressHandler = this::onIngress;
+        private final LongHashSet announcedSessionIds = new LongHashSet();
+        private final OneToOneConcurrentArrayQueue<ClientSession> announcedSessions;
+        private final Long2ObjectHashMap<ShardClientSession> sessionByIdMap = new Long2ObjectHashMap<>();
+        private final UnsafeBuffer dispatchBuffer;
+        private final UnsafeBuffer egressScratchBuffer;
+        private long dispatchedCount;
+        private volatile long processedCount;
+
+        Worker(final int index, final ClusteredService shard, final int bufferCapacity)
+        {
+            this.roleName = "clustered-service-shard-" + index;
+            this.shard = shard;
+            ingressBuffer = newRingBuffer(bufferCapacity);
+            egressBuffer = newRingBuffer(bufferCapacity);
+            announcedSessions = new OneToOneConcurrentArrayQueue<>(ANNOUNCED_SESSION_QUEUE_CAPACITY);
+            dispatchBuffer = new UnsafeBuffer(new byte[ingressBuffer.maxMsgLength()]);
+            egressScratchBuffer = new UnsafeBuffer(new byte[egressBuffer.maxMsgLength()]);
+        }
+
+        public String roleName()
+        {
+            return roleName;
+        }
+
+        public int doWork()
+        {
+            return ingressBuffer.read(ingressHandler);
+        }
+
+        boolean dispatch(
+            final ClientSession session,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length)
+        {
+            final int recordLength = MESSAGE_OFFSET + length;
+            if (recordLength > dispatchBuffer.capacity())
+            {
+                throw new ClusterException(
+                    "session message too long for shard buffer: length=" + length +
+                    " maxMsgLength=" + ingressBuffer.maxMsgLength());
+            }
+
+            final long clusterSessionId = null != session ? session.id() : NULL_SESSION_ID;
+            if (null != session && !announcedSessionIds.contains(clusterSessionId))
+            {
+                if (!announcedSessions.offer(session))
+                {
+                    return false;
+                }
+
+                announcedSessionIds.add(clusterSessionId);
+            }
+
+            dispatchBuffer.putLong(SESSION_ID_OFFSET, clusterSessionId);
+            dispatchBuffer.putLong(TIMESTAMP_OFFSET, timestamp);
+            dispatchBuffer.putBytes(MESSAGE_OFFSET, buffer, offset, length);
+
+            if (ingressBuffer.write(MESSAGE_TYPE_ID, dispatchBuffer, 0, recordLength))
+            {
+                dispatchedCount++;
+                return true;
+            }
+
+            return false;
+        }
+
+        boolean isIdle()
+        {
+            return processedCount == dispatchedCount;
+        }
+
+        /**
+         * Forget a closed session which must only be called when the worker {@link #isIdle()}, in which case all
+         * announced sessions have been taken from the queue by the worker.
+         *
+         * @param clusterSessionId of the closed session.
+         */
+        void sessionClosed(final long clusterSessionId)
+        {
+            if (announcedSessionIds.remove(clusterSessionId))
+            {
+                sessionByIdMap.remove(clusterSessionId);
+            }
+        }
+
+        long offer(final long clusterSessionId, final DirectBuffer buffer, final int offset, final int length)
+        {
+            final UnsafeBuffer scratch = egressScratchBuffer;
+            if (TIMESTAMP_OFFSET + length > scratch.capacity())
+            {
+                throw new ClusterException("egress message too long for shard buffer: length=" + length);
+            }
+
+            scratch.putLong(SESSION_ID_OFFSET, clusterSessionId);
+            scratch.putBytes(TIMESTAMP_OFFSET, buffer, offset, length);
+
+            return writeEgress(MESSAGE_TYPE_ID, TIMESTAMP_OFFSET + length);
+        }
+
+        long offer(final long clusterSessionId, final DirectBufferVector[] vectors)
+        {
+            final UnsafeBuffer scratch = egressScratchBuffer;
+            scratch.putLong(SESSION_ID_OFFSET, clusterSessionId);
+
+            int length = TIMESTAMP_OFFSET;
+            for (int i = 1; i < vectors.length; i++)
+            {
+                final DirectBufferVector vector = vectors[i];
+                if (length + vector.length() > scratch.capacity())
+                {
+                    throw new ClusterException("egress message too long for shard buffer: length=" + length);
+                }
+
+                scratch.putBytes(length, vector.buffer(), vector.offset(), vector.length());
+                length += vector.length();
+            }
+
+            return writeEgress(MESSAGE_TYPE_ID, length);
+        }
+
+        boolean closeSession(final long clusterSessionId)
+        {
+            egressScratchBuffer.putLong(SESSION_ID_OFFSET, clusterSessionId);
+
+            return writeEgress(CLOSE_SESSION_TYPE_ID, TIMESTAMP_OFFSET) > 0;
+        }
+
+        private long writeEgress(final int msgTypeId, final int length)
+        {
+            return egressBuffer.write(msgTypeId, egressScratchBuffer, 0, length) ? 1 : Publication.BACK_PRESSURED;
+        }
+
+        private void onIngress(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length)
+        {
+            try
+            {
+                final long clusterSessionId = buffer.getLong(index + SESSION_ID_OFFSET);
+                final long timestamp = buffer.getLong(index + TIMESTAMP_OFFSET);
+
+                shard.onSessionMessage(
+                    shardSession(clusterSessionId),
+                    timestamp,
+                    buffer,
+                    index + MESSAGE_OFFSET,
+                    length - MESSAGE_OFFSET,
+                    null);
+            }
+            finally
+            {
+                processedCount = processedCount + 1;
+            }
+        }
+
+        private ClientSession shardSession(final long clusterSessionId)
+        {
+            if (NULL_SESSION_ID == clusterSessionId)
+            {
+                return null;
+            }
+
+            ShardClientSession session = sessionByIdMap.get(clusterSessionId);
+            if (null == session)
+            {
+                announcedSessions.drain(this::addSession);
+                session = sessionByIdMap.get(clusterSessionId);
+            }
+
+            return session;
+        }
+
+        private void addSession(final ClientSession session)
+        {
+            sessionByIdMap.put(session.id(), new ShardClientSession(this, session));
+        }
+    }
+
+    /**
+     * Session given to a shard which queues egress to be sent from the container thread.
+     */
+    static final class ShardClientSession extends ClientSession
+    {
+        private final Worker worker;
+
+        ShardClientSession(final Worker worker, final ClientSession session)
+        {
+            super(
+                session.id(), session.responseStreamId(), session.responseChannel(), session.encodedPrincipal(), null);
+            this.worker = worker;
+        }
+
+        public void close()
+        {
+            worker.closeSession(id());
+        }
+
+        public long offer(final DirectBuffer buffer, final int offset, final int length)
+        {
+            return worker.offer(id(), buffer, offset, length);
+        }
+
+        public long offer(final DirectBufferVector[] vectors)
+        {
+            return worker.offer(id(), vectors);
+        }
+
+        public long tryClaim(final int length, final BufferClaim bufferClaim)
+        {
+            throw new ClusterException("tryClaim is not supported for sessions on a shard");
+        }
+
+        public long tryClaim(final int length, final EgressClaim egressClaim)
+        {
+            throw new ClusterException("tryClaim is not supported for sessions on a shard");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Publication;
+import org.agrona.concurrent.IdleStrategy;
+
+/**
+ * Immutable view of the state of a {@link ClusteredService} at a snapshot position which can be written to the
+ * snapshot while the service continues to process the log.
+ * <p>
+ * The view is written from a background thread so it must not share mutable state with the service and must
+ * not call {@link Cluster} methods.
+ *
+ * @see ClusteredService#onTakeSnapshotView()
+ */
+@FunctionalInterface
+public interface SnapshotView
+{
+    /**
+     * Write the state captured by the view to the snapshot.
+     *
+     * @param snapshotPublication to which the state should be recorded.
+     * @param idleStrategy        to be used when the publication is back pressured.
+     */
+    void writeTo(Publication snapshotPublication, IdleStrategy idleStrategy);
+}
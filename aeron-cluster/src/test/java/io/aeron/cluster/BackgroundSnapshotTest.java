@@ -0,0 +1,417 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Counter;
+import io.aeron.FragmentAssembler;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.cluster.service.SnapshotView;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.MutableLong;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.cluster.ConsensusModule.Configuration.SERVICE_ID;
+import static io.aeron.cluster.RecordingLog.ENTRY_TYPE_SNAPSHOT;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BackgroundSnapshotTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int PROBE_LENGTH = SIZE_OF_INT;
+
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+    private ValueListService service;
+
+    private final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final Counter mockSnapshotCounter = mock(Counter.class);
+
+    @Before
+    public void before()
+    {
+        when(mockSnapshotCounter.incrementOrdered()).thenAnswer((inv) -> snapshotCount.getAndIncrement());
+    }
+
+    @After
+    public void after()
+    {
+        close();
+    }
+
+    @Test(timeout = 30_000)
+    public void shouldProcessLogWhileSnapshotIsRecordedInBackground()
+    {
+        launch(true);
+
+        putValues(0, 1_000);
+        probe();
+
+        service.isSnapshotHeld = true;
+        toggleSnapshot();
+        while (!service.isSnapshotViewWriting)
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+
+        putValues(1_000, 100);
+        probe();
+
+        assertEquals(1_100, service.probedValueCount.get());
+        assertEquals(0, snapshotCount.get());
+
+        service.isSnapshotHeld = false;
+        awaitSnapshotCount(1);
+
+        assertEquals(1_000, service.lastSnapshotValueCount);
+        assertThat(container.context().snapshotPauseTimeCounter().get(), greaterThan(0L));
+
+        final File clusterDir = clusteredMediaDriver.consensusModule().context().clusterDir();
+        forceCloseForRestart();
+
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir))
+        {
+            int snapshotEntryCount = 0;
+            for (final RecordingLog.Entry entry : recordingLog.entries())
+            {
+                if (ENTRY_TYPE_SNAPSHOT == entry.type)
+                {
+                    snapshotEntryCount++;
+                }
+            }
+
+            assertEquals(2, snapshotEntryCount);
+        }
+
+        launch(false);
+        probe();
+
+        assertEquals(1_100, service.probedValueCount.get());
+        assertEquals(expectedSum(1_100), service.probedValueSum.get());
+    }
+
+    @Test(timeout = 30_000)
+    public void shouldAbandonPendingSnapshotWhenBackgroundSnapshotFails()
+    {
+        launch(true);
+
+        putValues(0, 100);
+        service.isSnapshotFailed = true;
+        toggleSnapshot();
+
+        final AtomicCounter errorCounter = clusteredMediaDriver.consensusModule().context().errorCounter();
+        while (0 == errorCounter.get())
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+
+        assertEquals(0, snapshotCount.get());
+
+        service.isSnapshotFailed = false;
+        putValues(100, 100);
+        toggleSnapshot();
+        awaitSnapshotCount(1);
+
+        assertEquals(200, service.lastSnapshotValueCount);
+
+        final File clusterDir = clusteredMediaDriver.consensusModule().context().clusterDir();
+        forceCloseForRestart();
+
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir))
+        {
+            final RecordingLog.Entry snapshot = recordingLog.getLatestSnapshot(SERVICE_ID);
+            assertNotNull(snapshot);
+            assertEquals(recordingLog.getLatestSnapshot(0).logPosition, snapshot.logPosition);
+        }
+    }
+
+    private static long expectedSum(final int valueCount)
+    {
+        return ((long)valueCount * (valueCount - 1)) / 2;
+    }
+
+    private void putValues(final long firstValue, final int count)
+    {
+        for (long value = firstValue, last = firstValue + count; value < last; value++)
+        {
+            msgBuffer.putLong(0, value);
+            offer(SIZE_OF_LONG);
+        }
+    }
+
+    private void probe()
+    {
+        service.probedValueCount.set(NULL_VALUE);
+        msgBuffer.putInt(0, 0);
+        offer(PROBE_LENGTH);
+
+        while (NULL_VALUE == service.probedValueCount.get())
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+    }
+
+    private void offer(final int length)
+    {
+        while (aeronCluster.offer(msgBuffer, 0, length) < 0)
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void toggleSnapshot()
+    {
+        final AtomicCounter controlToggle = ClusterControl.findControlToggle(
+            container.context().aeron().countersReader());
+        assertNotNull(controlToggle);
+        assertTrue(ClusterControl.ToggleState.SNAPSHOT.toggle(controlToggle));
+
+        while (controlToggle.get() != ClusterControl.ToggleState.NEUTRAL.code())
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void awaitSnapshotCount(final long expectedCount)
+    {
+        while (snapshotCount.get() < expectedCount)
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void launch(final boolean initialLaunch)
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .warnIfDirectoryExists(initialLaunch)
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(initialLaunch),
+            new ConsensusModule.Context()
+                .snapshotCounter(mockSnapshotCounter)
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(initialLaunch));
+
+        service = new ValueListService();
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(service)
+                .isBackgroundSnapshot(true)
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+
+        aeronCluster = AeronCluster.connect(
+            new AeronCluster.Context()
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+    }
+
+    private void forceCloseForRestart()
+    {
+        clusteredMediaDriver.consensusModule().close();
+        container.close();
+        aeronCluster.close();
+        clusteredMediaDriver.close();
+    }
+
+    private void close()
+    {
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+
+        aeronCluster = null;
+        container = null;
+        clusteredMediaDriver = null;
+    }
+
+    static final class ValueListService extends StubClusteredService
+    {
+        private long[] values = new long[16];
+        private int valueCount = 0;
+        final AtomicLong probedValueCount = new AtomicLong(NULL_VALUE);
+        final AtomicLong probedValueSum = new AtomicLong(NULL_VALUE);
+        volatile boolean isSnapshotHeld = false;
+        volatile boolean isSnapshotFailed = false;
+        volatile boolean isSnapshotViewWriting = false;
+        volatile int lastSnapshotValueCount = NULL_VALUE;
+
+        public void onStart(final Cluster cluster, final Image snapshotImage)
+        {
+            super.onStart(cluster, snapshotImage);
+
+            if (null != snapshotImage)
+            {
+                loadValues(snapshotImage);
+            }
+        }
+
+        public void onSessionMessage(
+            final ClientSession session,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            if (SIZE_OF_LONG == length)
+            {
+                if (values.length == valueCount)
+                {
+                    values = Arrays.copyOf(values, valueCount * 2);
+                }
+
+                values[valueCount++] = buffer.getLong(offset);
+            }
+            else
+            {
+                long sum = 0;
+                for (int i = 0; i < valueCount; i++)
+                {
+                    sum += values[i];
+                }
+
+                probedValueSum.set(sum);
+                probedValueCount.set(valueCount);
+            }
+        }
+
+        public void onTakeSnapshot(final Publication snapshotPublication)
+        {
+            throw new IllegalStateException("snapshot should be taken in the background");
+        }
+
+        public SnapshotView onTakeSnapshotView()
+        {
+            final long[] snapshotValues = Arrays.copyOf(values, valueCount);
+
+            return (snapshotPublication, idleStrategy) ->
+            {
+                if (isSnapshotFailed)
+                {
+                    throw new IllegalStateException("snapshot failed");
+                }
+
+                isSnapshotViewWriting = true;
+                idleStrategy.reset();
+                while (isSnapshotHeld)
+                {
+                    idleStrategy.idle();
+                }
+
+                final UnsafeBuffer buffer = new UnsafeBuffer(new byte[SIZE_OF_LONG * (snapshotValues.length + 1)]);
+                buffer.putLong(0, snapshotValues.length);
+                for (int i = 0; i < snapshotValues.length; i++)
+                {
+                    buffer.putLong((i + 1) * SIZE_OF_LONG, snapshotValues[i]);
+                }
+
+                offer(snapshotPublication, idleStrategy, buffer);
+
+                lastSnapshotValueCount = snapshotValues.length;
+                isSnapshotViewWriting = false;
+            };
+        }
+
+        private static void offer(
+            final Publication publication, final IdleStrategy idleStrategy, final DirectBuffer buffer)
+        {
+            idleStrategy.reset();
+            while (publication.offer(buffer) < 0)
+            {
+                idleStrategy.idle();
+            }
+        }
+
+        private void loadValues(final Image snapshotImage)
+        {
+            final MutableLong remaining = new MutableLong(NULL_VALUE);
+            final FragmentHandler handler = new FragmentAssembler((buffer, offset, length, header) ->
+            {
+                valueCount = (int)buffer.getLong(offset);
+                values = new long[Math.max(16, valueCount)];
+                for (int i = 0; i < valueCount; i++)
+                {
+                    values[i] = buffer.getLong(offset + ((i + 1) * SIZE_OF_LONG));
+                }
+
+                remaining.value = 0;
+            });
+
+            while (0 != remaining.value)
+            {
+                if (0 == snapshotImage.poll(handler, 1))
+                {
+                    cluster.idle();
+                }
+            }
+        }
+    }
+}
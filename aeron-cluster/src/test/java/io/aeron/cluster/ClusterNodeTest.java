@@ -15,6 +15,7 @@
  */
 package io.aeron.cluster;
 
+import static org.agrona.BitUtil.SIZE_OF_INT;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -34,6 +35,8 @@ import io.aeron.cluster.client.EgressListener;
 import io.aeron.cluster.service.ClientSession;
 import io.aeron.cluster.service.ClusteredService;
 import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.cluster.service.EgressClaim;
+import io.aeron.cluster.service.ShardedClusteredService;
 import io.aeron.driver.MediaDriver;
 import io.aeron.driver.ThreadingMode;
 import io.aeron.logbuffer.BufferClaim;
@@ -173,6 +176,41 @@ public class ClusterNodeTest
         }
     }
 
+    @Test(timeout = 10_000)
+    public void shouldEchoMessageViaServiceUsingEgressClaim()
+    {
+        final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
+        final String msg = "Hello World!";
+        msgBuffer.putStringWithoutLengthAscii(0, msg);
+
+        final MutableInteger messageCount = new MutableInteger();
+
+        final EgressListener listener = (clusterSessionId, timestamp, buffer, offset, length, header) ->
+        {
+            assertThat(clusterSessionId, is(aeronCluster.clusterSessionId()));
+            assertThat(buffer.getStringWithoutLengthAscii(offset, length), is(msg));
+            messageCount.value += 1;
+        };
+
+        container = launchEgressClaimEchoService();
+        aeronCluster = connectToCluster(listener);
+
+        while (aeronCluster.offer(msgBuffer, 0, msg.length()) < 0)
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+
+        while (messageCount.get() == 0)
+        {
+            if (aeronCluster.pollEgress() <= 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+        }
+    }
+
     @Test(timeout = 10_000)
     public void shouldScheduleEventInService()
     {
@@ -241,6 +279,39 @@ public class ClusterNodeTest
         }
     }
 
+    @Test(timeout = 10_000)
+    public void shouldEchoMessagesViaShardedService()
+    {
+        final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
+        final int messageCount = 100;
+        final MutableInteger received = new MutableInteger();
+
+        final EgressListener listener =
+            (clusterSessionId, timestamp, buffer, offset, length, header) -> received.value += 1;
+
+        container = launchShardedEchoService(4);
+        aeronCluster = connectToCluster(listener);
+
+        for (int i = 0; i < messageCount; i++)
+        {
+            msgBuffer.putInt(0, i);
+            while (aeronCluster.offer(msgBuffer, 0, SIZE_OF_INT) < 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+        }
+
+        while (received.get() < messageCount)
+        {
+            if (aeronCluster.pollEgress() <= 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+        }
+    }
+
     private ClusteredServiceContainer launchEchoService()
     {
         final ClusteredService clusteredService = new StubClusteredService()
@@ -266,6 +337,66 @@ public class ClusterNodeTest
                 .errorHandler(Throwable::printStackTrace));
     }
 
+    private ClusteredServiceContainer launchEgressClaimEchoService()
+    {
+        final ClusteredService clusteredService = new StubClusteredService()
+        {
+            private final EgressClaim egressClaim = new EgressClaim();
+
+            public void onSessionMessage(
+                final ClientSession session,
+                final long timestamp,
+                final DirectBuffer buffer,
+                final int offset,
+                final int length,
+                final Header header)
+            {
+                while (session.tryClaim(length, egressClaim) < 0)
+                {
+                    cluster.idle();
+                }
+
+                egressClaim.putBytes(0, buffer, offset, length).commit();
+            }
+        };
+
+        return ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(clusteredService)
+                .errorHandler(Throwable::printStackTrace));
+    }
+
+    private ClusteredServiceContainer launchShardedEchoService(final int shardCount)
+    {
+        final ClusteredService[] shards = new ClusteredService[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            shards[i] = new StubClusteredService()
+            {
+                public void onSessionMessage(
+                    final ClientSession session,
+                    final long timestamp,
+                    final DirectBuffer buffer,
+                    final int offset,
+                    final int length,
+                    final Header header)
+                {
+                    while (session.offer(buffer, offset, length) < 0)
+                    {
+                        Thread.yield();
+                    }
+                }
+            };
+        }
+
+        return ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(new ShardedClusteredService(
+                    (session, buffer, offset, length) -> buffer.getInt(offset), shards))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+    }
+
     private ClusteredServiceContainer launchTimedService()
     {
         final ClusteredService clusteredService = new StubClusteredService()
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClusterSessionActivityListTest
+{
+    private final ClusterSessionActivityList activityList = new ClusterSessionActivityList();
+
+    @Test
+    public void shouldOrderSessionsByLastActivity()
+    {
+        final ClusterSession one = newSession(1, 10);
+        final ClusterSession two = newSession(2, 20);
+        final ClusterSession three = newSession(3, 30);
+
+        one.timeOfLastActivityNs(40);
+        assertOrder(two, three, one);
+
+        three.lastActivity(50, 7);
+        assertOrder(two, one, three);
+
+        three.timeOfLastActivityNs(60);
+        assertOrder(two, one, three);
+    }
+
+    @Test
+    public void shouldRemoveSessionsFromAnyPosition()
+    {
+        final ClusterSession one = newSession(1, 10);
+        final ClusterSession two = newSession(2, 20);
+        final ClusterSession three = newSession(3, 30);
+
+        activityList.remove(two);
+        assertOrder(one, three);
+
+        activityList.remove(one);
+        assertOrder(three);
+
+        activityList.remove(three);
+        assertNull(activityList.head());
+        assertEquals(0, activityList.size());
+
+        three.timeOfLastActivityNs(40);
+        activityList.remove(three);
+        assertNull(activityList.head());
+        assertEquals(0, activityList.size());
+    }
+
+    private ClusterSession newSession(final long id, final long timeOfLastActivityNs)
+    {
+        final ClusterSession session = new ClusterSession(id, 0, "aeron:ipc");
+        session.timeOfLastActivityNs(timeOfLastActivityNs);
+        activityList.add(session);
+
+        return session;
+    }
+
+    private void assertOrder(final ClusterSession... sessions)
+    {
+        assertEquals(sessions.length, activityList.size());
+
+        ClusterSession session = activityList.head();
+        for (final ClusterSession expected : sessions)
+        {
+            assertSame(expected, session);
+            session = session.nextByActivity();
+        }
+
+        assertNull(session);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.aeron.cluster.CommitLatencyHistogram.BUCKET_COUNT;
+import static io.aeron.cluster.CommitLatencyHistogram.bucketIndex;
+import static org.junit.Assert.assertEquals;
+
+public class CommitLatencyHistogramTest
+{
+    @Test
+    public void shouldMapLatencyToPowerOfTwoMicrosecondBucket()
+    {
+        assertEquals(0, bucketIndex(0));
+        assertEquals(0, bucketIndex(999));
+        assertEquals(1, bucketIndex(1_000));
+        assertEquals(2, bucketIndex(2_000));
+        assertEquals(2, bucketIndex(3_999));
+        assertEquals(3, bucketIndex(4_000));
+        assertEquals(10, bucketIndex(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void shouldClampLatencyToBucketRange()
+    {
+        assertEquals(0, bucketIndex(-1));
+        assertEquals(BUCKET_COUNT - 1, bucketIndex(TimeUnit.MINUTES.toNanos(1)));
+        assertEquals(BUCKET_COUNT - 1, bucketIndex(Long.MAX_VALUE));
+    }
+}
@@ -26,6 +26,7 @@ import io.aeron.status.ReadableCounter;
 import org.agrona.collections.MutableLong;
 import org.agrona.concurrent.AgentInvoker;
 import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.status.AtomicCounter;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,11 +36,15 @@ import org.mockito.Mockito;
 
 import java.util.concurrent.TimeUnit;
 
+import static io.aeron.Aeron.NULL_VALUE;
 import static io.aeron.cluster.ClusterControl.ToggleState.*;
 import static io.aeron.cluster.ConsensusModule.Configuration.*;
 import static io.aeron.cluster.ConsensusModuleAgent.SLOW_TICK_INTERVAL_NS;
 import static io.aeron.cluster.client.AeronCluster.Configuration.PROTOCOL_SEMANTIC_VERSION;
+import static io.aeron.cluster.client.AeronCluster.SESSION_HEADER_LENGTH;
+import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -55,6 +60,9 @@ public class ConsensusModuleAgentTest
     private final Aeron mockAeron = mock(Aeron.class);
     private final ConcurrentPublication mockResponsePublication = mock(ConcurrentPublication.class);
     private final Counter mockTimedOutClientCounter = mock(Counter.class);
+    private final Counter mockCommitPositionMessageCounter = mock(Counter.class);
+    private final ServiceMessageCounters serviceMessageCounters =
+        new ServiceMessageCounters(mock(Counter.class), mock(Counter.class));
 
     private final ConsensusModule.Context ctx = new ConsensusModule.Context()
         .errorHandler(Throwable::printStackTrace)
@@ -64,6 +72,9 @@ public class ConsensusModuleAgentTest
         .controlToggleCounter(mock(Counter.class))
         .clusterNodeCounter(mock(Counter.class))
         .timedOutClientCounter(mockTimedOutClientCounter)
+        .commitPositionMessageCounter(mockCommitPositionMessageCounter)
+        .commitLatencyHistogram(mockCommitLatencyHistogram())
+        .serviceMessageCounters(serviceMessageCounters)
         .idleStrategySupplier(NoOpIdleStrategy::new)
         .aeron(mockAeron)
         .clusterMemberId(0)
@@ -190,6 +201,47 @@ public class ConsensusModuleAgentTest
             any(ClusterSession.class), anyLong(), anyInt(), eq(EventCode.ERROR), eq(SESSION_TERMINATED_MSG));
     }
 
+    @Test
+    public void shouldOnlyCloseSessionsWithoutRecentActivity()
+    {
+        final TestClusterClock clock = new TestClusterClock(TimeUnit.MILLISECONDS);
+        final long startMs = SLOW_TICK_INTERVAL_MS;
+        clock.update(startMs, TimeUnit.MILLISECONDS);
+
+        ctx.epochClock(clock)
+            .clusterClock(clock);
+
+        final ConsensusModuleAgent agent = new ConsensusModuleAgent(ctx);
+
+        agent.state(ConsensusModule.State.ACTIVE);
+        agent.role(Cluster.Role.LEADER);
+        agent.appendedPositionCounter(mock(ReadableCounter.class));
+        agent.onSessionConnect(1L, 2, PROTOCOL_SEMANTIC_VERSION, RESPONSE_CHANNEL_ONE, new byte[0]);
+        agent.onSessionConnect(2L, 3, PROTOCOL_SEMANTIC_VERSION, RESPONSE_CHANNEL_TWO, new byte[0]);
+
+        agent.doWork();
+
+        final ArgumentCaptor<ClusterSession> sessionCaptor = ArgumentCaptor.forClass(ClusterSession.class);
+        verify(mockLogPublisher, times(2)).appendSessionOpen(sessionCaptor.capture(), anyLong(), eq(startMs));
+        final ClusterSession activeSession = sessionCaptor.getAllValues().get(0);
+        final ClusterSession inactiveSession = sessionCaptor.getAllValues().get(1);
+
+        final long sessionTimeoutMs = TimeUnit.NANOSECONDS.toMillis(ConsensusModule.Configuration.sessionTimeoutNs());
+        final long keepAliveMs = startMs + (sessionTimeoutMs / 2);
+        clock.update(keepAliveMs, TimeUnit.MILLISECONDS);
+        agent.onSessionKeepAlive(NULL_VALUE, activeSession.id());
+
+        final long timeoutMs = startMs + sessionTimeoutMs + SLOW_TICK_INTERVAL_MS;
+        clock.update(timeoutMs, TimeUnit.MILLISECONDS);
+        agent.doWork();
+
+        verify(mockTimedOutClientCounter).incrementOrdered();
+        verify(mockLogPublisher).appendSessionClose(eq(inactiveSession), anyLong(), eq(timeoutMs));
+        verify(mockLogPublisher, never()).appendSessionClose(eq(activeSession), anyLong(), anyLong());
+        assertThat(activeSession.state(), is(ClusterSession.State.OPEN));
+        assertThat(inactiveSession.state(), is(ClusterSession.State.CLOSED));
+    }
+
     @Test
     public void shouldSuspendThenResume()
     {
@@ -248,4 +300,139 @@ public class ConsensusModuleAgentTest
         inOrder.verify(mockLogPublisher).appendClusterAction(anyLong(), anyLong(), eq(ClusterAction.SUSPEND));
         inOrder.verify(mockLogPublisher).appendClusterAction(anyLong(), anyLong(), eq(ClusterAction.RESUME));
     }
+
+    @Test
+    public void shouldCoalesceCommitPositionsWithinInterval()
+    {
+        final TestClusterClock clock = new TestClusterClock(TimeUnit.MILLISECONDS);
+        clock.update(1, TimeUnit.MILLISECONDS);
+
+        ctx.clusterMembers(
+            "0,localhost:10000,localhost:20000,localhost:30000,localhost:40000,localhost:8010|" +
+            "1,localhost:10001,localhost:20001,localhost:30001,localhost:40001,localhost:8011|" +
+            "2,localhost:10002,localhost:20002,localhost:30002,localhost:40002,localhost:8012")
+            .commitPositionIntervalNs(TimeUnit.MILLISECONDS.toNanos(5))
+            .leaderHeartbeatIntervalNs(TimeUnit.SECONDS.toNanos(1))
+            .epochClock(clock)
+            .clusterClock(clock);
+
+        final MutableLong commitPosition = new MutableLong();
+        final Counter mockCommitPosition = mock(Counter.class);
+        when(mockCommitPosition.getWeak()).thenAnswer((invocation) -> commitPosition.value);
+        when(mockCommitPosition.proposeMaxOrdered(anyLong())).thenAnswer(
+            (invocation) ->
+            {
+                final long proposedValue = invocation.getArgument(0);
+                if (proposedValue > commitPosition.value)
+                {
+                    commitPosition.value = proposedValue;
+                    return true;
+                }
+
+                return false;
+            });
+        ctx.commitPositionCounter(mockCommitPosition);
+
+        final MutableLong logPosition = new MutableLong(2048);
+        when(mockLogPublisher.position()).thenAnswer((invocation) -> logPosition.value);
+        final ReadableCounter mockAppendedPosition = mock(ReadableCounter.class);
+        when(mockAppendedPosition.get()).thenAnswer((invocation) -> logPosition.value);
+
+        final ConsensusModuleAgent agent = new ConsensusModuleAgent(ctx);
+        agent.state(ConsensusModule.State.ACTIVE);
+        agent.role(Cluster.Role.LEADER);
+        agent.appendedPositionCounter(mockAppendedPosition);
+
+        for (final ClusterMember member : agent.clusterMembers())
+        {
+            final Publication mockPublication = mock(Publication.class);
+            when(mockPublication.tryClaim(anyInt(), any())).thenReturn(Publication.BACK_PRESSURED);
+            member.publication(mockPublication);
+        }
+
+        clock.update(2, TimeUnit.MILLISECONDS);
+        agent.onAppendedPosition(NULL_VALUE, 1024, 1);
+        agent.doWork();
+        verify(mockCommitPositionMessageCounter, never()).incrementOrdered();
+
+        clock.update(3, TimeUnit.MILLISECONDS);
+        agent.onAppendedPosition(NULL_VALUE, 2048, 1);
+        agent.doWork();
+        verify(mockCommitPositionMessageCounter, times(2)).incrementOrdered();
+
+        logPosition.value = 4096;
+        clock.update(4, TimeUnit.MILLISECONDS);
+        agent.onAppendedPosition(NULL_VALUE, 3072, 2);
+        agent.doWork();
+        verify(mockCommitPositionMessageCounter, times(2)).incrementOrdered();
+
+        clock.update(8, TimeUnit.MILLISECONDS);
+        agent.doWork();
+        verify(mockCommitPositionMessageCounter, times(4)).incrementOrdered();
+    }
+
+    @Test
+    public void shouldAppendPendingServiceMessagesAsSingleBatch()
+    {
+        final TestClusterClock clock = new TestClusterClock(TimeUnit.MILLISECONDS);
+        ctx.epochClock(clock).clusterClock(clock);
+
+        when(mockLogPublisher.isServiceMessageBatchingEnabled()).thenReturn(TRUE);
+        when(mockLogPublisher.addServiceMessage(anyLong(), any(), anyInt(), anyInt())).thenReturn(TRUE);
+        when(mockLogPublisher.serviceBatchCount()).thenReturn(3);
+        when(mockLogPublisher.appendServiceMessageBatch(anyLong(), anyLong())).thenReturn(1024L);
+
+        final ConsensusModuleAgent agent = new ConsensusModuleAgent(ctx);
+        agent.state(ConsensusModule.State.ACTIVE);
+        agent.role(Cluster.Role.LEADER);
+        agent.appendedPositionCounter(mock(ReadableCounter.class));
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[SESSION_HEADER_LENGTH + 8]);
+        for (int i = 0; i < 3; i++)
+        {
+            agent.onServiceMessage(NULL_VALUE, buffer, SESSION_HEADER_LENGTH, 8);
+        }
+        assertThat(serviceMessageCounters.pending(), is(3L));
+
+        agent.doWork();
+
+        final InOrder inOrder = inOrder(mockLogPublisher);
+        inOrder.verify(mockLogPublisher).addServiceMessage(eq(Long.MIN_VALUE + 1), any(), anyInt(), eq(8));
+        inOrder.verify(mockLogPublisher).addServiceMessage(eq(Long.MIN_VALUE + 2), any(), anyInt(), eq(8));
+        inOrder.verify(mockLogPublisher).addServiceMessage(eq(Long.MIN_VALUE + 3), any(), anyInt(), eq(8));
+        inOrder.verify(mockLogPublisher).appendServiceMessageBatch(anyLong(), anyLong());
+        verify(mockLogPublisher, never()).appendMessage(anyLong(), anyLong(), anyLong(), any(), anyInt(), anyInt());
+        assertThat(serviceMessageCounters.appended(), is(3L));
+    }
+
+    @Test
+    public void shouldRetryBackPressuredIngressBatchAsWork()
+    {
+        final TestClusterClock clock = new TestClusterClock(TimeUnit.MILLISECONDS);
+        ctx.epochClock(clock).clusterClock(clock);
+
+        when(mockLogPublisher.ingressBatchCount()).thenReturn(2);
+        when(mockLogPublisher.flushIngressBatch()).thenReturn(FALSE);
+
+        final ConsensusModuleAgent agent = new ConsensusModuleAgent(ctx);
+        agent.state(ConsensusModule.State.ACTIVE);
+        agent.role(Cluster.Role.LEADER);
+        agent.appendedPositionCounter(mock(ReadableCounter.class));
+
+        agent.doWork();
+        assertThat(agent.doWork(), greaterThan(0));
+
+        verify(mockLogPublisher, times(2)).flushIngressBatch();
+    }
+
+    private static CommitLatencyHistogram mockCommitLatencyHistogram()
+    {
+        final Counter[] buckets = new Counter[CommitLatencyHistogram.BUCKET_COUNT];
+        for (int i = 0; i < buckets.length; i++)
+        {
+            buckets[i] = mock(Counter.class);
+        }
+
+        return new CommitLatencyHistogram(buckets);
+    }
 }
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Aeron;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressDemultiplexer;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.driver.status.SubscriberPos;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.MutableInteger;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class EgressMultiplexTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int MESSAGE_LENGTH = 32;
+    private static final String EGRESS_CHANNEL = "aeron:udp?endpoint=localhost:9020";
+    private static final int EGRESS_STREAM_ID = 102;
+
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private Aeron aeron;
+    private EgressDemultiplexer egressDemultiplexer;
+    private AeronCluster[] clients;
+    private long[] receivedCounts;
+
+    @After
+    public void after()
+    {
+        close();
+    }
+
+    @Test(timeout = 20_000)
+    public void shouldEchoToEachClientSharingMultiplexedEgress()
+    {
+        final int clientCount = 4;
+        final int messageCount = 1_000;
+
+        launch(true);
+        connectClients(clientCount, true);
+        assertEquals(clientCount, egressDemultiplexer.clientCount());
+
+        sendAndAwaitEchoes(messageCount);
+
+        for (int i = 0; i < clientCount; i++)
+        {
+            assertEquals(messageCount, receivedCounts[i]);
+        }
+
+        clients[0].close();
+        clients[0] = null;
+        assertEquals(clientCount - 1, egressDemultiplexer.clientCount());
+    }
+
+    @Ignore
+    @Test
+    public void shouldReportEchoThroughputAndSubscriptionsForPerSessionAndMultiplexedEgress()
+    {
+        final int clientCount = 32;
+        final int messageCount = 20_000;
+
+        for (final boolean isMultiplexed : new boolean[]{ false, true })
+        {
+            launch(isMultiplexed);
+            connectClients(clientCount, isMultiplexed);
+
+            final long subscriberPositions = subscriberPositionCount();
+            final long startNs = System.nanoTime();
+            sendAndAwaitEchoes(messageCount);
+            final long durationNs = System.nanoTime() - startNs;
+
+            System.out.printf(
+                "%s egress for %,d clients: %,d echoes/sec, %,d subscriber positions, %,d KB heap used%n",
+                isMultiplexed ? "multiplexed" : "per-session",
+                clientCount,
+                clientCount * messageCount * TimeUnit.SECONDS.toNanos(1) / durationNs,
+                subscriberPositions,
+                (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / 1024);
+
+            close();
+        }
+    }
+
+    private void sendAndAwaitEchoes(final int messageCount)
+    {
+        final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer(MESSAGE_LENGTH);
+
+        for (int m = 0; m < messageCount; m++)
+        {
+            for (int i = 0; i < clients.length; i++)
+            {
+                msgBuffer.putLong(0, clients[i].clusterSessionId());
+                while (clients[i].offer(msgBuffer, 0, MESSAGE_LENGTH) < 0)
+                {
+                    TestUtil.checkInterruptedStatus();
+                    pollEgress();
+                    Thread.yield();
+                }
+            }
+
+            pollEgress();
+        }
+
+        final long expectedTotal = (long)messageCount * clients.length;
+        while (totalReceived() < expectedTotal)
+        {
+            if (pollEgress() <= 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+        }
+    }
+
+    private int pollEgress()
+    {
+        if (null != egressDemultiplexer)
+        {
+            return egressDemultiplexer.poll();
+        }
+
+        int workCount = 0;
+        for (final AeronCluster client : clients)
+        {
+            workCount += client.pollEgress();
+        }
+
+        return workCount;
+    }
+
+    private long totalReceived()
+    {
+        long total = 0;
+        for (final long count : receivedCounts)
+        {
+            total += count;
+        }
+
+        return total;
+    }
+
+    private long subscriberPositionCount()
+    {
+        final MutableInteger count = new MutableInteger();
+        aeron.countersReader().forEach(
+            (counterId, typeId, keyBuffer, label) ->
+            {
+                if (SubscriberPos.SUBSCRIBER_POSITION_TYPE_ID == typeId && label.contains(EGRESS_CHANNEL))
+                {
+                    count.value++;
+                }
+            });
+
+        return count.value;
+    }
+
+    private void connectClients(final int clientCount, final boolean isDemultiplexed)
+    {
+        aeron = Aeron.connect();
+        if (isDemultiplexed)
+        {
+            egressDemultiplexer = new EgressDemultiplexer(aeron.addSubscription(EGRESS_CHANNEL, EGRESS_STREAM_ID));
+        }
+
+        clients = new AeronCluster[clientCount];
+        receivedCounts = new long[clientCount];
+
+        for (int i = 0; i < clientCount; i++)
+        {
+            final int index = i;
+            final long[] clusterSessionId = { Aeron.NULL_VALUE };
+
+            clients[i] = AeronCluster.connect(
+                new AeronCluster.Context()
+                    .aeron(aeron)
+                    .egressChannel(EGRESS_CHANNEL)
+                    .egressStreamId(EGRESS_STREAM_ID)
+                    .egressDemultiplexer(egressDemultiplexer)
+                    .egressListener((sessionId, timestamp, buffer, offset, length, header) ->
+                    {
+                        assertEquals(clusterSessionId[0], sessionId);
+                        assertEquals(sessionId, buffer.getLong(offset));
+                        receivedCounts[index]++;
+                    })
+                    .ingressChannel("aeron:udp")
+                    .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+
+            clusterSessionId[0] = clients[i].clusterSessionId();
+        }
+    }
+
+    private void launch(final boolean isMultiplexed)
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(true),
+            new ConsensusModule.Context()
+                .egressMultiplex(isMultiplexed)
+                .maxConcurrentSessions(64)
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(true));
+
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .egressMultiplex(isMultiplexed)
+                .clusteredService(new StubClusteredService()
+                {
+                    public void onSessionMessage(
+                        final ClientSession session,
+                        final long timestamp,
+                        final DirectBuffer buffer,
+                        final int offset,
+                        final int length,
+                        final Header header)
+                    {
+                        while (session.offer(buffer, offset, length) < 0)
+                        {
+                            cluster.idle();
+                        }
+                    }
+                })
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+    }
+
+    private void close()
+    {
+        if (null != clients)
+        {
+            for (final AeronCluster client : clients)
+            {
+                CloseHelper.close(client);
+            }
+        }
+
+        CloseHelper.close(egressDemultiplexer);
+        CloseHelper.close(aeron);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+
+        clients = null;
+        egressDemultiplexer = null;
+        aeron = null;
+        container = null;
+        clusteredMediaDriver = null;
+    }
+}
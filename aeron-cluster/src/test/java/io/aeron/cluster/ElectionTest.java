@@ -589,6 +589,117 @@ public class ElectionTest
         verify(consensusModuleAgent).role(Cluster.Role.FOLLOWER);
     }
 
+    @Test
+    public void shouldNominateWithoutDelayOnFastPathWhenPreferredCandidate()
+    {
+        final long leadershipTermId = Aeron.NULL_VALUE;
+        final long logPosition = 0;
+        final ClusterMember[] clusterMembers = prepareClusterMembers();
+        final ClusterMember candidateMember = clusterMembers[0];
+
+        ctx.fastElection(true);
+
+        final Election election = newElection(leadershipTermId, logPosition, clusterMembers, candidateMember);
+
+        final long t1 = 1;
+        election.doWork(t1);
+        assertThat(election.state(), is(Election.State.CANVASS));
+
+        election.onCanvassPosition(leadershipTermId, logPosition, clusterMembers[1].id());
+
+        final long t2 = 2;
+        election.doWork(t2);
+        assertThat(election.state(), is(Election.State.NOMINATE));
+
+        election.doWork(t2);
+        assertThat(election.state(), is(Election.State.CANDIDATE_BALLOT));
+    }
+
+    @Test
+    public void shouldNotNominateOnFastPathWhenMemberWithLowerIdHasEqualLog()
+    {
+        final long leadershipTermId = Aeron.NULL_VALUE;
+        final long logPosition = 0;
+        final ClusterMember[] clusterMembers = prepareClusterMembers();
+        final ClusterMember thisMember = clusterMembers[1];
+
+        ctx.fastElection(true);
+
+        final Election election = newElection(leadershipTermId, logPosition, clusterMembers, thisMember);
+
+        final long t1 = 1;
+        election.doWork(t1);
+        assertThat(election.state(), is(Election.State.CANVASS));
+
+        election.onCanvassPosition(leadershipTermId, logPosition, clusterMembers[0].id());
+
+        final long t2 = 2;
+        election.doWork(t2);
+        assertThat(election.state(), is(Election.State.CANVASS));
+    }
+
+    @Test
+    public void shouldStandAsCandidateWithoutDelayWhenNamedInLeadershipHandoff()
+    {
+        final long leadershipTermId = 1;
+        final long logPosition = 120;
+        final ClusterMember[] clusterMembers = prepareClusterMembers();
+        final ClusterMember candidateMember = clusterMembers[2];
+
+        final Election election = newElection(false, leadershipTermId, logPosition, clusterMembers, candidateMember);
+
+        final long t1 = 1;
+        election.doWork(t1);
+        assertThat(election.state(), is(Election.State.CANVASS));
+
+        election.onLeadershipHandoff(candidateMember.id());
+        election.onCanvassPosition(leadershipTermId, logPosition, clusterMembers[1].id());
+
+        final long t2 = 2;
+        election.doWork(t2);
+        election.doWork(t2);
+        assertThat(election.state(), is(Election.State.CANDIDATE_BALLOT));
+
+        election.doWork(t2);
+        final long candidateTermId = leadershipTermId + 1;
+        verify(memberStatusPublisher).requestVote(
+            clusterMembers[1].publication(), leadershipTermId, logPosition, candidateTermId, candidateMember.id());
+    }
+
+    @Test
+    public void shouldRecordTimeSpentInEachState()
+    {
+        final long leadershipTermId = Aeron.NULL_VALUE;
+        final long logPosition = 0;
+        final ClusterMember[] clusterMembers = prepareClusterMembers();
+        final ClusterMember candidateMember = clusterMembers[0];
+        final Counter[] counters = new Counter[Election.State.STATES.length];
+        for (int i = 0; i < counters.length; i++)
+        {
+            counters[i] = mock(Counter.class);
+        }
+
+        ctx.fastElection(true).electionStateTimes(new ElectionStateTimes(counters));
+
+        final Election election = newElection(leadershipTermId, logPosition, clusterMembers, candidateMember);
+
+        final long t1 = 1;
+        election.doWork(t1);
+        election.onCanvassPosition(leadershipTermId, logPosition, clusterMembers[1].id());
+
+        final long t2 = t1 + 5;
+        election.doWork(t2);
+        assertThat(election.state(), is(Election.State.NOMINATE));
+
+        final long t3 = t2 + 7;
+        election.doWork(t3);
+        assertThat(election.state(), is(Election.State.CANDIDATE_BALLOT));
+
+        verify(counters[Election.State.CANVASS.code()]).getAndAddOrdered(t2 - t1);
+        verify(counters[Election.State.NOMINATE.code()]).getAndAddOrdered(t3 - t2);
+        verifyNoMoreInteractions(counters[Election.State.INIT.code()]);
+    }
+
     private Election newElection(
         final boolean isStartup,
         final long logLeadershipTermId,
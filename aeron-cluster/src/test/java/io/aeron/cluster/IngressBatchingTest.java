@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.MutableLong;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+
+public class IngressBatchingTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int MESSAGE_LENGTH = 32;
+
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+
+    @After
+    public void after()
+    {
+        close();
+    }
+
+    @Test(timeout = 20_000)
+    public void shouldEchoBatchedMessagesInOrder()
+    {
+        final int messageCount = 10_000;
+        final MutableLong nextExpected = new MutableLong();
+        final EgressListener listener = (clusterSessionId, timestamp, buffer, offset, length, header) ->
+        {
+            assertEquals(nextExpected.value, buffer.getLong(offset));
+            nextExpected.value++;
+        };
+
+        launch(16 * 1024);
+        aeronCluster = connectToCluster(listener);
+
+        sendMessages(messageCount);
+        awaitEchoes(messageCount, () -> nextExpected.value);
+    }
+
+    @Ignore
+    @Test
+    public void shouldReportThroughputByIngressBatchLength()
+    {
+        final int messageCount = 1_000_000;
+        final int[] batchLengths = { 0, 1024, 4 * 1024, 16 * 1024, 64 * 1024 };
+
+        for (final int batchLength : batchLengths)
+        {
+            final MutableLong received = new MutableLong();
+            launch(batchLength);
+            aeronCluster = connectToCluster((clusterSessionId, timestamp, buffer, offset, length, header) ->
+                received.value++);
+
+            final long startNs = System.nanoTime();
+            sendMessages(messageCount);
+            awaitEchoes(messageCount, () -> received.value);
+            final long durationNs = System.nanoTime() - startNs;
+
+            System.out.printf(
+                "ingress batch length %,d bytes: %,d msgs/sec%n",
+                batchLength,
+                messageCount * TimeUnit.SECONDS.toNanos(1) / durationNs);
+
+            close();
+        }
+    }
+
+    private void sendMessages(final int messageCount)
+    {
+        final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer(MESSAGE_LENGTH);
+
+        for (long i = 0; i < messageCount; i++)
+        {
+            msgBuffer.putLong(0, i);
+            while (aeronCluster.offer(msgBuffer, 0, MESSAGE_LENGTH) < 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                aeronCluster.pollEgress();
+                Thread.yield();
+            }
+
+            aeronCluster.pollEgress();
+        }
+    }
+
+    private void awaitEchoes(final int messageCount, final LongSupplier echoes)
+    {
+        while (echoes.getAsLong() < messageCount)
+        {
+            if (aeronCluster.pollEgress() <= 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+        }
+    }
+
+    private void launch(final int ingressBatchLength)
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(true),
+            new ConsensusModule.Context()
+                .ingressBatchLength(ingressBatchLength)
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(true));
+
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(new StubClusteredService()
+                {
+                    public void onSessionMessage(
+                        final ClientSession session,
+                        final long timestamp,
+                        final DirectBuffer buffer,
+                        final int offset,
+                        final int length,
+                        final Header header)
+                    {
+                        while (session.offer(buffer, offset, length) < 0)
+                        {
+                            cluster.idle();
+                        }
+                    }
+                })
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+    }
+
+    private void close()
+    {
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+
+        aeronCluster = null;
+        container = null;
+        clusteredMediaDriver = null;
+    }
+
+    private static AeronCluster connectToCluster(final EgressListener egressListener)
+    {
+        return AeronCluster.connect(
+            new AeronCluster.Context()
+                .egressListener(egressListener)
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+    }
+}
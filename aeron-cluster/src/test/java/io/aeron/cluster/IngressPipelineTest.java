@@ -0,0 +1,362 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.codecs.MessageHeaderEncoder;
+import io.aeron.cluster.codecs.SessionKeepAliveEncoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderEncoder;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.ControlledFragmentHandler.Action;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.MutableLong;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+
+import static io.aeron.cluster.client.AeronCluster.SESSION_HEADER_LENGTH;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class IngressPipelineTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int MESSAGE_LENGTH = 32;
+    private static final MessageHandler NO_OP_HANDLER = (msgTypeId, buffer, index, length) -> {};
+
+    private final AtomicCounter mockInvalidRequests = mock(AtomicCounter.class);
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[256]);
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+
+    @After
+    public void after()
+    {
+        close();
+    }
+
+    @Test
+    public void shouldAdmitMessagesForCurrentTermAndAllocatedSessions()
+    {
+        final IngressPipeline pipeline = newPipeline();
+        pipeline.admit(3, 10);
+
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, sessionMessage(3, 9), null));
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, keepAlive(4, 1), null));
+        assertEquals(2, pipeline.ringBuffer().read(NO_OP_HANDLER));
+        verifyNoMoreInteractions(mockInvalidRequests);
+    }
+
+    @Test
+    public void shouldDropMessagesForPastTermsAndUnallocatedSessions()
+    {
+        final IngressPipeline pipeline = newPipeline();
+        pipeline.admit(3, 10);
+
+        pipeline.onFragment(buffer, 0, sessionMessage(2, 1), null);
+        pipeline.onFragment(buffer, 0, sessionMessage(3, 10), null);
+        pipeline.onFragment(buffer, 0, keepAlive(2, 1), null);
+
+        assertEquals(0, pipeline.ringBuffer().read(NO_OP_HANDLER));
+        verifyNoMoreInteractions(mockInvalidRequests);
+    }
+
+    @Test
+    public void shouldCountMalformedMessagesAsInvalid()
+    {
+        final IngressPipeline pipeline = newPipeline();
+        pipeline.admit(3, 10);
+
+        pipeline.onFragment(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH - 1, null);
+        pipeline.onFragment(buffer, 0, sessionMessage(3, 1) - MESSAGE_LENGTH - 1, null);
+
+        messageHeaderEncoder.wrap(buffer, 0).schemaId(MessageHeaderEncoder.SCHEMA_ID + 1);
+        pipeline.onFragment(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH, null);
+
+        assertEquals(0, pipeline.ringBuffer().read(NO_OP_HANDLER));
+        verify(mockInvalidRequests, times(3)).incrementOrdered();
+    }
+
+    @Test
+    public void shouldAbortWhenRingBufferIsFull()
+    {
+        final IngressPipeline pipeline = newPipeline();
+        pipeline.admit(0, 2);
+
+        final int length = sessionMessage(0, 1);
+        Action action;
+        int count = 0;
+        while (Action.CONTINUE == (action = pipeline.onFragment(buffer, 0, length, null)))
+        {
+            count++;
+        }
+
+        assertEquals(Action.ABORT, action);
+        assertEquals(count, pipeline.ringBuffer().read(NO_OP_HANDLER, Integer.MAX_VALUE));
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, length, null));
+    }
+
+    @Test
+    public void shouldHandOverMessagesLongerThanRingBufferInOrder()
+    {
+        final IngressPipeline pipeline = newPipeline();
+        pipeline.admit(0, 2);
+
+        final int largeLength = sessionMessage(0, 1) + pipeline.ringBuffer().maxMsgLength();
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, SESSION_HEADER_LENGTH, null));
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, largeLength, null));
+        assertEquals(Action.ABORT, pipeline.onFragment(buffer, 0, largeLength, null));
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, SESSION_HEADER_LENGTH, null));
+
+        final ConsensusModuleAgent mockConsensusModuleAgent = mock(ConsensusModuleAgent.class);
+        when(mockConsensusModuleAgent.onIngressMessage(anyLong(), anyLong(), any(), anyInt(), anyInt()))
+            .thenReturn(Action.CONTINUE);
+        final IngressAdapter ingressAdapter = new IngressAdapter(
+            10, mockConsensusModuleAgent, mockInvalidRequests, pipeline);
+
+        assertEquals(3, ingressAdapter.poll());
+        assertEquals(0, pipeline.largeMessageLength());
+        assertEquals(Action.CONTINUE, pipeline.onFragment(buffer, 0, largeLength, null));
+        assertEquals(1, ingressAdapter.poll());
+
+        final InOrder inOrder = inOrder(mockConsensusModuleAgent);
+        inOrder.verify(mockConsensusModuleAgent).onIngressMessage(eq(0L), eq(1L), any(), anyInt(), eq(0));
+        inOrder.verify(mockConsensusModuleAgent)
+            .onIngressMessage(eq(0L), eq(1L), any(), anyInt(), eq(largeLength - SESSION_HEADER_LENGTH));
+        inOrder.verify(mockConsensusModuleAgent).onIngressMessage(eq(0L), eq(1L), any(), anyInt(), eq(0));
+        inOrder.verify(mockConsensusModuleAgent)
+            .onIngressMessage(eq(0L), eq(1L), any(), anyInt(), eq(largeLength - SESSION_HEADER_LENGTH));
+        verifyNoMoreInteractions(mockInvalidRequests);
+    }
+
+    @Test(timeout = 20_000)
+    public void shouldEchoMessagesInOrderViaIngressPipeline()
+    {
+        final int messageCount = 10_000;
+        final MutableLong nextExpected = new MutableLong();
+        final EgressListener listener = (clusterSessionId, timestamp, buffer, offset, length, header) ->
+        {
+            assertEquals(nextExpected.value, buffer.getLong(offset));
+            nextExpected.value++;
+        };
+
+        launch(true);
+        aeronCluster = connectToCluster(listener);
+
+        final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer(MESSAGE_LENGTH);
+        for (long i = 0; i < messageCount; i++)
+        {
+            msgBuffer.putLong(0, i);
+            while (aeronCluster.offer(msgBuffer, 0, MESSAGE_LENGTH) < 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                aeronCluster.pollEgress();
+                Thread.yield();
+            }
+
+            aeronCluster.pollEgress();
+        }
+
+        while (nextExpected.value < messageCount)
+        {
+            if (aeronCluster.pollEgress() <= 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+        }
+    }
+
+    @Ignore
+    @Test
+    public void shouldReportEchoLatencyBreakdownWithAndWithoutIngressPipeline()
+    {
+        final int warmupCount = 10_000;
+        final int messageCount = 50_000;
+
+        for (final boolean isPipelined : new boolean[]{ false, true })
+        {
+            final MutableLong received = new MutableLong();
+            launch(isPipelined);
+            aeronCluster = connectToCluster((clusterSessionId, timestamp, buffer, offset, length, header) ->
+                received.value++);
+
+            final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer(MESSAGE_LENGTH);
+            final long[] offerNs = new long[messageCount];
+            final long[] echoNs = new long[messageCount];
+
+            for (int i = -warmupCount; i < messageCount; i++)
+            {
+                final long startNs = System.nanoTime();
+                while (aeronCluster.offer(msgBuffer, 0, MESSAGE_LENGTH) < 0)
+                {
+                    Thread.yield();
+                }
+                final long offeredNs = System.nanoTime();
+
+                final long expected = received.value + 1;
+                while (received.value < expected)
+                {
+                    aeronCluster.pollEgress();
+                }
+
+                if (i >= 0)
+                {
+                    offerNs[i] = offeredNs - startNs;
+                    echoNs[i] = System.nanoTime() - offeredNs;
+                }
+            }
+
+            Arrays.sort(offerNs);
+            Arrays.sort(echoNs);
+            System.out.printf(
+                "%s: offer p50=%,dns p99=%,dns | ingress to egress p50=%,dns p99=%,dns p99.9=%,dns max=%,dns%n",
+                isPipelined ? "ingress pipeline" : "consensus thread",
+                percentile(offerNs, 0.5),
+                percentile(offerNs, 0.99),
+                percentile(echoNs, 0.5),
+                percentile(echoNs, 0.99),
+                percentile(echoNs, 0.999),
+                echoNs[messageCount - 1]);
+
+            close();
+        }
+    }
+
+    private static long percentile(final long[] sortedValues, final double percentile)
+    {
+        return sortedValues[(int)(sortedValues.length * percentile)];
+    }
+
+    private IngressPipeline newPipeline()
+    {
+        return new IngressPipeline(
+            10, mockInvalidRequests, new UnsafeBuffer(new byte[1024 + TRAILER_LENGTH]));
+    }
+
+    private int sessionMessage(final long leadershipTermId, final long clusterSessionId)
+    {
+        new SessionMessageHeaderEncoder()
+            .wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .leadershipTermId(leadershipTermId)
+            .clusterSessionId(clusterSessionId)
+            .timestamp(0);
+
+        return SESSION_HEADER_LENGTH + MESSAGE_LENGTH;
+    }
+
+    private int keepAlive(final long leadershipTermId, final long clusterSessionId)
+    {
+        new SessionKeepAliveEncoder()
+            .wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .leadershipTermId(leadershipTermId)
+            .clusterSessionId(clusterSessionId);
+
+        return MessageHeaderEncoder.ENCODED_LENGTH + SessionKeepAliveEncoder.BLOCK_LENGTH;
+    }
+
+    private void launch(final boolean isPipelined)
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .sharedIdleStrategy(new YieldingIdleStrategy())
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .idleStrategySupplier(YieldingIdleStrategy::new)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(true),
+            new ConsensusModule.Context()
+                .ingressPipeline(isPipelined)
+                .idleStrategySupplier(YieldingIdleStrategy::new)
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(true));
+
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .idleStrategySupplier(YieldingIdleStrategy::new)
+                .clusteredService(new StubClusteredService()
+                {
+                    public void onSessionMessage(
+                        final ClientSession session,
+                        final long timestamp,
+                        final DirectBuffer buffer,
+                        final int offset,
+                        final int length,
+                        final Header header)
+                    {
+                        while (session.offer(buffer, offset, length) < 0)
+                        {
+                            cluster.idle();
+                        }
+                    }
+                })
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+    }
+
+    private void close()
+    {
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+
+        aeronCluster = null;
+        container = null;
+        clusteredMediaDriver = null;
+    }
+
+    private static AeronCluster connectToCluster(final EgressListener egressListener)
+    {
+        return AeronCluster.connect(
+            new AeronCluster.Context()
+                .egressListener(egressListener)
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+    }
+}
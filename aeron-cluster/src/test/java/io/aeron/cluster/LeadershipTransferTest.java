@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.cluster.service.SnapshotView;
+import org.agrona.BitUtil;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class LeadershipTransferTest
+{
+    private static final int MESSAGES_BEFORE_TRANSFER = 100;
+    private static final int MESSAGES_AFTER_TRANSFER = 100;
+    private static final long SEND_INTERVAL_NS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long HANDOFF_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test(timeout = 30_000L)
+    public void shouldTransferLeadershipToMostUpToDateFollowerViaControlToggle() throws Exception
+    {
+        try (TestCluster cluster = TestCluster.startThreeNodeStaticCluster(NULL_VALUE))
+        {
+            final TestNode leader = cluster.awaitLeader();
+
+            cluster.connectClient();
+            cluster.sendMessages(MESSAGES_BEFORE_TRANSFER);
+            cluster.awaitResponses(MESSAGES_BEFORE_TRANSFER);
+
+            cluster.transferLeadership(leader);
+            cluster.awaitLeadershipEvent(1);
+
+            final TestNode newLeader = cluster.awaitLeader(leader.index());
+            awaitRole(leader, Cluster.Role.FOLLOWER);
+
+            cluster.sendMessages(MESSAGES_AFTER_TRANSFER);
+            cluster.awaitResponses(MESSAGES_BEFORE_TRANSFER + MESSAGES_AFTER_TRANSFER);
+            cluster.awaitMessageCountForService(newLeader, MESSAGES_BEFORE_TRANSFER + MESSAGES_AFTER_TRANSFER);
+        }
+    }
+
+    @Test(timeout = 30_000L)
+    public void shouldTransferLeadershipToChosenFollowerWithinIngressUnavailabilityWindow() throws Exception
+    {
+        try (TestCluster cluster = TestCluster.startThreeNodeStaticCluster(NULL_VALUE))
+        {
+            final TestNode leader = cluster.awaitLeader();
+            final TestNode target = cluster.followers().get(1);
+
+            cluster.connectClient();
+
+            final AeronCluster client = cluster.client();
+            final ExpandableArrayBuffer msgBuffer = cluster.msgBuffer();
+            long timeOfLastResponseNs = System.nanoTime();
+            long maxResponseGapNs = 0;
+            int lastResponseCount = 0;
+            int responseCountAtNewLeader = NULL_VALUE;
+            boolean isTransferRequested = false;
+            int messageId = 0;
+
+            while (NULL_VALUE == responseCountAtNewLeader ||
+                lastResponseCount < (responseCountAtNewLeader + MESSAGES_AFTER_TRANSFER))
+            {
+                TestUtil.checkInterruptedStatus();
+
+                msgBuffer.putInt(0, messageId);
+                if (client.offer(msgBuffer, 0, BitUtil.SIZE_OF_INT) > 0)
+                {
+                    messageId++;
+                }
+
+                client.pollEgress();
+
+                final long nowNs = System.nanoTime();
+                final int responseCount = cluster.responseCount();
+                if (responseCount != lastResponseCount)
+                {
+                    maxResponseGapNs = Math.max(maxResponseGapNs, nowNs - timeOfLastResponseNs);
+                    timeOfLastResponseNs = nowNs;
+                    lastResponseCount = responseCount;
+                }
+
+                if (!isTransferRequested && responseCount >= MESSAGES_BEFORE_TRANSFER)
+                {
+                    leader.transferLeadership(target.index());
+                    isTransferRequested = true;
+                }
+                else if (isTransferRequested && NULL_VALUE == responseCountAtNewLeader && target.isLeader())
+                {
+                    responseCountAtNewLeader = responseCount;
+                }
+
+                LockSupport.parkNanos(SEND_INTERVAL_NS);
+            }
+
+            assertThat(cluster.findLeader().index(), is(target.index()));
+            assertThat(
+                "ingress unavailability window",
+                maxResponseGapNs,
+                lessThan(leader.consensusModule().context().leaderHeartbeatTimeoutNs()));
+        }
+    }
+
+    @Test(timeout = 30_000L)
+    public void shouldRecordBackgroundSnapshotWhenLeadershipTransferredWhileSnapshotIsWritten() throws Exception
+    {
+        System.setProperty(ClusteredServiceContainer.Configuration.BACKGROUND_SNAPSHOT_PROP_NAME, "true");
+        HeldSnapshotService.WRITING_COUNT.set(0);
+        HeldSnapshotService.isSnapshotHeld = true;
+
+        try (TestCluster cluster = TestCluster.startThreeNodeStaticCluster(NULL_VALUE, HeldSnapshotService::new))
+        {
+            final TestNode leader = cluster.awaitLeader();
+
+            cluster.connectClient();
+            cluster.sendMessages(MESSAGES_BEFORE_TRANSFER);
+            cluster.awaitResponses(MESSAGES_BEFORE_TRANSFER);
+
+            cluster.takeSnapshot(leader);
+            while (HeldSnapshotService.WRITING_COUNT.get() < 3)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+
+            cluster.transferLeadership(leader);
+            final AtomicCounter controlToggle = ClusterControl.findControlToggle(leader.countersReader());
+            while (ClusterControl.ToggleState.NEUTRAL.code() != controlToggle.get())
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.yield();
+            }
+
+            LockSupport.parkNanos(HANDOFF_WAIT_NS);
+            assertThat(leader.consensusModule().context().snapshotCounter().get(), is(0L));
+
+            HeldSnapshotService.isSnapshotHeld = false;
+            cluster.awaitLeadershipEvent(1);
+
+            for (int i = 0; i < 3; i++)
+            {
+                cluster.awaitSnapshotCounter(cluster.node(i), 1);
+            }
+        }
+        finally
+        {
+            HeldSnapshotService.isSnapshotHeld = false;
+            System.clearProperty(ClusteredServiceContainer.Configuration.BACKGROUND_SNAPSHOT_PROP_NAME);
+        }
+    }
+
+    @Test
+    public void shouldOnlyHandoffToFollowerWithCurrentAppendedPosition()
+    {
+        final ClusterMember[] members = ClusterMember.parse(
+            "0,localhost:20110,localhost:20220,localhost:20330,localhost:20440,localhost:8010|" +
+            "1,localhost:20111,localhost:20221,localhost:20331,localhost:20441,localhost:8011|" +
+            "2,localhost:20112,localhost:20222,localhost:20332,localhost:20442,localhost:8012|");
+        final long appendPosition = 1024;
+        final long nowNs = TimeUnit.SECONDS.toNanos(10);
+        final long timeoutNs = TimeUnit.SECONDS.toNanos(1);
+
+        assertThat(LeadershipTransfer.handoffCandidate(members, members[0], appendPosition, nowNs, timeoutNs),
+            nullValue());
+
+        members[1].logPosition(appendPosition * 2);
+        assertThat(LeadershipTransfer.handoffCandidate(members, members[0], appendPosition, nowNs, timeoutNs),
+            nullValue());
+
+        members[1].timeOfLastAppendPositionNs(nowNs - timeoutNs - 1);
+        members[2].logPosition(appendPosition - 1).timeOfLastAppendPositionNs(nowNs);
+        assertThat(LeadershipTransfer.handoffCandidate(members, members[0], appendPosition, nowNs, timeoutNs),
+            nullValue());
+
+        members[2].logPosition(appendPosition);
+        assertThat(LeadershipTransfer.handoffCandidate(members, members[0], appendPosition, nowNs, timeoutNs),
+            is(members[2]));
+    }
+
+    private static void awaitRole(final TestNode node, final Cluster.Role role)
+    {
+        while (node.role() != role)
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+    }
+
+    static final class HeldSnapshotService extends TestNode.TestService
+    {
+        static final AtomicInteger WRITING_COUNT = new AtomicInteger();
+        static volatile boolean isSnapshotHeld = false;
+
+        public SnapshotView onTakeSnapshotView()
+        {
+            return (snapshotPublication, idleStrategy) ->
+            {
+                WRITING_COUNT.incrementAndGet();
+                idleStrategy.reset();
+                while (isSnapshotHeld)
+                {
+                    idleStrategy.idle();
+                }
+
+                onTakeSnapshot(snapshotPublication);
+            };
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Publication;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LogPublisherTest
+{
+    private static final long LEADERSHIP_TERM_ID = 3;
+    private static final int BATCH_LENGTH = 256;
+
+    private final Publication publication = mock(Publication.class);
+    private final ConsensusModuleAgent consensusModuleAgent = mock(ConsensusModuleAgent.class);
+    private final LogAdapter logAdapter = new LogAdapter(null, consensusModuleAgent);
+    private final ArrayList<UnsafeBuffer> appended = new ArrayList<>();
+    private final UnsafeBuffer msgBuffer = new UnsafeBuffer(new byte[BATCH_LENGTH]);
+    private final LogPublisher logPublisher = new LogPublisher(BATCH_LENGTH, BATCH_LENGTH);
+
+    @Before
+    public void before()
+    {
+        when(publication.maxMessageLength()).thenReturn(BATCH_LENGTH * 4);
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt(), isNull())).then(
+            (invocation) ->
+            {
+                final DirectBuffer buffer = invocation.getArgument(0);
+                final int offset = invocation.getArgument(1);
+                final int length = invocation.getArgument(2);
+                final UnsafeBuffer copy = new UnsafeBuffer(new byte[length]);
+                copy.putBytes(0, buffer, offset, length);
+                appended.add(copy);
+
+                return 1024L * appended.size();
+            });
+
+        logPublisher.publication(publication);
+    }
+
+    @Test
+    public void shouldAppendBatchOfIngressMessagesInSingleOffer()
+    {
+        assertTrue(appendIngressMessage(1, "first"));
+        assertTrue(appendIngressMessage(2, "second"));
+        assertTrue(appendIngressMessage(1, "third"));
+        verify(publication, never()).offer(any(DirectBuffer.class), anyInt(), anyInt(), isNull());
+        assertEquals(3, logPublisher.ingressBatchCount());
+
+        assertTrue(logPublisher.flushIngressBatch());
+        assertEquals(0, logPublisher.ingressBatchCount());
+        assertEquals(1, appended.size());
+
+        final Header header = mock(Header.class);
+        final UnsafeBuffer batch = appended.get(0);
+        logAdapter.onFragment(batch, 0, batch.capacity(), header);
+
+        final InOrder inOrder = inOrder(consensusModuleAgent);
+        inOrder.verify(consensusModuleAgent).onReplaySessionMessage(
+            eq(1L), eq(7L), any(DirectBuffer.class), anyInt(), eq("first".length()), eq(header));
+        inOrder.verify(consensusModuleAgent).onReplaySessionMessage(
+            eq(2L), eq(7L), any(DirectBuffer.class), anyInt(), eq("second".length()), eq(header));
+        inOrder.verify(consensusModuleAgent).onReplaySessionMessage(
+            eq(1L), eq(7L), any(DirectBuffer.class), anyInt(), eq("third".length()), eq(header));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void shouldDeliverBatchedMessagePayloads()
+    {
+        final ArrayList<String> messages = new ArrayList<>();
+        doAnswer(
+            (invocation) ->
+            {
+                final DirectBuffer buffer = invocation.getArgument(2);
+                final int offset = invocation.getArgument(3);
+                final int length = invocation.getArgument(4);
+                messages.add(buffer.getStringWithoutLengthAscii(offset, length));
+                return null;
+            })
+            .when(consensusModuleAgent)
+            .onReplaySessionMessage(anyLong(), anyLong(), any(), anyInt(), anyInt(), any());
+
+        appendIngressMessage(1, "alpha");
+        appendIngressMessage(1, "");
+        appendIngressMessage(1, "gamma");
+        logPublisher.flushIngressBatch();
+
+        final UnsafeBuffer batch = appended.get(0);
+        logAdapter.onFragment(batch, 0, batch.capacity(), mock(Header.class));
+
+        assertEquals(3, messages.size());
+        assertEquals("alpha", messages.get(0));
+        assertEquals("", messages.get(1));
+        assertEquals("gamma", messages.get(2));
+    }
+
+    @Test
+    public void shouldFlushBatchWhenNextMessageWouldExceedBatchLength()
+    {
+        final String msg = new String(new char[100]).replace('\0', 'x');
+
+        assertTrue(appendIngressMessage(1, msg));
+        assertTrue(appendIngressMessage(1, msg));
+        assertTrue(appendIngressMessage(1, msg));
+
+        assertEquals(1, appended.size());
+        assertEquals(1, logPublisher.ingressBatchCount());
+    }
+
+    @Test
+    public void shouldAppendBatchBeforeOtherLogEvents()
+    {
+        final BufferClaim anyClaim = any(BufferClaim.class);
+        when(publication.tryClaim(anyInt(), anyClaim)).thenReturn(Publication.BACK_PRESSURED);
+
+        appendIngressMessage(1, "message");
+        logPublisher.appendTimer(5, LEADERSHIP_TERM_ID, 8);
+
+        final InOrder inOrder = inOrder(publication);
+        inOrder.verify(publication).offer(any(DirectBuffer.class), anyInt(), anyInt(), isNull());
+        inOrder.verify(publication, atLeastOnce()).tryClaim(anyInt(), any(BufferClaim.class));
+        assertEquals(0, logPublisher.ingressBatchCount());
+    }
+
+    @Test
+    public void shouldRetainBatchWhenBackPressured()
+    {
+        reset(publication);
+        when(publication.maxMessageLength()).thenReturn(BATCH_LENGTH * 4);
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt(), isNull()))
+            .thenReturn(Publication.BACK_PRESSURED);
+
+        appendIngressMessage(1, "message");
+
+        assertFalse(logPublisher.flushIngressBatch());
+        assertEquals(1, logPublisher.ingressBatchCount());
+    }
+
+    @Test
+    public void shouldAppendBatchOfServiceMessagesAfterPendingIngressBatch()
+    {
+        final long serviceSessionId = Long.MIN_VALUE + 1;
+
+        appendIngressMessage(1, "ingress");
+        assertTrue(addServiceMessage(serviceSessionId, "first"));
+        assertTrue(addServiceMessage(serviceSessionId + 1, "second"));
+        assertEquals(2, logPublisher.serviceBatchCount());
+        assertEquals(1, logPublisher.ingressBatchCount());
+
+        assertEquals(2048L, logPublisher.appendServiceMessageBatch(LEADERSHIP_TERM_ID, 9));
+        assertEquals(0, logPublisher.serviceBatchCount());
+        assertEquals(0, logPublisher.ingressBatchCount());
+        assertEquals(2, appended.size());
+
+        final Header header = mock(Header.class);
+        final UnsafeBuffer batch = appended.get(1);
+        logAdapter.onFragment(batch, 0, batch.capacity(), header);
+
+        final InOrder inOrder = inOrder(consensusModuleAgent);
+        inOrder.verify(consensusModuleAgent).onReplaySessionMessage(
+            eq(serviceSessionId), eq(9L), any(DirectBuffer.class), anyInt(), eq("first".length()), eq(header));
+        inOrder.verify(consensusModuleAgent).onReplaySessionMessage(
+            eq(serviceSessionId + 1), eq(9L), any(DirectBuffer.class), anyInt(), eq("second".length()), eq(header));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void shouldNotAddServiceMessageBeyondBatchLength()
+    {
+        final String msg = new String(new char[100]).replace('\0', 'x');
+        final String tooLong = new String(new char[BATCH_LENGTH]).replace('\0', 'x');
+
+        assertFalse(addServiceMessage(-1, tooLong));
+        assertTrue(addServiceMessage(-1, msg));
+        assertTrue(addServiceMessage(-1, msg));
+        assertFalse(addServiceMessage(-1, msg));
+
+        assertEquals(2, logPublisher.serviceBatchCount());
+        verify(publication, never()).offer(any(DirectBuffer.class), anyInt(), anyInt(), isNull());
+    }
+
+    @Test
+    public void shouldClearServiceMessageBatchWhenBackPressured()
+    {
+        reset(publication);
+        when(publication.maxMessageLength()).thenReturn(BATCH_LENGTH * 4);
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt(), isNull()))
+            .thenReturn(Publication.BACK_PRESSURED);
+
+        addServiceMessage(-1, "message");
+
+        assertEquals(Publication.BACK_PRESSURED, logPublisher.appendServiceMessageBatch(LEADERSHIP_TERM_ID, 9));
+        assertEquals(0, logPublisher.serviceBatchCount());
+    }
+
+    private boolean addServiceMessage(final long clusterSessionId, final String msg)
+    {
+        final int length = msgBuffer.putStringWithoutLengthAscii(0, msg);
+
+        return logPublisher.addServiceMessage(clusterSessionId, msgBuffer, 0, length);
+    }
+
+    private boolean appendIngressMessage(final long clusterSessionId, final String msg)
+    {
+        final int length = msgBuffer.putStringWithoutLengthAscii(0, msg);
+
+        return logPublisher.appendIngressMessage(LEADERSHIP_TERM_ID, clusterSessionId, 7, msgBuffer, 0, length);
+    }
+}
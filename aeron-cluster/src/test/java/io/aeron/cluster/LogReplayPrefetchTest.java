@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Counter;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LogReplayPrefetchTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int MESSAGE_LENGTH = 64;
+    private static final String LOG_CHANNEL = "aeron:udp?endpoint=localhost:9030|term-length=64k";
+
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+    private CountingService service;
+
+    private final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final Counter mockSnapshotCounter = mock(Counter.class);
+
+    @Before
+    public void before()
+    {
+        when(mockSnapshotCounter.incrementOrdered()).thenAnswer((inv) -> snapshotCount.getAndIncrement());
+    }
+
+    @After
+    public void after()
+    {
+        close();
+    }
+
+    @Test(timeout = 30_000)
+    public void shouldRecoverFromSnapshotAndPrefetchedLogSpanningTerms()
+    {
+        launch(true);
+
+        sendMessages(0, 1_000);
+        awaitMessageCount(1_000);
+        takeSnapshot();
+
+        sendMessages(1_000, 3_000);
+        awaitMessageCount(4_000);
+
+        forceCloseForRestart();
+        launch(false);
+
+        sendMessages(4_000, 1);
+        awaitMessageCount(4_001);
+
+        assertEquals(expectedSum(4_001), service.valueSum.get());
+
+        final long logReplayPosition = clusteredMediaDriver.consensusModule().context()
+            .logReplayPositionCounter().get();
+        assertThat(logReplayPosition, greaterThan(64L * 1024));
+        assertThat(clusteredMediaDriver.consensusModule().context().logReplayRateCounter().get(), greaterThan(0L));
+
+        assertThat(container.context().snapshotLoadPositionCounter().get(), greaterThan(0L));
+        assertThat(container.context().snapshotLoadRateCounter().get(), greaterThan(0L));
+    }
+
+    private static long expectedSum(final int messageCount)
+    {
+        return ((long)messageCount * (messageCount - 1)) / 2;
+    }
+
+    private void sendMessages(final long firstValue, final int count)
+    {
+        for (long value = firstValue, last = firstValue + count; value < last; value++)
+        {
+            msgBuffer.putLong(0, value);
+            while (aeronCluster.offer(msgBuffer, 0, MESSAGE_LENGTH) < 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                aeronCluster.pollEgress();
+                Thread.yield();
+            }
+        }
+    }
+
+    private void awaitMessageCount(final long messageCount)
+    {
+        while (service.messageCount.get() < messageCount)
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void takeSnapshot()
+    {
+        final long expectedCount = snapshotCount.get() + 1;
+        final AtomicCounter controlToggle = ClusterControl.findControlToggle(
+            container.context().aeron().countersReader());
+        assertNotNull(controlToggle);
+        assertTrue(ClusterControl.ToggleState.SNAPSHOT.toggle(controlToggle));
+
+        while (snapshotCount.get() < expectedCount ||
+            controlToggle.get() != ClusterControl.ToggleState.NEUTRAL.code())
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void launch(final boolean initialLaunch)
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .warnIfDirectoryExists(initialLaunch)
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(initialLaunch),
+            new ConsensusModule.Context()
+                .logChannel(LOG_CHANNEL)
+                .logReplayPrefetch(true)
+                .snapshotCounter(mockSnapshotCounter)
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(initialLaunch));
+
+        service = new CountingService();
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(service)
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+
+        aeronCluster = AeronCluster.connect(
+            new AeronCluster.Context()
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+    }
+
+    private void forceCloseForRestart()
+    {
+        clusteredMediaDriver.consensusModule().close();
+        container.close();
+        aeronCluster.close();
+        clusteredMediaDriver.close();
+    }
+
+    private void close()
+    {
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+
+        aeronCluster = null;
+        container = null;
+        clusteredMediaDriver = null;
+    }
+
+    static final class CountingService extends StubClusteredService
+    {
+        private final ExpandableArrayBuffer snapshotBuffer = new ExpandableArrayBuffer();
+        final AtomicLong messageCount = new AtomicLong();
+        final AtomicLong valueSum = new AtomicLong();
+
+        public void onStart(final Cluster cluster, final Image snapshotImage)
+        {
+            super.onStart(cluster, snapshotImage);
+
+            if (null != snapshotImage)
+            {
+                while (0 == snapshotImage.poll(
+                    (buffer, offset, length, header) ->
+                    {
+                        messageCount.set(buffer.getLong(offset));
+                        valueSum.set(buffer.getLong(offset + SIZE_OF_LONG));
+                    },
+                    1))
+                {
+                    cluster.idle();
+                }
+            }
+        }
+
+        public void onSessionMessage(
+            final ClientSession session,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            valueSum.addAndGet(buffer.getLong(offset));
+            messageCount.incrementAndGet();
+        }
+
+        public void onTakeSnapshot(final Publication snapshotPublication)
+        {
+            snapshotBuffer.putLong(0, messageCount.get());
+            snapshotBuffer.putLong(SIZE_OF_LONG, valueSum.get());
+
+            while (snapshotPublication.offer(snapshotBuffer, 0, SIZE_OF_LONG * 2) < 0)
+            {
+                cluster.idle();
+            }
+        }
+    }
+}
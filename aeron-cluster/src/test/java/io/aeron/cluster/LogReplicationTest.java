@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import org.agrona.collections.MutableInteger;
+import org.agrona.collections.MutableLong;
+import org.agrona.concurrent.status.CountersReader;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.cluster.ConsensusModule.Configuration.LOG_REPLICATION_POSITION_TYPE_ID;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LogReplicationTest
+{
+    @Test(timeout = 30_000)
+    public void shouldCatchUpFollowerByReplicatingLogFromLeader() throws Exception
+    {
+        try (TestCluster cluster = TestCluster.startThreeNodeStaticCluster(NULL_VALUE))
+        {
+            cluster.awaitLeader();
+
+            TestNode follower = cluster.followers().get(0);
+            cluster.stopNode(follower);
+
+            final int messageCount = 1_000;
+            cluster.connectClient();
+            cluster.sendMessages(messageCount);
+            cluster.awaitResponses(messageCount);
+
+            cluster.catchupReplicationThreshold(0);
+            follower = cluster.startStaticNode(follower.index(), false);
+            cluster.awaitMessageCountForService(follower, messageCount);
+
+            final CountersReader countersReader = follower.countersReader();
+            assertThat(countersOfType(countersReader, LOG_REPLICATION_POSITION_TYPE_ID), is(1));
+            assertTrue(counterValueOfType(countersReader, LOG_REPLICATION_POSITION_TYPE_ID) > 0);
+
+            cluster.sendMessages(messageCount);
+            cluster.awaitResponses(messageCount * 2);
+            cluster.awaitMessageCountForService(follower, messageCount * 2);
+        }
+    }
+
+    @Ignore
+    @Test
+    public void shouldCompareFollowerCatchUpTimeOverLargeGap() throws Exception
+    {
+        final long gapBytes = Long.getLong("aeron.cluster.test.catchup.gap.bytes", 1024L * 1024 * 1024);
+        final int messageLength = 1024;
+        final int messageCount = (int)(gapBytes / messageLength);
+
+        final long replayMergeNs = followerCatchUpTimeNs(Long.MAX_VALUE, messageCount, messageLength);
+        final long replicationNs = followerCatchUpTimeNs(0, messageCount, messageLength);
+
+        System.out.format(
+            "catch-up of %,d bytes: replay merge %,d ms, log replication %,d ms%n",
+            gapBytes,
+            TimeUnit.NANOSECONDS.toMillis(replayMergeNs),
+            TimeUnit.NANOSECONDS.toMillis(replicationNs));
+    }
+
+    private long followerCatchUpTimeNs(
+        final long catchupReplicationThreshold, final int messageCount, final int messageLength) throws Exception
+    {
+        try (TestCluster cluster = TestCluster.startThreeNodeStaticCluster(NULL_VALUE))
+        {
+            cluster.awaitLeader();
+
+            TestNode follower = cluster.followers().get(0);
+            cluster.stopNode(follower);
+
+            cluster.connectClient();
+            cluster.msgBuffer().setMemory(0, messageLength, (byte)0);
+            for (int i = 0; i < messageCount; i++)
+            {
+                cluster.msgBuffer().putInt(0, i);
+                cluster.sendMessage(messageLength);
+            }
+            cluster.awaitResponses(messageCount);
+
+            cluster.catchupReplicationThreshold(catchupReplicationThreshold);
+            final long startNs = System.nanoTime();
+            follower = cluster.startStaticNode(follower.index(), false);
+            cluster.awaitMessageCountForService(follower, messageCount);
+
+            return System.nanoTime() - startNs;
+        }
+    }
+
+    private static int countersOfType(final CountersReader countersReader, final int typeIdToCount)
+    {
+        final MutableInteger count = new MutableInteger();
+
+        countersReader.forEach(
+            (counterId, typeId, keyBuffer, label) ->
+            {
+                if (typeId == typeIdToCount)
+                {
+                    count.value++;
+                }
+            });
+
+        return count.get();
+    }
+
+    private static long counterValueOfType(final CountersReader countersReader, final int typeIdToFind)
+    {
+        final MutableLong value = new MutableLong(NULL_VALUE);
+
+        countersReader.forEach(
+            (counterId, typeId, keyBuffer, label) ->
+            {
+                if (typeId == typeIdToFind)
+                {
+                    value.value = countersReader.getCounterValue(counterId);
+                }
+            });
+
+        return value.get();
+    }
+}
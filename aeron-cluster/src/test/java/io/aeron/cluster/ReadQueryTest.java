@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Aeron;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.client.ReadQueryClient;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.cluster.service.ReadQuery;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.MutableInteger;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReadQueryTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final String QUERY_CHANNEL = "aeron:udp?endpoint=localhost:9030";
+    private static final int QUERY_STREAM_ID = 109;
+    private static final String RESPONSE_CHANNEL = "aeron:udp?endpoint=localhost:9031";
+    private static final int RESPONSE_STREAM_ID = 110;
+
+    private final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
+    private final MutableInteger egressCount = new MutableInteger();
+    private final QueryResponses responses = new QueryResponses();
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+    private ReadQueryClient queryClient;
+
+    @After
+    public void after()
+    {
+        CloseHelper.close(queryClient);
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void shouldServeQueryOnceLogAppliedToRequestedPosition()
+    {
+        launch();
+        connect();
+        sendMessageAndAwaitEcho(1);
+
+        final long firstCorrelationId = offerQuery(0);
+        awaitResponses(1);
+        assertEquals(firstCorrelationId, responses.correlationId);
+        assertEquals(1, responses.messageCount);
+
+        final long requestedPosition = responses.logPosition + 1;
+        final long secondCorrelationId = offerQuery(requestedPosition);
+
+        final long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        while (System.nanoTime() < deadlineNs)
+        {
+            TestUtil.checkInterruptedStatus();
+            queryClient.poll();
+            Thread.yield();
+        }
+        assertEquals(1, responses.count);
+
+        sendMessageAndAwaitEcho(2);
+
+        awaitResponses(2);
+        assertEquals(secondCorrelationId, responses.correlationId);
+        assertEquals(2, responses.messageCount);
+        assertTrue(responses.logPosition >= requestedPosition);
+    }
+
+    private void sendMessageAndAwaitEcho(final int expectedEgressCount)
+    {
+        msgBuffer.putInt(0, expectedEgressCount);
+        while (aeronCluster.offer(msgBuffer, 0, 4) < 0)
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+
+        while (egressCount.value < expectedEgressCount)
+        {
+            TestUtil.checkInterruptedStatus();
+            if (aeronCluster.pollEgress() <= 0)
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    private long offerQuery(final long logPosition)
+    {
+        long correlationId;
+        while ((correlationId = queryClient.offer(logPosition, msgBuffer, 0, 0)) < 0)
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+
+        return correlationId;
+    }
+
+    private void awaitResponses(final int count)
+    {
+        while (responses.count < count)
+        {
+            TestUtil.checkInterruptedStatus();
+            if (queryClient.poll() <= 0)
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void connect()
+    {
+        final EgressListener egressListener =
+            (clusterSessionId, timestamp, buffer, offset, length, header) -> egressCount.value++;
+
+        aeronCluster = AeronCluster.connect(
+            new AeronCluster.Context()
+                .egressListener(egressListener)
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+
+        final Aeron aeron = aeronCluster.context().aeron();
+        queryClient = new ReadQueryClient(
+            aeron, QUERY_CHANNEL, QUERY_STREAM_ID, RESPONSE_CHANNEL, RESPONSE_STREAM_ID, responses);
+
+        while (!queryClient.isConnected())
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+    }
+
+    private void launch()
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(true),
+            new ConsensusModule.Context()
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(true));
+
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .queryChannel(QUERY_CHANNEL)
+                .queryStreamId(QUERY_STREAM_ID)
+                .clusteredService(new StubClusteredService()
+                {
+                    private final UnsafeBuffer responseBuffer = new UnsafeBuffer(new byte[4]);
+                    private int messageCount;
+
+                    public void onSessionMessage(
+                        final ClientSession session,
+                        final long timestamp,
+                        final DirectBuffer buffer,
+                        final int offset,
+                        final int length,
+                        final Header header)
+                    {
+                        messageCount++;
+                        while (session.offer(buffer, offset, length) < 0)
+                        {
+                            cluster.idle();
+                        }
+                    }
+
+                    public void onReadQuery(
+                        final ReadQuery query, final DirectBuffer buffer, final int offset, final int length)
+                    {
+                        responseBuffer.putInt(0, messageCount);
+                        while (query.respond(responseBuffer, 0, 4) < 0)
+                        {
+                            cluster.idle();
+                        }
+                    }
+                })
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+    }
+
+    static class QueryResponses implements ReadQueryClient.ResponseListener
+    {
+        int count;
+        long correlationId;
+        long logPosition;
+        int messageCount;
+
+        public void onResponse(
+            final long correlationId,
+            final long logPosition,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length)
+        {
+            count++;
+            this.correlationId = correlationId;
+            this.logPosition = logPosition;
+            this.messageCount = buffer.getInt(offset);
+        }
+    }
+}
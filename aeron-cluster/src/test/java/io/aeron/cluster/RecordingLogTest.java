@@ -16,6 +16,7 @@
 package io.aeron.cluster;
 
 import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.client.ClusterException;
 import org.agrona.IoUtil;
 import org.agrona.SystemUtil;
 import org.junit.After;
@@ -28,6 +29,7 @@ import static io.aeron.Aeron.NULL_VALUE;
 import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
 import static io.aeron.cluster.ConsensusModule.Configuration.SERVICE_ID;
 import static io.aeron.cluster.RecordingLog.ENTRY_TYPE_SNAPSHOT;
+import static io.aeron.cluster.RecordingLog.ENTRY_TYPE_SNAPSHOT_DELTA;
 import static io.aeron.cluster.RecordingLog.ENTRY_TYPE_TERM;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
@@ -180,6 +182,23 @@ public class RecordingLogTest
         assertThat(snapshots.get(3).serviceId, is(2));
     }
 
+    @Test(expected = ClusterException.class)
+    public void shouldFailToAddSnapshotsWhichWouldDropSnapshotDeltas()
+    {
+        ignoreMissingRecordingFile = true;
+
+        final ArrayList<RecordingLog.Snapshot> snapshots = new ArrayList<>();
+        final ArrayList<RecordingLog.Entry> entries = new ArrayList<>();
+
+        addRecordingLogEntry(entries, SERVICE_ID, 0, ENTRY_TYPE_TERM);
+        addRecordingLogEntry(entries, 0, 4, ENTRY_TYPE_SNAPSHOT);
+        addRecordingLogEntry(entries, SERVICE_ID, 5, ENTRY_TYPE_SNAPSHOT);
+        addRecordingLogEntry(entries, 0, 6, ENTRY_TYPE_SNAPSHOT_DELTA);
+        addRecordingLogEntry(entries, SERVICE_ID, 7, ENTRY_TYPE_SNAPSHOT);
+
+        RecordingLog.addSnapshots(snapshots, entries, 1, entries.size() - 1);
+    }
+
     @Test
     public void shouldTombstoneLatestSnapshot()
     {
@@ -235,6 +254,178 @@ public class RecordingLogTest
         }
     }
 
+    @Test
+    public void shouldFindTermAndLatestSnapshotAfterTombstoneOfEarlierEntries()
+    {
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            recordingLog.appendTerm(1L, 7L, 0L, 1000L);
+            recordingLog.appendSnapshot(2L, 7L, 0L, 640L, 1001L, 0);
+            recordingLog.appendSnapshot(3L, 7L, 0L, 640L, 1001L, SERVICE_ID);
+            recordingLog.appendSnapshot(4L, 7L, 0L, 1280L, 1002L, 0);
+            recordingLog.appendSnapshot(5L, 7L, 0L, 1280L, 1002L, SERVICE_ID);
+            recordingLog.appendTerm(6L, 8L, 1280L, 1002L);
+
+            assertTrue(recordingLog.tombstoneLatestSnapshot());
+
+            assertEquals(6L, recordingLog.getTermEntry(8L).recordingId);
+            assertEquals(2L, recordingLog.getLatestSnapshot(0).recordingId);
+            assertEquals(3L, recordingLog.getLatestSnapshot(SERVICE_ID).recordingId);
+        }
+    }
+
+    @Test
+    public void shouldCompactTombstonedEntries()
+    {
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            recordingLog.appendTerm(1L, 7L, 0L, 1000L);
+            recordingLog.appendSnapshot(2L, 7L, 0L, 640L, 1001L, 0);
+            recordingLog.appendSnapshot(3L, 7L, 0L, 640L, 1001L, SERVICE_ID);
+            recordingLog.appendSnapshot(4L, 7L, 0L, 1280L, 1002L, 0);
+            recordingLog.appendSnapshot(5L, 7L, 0L, 1280L, 1002L, SERVICE_ID);
+            recordingLog.appendTerm(6L, 8L, 1280L, 1002L);
+
+            assertTrue(recordingLog.tombstoneLatestSnapshot());
+            assertThat(recordingLog.compact(), is(2));
+            assertThat(recordingLog.compact(), is(0));
+        }
+
+        assertFalse(new File(TEMP_DIR, RecordingLog.RECORDING_LOG_COMPACTION_FILE_NAME).exists());
+
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            assertThat(recordingLog.entries().size(), is(4));
+            assertThat(recordingLog.nextEntryIndex(), is(4));
+
+            for (int i = 0; i < 4; i++)
+            {
+                assertThat(recordingLog.entries().get(i).entryIndex, is(i));
+            }
+
+            assertEquals(1280L, recordingLog.getTermEntry(7L).logPosition);
+            assertEquals(6L, recordingLog.getTermEntry(8L).recordingId);
+            assertEquals(3L, recordingLog.getLatestSnapshot(SERVICE_ID).recordingId);
+
+            recordingLog.commitLogPosition(8L, 1920L);
+            recordingLog.appendTerm(7L, 9L, 1920L, 1003L);
+            assertThat(recordingLog.nextEntryIndex(), is(5));
+        }
+
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            assertThat(recordingLog.entries().size(), is(5));
+            assertEquals(1920L, recordingLog.getTermEntry(8L).logPosition);
+            assertEquals(7L, recordingLog.getTermEntry(9L).recordingId);
+        }
+    }
+
+    @Test
+    public void shouldReloadEntriesFromExtendedFileAndTruncateItOnClose()
+    {
+        final File logFile = new File(TEMP_DIR, RecordingLog.RECORDING_LOG_FILE_NAME);
+
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            recordingLog.appendTerm(1L, 0L, 0L, 1000L);
+            recordingLog.appendSnapshot(2L, 0L, 0L, 640L, 1001L, 0);
+            recordingLog.appendSnapshot(3L, 0L, 0L, 640L, 1001L, SERVICE_ID);
+
+            assertTrue(logFile.length() > 3L * RecordingLog.ENTRY_LENGTH);
+
+            try (RecordingLog reloadedLog = new RecordingLog(TEMP_DIR))
+            {
+                assertThat(reloadedLog.entries().size(), is(3));
+                assertThat(reloadedLog.nextEntryIndex(), is(3));
+                assertEquals(2L, reloadedLog.getLatestSnapshot(0).recordingId);
+                assertEquals(3L, reloadedLog.getLatestSnapshot(SERVICE_ID).recordingId);
+            }
+
+            recordingLog.commitLogPosition(0L, 1280L);
+        }
+
+        assertThat(logFile.length(), is(3L * RecordingLog.ENTRY_LENGTH));
+
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            assertThat(recordingLog.entries().size(), is(3));
+            assertEquals(1280L, recordingLog.getTermEntry(0L).logPosition);
+
+            recordingLog.appendTerm(4L, 1L, 1280L, 1002L);
+            assertThat(recordingLog.nextEntryIndex(), is(4));
+        }
+
+        assertThat(logFile.length(), is(4L * RecordingLog.ENTRY_LENGTH));
+    }
+
+    @Test
+    public void shouldCreateRecoveryPlanWithChainOfSnapshotDeltas()
+    {
+        final int serviceCount = 2;
+
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            recordingLog.appendSnapshot(2L, 0L, 0L, 100L, 1L, 1);
+            recordingLog.appendSnapshot(3L, 0L, 0L, 100L, 1L, 0);
+            recordingLog.appendSnapshot(4L, 0L, 0L, 100L, 1L, SERVICE_ID);
+            assertEquals(0, recordingLog.snapshotDeltaCount());
+
+            recordingLog.appendSnapshotDelta(5L, 0L, 0L, 200L, 2L, 1);
+            recordingLog.appendSnapshotDelta(6L, 0L, 0L, 200L, 2L, 0);
+            recordingLog.appendSnapshot(7L, 0L, 0L, 200L, 2L, SERVICE_ID);
+
+            recordingLog.appendSnapshotDelta(8L, 0L, 0L, 300L, 3L, 1);
+            recordingLog.appendSnapshotDelta(9L, 0L, 0L, 300L, 3L, 0);
+            recordingLog.appendSnapshot(10L, 0L, 0L, 300L, 3L, SERVICE_ID);
+        }
+
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            assertEquals(2, recordingLog.snapshotDeltaCount());
+            assertEquals(9L, recordingLog.getLatestSnapshot(0).recordingId);
+
+            final AeronArchive mockArchive = mock(AeronArchive.class);
+            final RecordingLog.RecoveryPlan recoveryPlan = recordingLog.createRecoveryPlan(mockArchive, serviceCount);
+
+            assertThat(recoveryPlan.snapshots.size(), is(3));
+            assertThat(recoveryPlan.snapshots.get(0).recordingId, is(10L));
+            assertThat(recoveryPlan.snapshots.get(1).recordingId, is(3L));
+            assertThat(recoveryPlan.snapshots.get(2).recordingId, is(2L));
+            assertThat(recoveryPlan.appendedLogPosition, is(300L));
+
+            assertThat(recoveryPlan.snapshotDeltaCount(), is(2));
+            final long[] expectedDeltaIds = { 6L, 5L, 9L, 8L };
+            for (int i = 0; i < expectedDeltaIds.length; i++)
+            {
+                assertThat(recoveryPlan.snapshotDeltas.get(i).recordingId, is(expectedDeltaIds[i]));
+                assertThat(recoveryPlan.snapshotDeltas.get(i).serviceId, is(i % serviceCount));
+            }
+        }
+    }
+
+    @Test
+    public void shouldRestartSnapshotDeltaCountAfterBaseSnapshot()
+    {
+        try (RecordingLog recordingLog = new RecordingLog(TEMP_DIR))
+        {
+            assertEquals(NULL_VALUE, recordingLog.snapshotDeltaCount());
+
+            recordingLog.appendSnapshot(1L, 0L, 0L, 100L, 1L, 0);
+            recordingLog.appendSnapshot(2L, 0L, 0L, 100L, 1L, SERVICE_ID);
+            recordingLog.appendSnapshotDelta(3L, 0L, 0L, 200L, 2L, 0);
+            recordingLog.appendSnapshot(4L, 0L, 0L, 200L, 2L, SERVICE_ID);
+            assertEquals(1, recordingLog.snapshotDeltaCount());
+
+            recordingLog.appendSnapshot(5L, 0L, 0L, 300L, 3L, 0);
+            recordingLog.appendSnapshot(6L, 0L, 0L, 300L, 3L, SERVICE_ID);
+            assertEquals(0, recordingLog.snapshotDeltaCount());
+
+            final RecordingLog.RecoveryPlan recoveryPlan = recordingLog.createRecoveryPlan(mock(AeronArchive.class), 1);
+            assertThat(recoveryPlan.snapshots.get(1).recordingId, is(5L));
+            assertTrue(recoveryPlan.snapshotDeltas.isEmpty());
+        }
+    }
+
     private static void addRecordingLogEntry(
         final ArrayList<RecordingLog.Entry> entries,
         final int serviceId,
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.RequestCorrelator;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.SystemNanoClock;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestPipeliningTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int MESSAGE_LENGTH = 32;
+
+    private final ResponseCounter responseCounter = new ResponseCounter();
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+
+    @After
+    public void after()
+    {
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void shouldCorrelatePipelinedRequestsWithResponses()
+    {
+        final int requestCount = 5_000;
+
+        launch();
+        final RequestCorrelator correlator = connect(16);
+        sendRequests(correlator, requestCount);
+
+        assertEquals(requestCount, responseCounter.responseCount);
+        assertEquals(0, responseCounter.timeoutCount);
+        assertEquals(0, correlator.inFlightCount());
+    }
+
+    @Ignore
+    @Test
+    public void shouldReportThroughputOfPipelinedAgainstSynchronousRequests()
+    {
+        final int requestCount = 20_000;
+
+        launch();
+
+        for (final int window : new int[]{ 1, 4, 16, 64, 256 })
+        {
+            final RequestCorrelator correlator = connect(window);
+            sendRequests(correlator, requestCount / 10);
+
+            responseCounter.responseCount = 0;
+            final long startNs = System.nanoTime();
+            sendRequests(correlator, requestCount);
+            final long durationNs = System.nanoTime() - startNs;
+
+            System.out.printf(
+                "window=%,d: %,d requests/sec%n",
+                window,
+                requestCount * TimeUnit.SECONDS.toNanos(1) / durationNs);
+
+            aeronCluster.close();
+            aeronCluster = null;
+        }
+    }
+
+    private void sendRequests(final RequestCorrelator correlator, final int requestCount)
+    {
+        final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer(MESSAGE_LENGTH);
+        final long expectedResponseCount = responseCounter.responseCount + requestCount;
+
+        for (int i = 0; i < requestCount; i++)
+        {
+            while (correlator.offer(msgBuffer, 0, MESSAGE_LENGTH) < 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                if (correlator.poll() <= 0)
+                {
+                    Thread.yield();
+                }
+            }
+        }
+
+        while (responseCounter.responseCount < expectedResponseCount)
+        {
+            TestUtil.checkInterruptedStatus();
+            assertTrue(0 < correlator.inFlightCount());
+            if (correlator.poll() <= 0)
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    private RequestCorrelator connect(final int window)
+    {
+        final RequestCorrelator correlator = new RequestCorrelator(
+            responseCounter,
+            null,
+            window,
+            AeronCluster.Configuration.messageTimeoutNs(),
+            new SystemNanoClock());
+
+        aeronCluster = AeronCluster.connect(
+            new AeronCluster.Context()
+                .egressListener(correlator)
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+
+        correlator.aeronCluster(aeronCluster);
+
+        return correlator;
+    }
+
+    private void launch()
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(true),
+            new ConsensusModule.Context()
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(true));
+
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(new StubClusteredService()
+                {
+                    public void onSessionMessage(
+                        final ClientSession session,
+                        final long timestamp,
+                        final DirectBuffer buffer,
+                        final int offset,
+                        final int length,
+                        final Header header)
+                    {
+                        while (session.offer(buffer, offset, length) < 0)
+                        {
+                            cluster.idle();
+                        }
+                    }
+                })
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+    }
+
+    static class ResponseCounter implements RequestCorrelator.ResponseHandler
+    {
+        long responseCount;
+        long timeoutCount;
+
+        public void onResponse(
+            final long correlationId,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length)
+        {
+            responseCount++;
+        }
+
+        public void onTimeout(final long correlationId)
+        {
+            timeoutCount++;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import io.aeron.Counter;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.LongHashSet;
+import org.agrona.collections.MutableLong;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.cluster.RecordingLog.ENTRY_TYPE_SNAPSHOT;
+import static io.aeron.cluster.RecordingLog.ENTRY_TYPE_SNAPSHOT_DELTA;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SnapshotDeltaTest
+{
+    private static final long MAX_CATALOG_ENTRIES = 1024;
+    private static final int ENTRY_LENGTH = SIZE_OF_LONG * 2;
+    private static final int PROBE_LENGTH = SIZE_OF_INT;
+
+    private ClusteredMediaDriver clusteredMediaDriver;
+    private ClusteredServiceContainer container;
+    private AeronCluster aeronCluster;
+    private KeyValueService service;
+
+    private final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final Counter mockSnapshotCounter = mock(Counter.class);
+
+    @Before
+    public void before()
+    {
+        when(mockSnapshotCounter.incrementOrdered()).thenAnswer((inv) -> snapshotCount.getAndIncrement());
+    }
+
+    @After
+    public void after()
+    {
+        close();
+    }
+
+    @Test(timeout = 30_000)
+    public void shouldRecoverFromBaseSnapshotAndSnapshotDeltas()
+    {
+        launch(2, true);
+
+        putEntries(0, 10_000, 0);
+        takeSnapshot();
+        final long baseLength = service.lastSnapshotLength;
+
+        putEntries(0, 100, 1);
+        takeSnapshot();
+        final long firstDeltaLength = service.lastSnapshotLength;
+
+        putEntries(10_000, 100, 0);
+        takeSnapshot();
+        final long secondDeltaLength = service.lastSnapshotLength;
+
+        assertThat(firstDeltaLength, lessThan(baseLength / 10));
+        assertThat(secondDeltaLength, lessThan(baseLength / 10));
+
+        final File clusterDir = clusteredMediaDriver.consensusModule().context().clusterDir();
+        forceCloseForRestart();
+
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir))
+        {
+            final List<RecordingLog.Entry> entries = recordingLog.entries();
+            int index = 0;
+            final int[] expectedTypes = { ENTRY_TYPE_SNAPSHOT, ENTRY_TYPE_SNAPSHOT_DELTA, ENTRY_TYPE_SNAPSHOT_DELTA };
+            for (final RecordingLog.Entry entry : entries)
+            {
+                if (0 == entry.serviceId)
+                {
+                    assertEquals(expectedTypes[index++], entry.type);
+                }
+            }
+
+            assertEquals(expectedTypes.length, index);
+            assertEquals(2, recordingLog.snapshotDeltaCount());
+        }
+
+        launch(2, false);
+        probe();
+
+        assertEquals(10_100, service.probedEntryCount.get());
+        assertEquals(expectedSum(10_100) + 100, service.probedValueSum.get());
+    }
+
+    @Ignore
+    @Test
+    public void shouldReportSnapshotSizeAndDurationForBaseAndDelta()
+    {
+        final int[] entryCounts = { 100_000, 1_000_000 };
+        final int changedPercent = 1;
+
+        for (final int entryCount : entryCounts)
+        {
+            launch(1, true);
+
+            putEntries(0, entryCount, 0);
+            takeSnapshot();
+            final long baseLength = service.lastSnapshotLength;
+            final long baseDurationNs = service.lastSnapshotDurationNs;
+
+            putEntries(0, entryCount * changedPercent / 100, 1);
+            takeSnapshot();
+            final long deltaLength = service.lastSnapshotLength;
+            final long deltaDurationNs = service.lastSnapshotDurationNs;
+
+            System.out.printf(
+                "entries=%,d changed=%d%%: base %,d bytes in %,dus, delta %,d bytes in %,dus%n",
+                entryCount,
+                changedPercent,
+                baseLength,
+                TimeUnit.NANOSECONDS.toMicros(baseDurationNs),
+                deltaLength,
+                TimeUnit.NANOSECONDS.toMicros(deltaDurationNs));
+
+            close();
+            snapshotCount.set(0);
+        }
+    }
+
+    private static long expectedSum(final int entryCount)
+    {
+        return ((long)entryCount * (entryCount - 1)) / 2;
+    }
+
+    private void putEntries(final int firstKey, final int count, final int valueIncrement)
+    {
+        for (long key = firstKey, last = firstKey + count; key < last; key++)
+        {
+            msgBuffer.putLong(0, key);
+            msgBuffer.putLong(SIZE_OF_LONG, key + valueIncrement);
+            offer(ENTRY_LENGTH);
+        }
+    }
+
+    private void probe()
+    {
+        service.probedEntryCount.set(NULL_VALUE);
+        msgBuffer.putInt(0, 0);
+        offer(PROBE_LENGTH);
+
+        while (NULL_VALUE == service.probedEntryCount.get())
+        {
+            TestUtil.checkInterruptedStatus();
+            Thread.yield();
+        }
+    }
+
+    private void offer(final int length)
+    {
+        while (aeronCluster.offer(msgBuffer, 0, length) < 0)
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void takeSnapshot()
+    {
+        probe();
+
+        final long expectedCount = snapshotCount.get() + 1;
+        final AtomicCounter controlToggle = ClusterControl.findControlToggle(
+            container.context().aeron().countersReader());
+        assertNotNull(controlToggle);
+        assertTrue(ClusterControl.ToggleState.SNAPSHOT.toggle(controlToggle));
+
+        while (snapshotCount.get() < expectedCount ||
+            controlToggle.get() != ClusterControl.ToggleState.NEUTRAL.code())
+        {
+            TestUtil.checkInterruptedStatus();
+            aeronCluster.pollEgress();
+            Thread.yield();
+        }
+    }
+
+    private void launch(final int snapshotDeltaLimit, final boolean initialLaunch)
+    {
+        clusteredMediaDriver = ClusteredMediaDriver.launch(
+            new MediaDriver.Context()
+                .warnIfDirectoryExists(initialLaunch)
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .errorHandler(TestUtil.errorHandler(0))
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(MAX_CATALOG_ENTRIES)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .recordingEventsEnabled(false)
+                .deleteArchiveOnStart(initialLaunch),
+            new ConsensusModule.Context()
+                .snapshotDeltaLimit(snapshotDeltaLimit)
+                .snapshotCounter(mockSnapshotCounter)
+                .errorHandler(TestUtil.errorHandler(0))
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .deleteDirOnStart(initialLaunch));
+
+        service = new KeyValueService();
+        container = ClusteredServiceContainer.launch(
+            new ClusteredServiceContainer.Context()
+                .clusteredService(service)
+                .terminationHook(TestUtil.TERMINATION_HOOK)
+                .errorHandler(TestUtil.errorHandler(0)));
+
+        aeronCluster = AeronCluster.connect(
+            new AeronCluster.Context()
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints("0=localhost:9010,1=localhost:9011,2=localhost:9012"));
+    }
+
+    private void forceCloseForRestart()
+    {
+        clusteredMediaDriver.consensusModule().close();
+        container.close();
+        aeronCluster.close();
+        clusteredMediaDriver.close();
+    }
+
+    private void close()
+    {
+        CloseHelper.close(aeronCluster);
+        CloseHelper.close(container);
+        CloseHelper.close(clusteredMediaDriver);
+
+        if (null != clusteredMediaDriver)
+        {
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+
+        aeronCluster = null;
+        container = null;
+        clusteredMediaDriver = null;
+    }
+
+    static final class KeyValueService extends StubClusteredService
+    {
+        private static final int ENTRIES_PER_FRAGMENT = 256;
+
+        private final Long2LongHashMap valueByKeyMap = new Long2LongHashMap(NULL_VALUE);
+        private final LongHashSet changedKeys = new LongHashSet();
+        private final ExpandableArrayBuffer snapshotBuffer = new ExpandableArrayBuffer();
+        final AtomicLong probedEntryCount = new AtomicLong(NULL_VALUE);
+        final AtomicLong probedValueSum = new AtomicLong(NULL_VALUE);
+        volatile long lastSnapshotLength;
+        volatile long lastSnapshotDurationNs;
+
+        public void onStart(final Cluster cluster, final Image snapshotImage)
+        {
+            super.onStart(cluster, snapshotImage);
+
+            if (null != snapshotImage)
+            {
+                loadEntries(snapshotImage);
+            }
+        }
+
+        public void onLoadSnapshotDelta(final Image snapshotImage)
+        {
+            loadEntries(snapshotImage);
+        }
+
+        public void onSessionMessage(
+            final ClientSession session,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            if (ENTRY_LENGTH == length)
+            {
+                final long key = buffer.getLong(offset);
+                valueByKeyMap.put(key, buffer.getLong(offset + SIZE_OF_LONG));
+                changedKeys.add(key);
+            }
+            else
+            {
+                long sum = 0;
+                final Long2LongHashMap.ValueIterator values = valueByKeyMap.values().iterator();
+                while (values.hasNext())
+                {
+                    sum += values.nextValue();
+                }
+
+                probedValueSum.set(sum);
+                probedEntryCount.set(valueByKeyMap.size());
+            }
+        }
+
+        public void onTakeSnapshot(final Publication snapshotPublication)
+        {
+            final long startNs = System.nanoTime();
+            final long startPosition = snapshotPublication.position();
+
+            putEntryCount(snapshotPublication, valueByKeyMap.size());
+            int index = 0;
+            final Long2LongHashMap.KeyIterator keys = valueByKeyMap.keySet().iterator();
+            while (keys.hasNext())
+            {
+                final long key = keys.nextValue();
+                index = putEntry(snapshotPublication, index, key, valueByKeyMap.get(key));
+            }
+            flush(snapshotPublication, index);
+
+            snapshotTaken(snapshotPublication.position() - startPosition, System.nanoTime() - startNs);
+        }
+
+        public void onTakeSnapshotDelta(final Publication snapshotPublication)
+        {
+            final long startNs = System.nanoTime();
+            final long startPosition = snapshotPublication.position();
+
+            putEntryCount(snapshotPublication, changedKeys.size());
+            int index = 0;
+            final LongHashSet.LongIterator keys = changedKeys.iterator();
+            while (keys.hasNext())
+            {
+                final long key = keys.nextValue();
+                index = putEntry(snapshotPublication, index, key, valueByKeyMap.get(key));
+            }
+            flush(snapshotPublication, index);
+
+            snapshotTaken(snapshotPublication.position() - startPosition, System.nanoTime() - startNs);
+        }
+
+        private void snapshotTaken(final long length, final long durationNs)
+        {
+            changedKeys.clear();
+            lastSnapshotLength = length;
+            lastSnapshotDurationNs = durationNs;
+        }
+
+        private int putEntry(final Publication publication, final int index, final long key, final long value)
+        {
+            final int offset = index * ENTRY_LENGTH;
+            snapshotBuffer.putLong(offset, key);
+            snapshotBuffer.putLong(offset + SIZE_OF_LONG, value);
+
+            if (index + 1 == ENTRIES_PER_FRAGMENT)
+            {
+                flush(publication, index + 1);
+                return 0;
+            }
+
+            return index + 1;
+        }
+
+        private void flush(final Publication publication, final int entryCount)
+        {
+            if (entryCount > 0)
+            {
+                while (publication.offer(snapshotBuffer, 0, entryCount * ENTRY_LENGTH) < 0)
+                {
+                    cluster.idle();
+                }
+            }
+        }
+
+        private void putEntryCount(final Publication publication, final long entryCount)
+        {
+            final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(SIZE_OF_LONG);
+            buffer.putLong(0, entryCount);
+
+            while (publication.offer(buffer, 0, SIZE_OF_LONG) < 0)
+            {
+                cluster.idle();
+            }
+        }
+
+        private void loadEntries(final Image snapshotImage)
+        {
+            final MutableLong remaining = new MutableLong(NULL_VALUE);
+            final FragmentHandler handler = (buffer, offset, length, header) ->
+            {
+                if (NULL_VALUE == remaining.value)
+                {
+                    remaining.value = buffer.getLong(offset);
+                }
+                else
+                {
+                    for (int i = offset, limit = offset + length; i < limit; i += ENTRY_LENGTH)
+                    {
+                        valueByKeyMap.put(buffer.getLong(i), buffer.getLong(i + SIZE_OF_LONG));
+                        remaining.value--;
+                    }
+                }
+            };
+
+            while (0 != remaining.value)
+            {
+                if (0 == snapshotImage.poll(handler, 1))
+                {
+                    cluster.idle();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import org.agrona.collections.MutableLong;
+import org.agrona.concurrent.status.CountersReader;
+import org.junit.Test;
+
+import static io.aeron.Aeron.NULL_VALUE;
+import static io.aeron.cluster.ConsensusModule.Configuration.*;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotRetrievalTest
+{
+    @Test(timeout = 10_000)
+    public void shouldRetrieveSnapshotsConcurrentlyAndReportJoinProgress() throws Exception
+    {
+        try (TestCluster cluster = TestCluster.startCluster(3, 1))
+        {
+            final TestNode leader = cluster.awaitLeader();
+
+            cluster.connectClient();
+            final int messageCount = 10;
+            cluster.sendMessages(messageCount);
+            cluster.awaitResponses(messageCount);
+
+            cluster.takeSnapshot(leader);
+            cluster.awaitSnapshotCounter(cluster.node(0), 1);
+            cluster.awaitSnapshotCounter(cluster.node(1), 1);
+            cluster.awaitSnapshotCounter(cluster.node(2), 1);
+
+            final TestNode dynamicMember = cluster.startDynamicNode(3, true);
+            cluster.awaitSnapshotLoadedForService(dynamicMember);
+            assertThat(dynamicMember.service().messageCount(), is(messageCount));
+
+            final CountersReader countersReader = dynamicMember.countersReader();
+            while (counterValueOfType(countersReader, DYNAMIC_JOIN_TIME_TYPE_ID) <= 0)
+            {
+                TestUtil.checkInterruptedStatus();
+                Thread.sleep(1);
+            }
+
+            assertThat(counterValueOfType(countersReader, SNAPSHOT_RETRIEVAL_BYTES_TYPE_ID), greaterThan(0L));
+            assertThat(counterValueOfType(countersReader, SNAPSHOT_RETRIEVAL_RATE_TYPE_ID), greaterThan(0L));
+        }
+    }
+
+    private static long counterValueOfType(final CountersReader countersReader, final int typeIdToFind)
+    {
+        final MutableLong value = new MutableLong(NULL_VALUE);
+
+        countersReader.forEach(
+            (counterId, typeId, keyBuffer, label) ->
+            {
+                if (typeId == typeIdToFind)
+                {
+                    value.value = countersReader.getCounterValue(counterId);
+                }
+            });
+
+        return value.get();
+    }
+}
@@ -19,6 +19,7 @@ import io.aeron.ChannelUri;
 import io.aeron.CommonContext;
 import io.aeron.Counter;
 import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.client.AeronArchive;
 import io.aeron.cluster.client.AeronCluster;
 import io.aeron.cluster.client.EgressListener;
 import io.aeron.driver.MediaDriver;
@@ -55,6 +56,8 @@ public class TestCluster implements AutoCloseable
         "aeron:udp?term-length=64k|endpoint=localhost:8020";
     private static final String ARCHIVE_RECORDING_EVENTS_CHANNEL =
         "aeron:udp?control-mode=dynamic|control=localhost:8030";
+    private static final String ARCHIVE_REPLICATION_CHANNEL =
+        "aeron:udp?endpoint=localhost:8040";
 
     private final ExpandableArrayBuffer msgBuffer = new ExpandableArrayBuffer();
     private final MutableInteger responseCount = new MutableInteger();
@@ -92,6 +95,7 @@ public class TestCluster implements AutoCloseable
     private final int appointedLeaderId;
     private final int backupNodeIndex;
 
+    private long catchupReplicationThreshold = ConsensusModule.Configuration.catchupReplicationThreshold();
     private MediaDriver clientMediaDriver;
     private AeronCluster client;
     private TestBackupNode backupNode;
@@ -217,6 +221,9 @@ public class TestCluster implements AutoCloseable
             .recordingEventsEnabled(false)
             .localControlStreamId(context.aeronArchiveContext.controlRequestStreamId())
             .recordingEventsChannel(context.aeronArchiveContext.recordingEventsChannel())
+            .replicationChannel(memberSpecificPort(ARCHIVE_REPLICATION_CHANNEL, index))
+            .archiveClientContext(new AeronArchive.Context()
+                .controlResponseChannel(context.aeronArchiveContext.controlResponseChannel()))
             .threadingMode(ArchiveThreadingMode.SHARED)
             .deleteArchiveOnStart(cleanStart);
 
@@ -230,6 +237,7 @@ public class TestCluster implements AutoCloseable
             .ingressChannel("aeron:udp?term-length=64k")
             .logChannel(memberSpecificPort(LOG_CHANNEL, index))
             .archiveContext(context.aeronArchiveContext.clone())
+            .catchupReplicationThreshold(catchupReplicationThreshold)
             .deleteDirOnStart(cleanStart);
 
         context.serviceContainerContext
@@ -439,6 +447,11 @@ public class TestCluster implements AutoCloseable
         return nodes[backupNodeIndex];
     }
 
+    void catchupReplicationThreshold(final long catchupReplicationThreshold)
+    {
+        this.catchupReplicationThreshold = catchupReplicationThreshold;
+    }
+
     void stopNode(final TestNode testNode)
     {
         testNode.close();
@@ -547,6 +560,11 @@ public class TestCluster implements AutoCloseable
         client.pollEgress();
     }
 
+    int responseCount()
+    {
+        return responseCount.get();
+    }
+
     void awaitResponses(final int messageCount)
     {
         final EpochClock epochClock = client.context().aeron().context().epochClock();
@@ -709,6 +727,13 @@ public class TestCluster implements AutoCloseable
         assertTrue(ClusterControl.ToggleState.ABORT.toggle(controlToggle));
     }
 
+    void transferLeadership(final TestNode leaderNode)
+    {
+        final AtomicCounter controlToggle = ClusterControl.findControlToggle(leaderNode.countersReader());
+        assertNotNull(controlToggle);
+        assertTrue(ClusterControl.ToggleState.TRANSFER_LEADERSHIP.toggle(controlToggle));
+    }
+
     void awaitSnapshotCounter(final TestNode node, final long value)
     {
         final Counter snapshotCounter = node.consensusModule().context().snapshotCounter();
@@ -211,6 +211,16 @@ class TestNode implements AutoCloseable
         }
     }
 
+    void transferLeadership(final int memberId)
+    {
+        final File clusterDir = clusteredMediaDriver.consensusModule().context().clusterDir();
+
+        if (!ClusterTool.transferLeadership(clusterDir, memberId))
+        {
+            throw new IllegalStateException("could not transfer leadership");
+        }
+    }
+
     static class TestService extends StubClusteredService
     {
         private int index;
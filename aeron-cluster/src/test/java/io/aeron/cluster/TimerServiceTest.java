@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster;
+
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.LongArrayList;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimerServiceTest
+{
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final LongArrayList expiredTimers = new LongArrayList();
+    private final Random random = new Random(7);
+    private int handleLimit = Integer.MAX_VALUE;
+
+    private final TimerService.TimerHandler timerHandler = new TimerService.TimerHandler()
+    {
+        public boolean onTimerEvent(final long correlationId)
+        {
+            if (handleLimit <= 0)
+            {
+                return false;
+            }
+
+            handleLimit--;
+            expiredTimers.addLong(correlationId);
+            return true;
+        }
+
+        public int onTimerEvents(final long[] correlationIds, final int count)
+        {
+            final int handled = Math.min(count, handleLimit);
+            for (int i = 0; i < handled; i++)
+            {
+                expiredTimers.addLong(correlationIds[i]);
+            }
+            handleLimit -= handled;
+
+            return handled;
+        }
+    };
+
+    @Test
+    public void shouldExpireTimersAtDeadlineAcrossWheelsAndOverflow()
+    {
+        shouldExpireRandomTimersAtDeadline(new TimerService(timerHandler, 0, 1, 8), false);
+    }
+
+    @Test
+    public void shouldExpireTimersInBatchesAcrossWheelsAndOverflow()
+    {
+        shouldExpireRandomTimersAtDeadline(new TimerService(timerHandler, 0, 1, 8, 16), false);
+    }
+
+    @Test
+    public void shouldExpireTimersInPartiallyHandledBatches()
+    {
+        shouldExpireRandomTimersAtDeadline(new TimerService(timerHandler, 0, 4, 16, 32), true);
+    }
+
+    @Test
+    public void shouldRetryPendingTimersWhichWereNotHandled()
+    {
+        final TimerService timerService = new TimerService(timerHandler, 0, 1, 8, 4);
+        timerService.scheduleTimer(1, 10);
+        timerService.scheduleTimer(2, 10);
+        timerService.scheduleTimer(3, 11);
+        timerService.scheduleTimer(4, 100);
+
+        handleLimit = 0;
+        assertEquals(0, timerService.poll(20));
+        assertEquals(4, timerService.timerCount());
+
+        assertTrue(timerService.cancelTimer(2));
+        assertEquals(3, timerService.timerCount());
+
+        handleLimit = 1;
+        assertEquals(1, timerService.poll(20));
+        assertEquals(1, expiredTimers.size());
+
+        handleLimit = Integer.MAX_VALUE;
+        assertEquals(1, timerService.poll(20));
+        assertEquals(0, timerService.poll(20));
+        assertEquals(1, timerService.timerCount());
+
+        assertEquals(1L, expiredTimers.getLong(0));
+        assertEquals(3L, expiredTimers.getLong(1));
+
+        assertEquals(1, timerService.poll(100));
+        assertEquals(4L, expiredTimers.getLong(2));
+        assertEquals(0, timerService.timerCount());
+    }
+
+    @Test
+    public void shouldExpireOverdueTimersAfterCurrentTickTimeIsAdvanced()
+    {
+        final TimerService timerService = new TimerService(timerHandler, 0, 1, 8);
+        timerService.scheduleTimer(1, 100);
+        timerService.scheduleTimer(2, 10_000);
+
+        timerService.currentTickTime(5_000);
+        assertEquals(5_001, timerService.currentTickTime());
+
+        assertEquals(1, timerService.poll(5_000));
+        assertEquals(1L, expiredTimers.getLong(0));
+
+        assertEquals(0, timerService.poll(9_999));
+        assertEquals(1, timerService.poll(10_000));
+        assertEquals(2L, expiredTimers.getLong(1));
+    }
+
+    @Test
+    public void shouldRescheduleTimerWithSameCorrelationId()
+    {
+        final TimerService timerService = new TimerService(timerHandler, 0, 1, 8);
+        timerService.scheduleTimer(1, 100);
+        timerService.scheduleTimer(1, 200);
+        assertEquals(1, timerService.timerCount());
+
+        assertEquals(0, timerService.poll(199));
+        assertEquals(1, timerService.poll(200));
+        assertFalse(timerService.cancelTimer(1));
+    }
+
+    @Ignore
+    @Test
+    public void shouldReportExpiryRateForTenMillionTimers()
+    {
+        final int timerCount = 10_000_000;
+        final long expiriesPerSecond = 100_000;
+        final long nowIncrementMs = 1;
+        final int[] batchLimits = { 0, 256, 1024 };
+
+        for (final int batchLimit : batchLimits)
+        {
+            handleLimit = Integer.MAX_VALUE;
+            final TimerService timerService = new TimerService(timerHandler, 0, 8, 128, batchLimit);
+            final long durationMs = timerCount * TimeUnit.SECONDS.toMillis(1) / expiriesPerSecond;
+
+            long startNs = System.nanoTime();
+            for (int i = 0; i < timerCount; i++)
+            {
+                timerService.scheduleTimer(i, random.nextInt((int)durationMs) + 1);
+            }
+            final long scheduleNs = System.nanoTime() - startNs;
+
+            long maxPollNs = 0;
+            long expired = 0;
+            startNs = System.nanoTime();
+            for (long now = 0; now <= durationMs; now += nowIncrementMs)
+            {
+                final long pollStartNs = System.nanoTime();
+                int work;
+                do
+                {
+                    expiredTimers.clear();
+                    work = timerService.poll(now);
+                    expired += work;
+                }
+                while (work > 0);
+                maxPollNs = Math.max(maxPollNs, System.nanoTime() - pollStartNs);
+            }
+            final long expiryNs = System.nanoTime() - startNs;
+
+            assertEquals(timerCount, expired);
+            System.out.printf(
+                "expiry batch limit %,d: schedule %,d timers/sec, expire %,d timers/sec, max poll per ms %,d ns%n",
+                batchLimit,
+                timerCount * TimeUnit.SECONDS.toNanos(1) / scheduleNs,
+                timerCount * TimeUnit.SECONDS.toNanos(1) / expiryNs,
+                maxPollNs);
+        }
+    }
+
+    private void shouldExpireRandomTimersAtDeadline(final TimerService timerService, final boolean isPartiallyHandled)
+    {
+        final Long2LongHashMap deadlineByCorrelationId = new Long2LongHashMap(MISSING);
+        long now = 0;
+        long nextCorrelationId = 0;
+
+        for (int step = 0; step < 2_000; step++)
+        {
+            for (int i = 0, count = random.nextInt(20); i < count; i++)
+            {
+                final long correlationId = random.nextInt(4) == 0 && nextCorrelationId > 0 ?
+                    random.nextInt((int)nextCorrelationId) : nextCorrelationId++;
+                final long deadline = now + random.nextInt(random.nextBoolean() ? 64 : 20_000) - 8;
+
+                timerService.scheduleTimer(correlationId, deadline);
+                deadlineByCorrelationId.put(correlationId, deadline);
+            }
+
+            if (nextCorrelationId > 0 && random.nextInt(4) == 0)
+            {
+                final long correlationId = random.nextInt((int)nextCorrelationId);
+                final boolean isScheduled = MISSING != deadlineByCorrelationId.remove(correlationId);
+                assertEquals(isScheduled, timerService.cancelTimer(correlationId));
+            }
+
+            now += random.nextInt(50);
+
+            int work;
+            do
+            {
+                handleLimit = isPartiallyHandled ? random.nextInt(8) + 1 : Integer.MAX_VALUE;
+                work = timerService.poll(now);
+            }
+            while (work > 0);
+
+            for (int i = 0, size = expiredTimers.size(); i < size; i++)
+            {
+                final long correlationId = expiredTimers.getLong(i);
+                final long deadline = deadlineByCorrelationId.remove(correlationId);
+
+                assertNotEquals("unknown timer " + correlationId, MISSING, deadline);
+                assertTrue("early expiry " + correlationId + " at " + now, deadline <= now);
+            }
+            expiredTimers.clear();
+
+            final long currentNow = now;
+            deadlineByCorrelationId.forEach((correlationId, deadline) ->
+                assertTrue("missed expiry " + correlationId + " at " + currentNow, deadline > currentNow));
+            assertEquals(deadlineByCorrelationId.size(), timerService.timerCount());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.client;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RequestCorrelatorTest
+{
+    private static final int WINDOW = 8;
+    private static final long TIMEOUT_NS = 1_000;
+
+    private final RequestCorrelator.ResponseHandler mockResponseHandler = mock(RequestCorrelator.ResponseHandler.class);
+    private final EgressListener mockEgressListener = mock(EgressListener.class);
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[64]);
+    private final RequestCorrelator correlator = new RequestCorrelator(
+        mockResponseHandler, mockEgressListener, WINDOW, TIMEOUT_NS, () -> 0);
+
+    @Test
+    public void shouldCompleteRequestWithMatchingResponse()
+    {
+        assertTrue(correlator.track(7, TIMEOUT_NS));
+
+        final int length = response(7, 42L);
+        correlator.onMessage(1, 2, buffer, 0, length, null);
+
+        verify(mockResponseHandler).onResponse(
+            eq(7L), eq(2L), eq(buffer), eq(RequestCorrelator.CORRELATION_ID_LENGTH), eq(8));
+        verifyNoMoreInteractions(mockEgressListener);
+        assertFalse(correlator.isInFlight(7));
+        assertEquals(0, correlator.inFlightCount());
+    }
+
+    @Test
+    public void shouldPassUnmatchedEgressToListener()
+    {
+        correlator.track(7, TIMEOUT_NS);
+
+        final int length = response(8, 42L);
+        correlator.onMessage(1, 2, buffer, 0, length, null);
+        correlator.onMessage(1, 2, buffer, 0, 4, null);
+
+        verify(mockEgressListener).onMessage(1, 2, buffer, 0, length, null);
+        verify(mockEgressListener).onMessage(1, 2, buffer, 0, 4, null);
+        verify(mockResponseHandler, never())
+            .onResponse(anyLong(), anyLong(), any(DirectBuffer.class), anyInt(), anyInt());
+        assertTrue(correlator.isInFlight(7));
+    }
+
+    @Test
+    public void shouldBoundRequestsInFlightByWindow()
+    {
+        for (int i = 1; i <= WINDOW; i++)
+        {
+            assertTrue(correlator.track(i, TIMEOUT_NS));
+        }
+
+        assertFalse(correlator.track(WINDOW + 1, TIMEOUT_NS));
+        assertEquals(WINDOW, correlator.inFlightCount());
+
+        correlator.onMessage(1, 2, buffer, 0, response(3, 0), null);
+        assertTrue(correlator.track(WINDOW + 1, TIMEOUT_NS));
+    }
+
+    @Test
+    public void shouldTimeOutRequestsPastTheirDeadline()
+    {
+        correlator.track(1, 100);
+        correlator.track(2, 300);
+        correlator.track(3, 200);
+
+        assertEquals(0, correlator.expireTimedOutRequests(99));
+        assertEquals(2, correlator.expireTimedOutRequests(200));
+
+        verify(mockResponseHandler).onTimeout(1);
+        verify(mockResponseHandler).onTimeout(3);
+        verify(mockResponseHandler, never()).onTimeout(2);
+        assertTrue(correlator.isInFlight(2));
+
+        correlator.onMessage(1, 2, buffer, 0, response(1, 0), null);
+        verify(mockEgressListener).onMessage(anyLong(), anyLong(), any(DirectBuffer.class), anyInt(), anyInt(), any());
+
+        assertEquals(1, correlator.expireTimedOutRequests(300));
+        assertEquals(0, correlator.inFlightCount());
+    }
+
+    @Test
+    public void shouldRemainConsistentWhenCompletedOutOfOrder()
+    {
+        final Random random = new Random(7);
+        final long[] inFlight = new long[WINDOW];
+        long nextCorrelationId = 1;
+
+        for (int i = 0; i < WINDOW; i++)
+        {
+            inFlight[i] = nextCorrelationId;
+            correlator.track(nextCorrelationId++, TIMEOUT_NS);
+        }
+
+        for (int i = 0; i < 10_000; i++)
+        {
+            final int index = random.nextInt(WINDOW);
+            correlator.onMessage(1, 2, buffer, 0, response(inFlight[index], 0), null);
+            assertFalse(correlator.isInFlight(inFlight[index]));
+
+            inFlight[index] = nextCorrelationId;
+            assertTrue(correlator.track(nextCorrelationId++, TIMEOUT_NS));
+
+            for (final long correlationId : inFlight)
+            {
+                assertTrue(correlator.isInFlight(correlationId));
+            }
+        }
+
+        assertEquals(WINDOW, correlator.inFlightCount());
+        verifyNoMoreInteractions(mockEgressListener);
+    }
+
+    private int response(final long correlationId, final long value)
+    {
+        buffer.putLong(0, correlationId, LITTLE_ENDIAN);
+        buffer.putLong(RequestCorrelator.CORRELATION_ID_LENGTH, value);
+
+        return RequestCorrelator.CORRELATION_ID_LENGTH + 8;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Aeron;
+import io.aeron.ConcurrentPublication;
+import io.aeron.Subscription;
+import io.aeron.cluster.codecs.MessageHeaderEncoder;
+import io.aeron.cluster.codecs.ReadQueryEncoder;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class QueryAdapterTest
+{
+    private static final String CHANNEL = "aeron:udp?endpoint=localhost:9020";
+    private static final int STREAM_ID = 102;
+    private static final long TIMEOUT_NS = 10_000;
+    private static final long LINGER_TIMEOUT_NS = 1_000;
+
+    private final Aeron mockAeron = mock(Aeron.class);
+    private final ConcurrentPublication mockPublication = mock(ConcurrentPublication.class);
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+    private final QueryAdapter queryAdapter = new QueryAdapter(
+        mockAeron,
+        mock(Subscription.class),
+        mock(ClusteredService.class),
+        TIMEOUT_NS,
+        LINGER_TIMEOUT_NS,
+        mock(AtomicCounter.class));
+
+    @Test
+    public void shouldClosePublicationWhichHasNotBeenUsedForLingerTimeout()
+    {
+        when(mockAeron.addPublication(CHANNEL, STREAM_ID)).thenReturn(mockPublication);
+        when(mockPublication.isConnected()).thenReturn(true);
+
+        queryAdapter.poll(2, LINGER_TIMEOUT_NS);
+        query(1);
+        query(2);
+        verify(mockAeron, times(1)).addPublication(CHANNEL, STREAM_ID);
+        assertEquals(0, queryAdapter.pendingQueryCount());
+        assertEquals(1, queryAdapter.publicationCount());
+
+        queryAdapter.poll(2, (LINGER_TIMEOUT_NS * 2) - 1);
+        verify(mockPublication, never()).close();
+
+        queryAdapter.poll(2, LINGER_TIMEOUT_NS * 2);
+        verify(mockPublication).close();
+        assertEquals(0, queryAdapter.publicationCount());
+    }
+
+    @Test
+    public void shouldNotClosePublicationWithPendingQuery()
+    {
+        when(mockAeron.addPublication(CHANNEL, STREAM_ID)).thenReturn(mockPublication);
+        when(mockPublication.isConnected()).thenReturn(true);
+
+        queryAdapter.poll(0, LINGER_TIMEOUT_NS);
+        query(1);
+        assertEquals(1, queryAdapter.pendingQueryCount());
+
+        queryAdapter.poll(0, LINGER_TIMEOUT_NS * 3);
+        verify(mockPublication, never()).close();
+        assertEquals(1, queryAdapter.publicationCount());
+    }
+
+    @Test
+    public void shouldCloseUnconnectedPublicationWhenLastPendingQueryTimesOut()
+    {
+        when(mockAeron.addPublication(CHANNEL, STREAM_ID)).thenReturn(mockPublication);
+
+        queryAdapter.poll(0, LINGER_TIMEOUT_NS);
+        query(0);
+        query(0);
+        assertEquals(2, queryAdapter.pendingQueryCount());
+
+        queryAdapter.poll(0, LINGER_TIMEOUT_NS + TIMEOUT_NS);
+        verify(mockPublication).close();
+        assertEquals(0, queryAdapter.pendingQueryCount());
+        assertEquals(0, queryAdapter.publicationCount());
+    }
+
+    private void query(final long logPosition)
+    {
+        final ReadQueryEncoder readQueryEncoder = new ReadQueryEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .correlationId(1)
+            .logPosition(logPosition)
+            .responseStreamId(STREAM_ID)
+            .responseChannel(CHANNEL);
+
+        queryAdapter.onFragment(
+            buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + readQueryEncoder.encodedLength(), null);
+    }
+}
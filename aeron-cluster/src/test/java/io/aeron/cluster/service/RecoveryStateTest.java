@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import io.aeron.cluster.client.ClusterException;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.agrona.concurrent.status.CountersReader.METADATA_LENGTH;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class RecoveryStateTest
+{
+    private final CountersManager countersManager = new CountersManager(
+        new UnsafeBuffer(new byte[METADATA_LENGTH * 4]),
+        new UnsafeBuffer(new byte[METADATA_LENGTH]),
+        StandardCharsets.US_ASCII);
+    private final UnsafeBuffer tempBuffer = new UnsafeBuffer(new byte[METADATA_LENGTH]);
+    private final Aeron mockAeron = mock(Aeron.class);
+
+    @Test
+    public void shouldKeepSnapshotRecordingIdsAtOffsetPriorToSnapshotDeltas()
+    {
+        assertEquals(32, RecoveryState.SNAPSHOT_RECORDING_IDS_OFFSET);
+        assertEquals(10, RecoveryState.MAX_SERVICE_COUNT);
+    }
+
+    @Test
+    public void shouldRecoverSnapshotsForMaxServiceCountWithoutDeltas()
+    {
+        final long[] snapshotRecordingIds = new long[RecoveryState.MAX_SERVICE_COUNT];
+        for (int i = 0; i < snapshotRecordingIds.length; i++)
+        {
+            snapshotRecordingIds[i] = 100 + i;
+        }
+
+        final int counterId = allocate(snapshotRecordingIds, new long[0]);
+
+        for (int i = 0; i < snapshotRecordingIds.length; i++)
+        {
+            assertEquals(100 + i, RecoveryState.getSnapshotRecordingId(countersManager, counterId, i));
+        }
+        assertEquals(0, RecoveryState.getSnapshotDeltaCount(countersManager, counterId));
+    }
+
+    @Test
+    public void shouldRecoverSnapshotDeltasFollowingSnapshotRecordingIds()
+    {
+        final int counterId = allocate(new long[]{ 7, 8 }, new long[]{ 17, 18, 27, 28 });
+
+        assertEquals(7, RecoveryState.getSnapshotRecordingId(countersManager, counterId, 0));
+        assertEquals(8, RecoveryState.getSnapshotRecordingId(countersManager, counterId, 1));
+        assertEquals(2, RecoveryState.getSnapshotDeltaCount(countersManager, counterId));
+        assertEquals(17, RecoveryState.getSnapshotDeltaRecordingId(countersManager, counterId, 0, 0));
+        assertEquals(18, RecoveryState.getSnapshotDeltaRecordingId(countersManager, counterId, 1, 0));
+        assertEquals(27, RecoveryState.getSnapshotDeltaRecordingId(countersManager, counterId, 0, 1));
+        assertEquals(28, RecoveryState.getSnapshotDeltaRecordingId(countersManager, counterId, 1, 1));
+    }
+
+    @Test(expected = ClusterException.class)
+    public void shouldRejectServiceCountBeyondMax()
+    {
+        allocate(new long[RecoveryState.MAX_SERVICE_COUNT + 1], new long[0]);
+    }
+
+    @Test(expected = ClusterException.class)
+    public void shouldRejectSnapshotDeltasBeyondMax()
+    {
+        allocate(new long[1], new long[RecoveryState.maxSnapshotDeltaCount(1) + 1]);
+    }
+
+    private int allocate(final long[] snapshotRecordingIds, final long[] snapshotDeltaRecordingIds)
+    {
+        final Counter counter = mock(Counter.class);
+        when(mockAeron.addCounter(
+            eq(RecoveryState.RECOVERY_STATE_TYPE_ID), any(), anyInt(), anyInt(), any(), anyInt(), anyInt()))
+            .thenAnswer((invocation) ->
+            {
+                final int counterId = countersManager.allocate(
+                    invocation.getArgument(0),
+                    invocation.<DirectBuffer>getArgument(1),
+                    invocation.getArgument(2),
+                    invocation.getArgument(3),
+                    invocation.<DirectBuffer>getArgument(4),
+                    invocation.getArgument(5),
+                    invocation.getArgument(6));
+                when(counter.id()).thenReturn(counterId);
+                return counter;
+            });
+
+        return RecoveryState.allocate(
+            mockAeron, tempBuffer, 1, 1024, 0, true, snapshotRecordingIds, snapshotDeltaRecordingIds).id();
+    }
+}
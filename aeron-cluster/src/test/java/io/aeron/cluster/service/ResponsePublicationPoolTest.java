@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Aeron;
+import io.aeron.ConcurrentPublication;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.*;
+
+public class ResponsePublicationPoolTest
+{
+    private static final String CHANNEL = "aeron:udp?endpoint=localhost:9020";
+    private static final String OTHER_CHANNEL = "aeron:udp?endpoint=localhost:9021";
+    private static final int STREAM_ID = 102;
+
+    private final Aeron mockAeron = mock(Aeron.class);
+    private final ConcurrentPublication mockPublicationOne = mockPublication(1);
+    private final ConcurrentPublication mockPublicationTwo = mockPublication(2);
+
+    @Test
+    public void shouldSharePublicationBySessionsWithSameChannelWhenMultiplexed()
+    {
+        when(mockAeron.addPublication(CHANNEL, STREAM_ID)).thenReturn(mockPublicationOne);
+        when(mockAeron.addPublication(OTHER_CHANNEL, STREAM_ID)).thenReturn(mockPublicationTwo);
+
+        final ResponsePublicationPool pool = new ResponsePublicationPool(mockAeron, true);
+
+        assertSame(mockPublicationOne, pool.acquire(CHANNEL, STREAM_ID));
+        assertSame(mockPublicationOne, pool.acquire(CHANNEL, STREAM_ID));
+        assertSame(mockPublicationTwo, pool.acquire(OTHER_CHANNEL, STREAM_ID));
+        assertEquals(2, pool.publicationCount());
+        verify(mockAeron, times(1)).addPublication(CHANNEL, STREAM_ID);
+
+        pool.release(mockPublicationOne);
+        verify(mockPublicationOne, never()).close();
+
+        pool.release(mockPublicationOne);
+        verify(mockPublicationOne).close();
+        assertEquals(1, pool.publicationCount());
+
+        pool.close();
+        verify(mockPublicationTwo).close();
+        assertEquals(0, pool.publicationCount());
+    }
+
+    @Test
+    public void shouldAddPublicationPerSessionWhenNotMultiplexed()
+    {
+        when(mockAeron.addPublication(CHANNEL, STREAM_ID)).thenReturn(mockPublicationOne, mockPublicationTwo);
+
+        final ResponsePublicationPool pool = new ResponsePublicationPool(mockAeron, false);
+
+        assertSame(mockPublicationOne, pool.acquire(CHANNEL, STREAM_ID));
+        assertNotSame(mockPublicationOne, pool.acquire(CHANNEL, STREAM_ID));
+        assertEquals(2, pool.publicationCount());
+
+        pool.release(mockPublicationOne);
+        verify(mockPublicationOne).close();
+        verify(mockPublicationTwo, never()).close();
+        assertEquals(1, pool.publicationCount());
+    }
+
+    private static ConcurrentPublication mockPublication(final long registrationId)
+    {
+        final ConcurrentPublication publication = mock(ConcurrentPublication.class);
+        when(publication.registrationId()).thenReturn(registrationId);
+
+        return publication;
+    }
+}
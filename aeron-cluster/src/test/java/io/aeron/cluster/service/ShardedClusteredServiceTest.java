@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.cluster.service;
+
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.cluster.codecs.CloseReason;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.CountedErrorHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ShardedClusteredServiceTest
+{
+    private static final long CLUSTER_SESSION_ID = 7;
+
+    private final Cluster cluster = mock(Cluster.class);
+    private final ClientSession session = mock(ClientSession.class);
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[64]);
+    private final RecordingShard[] shards = { new RecordingShard(), new RecordingShard() };
+    private final ShardedClusteredService service = new ShardedClusteredService(
+        64 * 1024, (session, buffer, offset, length) -> buffer.getInt(offset), shards);
+
+    @Before
+    public void before()
+    {
+        final AtomicCounter errorCounter = mock(AtomicCounter.class);
+        final ClusteredServiceContainer.Context ctx = new ClusteredServiceContainer.Context()
+            .idleStrategySupplier(YieldingIdleStrategy::new)
+            .threadFactory(Thread::new)
+            .errorCounter(errorCounter)
+            .countedErrorHandler(new CountedErrorHandler(Throwable::printStackTrace, errorCounter));
+
+        when(cluster.context()).thenReturn(ctx);
+        when(cluster.getClientSession(CLUSTER_SESSION_ID)).thenReturn(session);
+        when(session.id()).thenReturn(CLUSTER_SESSION_ID);
+
+        service.onStart(cluster, null);
+    }
+
+    @After
+    public void after()
+    {
+        service.onTerminate(cluster);
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldProcessMessagesInOrderWithinShardBeforeSnapshot()
+    {
+        final int messageCount = 1000;
+        for (int i = 0; i < messageCount; i++)
+        {
+            sendMessage(i);
+        }
+
+        service.onTakeSnapshot(mock(Publication.class));
+
+        for (int s = 0; s < shards.length; s++)
+        {
+            final RecordingShard shard = shards[s];
+            assertEquals(messageCount / shards.length, shard.countAtSnapshot);
+            assertNotEquals(Thread.currentThread(), shard.messageThread);
+
+            for (int i = 0; i < shard.values.size(); i++)
+            {
+                assertEquals(s + (i * shards.length), (int)shard.values.get(i));
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldSendShardEgressFromContainerThread()
+    {
+        final Thread containerThread = Thread.currentThread();
+        final ArrayList<Thread> offerThreads = new ArrayList<>();
+        when(session.offer(any(DirectBuffer.class), anyInt(), anyInt())).then(
+            (invocation) ->
+            {
+                offerThreads.add(Thread.currentThread());
+                return 64L;
+            });
+
+        shards[1].isEcho = true;
+        sendMessage(1);
+        sendMessage(3);
+
+        while (offerThreads.size() < 2)
+        {
+            service.doBackgroundWork();
+            Thread.yield();
+        }
+
+        assertEquals(containerThread, offerThreads.get(0));
+        assertEquals(containerThread, offerThreads.get(1));
+    }
+
+    @Test(expected = ClusterException.class)
+    public void shouldRejectEgressClaimOnShardSession()
+    {
+        final ShardedClusteredService.ShardClientSession shardSession =
+            new ShardedClusteredService.ShardClientSession(null, session);
+
+        shardSession.tryClaim(SIZE_OF_INT, new EgressClaim());
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldDeliverOtherEventsToAllShardsOnContainerThread()
+    {
+        sendMessage(0);
+        service.onTimerEvent(11, 1);
+        service.onSessionClose(session, 2, CloseReason.CLIENT_ACTION);
+
+        for (final RecordingShard shard : shards)
+        {
+            assertEquals(11, shard.lastTimerCorrelationId);
+            assertEquals(1, shard.sessionCloseCount);
+        }
+
+        assertEquals(1, shards[0].values.size());
+    }
+
+    private void sendMessage(final int value)
+    {
+        buffer.putInt(0, value);
+        service.onSessionMessage(session, 0, buffer, 0, 8, mock(Header.class));
+    }
+
+    static class RecordingShard implements ClusteredService
+    {
+        final ArrayList<Integer> values = new ArrayList<>();
+        volatile Thread messageThread;
+        volatile boolean isEcho;
+        int countAtSnapshot;
+        long lastTimerCorrelationId;
+        int sessionCloseCount;
+
+        public void onStart(final Cluster cluster, final Image snapshotImage)
+        {
+        }
+
+        public void onSessionOpen(final ClientSession session, final long timestamp)
+        {
+        }
+
+        public void onSessionClose(final ClientSession session, final long timestamp, final CloseReason closeReason)
+        {
+            sessionCloseCount++;
+        }
+
+        public void onSessionMessage(
+            final ClientSession session,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            messageThread = Thread.currentThread();
+            values.add(buffer.getInt(offset));
+
+            if (isEcho)
+            {
+                while (session.offer(buffer, offset, length) < 0)
+                {
+                    Thread.yield();
+                }
+            }
+        }
+
+        public void onTimerEvent(final long correlationId, final long timestamp)
+        {
+            lastTimerCorrelationId = correlationId;
+        }
+
+        public void onTakeSnapshot(final Publication snapshotPublication)
+        {
+            countAtSnapshot = values.size();
+        }
+
+        public void onRoleChange(final Cluster.Role newRole)
+        {
+        }
+
+        public void onTerminate(final Cluster cluster)
+        {
+        }
+    }
+}
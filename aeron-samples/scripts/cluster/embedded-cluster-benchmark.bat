@@ -0,0 +1,37 @@
+::
+:: Copyright 2014-2019 Real Logic Ltd.
+::
+:: Licensed under the Apache License, Version 2.0 (the "License");
+:: you may not use this file except in compliance with the License.
+:: You may obtain a copy of the License at
+::
+:: https://www.apache.org/licenses/LICENSE-2.0
+::
+:: Unless required by applicable law or agreed to in writing, software
+:: distributed under the License is distributed on an "AS IS" BASIS,
+:: WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+:: See the License for the specific language governing permissions and
+:: limitations under the License.
+::
+
+@echo off
+set /p VERSION=<..\..\..\version.txt
+
+"%JAVA_HOME%\bin\java" ^
+    -cp ..\..\..\aeron-all\build\libs\aeron-all-%VERSION%.jar ^
+    -XX:BiasedLockingStartupDelay=0 ^
+    -XX:+UnlockExperimentalVMOptions ^
+    -XX:+TrustFinalNonStaticFields ^
+    -XX:+UseParallelOldGC ^
+    -Djava.net.preferIPv4Stack=true ^
+    -Dagrona.disable.bounds.checks=true ^
+    -Daeron.threading.mode=SHARED ^
+    -Daeron.archive.threading.mode=SHARED ^
+    -Daeron.sample.messageLength=32 ^
+    -Daeron.sample.messages=600000 ^
+    -Daeron.sample.warmup.messages=100000 ^
+    -Daeron.sample.cluster.members=3 ^
+    -Daeron.sample.cluster.scenario=steady ^
+    -Daeron.sample.cluster.messageRate=10000 ^
+    -Daeron.sample.cluster.histogramLog=cluster-benchmark.hlog ^
+    %JVM_OPTS% io.aeron.samples.cluster.EmbeddedClusterBenchmark %*
\ No newline at end of file
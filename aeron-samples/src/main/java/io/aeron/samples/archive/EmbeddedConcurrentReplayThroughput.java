@@ -0,0 +1,242 @@
+/*
+ *  Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.samples.archive;
+
+import io.aeron.*;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.ArchivingMediaDriver;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.samples.SampleConfiguration;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.CountersReader;
+import org.agrona.console.ContinueBarrier;
+
+import java.io.File;
+
+import static io.aeron.archive.Archive.Configuration.ARCHIVE_DIR_DEFAULT;
+import static io.aeron.samples.archive.TestUtil.MEGABYTE;
+import static io.aeron.samples.archive.TestUtil.NOOP_FRAGMENT_HANDLER;
+import static org.agrona.BitUtil.CACHE_LINE_LENGTH;
+import static org.agrona.BufferUtil.allocateDirectAligned;
+import static org.agrona.SystemUtil.loadPropertiesFiles;
+
+/**
+ * Tests the aggregate throughput of many concurrent replays of recordings which are not in the page cache.
+ * <p>
+ * Recordings are made first and then the run pauses so the page cache can be dropped, e.g. on Linux with
+ * {@code sync; echo 3 > /proc/sys/vm/drop_caches}, before all recordings are replayed at once. Compare runs with
+ * {@link Archive.Configuration#REPLAY_READ_AHEAD_THREAD_COUNT_PROP_NAME} set to zero and to a few threads, and with
+ * {@link Archive.Configuration#REPLAYER_COUNT_PROP_NAME} to spread replays over more replayers.
+ */
+public class EmbeddedConcurrentReplayThroughput implements AutoCloseable
+{
+    /**
+     * Number of recordings which are replayed concurrently.
+     */
+    public static final String REPLAY_COUNT_PROP = "aeron.sample.archive.replay.count";
+
+    private static final int REPLAY_COUNT = Integer.getInteger(REPLAY_COUNT_PROP, 16);
+    private static final int REPLAY_STREAM_ID = 101;
+    private static final String REPLAY_URI = "aeron:ipc";
+    private static final String RECORDING_URI = "aeron:ipc?term-length=8m";
+
+    private static final long NUMBER_OF_MESSAGES = SampleConfiguration.NUMBER_OF_MESSAGES;
+    private static final int MESSAGE_LENGTH = SampleConfiguration.MESSAGE_LENGTH;
+    private static final int FRAGMENT_COUNT_LIMIT = SampleConfiguration.FRAGMENT_COUNT_LIMIT;
+    private static final int STREAM_ID = SampleConfiguration.STREAM_ID;
+
+    private final ArchivingMediaDriver archivingMediaDriver;
+    private final Aeron aeron;
+    private final AeronArchive aeronArchive;
+    private final UnsafeBuffer buffer = new UnsafeBuffer(allocateDirectAligned(MESSAGE_LENGTH, CACHE_LINE_LENGTH));
+    private final long[] recordingIds = new long[REPLAY_COUNT];
+    private final long[] recordingLengths = new long[REPLAY_COUNT];
+
+    public static void main(final String[] args) throws Exception
+    {
+        loadPropertiesFiles(args);
+
+        try (EmbeddedConcurrentReplayThroughput test = new EmbeddedConcurrentReplayThroughput())
+        {
+            System.out.printf("Making %d recordings for playback...%n", REPLAY_COUNT);
+            final long totalLength = test.makeRecordings();
+            final ContinueBarrier coldCacheBarrier = new ContinueBarrier("Page cache dropped, continue?");
+            final ContinueBarrier barrier = new ContinueBarrier("Execute again?");
+
+            do
+            {
+                if (!coldCacheBarrier.await())
+                {
+                    break;
+                }
+
+                System.out.printf("Replaying %d recordings concurrently%n", REPLAY_COUNT);
+                final long start = System.currentTimeMillis();
+
+                test.replayRecordings();
+
+                final long durationMs = System.currentTimeMillis() - start;
+                final double dataRate = (totalLength * 1000.0d / durationMs) / MEGABYTE;
+                final double recordingMb = totalLength / MEGABYTE;
+
+                System.out.println("Performance inclusive of replay request and connection setup:");
+                System.out.printf(
+                    "Replayed %.02f MB over %d replays @ %.02f MB/s - %d byte payload + 32 byte header%n",
+                    recordingMb, REPLAY_COUNT, dataRate, MESSAGE_LENGTH);
+            }
+            while (barrier.await());
+        }
+    }
+
+    public EmbeddedConcurrentReplayThroughput()
+    {
+        final String archiveDirName = Archive.Configuration.archiveDirName();
+        final File archiveDir = ARCHIVE_DIR_DEFAULT.equals(archiveDirName) ?
+            TestUtil.createTempDir() : new File(archiveDirName);
+
+        archivingMediaDriver = ArchivingMediaDriver.launch(
+            new MediaDriver.Context()
+                .threadingMode(ThreadingMode.DEDICATED)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxConcurrentReplays(REPLAY_COUNT)
+                .threadingMode(ArchiveThreadingMode.DEDICATED)
+                .archiveDir(archiveDir));
+
+        aeron = Aeron.connect();
+
+        aeronArchive = AeronArchive.connect(
+            new AeronArchive.Context()
+                .aeron(aeron));
+    }
+
+    public void close()
+    {
+        CloseHelper.close(aeronArchive);
+        CloseHelper.close(aeron);
+        CloseHelper.close(archivingMediaDriver);
+
+        archivingMediaDriver.archive().context().deleteArchiveDirectory();
+        archivingMediaDriver.mediaDriver().context().deleteAeronDirectory();
+    }
+
+    private long makeRecordings()
+    {
+        long totalLength = 0;
+        for (int i = 0; i < REPLAY_COUNT; i++)
+        {
+            totalLength += makeRecording(i);
+        }
+
+        return totalLength;
+    }
+
+    private long makeRecording(final int index)
+    {
+        try (ExclusivePublication publication =
+            aeronArchive.addRecordedExclusivePublication(RECORDING_URI, STREAM_ID))
+        {
+            try
+            {
+                final CountersReader counters = aeron.countersReader();
+                int counterId;
+                while (CountersReader.NULL_COUNTER_ID ==
+                    (counterId = RecordingPos.findCounterIdBySession(counters, publication.sessionId())))
+                {
+                    Thread.yield();
+                }
+
+                final long messageCount = NUMBER_OF_MESSAGES / REPLAY_COUNT;
+                long i = 0;
+                while (i < messageCount)
+                {
+                    buffer.putLong(0, i);
+
+                    if (publication.offer(buffer, 0, MESSAGE_LENGTH) > 0)
+                    {
+                        i++;
+                    }
+                }
+
+                final long position = publication.position();
+                while (counters.getCounterValue(counterId) < position)
+                {
+                    Thread.yield();
+                }
+
+                recordingIds[index] = RecordingPos.getRecordingId(counters, counterId);
+                recordingLengths[index] = position;
+
+                return position;
+            }
+            finally
+            {
+                aeronArchive.stopRecording(publication);
+            }
+        }
+    }
+
+    private void replayRecordings()
+    {
+        final Subscription[] subscriptions = new Subscription[REPLAY_COUNT];
+        try
+        {
+            for (int i = 0; i < REPLAY_COUNT; i++)
+            {
+                subscriptions[i] = aeronArchive.replay(
+                    recordingIds[i], 0L, recordingLengths[i], REPLAY_URI, REPLAY_STREAM_ID + i);
+            }
+
+            final IdleStrategy idleStrategy = new BackoffIdleStrategy(10, 10, 1000, 1000);
+            int remaining = REPLAY_COUNT;
+            final boolean[] isComplete = new boolean[REPLAY_COUNT];
+
+            while (remaining > 0)
+            {
+                int fragments = 0;
+                for (int i = 0; i < REPLAY_COUNT; i++)
+                {
+                    final Subscription subscription = subscriptions[i];
+                    if (isComplete[i] || !subscription.isConnected())
+                    {
+                        continue;
+                    }
+
+                    fragments += subscription.poll(NOOP_FRAGMENT_HANDLER, FRAGMENT_COUNT_LIMIT);
+
+                    if (subscription.imageAtIndex(0).position() >= recordingLengths[i])
+                    {
+                        isComplete[i] = true;
+                        remaining--;
+                    }
+                }
+
+                idleStrategy.idle(fragments);
+            }
+        }
+        finally
+        {
+            CloseHelper.closeAll(subscriptions);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.samples.cluster;
+
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.cluster.codecs.CloseReason;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredService;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.hints.ThreadHints;
+
+/**
+ * {@link ClusteredService} which echoes each message back to the session which sent it.
+ * <p>
+ * Snapshots contain the count of messages echoed padded out to a configurable length so the cost of taking a
+ * snapshot under load can be measured. An optional delay can be added to the processing of each message to simulate a
+ * slow member.
+ */
+public class EchoService implements ClusteredService
+{
+    private final UnsafeBuffer snapshotBuffer;
+    private final long messageDelayNs;
+    private Cluster cluster;
+    private long messageCount;
+
+    /**
+     * Construct an echo service.
+     *
+     * @param snapshotLength in bytes of each snapshot taken.
+     * @param messageDelayNs to spin for when processing each message, or 0 for none.
+     */
+    public EchoService(final int snapshotLength, final long messageDelayNs)
+    {
+        this.snapshotBuffer = new UnsafeBuffer(new byte[Math.max(snapshotLength, 8)]);
+        this.messageDelayNs = messageDelayNs;
+    }
+
+    /**
+     * Count of messages echoed.
+     *
+     * @return count of messages echoed.
+     */
+    public long messageCount()
+    {
+        return messageCount;
+    }
+
+    public void onStart(final Cluster cluster, final Image snapshotImage)
+    {
+        this.cluster = cluster;
+
+        if (null != snapshotImage)
+        {
+            final boolean[] isCountLoaded = { false };
+            while (!snapshotImage.isEndOfStream())
+            {
+                final int fragments = snapshotImage.poll(
+                    (buffer, offset, length, header) ->
+                    {
+                        if (!isCountLoaded[0])
+                        {
+                            messageCount = buffer.getLong(offset);
+                            isCountLoaded[0] = true;
+                        }
+                    },
+                    10);
+
+                cluster.idle(fragments);
+            }
+        }
+    }
+
+    public void onSessionOpen(final ClientSession session, final long timestamp)
+    {
+    }
+
+    public void onSessionClose(final ClientSession session, final long timestamp, final CloseReason closeReason)
+    {
+    }
+
+    public void onSessionMessage(
+        final ClientSession session,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        messageCount++;
+
+        if (messageDelayNs > 0)
+        {
+            final long deadlineNs = System.nanoTime() + messageDelayNs;
+            while (System.nanoTime() < deadlineNs)
+            {
+                ThreadHints.onSpinWait();
+            }
+        }
+
+        while (session.offer(buffer, offset, length) < 0)
+        {
+            cluster.idle();
+        }
+    }
+
+    public void onTimerEvent(final long correlationId, final long timestamp)
+    {
+    }
+
+    public void onTakeSnapshot(final Publication snapshotPublication)
+    {
+        snapshotBuffer.putLong(0, messageCount);
+
+        final int maxLength = snapshotPublication.maxMessageLength();
+        int offset = 0;
+        while (offset < snapshotBuffer.capacity())
+        {
+            final int length = Math.min(maxLength, snapshotBuffer.capacity() - offset);
+            while (snapshotPublication.offer(snapshotBuffer, offset, length) < 0)
+            {
+                cluster.idle();
+            }
+
+            offset += length;
+        }
+    }
+
+    public void onRoleChange(final Cluster.Role newRole)
+    {
+    }
+
+    public void onTerminate(final Cluster cluster)
+    {
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.samples.cluster;
+
+import io.aeron.CommonContext;
+import io.aeron.Image;
+import io.aeron.Publication;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.codecs.CloseReason;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredService;
+import io.aeron.cluster.service.EgressClaim;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import io.aeron.samples.SampleConfiguration;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.agrona.SystemUtil.loadPropertiesFiles;
+
+/**
+ * Throughput test of the egress from a clustered service to many sessions on a single node cluster running in process.
+ * <p>
+ * One client sends requests and for each request the {@link FanOutService} sends a number of responses to every
+ * session connected to the cluster, so the rate is bound by the egress of the service rather than the log. Responses
+ * are sent by {@link ClientSession#offer(DirectBuffer, int, int)}, which copies each response from the service's
+ * buffer, or encoded in place with an {@link EgressClaim} as selected by {@link #MODE_PROP}.
+ */
+public class EgressBenchmark
+{
+    /**
+     * Method by which the service sends responses, either claim or offer.
+     */
+    public static final String MODE_PROP = "aeron.sample.cluster.egress.mode";
+
+    /**
+     * Number of client sessions connected to the cluster each of which is sent every response.
+     */
+    public static final String SESSION_COUNT_PROP = "aeron.sample.cluster.egress.sessions";
+
+    /**
+     * Number of responses sent to each session for each request.
+     */
+    public static final String FAN_OUT_PROP = "aeron.sample.cluster.egress.fanOut";
+
+    /**
+     * Duration in seconds of the measured run which follows a warm up of half the duration.
+     */
+    public static final String DURATION_PROP = "aeron.sample.cluster.egress.durationSeconds";
+
+    private static final long REPORT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_OUTSTANDING_REQUESTS = 16;
+
+    private final AeronCluster[] clients;
+    private final UnsafeBuffer requestBuffer = new UnsafeBuffer(new byte[BitUtil.SIZE_OF_LONG]);
+    private final long responsesPerRequest;
+    private long receivedCount;
+
+    EgressBenchmark(final AeronCluster[] clients, final int fanOut)
+    {
+        this.clients = clients;
+        this.responsesPerRequest = (long)fanOut * clients.length;
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        loadPropertiesFiles(args);
+
+        final boolean isClaim = "claim".equals(System.getProperty(MODE_PROP, "claim"));
+        final int sessionCount = Integer.getInteger(SESSION_COUNT_PROP, 4);
+        final int fanOut = Integer.getInteger(FAN_OUT_PROP, 16);
+        final long durationNs = TimeUnit.SECONDS.toNanos(Long.getLong(DURATION_PROP, 10));
+        final int messageLength = Math.max(SampleConfiguration.MESSAGE_LENGTH, BitUtil.SIZE_OF_LONG);
+
+        System.out.println(
+            "Egress by " + (isClaim ? "claim" : "offer") + " to " + sessionCount + " sessions, fanOut=" + fanOut +
+            ", length=" + messageLength + " bytes");
+
+        final EmbeddedClusterBenchmark.Node[] nodes = new EmbeddedClusterBenchmark.Node[1];
+        final AeronCluster[] clients = new AeronCluster[sessionCount];
+        MediaDriver clientMediaDriver = null;
+
+        try
+        {
+            nodes[0] = new EmbeddedClusterBenchmark.Node(
+                0, 1, 0, new FanOutService(isClaim, fanOut, messageLength), YieldingIdleStrategy::new);
+            EmbeddedClusterBenchmark.awaitLeader(nodes);
+
+            final String aeronDirName = CommonContext.getAeronDirectoryName();
+            clientMediaDriver = MediaDriver.launch(new MediaDriver.Context()
+                .aeronDirectoryName(aeronDirName)
+                .threadingMode(ThreadingMode.SHARED)
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true));
+
+            final EgressBenchmark benchmark = new EgressBenchmark(clients, fanOut);
+            final EgressListener listener = benchmark.new CountingListener();
+            for (int i = 0; i < sessionCount; i++)
+            {
+                clients[i] = AeronCluster.connect(new AeronCluster.Context()
+                    .egressListener(listener)
+                    .aeronDirectoryName(aeronDirName)
+                    .ingressChannel("aeron:udp")
+                    .clusterMemberEndpoints(EmbeddedClusterBenchmark.clientMemberEndpoints(1)));
+            }
+
+            System.out.println("Warming up for " + TimeUnit.NANOSECONDS.toSeconds(durationNs / 2) + "s");
+            benchmark.run(durationNs / 2);
+
+            System.out.println("Running for " + TimeUnit.NANOSECONDS.toSeconds(durationNs) + "s");
+            benchmark.run(durationNs);
+        }
+        finally
+        {
+            for (final AeronCluster client : clients)
+            {
+                CloseHelper.close(client);
+            }
+
+            CloseHelper.close(clientMediaDriver);
+
+            if (null != nodes[0])
+            {
+                nodes[0].close();
+                nodes[0].deleteDirectories();
+            }
+        }
+    }
+
+    void run(final long durationNs)
+    {
+        final AeronCluster requester = clients[0];
+        final long startNs = System.nanoTime();
+        final long endNs = startNs + durationNs;
+        long nextReportNs = startNs + REPORT_INTERVAL_NS;
+        long lastReportReceivedCount = 0;
+        long sentCount = 0;
+        long nowNs;
+
+        receivedCount = 0;
+
+        while ((nowNs = System.nanoTime()) < endNs)
+        {
+            if ((sentCount * responsesPerRequest) - receivedCount < MAX_OUTSTANDING_REQUESTS * responsesPerRequest)
+            {
+                requestBuffer.putLong(0, sentCount);
+                if (requester.offer(requestBuffer, 0, BitUtil.SIZE_OF_LONG) > 0)
+                {
+                    sentCount++;
+                }
+            }
+
+            for (final AeronCluster client : clients)
+            {
+                client.pollEgress();
+            }
+
+            if (nowNs >= nextReportNs)
+            {
+                for (final AeronCluster client : clients)
+                {
+                    client.sendKeepAlive();
+                }
+
+                System.out.format(
+                    "%.3fs %,d msgs/s%n", (nowNs - startNs) / 1e9, receivedCount - lastReportReceivedCount);
+                lastReportReceivedCount = receivedCount;
+                nextReportNs += REPORT_INTERVAL_NS;
+            }
+        }
+
+        while (receivedCount < sentCount * responsesPerRequest && System.nanoTime() < endNs + REPORT_INTERVAL_NS)
+        {
+            for (final AeronCluster client : clients)
+            {
+                client.pollEgress();
+            }
+        }
+
+        System.out.format(
+            "Average %,d msgs/s over %.3fs%n",
+            (long)(receivedCount * (TimeUnit.SECONDS.toNanos(1) / (double)(nowNs - startNs))),
+            (nowNs - startNs) / 1e9);
+    }
+
+    final class CountingListener implements EgressListener
+    {
+        public void onMessage(
+            final long clusterSessionId,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            receivedCount++;
+        }
+    }
+
+    /**
+     * {@link ClusteredService} which responds to each message by sending a number of responses to every connected
+     * session.
+     */
+    static final class FanOutService implements ClusteredService
+    {
+        private final ArrayList<ClientSession> sessions = new ArrayList<>();
+        private final EgressClaim egressClaim = new EgressClaim();
+        private final UnsafeBuffer responseBuffer;
+        private final boolean isClaim;
+        private final int fanOut;
+        private final int messageLength;
+        private Cluster cluster;
+
+        FanOutService(final boolean isClaim, final int fanOut, final int messageLength)
+        {
+            this.isClaim = isClaim;
+            this.fanOut = fanOut;
+            this.messageLength = messageLength;
+            this.responseBuffer = new UnsafeBuffer(new byte[messageLength]);
+        }
+
+        public void onStart(final Cluster cluster, final Image snapshotImage)
+        {
+            this.cluster = cluster;
+        }
+
+        public void onSessionOpen(final ClientSession session, final long timestamp)
+        {
+            sessions.add(session);
+        }
+
+        public void onSessionClose(final ClientSession session, final long timestamp, final CloseReason closeReason)
+        {
+            sessions.remove(session);
+        }
+
+        public void onSessionMessage(
+            final ClientSession session,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            final long requestId = buffer.getLong(offset);
+
+            for (int i = 0; i < fanOut; i++)
+            {
+                for (int j = 0, size = sessions.size(); j < size; j++)
+                {
+                    if (isClaim)
+                    {
+                        claimResponse(sessions.get(j), requestId);
+                    }
+                    else
+                    {
+                        offerResponse(sessions.get(j), requestId);
+                    }
+                }
+            }
+        }
+
+        public void onTimerEvent(final long correlationId, final long timestamp)
+        {
+        }
+
+        public void onTakeSnapshot(final Publication snapshotPublication)
+        {
+        }
+
+        public void onRoleChange(final Cluster.Role newRole)
+        {
+        }
+
+        public void onTerminate(final Cluster cluster)
+        {
+        }
+
+        private void claimResponse(final ClientSession session, final long requestId)
+        {
+            long result;
+            while ((result = session.tryClaim(messageLength, egressClaim)) < 0)
+            {
+                if (!isRetryable(result))
+                {
+                    return;
+                }
+
+                cluster.idle();
+            }
+
+            final MutableDirectBuffer buffer = egressClaim.buffer();
+            buffer.putLong(egressClaim.offset(), requestId);
+            egressClaim.commit();
+        }
+
+        private void offerResponse(final ClientSession session, final long requestId)
+        {
+            responseBuffer.putLong(0, requestId);
+
+            long result;
+            while ((result = session.offer(responseBuffer, 0, messageLength)) < 0)
+            {
+                if (!isRetryable(result))
+                {
+                    return;
+                }
+
+                cluster.idle();
+            }
+        }
+
+        private static boolean isRetryable(final long result)
+        {
+            return Publication.BACK_PRESSURED == result || Publication.ADMIN_ACTION == result;
+        }
+    }
+}
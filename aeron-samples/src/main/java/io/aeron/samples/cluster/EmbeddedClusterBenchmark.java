@@ -0,0 +1,566 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.samples.cluster;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.ClusterControl;
+import io.aeron.cluster.ClusteredMediaDriver;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredService;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import io.aeron.samples.SampleConfiguration;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.agrona.BitUtil;
+import org.agrona.BufferUtil;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.agrona.SystemUtil.loadPropertiesFiles;
+
+/**
+ * Latency and throughput test of a multi-node cluster running in process with an {@link EchoService} on each node.
+ * <p>
+ * A single client offers messages at a fixed rate and each message carries the time it was intended to be sent rather
+ * than the time it was sent, so the latency recorded includes any time spent waiting behind a stalled cluster and is
+ * not subject to coordinated omission. Latency is recorded in an {@link Recorder} and the interval histograms are
+ * written each second to an HdrHistogram log when {@link #HISTOGRAM_LOG_PROP} is set, so the effect of a scenario can
+ * be plotted over time.
+ * <p>
+ * Scenarios, selected with {@link #SCENARIO_PROP}, are:
+ * <ul>
+ *     <li>steady: load only.</li>
+ *     <li>snapshot: a snapshot is triggered on the leader half way through the run.</li>
+ *     <li>leader-failover: the leader is stopped half way through the run.</li>
+ *     <li>slow-follower: one follower idles by sleeping and has each message delayed in its service.</li>
+ * </ul>
+ * Member 0 is appointed leader so the slow follower is known in advance, except for leader-failover which needs a
+ * free election once the leader has stopped.
+ */
+public class EmbeddedClusterBenchmark
+{
+    /**
+     * Number of members in the cluster, typically 3 or 5.
+     */
+    public static final String MEMBER_COUNT_PROP = "aeron.sample.cluster.members";
+
+    /**
+     * Scenario to run, one of steady, snapshot, leader-failover, or slow-follower.
+     */
+    public static final String SCENARIO_PROP = "aeron.sample.cluster.scenario";
+
+    /**
+     * Rate in messages per second at which the client offers messages.
+     */
+    public static final String MESSAGE_RATE_PROP = "aeron.sample.cluster.messageRate";
+
+    /**
+     * File to which the interval histograms are written in the HdrHistogram log format.
+     */
+    public static final String HISTOGRAM_LOG_PROP = "aeron.sample.cluster.histogramLog";
+
+    /**
+     * Length in bytes of the snapshot taken by each service.
+     */
+    public static final String SNAPSHOT_LENGTH_PROP = "aeron.sample.cluster.snapshotLength";
+
+    /**
+     * Delay in nanoseconds added to the processing of each message by the slow follower.
+     */
+    public static final String SLOW_FOLLOWER_DELAY_PROP = "aeron.sample.cluster.slowFollowerDelay";
+
+    private static final long HIGHEST_TRACKABLE_LATENCY_NS = TimeUnit.MINUTES.toNanos(1);
+    private static final long REPORT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DRAIN_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10);
+
+    enum Scenario
+    {
+        STEADY("steady"),
+        SNAPSHOT("snapshot"),
+        LEADER_FAILOVER("leader-failover"),
+        SLOW_FOLLOWER("slow-follower");
+
+        private final String propertyValue;
+
+        Scenario(final String propertyValue)
+        {
+            this.propertyValue = propertyValue;
+        }
+
+        static Scenario get(final String propertyValue)
+        {
+            for (final Scenario scenario : values())
+            {
+                if (scenario.propertyValue.equals(propertyValue))
+                {
+                    return scenario;
+                }
+            }
+
+            throw new IllegalArgumentException("unknown scenario: " + propertyValue);
+        }
+    }
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_LATENCY_NS, 3);
+    private final Histogram totalHistogram = new Histogram(HIGHEST_TRACKABLE_LATENCY_NS, 3);
+    private final Node[] nodes;
+    private final Scenario scenario;
+    private final int messageLength;
+    private final long messageIntervalNs;
+    private final HistogramLogWriter logWriter;
+    private final UnsafeBuffer offerBuffer;
+    private long receivedCount;
+
+    EmbeddedClusterBenchmark(
+        final Node[] nodes,
+        final Scenario scenario,
+        final int messageLength,
+        final long messageRate,
+        final HistogramLogWriter logWriter)
+    {
+        this.nodes = nodes;
+        this.scenario = scenario;
+        this.messageLength = messageLength;
+        this.messageIntervalNs = TimeUnit.SECONDS.toNanos(1) / messageRate;
+        this.logWriter = logWriter;
+        this.offerBuffer = new UnsafeBuffer(
+            BufferUtil.allocateDirectAligned(messageLength, BitUtil.CACHE_LINE_LENGTH));
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        loadPropertiesFiles(args);
+
+        final int memberCount = Integer.getInteger(MEMBER_COUNT_PROP, 3);
+        final Scenario scenario = Scenario.get(System.getProperty(SCENARIO_PROP, "steady"));
+        final long messageRate = Long.getLong(MESSAGE_RATE_PROP, 10_000);
+        final String histogramLogFilename = System.getProperty(HISTOGRAM_LOG_PROP);
+        final int snapshotLength = Integer.getInteger(SNAPSHOT_LENGTH_PROP, 64 * 1024 * 1024);
+        final long slowFollowerDelayNs = Long.getLong(SLOW_FOLLOWER_DELAY_PROP, TimeUnit.MICROSECONDS.toNanos(50));
+        final int messageLength = Math.max(SampleConfiguration.MESSAGE_LENGTH, BitUtil.SIZE_OF_LONG);
+
+        System.out.println(
+            "Cluster of " + memberCount + " members, scenario=" + scenario.propertyValue +
+            ", rate=" + messageRate + " msgs/s, length=" + messageLength + " bytes");
+
+        final int appointedLeaderId = Scenario.LEADER_FAILOVER == scenario ? Aeron.NULL_VALUE : 0;
+        final Node[] nodes = new Node[memberCount];
+        MediaDriver clientMediaDriver = null;
+        AeronCluster client = null;
+        HistogramLogWriter logWriter = null;
+
+        try
+        {
+            for (int i = 0; i < memberCount; i++)
+            {
+                final boolean isSlow = Scenario.SLOW_FOLLOWER == scenario && i == memberCount - 1;
+                nodes[i] = new Node(
+                    i, memberCount, appointedLeaderId, snapshotLength, isSlow ? slowFollowerDelayNs : 0);
+            }
+
+            awaitLeader(nodes);
+
+            if (null != histogramLogFilename)
+            {
+                logWriter = newHistogramLogWriter(histogramLogFilename);
+            }
+
+            final EmbeddedClusterBenchmark benchmark = new EmbeddedClusterBenchmark(
+                nodes, scenario, messageLength, messageRate, logWriter);
+
+            final String aeronDirName = CommonContext.getAeronDirectoryName();
+            clientMediaDriver = MediaDriver.launch(new MediaDriver.Context()
+                .aeronDirectoryName(aeronDirName)
+                .threadingMode(ThreadingMode.SHARED)
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true));
+
+            client = AeronCluster.connect(new AeronCluster.Context()
+                .egressListener(benchmark.new EchoListener())
+                .aeronDirectoryName(aeronDirName)
+                .ingressChannel("aeron:udp")
+                .clusterMemberEndpoints(clientMemberEndpoints(memberCount)));
+
+            System.out.println("Warming up with " + SampleConfiguration.WARMUP_NUMBER_OF_MESSAGES + " messages");
+            benchmark.run(client, SampleConfiguration.WARMUP_NUMBER_OF_MESSAGES, false);
+
+            System.out.println("Running with " + SampleConfiguration.NUMBER_OF_MESSAGES + " messages");
+            benchmark.run(client, SampleConfiguration.NUMBER_OF_MESSAGES, true);
+        }
+        finally
+        {
+            if (null != logWriter)
+            {
+                logWriter.close();
+            }
+
+            CloseHelper.close(client);
+            CloseHelper.close(clientMediaDriver);
+
+            for (final Node node : nodes)
+            {
+                if (null != node)
+                {
+                    node.close();
+                    node.deleteDirectories();
+                }
+            }
+        }
+    }
+
+    void run(final AeronCluster client, final long messageCount, final boolean isMeasured)
+    {
+        final long scenarioTriggerCount = isMeasured ? messageCount / 2 : Long.MAX_VALUE;
+        final long startNs = System.nanoTime();
+        long nextSendNs = startNs;
+        long nextReportNs = startNs + REPORT_INTERVAL_NS;
+        long sentCount = 0;
+        long lastReportSentCount = 0;
+        long lastReportReceivedCount = 0;
+
+        receivedCount = 0;
+        recorder.reset();
+        totalHistogram.reset();
+
+        while (sentCount < messageCount)
+        {
+            long nowNs = System.nanoTime();
+            if (nowNs >= nextSendNs)
+            {
+                offerBuffer.putLong(0, nextSendNs);
+                if (client.offer(offerBuffer, 0, messageLength) > 0)
+                {
+                    nextSendNs += messageIntervalNs;
+                    if (++sentCount == scenarioTriggerCount)
+                    {
+                        triggerScenario();
+                        nowNs = System.nanoTime();
+                    }
+                }
+            }
+
+            client.pollEgress();
+
+            if (nowNs >= nextReportNs)
+            {
+                report(
+                    nowNs - startNs,
+                    sentCount - lastReportSentCount,
+                    receivedCount - lastReportReceivedCount,
+                    isMeasured);
+                lastReportSentCount = sentCount;
+                lastReportReceivedCount = receivedCount;
+                nextReportNs += REPORT_INTERVAL_NS;
+            }
+        }
+
+        final long drainDeadlineNs = System.nanoTime() + DRAIN_TIMEOUT_NS;
+        while (receivedCount < sentCount && System.nanoTime() < drainDeadlineNs)
+        {
+            if (0 == client.pollEgress())
+            {
+                Thread.yield();
+            }
+        }
+
+        report(
+            System.nanoTime() - startNs,
+            sentCount - lastReportSentCount,
+            receivedCount - lastReportReceivedCount,
+            isMeasured);
+
+        if (isMeasured)
+        {
+            System.out.println("Lost responses: " + (sentCount - receivedCount));
+            System.out.println("Latency distribution in microseconds");
+            totalHistogram.outputPercentileDistribution(System.out, 1000.0);
+        }
+    }
+
+    private void report(
+        final long elapsedNs, final long sentCount, final long receivedCount, final boolean isMeasured)
+    {
+        final Histogram intervalHistogram = recorder.getIntervalHistogram();
+        totalHistogram.add(intervalHistogram);
+
+        if (isMeasured && null != logWriter)
+        {
+            logWriter.outputIntervalHistogram(intervalHistogram);
+        }
+
+        System.out.format(
+            "%.3fs sent=%d received=%d p50=%dus p99=%dus max=%dus%n",
+            elapsedNs / 1e9,
+            sentCount,
+            receivedCount,
+            TimeUnit.NANOSECONDS.toMicros(intervalHistogram.getValueAtPercentile(50)),
+            TimeUnit.NANOSECONDS.toMicros(intervalHistogram.getValueAtPercentile(99)),
+            TimeUnit.NANOSECONDS.toMicros(intervalHistogram.getMaxValue()));
+    }
+
+    private void triggerScenario()
+    {
+        final Node leader = findLeader();
+
+        switch (scenario)
+        {
+            case SNAPSHOT:
+                System.out.println("Triggering snapshot on leader " + leader.memberId);
+                ClusterControl.ToggleState.SNAPSHOT.toggle(leader.controlToggle());
+                break;
+
+            case LEADER_FAILOVER:
+                System.out.println("Stopping leader " + leader.memberId);
+                leader.close();
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private Node findLeader()
+    {
+        for (final Node node : nodes)
+        {
+            if (!node.isClosed && Cluster.Role.LEADER == node.role())
+            {
+                return node;
+            }
+        }
+
+        throw new IllegalStateException("no leader found");
+    }
+
+    static void awaitLeader(final Node[] nodes) throws InterruptedException
+    {
+        while (true)
+        {
+            for (final Node node : nodes)
+            {
+                if (Cluster.Role.LEADER == node.role())
+                {
+                    return;
+                }
+            }
+
+            Thread.sleep(100);
+        }
+    }
+
+    private static HistogramLogWriter newHistogramLogWriter(final String filename) throws FileNotFoundException
+    {
+        final HistogramLogWriter logWriter = new HistogramLogWriter(filename);
+        final long nowMs = System.currentTimeMillis();
+
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(nowMs);
+        logWriter.setBaseTime(nowMs);
+        logWriter.outputLegend();
+
+        return logWriter;
+    }
+
+    private static String clusterMembers(final int memberCount)
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < memberCount; i++)
+        {
+            builder
+                .append(i).append(',')
+                .append("localhost:2011").append(i).append(',')
+                .append("localhost:2022").append(i).append(',')
+                .append("localhost:2033").append(i).append(',')
+                .append("localhost:2044").append(i).append(',')
+                .append("localhost:801").append(i).append('|');
+        }
+
+        builder.setLength(builder.length() - 1);
+
+        return builder.toString();
+    }
+
+    static String clientMemberEndpoints(final int memberCount)
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < memberCount; i++)
+        {
+            builder.append(i).append('=').append("localhost:2011").append(i).append(',');
+        }
+
+        builder.setLength(builder.length() - 1);
+
+        return builder.toString();
+    }
+
+    final class EchoListener implements EgressListener
+    {
+        public void onMessage(
+            final long clusterSessionId,
+            final long timestamp,
+            final DirectBuffer buffer,
+            final int offset,
+            final int length,
+            final Header header)
+        {
+            final long latencyNs = System.nanoTime() - buffer.getLong(offset);
+            recorder.recordValue(Math.min(latencyNs, HIGHEST_TRACKABLE_LATENCY_NS));
+            receivedCount++;
+        }
+    }
+
+    static final class Node implements AutoCloseable
+    {
+        final int memberId;
+        final ClusteredMediaDriver clusteredMediaDriver;
+        final ClusteredServiceContainer container;
+        boolean isClosed = false;
+
+        Node(
+            final int memberId,
+            final int memberCount,
+            final int appointedLeaderId,
+            final int snapshotLength,
+            final long messageDelayNs)
+        {
+            this(
+                memberId,
+                memberCount,
+                appointedLeaderId,
+                new EchoService(snapshotLength, messageDelayNs),
+                messageDelayNs > 0 ? () -> new SleepingMillisIdleStrategy(1) : YieldingIdleStrategy::new);
+        }
+
+        Node(
+            final int memberId,
+            final int memberCount,
+            final int appointedLeaderId,
+            final ClusteredService clusteredService,
+            final Supplier<IdleStrategy> idleStrategySupplier)
+        {
+            this.memberId = memberId;
+
+            final String baseDirName = CommonContext.getAeronDirectoryName() + "-" + memberId;
+            final String aeronDirName = baseDirName + "-driver";
+
+            final AeronArchive.Context aeronArchiveContext = new AeronArchive.Context()
+                .controlRequestChannel("aeron:udp?term-length=64k|endpoint=localhost:801" + memberId)
+                .controlRequestStreamId(100)
+                .controlResponseChannel("aeron:udp?term-length=64k|endpoint=localhost:802" + memberId)
+                .controlResponseStreamId(110 + memberId)
+                .recordingEventsChannel("aeron:udp?control-mode=dynamic|control=localhost:803" + memberId)
+                .aeronDirectoryName(aeronDirName);
+
+            final MediaDriver.Context mediaDriverContext = new MediaDriver.Context()
+                .aeronDirectoryName(aeronDirName)
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true);
+
+            final AeronArchive.Context archiveClientContext = new AeronArchive.Context()
+                .controlResponseChannel(aeronArchiveContext.controlResponseChannel());
+
+            final Archive.Context archiveContext = new Archive.Context()
+                .aeronDirectoryName(aeronDirName)
+                .archiveDir(new File(baseDirName, "archive"))
+                .controlChannel(aeronArchiveContext.controlRequestChannel())
+                .controlStreamId(aeronArchiveContext.controlRequestStreamId())
+                .localControlChannel("aeron:ipc?term-length=64k")
+                .localControlStreamId(aeronArchiveContext.controlRequestStreamId())
+                .recordingEventsEnabled(false)
+                .recordingEventsChannel(aeronArchiveContext.recordingEventsChannel())
+                .replicationChannel("aeron:udp?endpoint=localhost:804" + memberId)
+                .archiveClientContext(archiveClientContext)
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .deleteArchiveOnStart(true);
+
+            final ConsensusModule.Context consensusModuleContext = new ConsensusModule.Context()
+                .clusterMemberId(memberId)
+                .clusterMembers(clusterMembers(memberCount))
+                .appointedLeaderId(appointedLeaderId)
+                .aeronDirectoryName(aeronDirName)
+                .clusterDir(new File(baseDirName, "consensus-module"))
+                .ingressChannel("aeron:udp?term-length=64k")
+                .logChannel("aeron:udp?term-length=16m|control-mode=manual|control=localhost:2055" + memberId)
+                .archiveContext(aeronArchiveContext.clone())
+                .idleStrategySupplier(idleStrategySupplier)
+                .deleteDirOnStart(true);
+
+            final ClusteredServiceContainer.Context serviceContainerContext = new ClusteredServiceContainer.Context()
+                .aeronDirectoryName(aeronDirName)
+                .archiveContext(aeronArchiveContext.clone())
+                .clusterDir(new File(baseDirName, "service"))
+                .clusteredService(clusteredService)
+                .idleStrategySupplier(idleStrategySupplier);
+
+            clusteredMediaDriver = ClusteredMediaDriver.launch(
+                mediaDriverContext, archiveContext, consensusModuleContext);
+            container = ClusteredServiceContainer.launch(serviceContainerContext);
+        }
+
+        Cluster.Role role()
+        {
+            return Cluster.Role.get((int)clusteredMediaDriver.consensusModule().context().clusterNodeCounter().get());
+        }
+
+        AtomicCounter controlToggle()
+        {
+            return ClusterControl.findControlToggle(
+                clusteredMediaDriver.consensusModule().context().aeron().countersReader());
+        }
+
+        public void close()
+        {
+            if (!isClosed)
+            {
+                isClosed = true;
+                CloseHelper.close(container);
+                CloseHelper.close(clusteredMediaDriver);
+            }
+        }
+
+        void deleteDirectories()
+        {
+            container.context().deleteDirectory();
+            clusteredMediaDriver.consensusModule().context().deleteDirectory();
+            clusteredMediaDriver.archive().context().deleteArchiveDirectory();
+        }
+    }
+}
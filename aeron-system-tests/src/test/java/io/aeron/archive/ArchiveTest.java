@@ -158,6 +158,8 @@ public class ArchiveTest
                 .archiveDir(new File(SystemUtil.tmpDirName(), "archive-test"))
                 .segmentFileLength(segmentFileLength)
                 .threadingMode(archiveThreadingMode)
+                .replayerCount(2)
+                .replayReadAheadThreadCount(2)
                 .idleStrategySupplier(YieldingIdleStrategy::new)
                 .errorCounter(driver.context().systemCounters().get(SystemCounterDescriptor.ERRORS))
                 .errorHandler(driver.context().errorHandler()));
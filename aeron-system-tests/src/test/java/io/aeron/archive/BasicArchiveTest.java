@@ -213,6 +213,43 @@ public class BasicArchiveTest
         aeronArchive.stopReplay(replaySessionId);
     }
 
+    @Test(timeout = 10_000)
+    public void shouldReplayConcurrentlyWithWeightedShares()
+    {
+        final String messagePrefix = "Message-Prefix-";
+        final int messageCount = 100;
+        final long stopPosition;
+        final long recordingId;
+
+        try (Subscription subscription = aeron.addSubscription(RECORDED_CHANNEL, RECORDED_STREAM_ID);
+            Publication publication = aeronArchive.addRecordedPublication(RECORDED_CHANNEL, RECORDED_STREAM_ID))
+        {
+            final CountersReader counters = aeron.countersReader();
+            final int counterId = Common.awaitRecordingCounterId(counters, publication.sessionId());
+            recordingId = RecordingPos.getRecordingId(counters, counterId);
+
+            offer(publication, messageCount, messagePrefix);
+            consume(subscription, messageCount, messagePrefix);
+
+            stopPosition = publication.position();
+            awaitPosition(counters, counterId, stopPosition);
+            aeronArchive.stopRecording(publication);
+        }
+
+        try (Subscription lightSubscription = aeron.addSubscription(REPLAY_CHANNEL, REPLAY_STREAM_ID);
+            Subscription heavySubscription = aeron.addSubscription(REPLAY_CHANNEL, REPLAY_STREAM_ID + 1))
+        {
+            aeronArchive.startReplay(recordingId, 0L, stopPosition, REPLAY_CHANNEL, REPLAY_STREAM_ID, 1);
+            aeronArchive.startReplay(recordingId, 0L, stopPosition, REPLAY_CHANNEL, REPLAY_STREAM_ID + 1, 4);
+
+            consume(heavySubscription, messageCount, messagePrefix);
+            consume(lightSubscription, messageCount, messagePrefix);
+
+            assertEquals(stopPosition, heavySubscription.imageAtIndex(0).position());
+            assertEquals(stopPosition, lightSubscription.imageAtIndex(0).position());
+        }
+    }
+
     @Test(timeout = 10_000)
     public void shouldReplayRecordingFromLateJoinPosition()
     {
@@ -17,6 +17,7 @@ package io.aeron.archive;
 
 import io.aeron.*;
 import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.codecs.RecordingCompression;
 import io.aeron.archive.status.RecordingPos;
 import io.aeron.driver.MediaDriver;
 import io.aeron.driver.ThreadingMode;
@@ -31,6 +32,7 @@ import org.junit.Test;
 import java.io.File;
 
 import static io.aeron.archive.Common.*;
+import static io.aeron.archive.codecs.SourceLocation.LOCAL;
 import static io.aeron.logbuffer.FrameDescriptor.FRAME_ALIGNMENT;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -41,6 +43,11 @@ public class ManageRecordingHistoryTest
     private static final int SEGMENT_LENGTH = TERM_LENGTH * 2;
     private static final int STREAM_ID = 33;
     private static final int MTU_LENGTH = 1024;
+    private static final int REPLAY_STREAM_ID = 66;
+    private static final String REPLAY_CHANNEL = new ChannelUriStringBuilder()
+        .media("udp")
+        .endpoint("localhost:6666")
+        .build();
 
     private final ChannelUriStringBuilder uriBuilder = new ChannelUriStringBuilder()
         .media("udp")
@@ -305,4 +312,47 @@ public class ManageRecordingHistoryTest
             assertThat(aeronArchive.getStopPosition(srcRecordingId), is(startPosition));
         }
     }
+
+    @Test(timeout = 10_000)
+    public void shouldReplayCompressedSegments()
+    {
+        final String messagePrefix = "Message-Prefix-";
+        final int messageCount = 8_000;
+        final String channel = uriBuilder.build();
+        final long subscriptionId = aeronArchive.startRecording(channel, STREAM_ID, LOCAL, RecordingCompression.LZ);
+        final long recordingId;
+        final long stopPosition;
+
+        try (Publication publication = aeron.addPublication(channel, STREAM_ID))
+        {
+            final CountersReader counters = aeron.countersReader();
+            final int counterId = Common.awaitRecordingCounterId(counters, publication.sessionId());
+            recordingId = RecordingPos.getRecordingId(counters, counterId);
+
+            offer(publication, messageCount, messagePrefix);
+            stopPosition = publication.position();
+            awaitPosition(counters, counterId, stopPosition);
+        }
+
+        aeronArchive.stopRecording(subscriptionId);
+
+        final File archiveDir = archivingMediaDriver.archive().context().archiveDir();
+        assertThat(stopPosition > SEGMENT_LENGTH * 3L, is(true));
+
+        for (long position = 0; position + SEGMENT_LENGTH <= stopPosition; position += SEGMENT_LENGTH)
+        {
+            final File segmentFile = new File(archiveDir, Archive.segmentFileName(recordingId, position));
+            while (!CompressedSegment.isCompressed(segmentFile))
+            {
+                Thread.yield();
+                SystemTest.checkInterruptedStatus();
+            }
+        }
+
+        try (Subscription replay = aeronArchive.replay(recordingId, 0L, stopPosition, REPLAY_CHANNEL, REPLAY_STREAM_ID))
+        {
+            consume(replay, messageCount, messagePrefix);
+            assertThat(replay.imageAtIndex(0).position(), is(stopPosition));
+        }
+    }
 }
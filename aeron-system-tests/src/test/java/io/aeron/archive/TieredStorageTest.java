@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014-2019 Real Logic Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.aeron.archive;
+
+import io.aeron.*;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.LogBufferDescriptor;
+import org.agrona.CloseHelper;
+import org.agrona.SystemUtil;
+import org.agrona.concurrent.status.CountersReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static io.aeron.archive.Common.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TieredStorageTest
+{
+    private static final int TERM_LENGTH = LogBufferDescriptor.TERM_MIN_LENGTH;
+    private static final int SEGMENT_LENGTH = TERM_LENGTH * 2;
+    private static final int STREAM_ID = 33;
+    private static final int MTU_LENGTH = 1024;
+    private static final int REPLAY_STREAM_ID = 66;
+    private static final String REPLAY_CHANNEL = new ChannelUriStringBuilder()
+        .media("udp")
+        .endpoint("localhost:6666")
+        .build();
+
+    private final String channel = new ChannelUriStringBuilder()
+        .media("udp")
+        .endpoint("localhost:3333")
+        .mtu(MTU_LENGTH)
+        .termLength(Common.TERM_LENGTH)
+        .build();
+
+    private ArchivingMediaDriver archivingMediaDriver;
+    private Aeron aeron;
+    private AeronArchive aeronArchive;
+
+    @Before
+    public void before()
+    {
+        archivingMediaDriver = ArchivingMediaDriver.launch(
+            new MediaDriver.Context()
+                .publicationTermBufferLength(Common.TERM_LENGTH)
+                .termBufferSparseFile(true)
+                .threadingMode(ThreadingMode.SHARED)
+                .errorHandler(Throwable::printStackTrace)
+                .spiesSimulateConnection(true)
+                .dirDeleteOnShutdown(true)
+                .dirDeleteOnStart(true),
+            new Archive.Context()
+                .maxCatalogEntries(Common.MAX_CATALOG_ENTRIES)
+                .segmentFileLength(SEGMENT_LENGTH)
+                .deleteArchiveOnStart(true)
+                .archiveDir(new File(SystemUtil.tmpDirName(), "archive"))
+                .tierDir(new File(SystemUtil.tmpDirName(), "archive-tier"))
+                .tierCompress(true)
+                .fileSyncLevel(0)
+                .threadingMode(ArchiveThreadingMode.SHARED));
+
+        aeron = Aeron.connect();
+
+        aeronArchive = AeronArchive.connect(
+            new AeronArchive.Context()
+                .aeron(aeron));
+    }
+
+    @After
+    public void after()
+    {
+        CloseHelper.close(aeronArchive);
+        CloseHelper.close(aeron);
+        CloseHelper.close(archivingMediaDriver);
+
+        archivingMediaDriver.archive().context().deleteArchiveDirectory();
+    }
+
+    @Test(timeout = 10_000)
+    public void shouldMoveDetachedSegmentsToTierThenReplayAfterAttach()
+    {
+        final String messagePrefix = "Message-Prefix-";
+        final int messageCount = 8_000;
+        final long recordingId;
+        final long stopPosition;
+
+        try (Publication publication = aeronArchive.addRecordedPublication(channel, STREAM_ID))
+        {
+            final CountersReader counters = aeron.countersReader();
+            final int counterId = Common.awaitRecordingCounterId(counters, publication.sessionId());
+            recordingId = RecordingPos.getRecordingId(counters, counterId);
+
+            offer(publication, messageCount, messagePrefix);
+            stopPosition = publication.position();
+            awaitPosition(counters, counterId, stopPosition);
+
+            aeronArchive.stopRecording(publication);
+        }
+
+        assertThat(stopPosition > SEGMENT_LENGTH * 3L, is(true));
+
+        final Archive.Context archiveCtx = archivingMediaDriver.archive().context();
+        final long newStartPosition = SEGMENT_LENGTH * 2L;
+
+        aeronArchive.detachSegments(recordingId, newStartPosition);
+        for (long position = 0; position < newStartPosition; position += SEGMENT_LENGTH)
+        {
+            final String segmentFileName = Archive.segmentFileName(recordingId, position);
+            assertFalse(new File(archiveCtx.archiveDir(), segmentFileName).exists());
+            assertTrue(CompressedSegment.isCompressed(new File(archiveCtx.tierDir(), segmentFileName)));
+        }
+
+        assertThat(aeronArchive.attachSegments(recordingId), is(2L));
+        assertThat(aeronArchive.getStartPosition(recordingId), is(0L));
+
+        try (Subscription replay = aeronArchive.replay(recordingId, 0L, stopPosition, REPLAY_CHANNEL, REPLAY_STREAM_ID))
+        {
+            consume(replay, messageCount, messagePrefix);
+            assertThat(replay.imageAtIndex(0).position(), is(stopPosition));
+        }
+
+        for (long position = 0; position < newStartPosition; position += SEGMENT_LENGTH)
+        {
+            final File segmentFile = new File(archiveCtx.archiveDir(), Archive.segmentFileName(recordingId, position));
+            while (!segmentFile.exists())
+            {
+                Thread.yield();
+                SystemTest.checkInterruptedStatus();
+            }
+        }
+
+        assertThat(aeronArchive.purgeSegments(recordingId, newStartPosition), is(2L));
+        for (long position = 0; position < newStartPosition; position += SEGMENT_LENGTH)
+        {
+            final String segmentFileName = Archive.segmentFileName(recordingId, position);
+            assertFalse(new File(archiveCtx.archiveDir(), segmentFileName).exists());
+            assertFalse(new File(archiveCtx.tierDir(), segmentFileName).exists());
+        }
+    }
+}